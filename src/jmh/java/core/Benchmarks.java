@@ -0,0 +1,21 @@
+package core;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with allocation profiling enabled. Accepts the usual JMH command line options, e.g. a benchmark name pattern. A
+ * benchmark that fails, like {@link FrameAllocationBenchmark} when a frame allocates, fails the whole run.
+ */
+public final class Benchmarks
+{
+	private Benchmarks()
+	{}
+
+	public static void main(final String[] args) throws Exception
+	{
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).shouldFailOnError(true).build()).run();
+	}
+}
@@ -0,0 +1,187 @@
+package core;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.entity.Entity;
+import core.entity.EntityStore;
+import core.entity.Model;
+import core.entity.Scene;
+import core.entity.SceneSnapshot;
+import core.entity.Texture;
+import core.entity.terrain.Terrain;
+import core.lighting.DirectionalLight;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+import core.rendering.Camera;
+import core.rendering.RenderManager;
+
+/**
+ * A whole headless frame of the pipelined game loop, with the render work spread over a job system as in the engine: input, a tick moving
+ * entities, capturing a snapshot, rendering it into a {@link RecordingDevice} and ending the frame. Runs with both lighting pipelines, at full
+ * and at half resolution. That the steady state frame does not allocate is checked by FrameAllocationTest, run with -prof gc to see the
+ * allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrameAllocationBenchmark
+{
+	private static final int ENTITIES    = 1000;
+	private static final int MODELS      = 16;
+	private static final int JOB_THREADS = 2;
+
+	@Param({"FORWARD", "DEFERRED"})
+	public RenderManager.Pipeline pipeline;
+
+	@Param({"1", "0.5"})
+	public float renderScale;
+
+	private Camera        camera;
+	private Config        config;
+	private EntityStore   entityStore;
+	private FrameStats    frameStats;
+	private InputManager  inputManager;
+	private JobSystem     jobSystem;
+	private Metrics       metrics;
+	private Profiler      profiler;
+	private RenderManager renderManager;
+	private Scene         scene;
+	private SceneSnapshot snapshot;
+
+	@Benchmark
+	public RenderManager frame()
+	{
+		config.update();
+		profiler.begin("input");
+		inputManager.poll();
+		profiler.end();
+
+		profiler.begin("update");
+		inputManager.updateSnapshot();
+		for(var i = 0; i < entityStore.size(); i += 7)
+			entityStore.getEntity(i).incRotation(0, 0.5f, 0);
+		camera.moveRotation(0, 0.1f, 0);
+		metrics.nextTick();
+		profiler.end();
+
+		profiler.begin("capture");
+		snapshot.capture(scene, camera);
+		profiler.end();
+
+		profiler.begin("render");
+		renderManager.render(snapshot, snapshot.getCamera());
+		profiler.end();
+		profiler.endFrame();
+		frameStats.mark(FrameStats.Stage.RENDER);
+		metrics.endFrame(frameStats.endFrame());
+		return renderManager;
+	}
+
+	@Setup
+	public void setup() throws Exception
+	{
+		final var objectLoader = ObjectLoader.getInstance();
+		objectLoader.setGraphicsDevice(new RecordingDevice());
+
+		final var getRenderManagerInstance = RenderManager.class.getDeclaredMethod("getInstance");
+		getRenderManagerInstance.setAccessible(true);
+		jobSystem     = new JobSystem(JOB_THREADS);
+		renderManager = (RenderManager) getRenderManagerInstance.invoke(null);
+		renderManager.setJobSystem(jobSystem);
+		renderManager.setPipeline(pipeline);
+		renderManager.initialize(objectLoader);
+		renderManager.setViewportSize(1280, 720);
+		renderManager.setRenderScale(renderScale);
+		renderManager.setProjectionMatrix(new Matrix4f().setPerspective((float) Math.toRadians(60), 16f / 9, 0.01f, 1000));
+
+		camera       = new Camera(new Vector3f(0, 5, 20), new Vector3f(10, 0, 0));
+		config       = new Config(new Properties());
+		frameStats   = new FrameStats(10);
+		inputManager = InputManager.getInstance();
+		metrics      = DragonEngine.getMetrics();
+		profiler     = DragonEngine.getProfiler();
+		snapshot     = new SceneSnapshot();
+		profiler.setEnabled(true);
+
+		final var models = new Model[MODELS];
+		for(var i = 0; i < MODELS; i++)
+		{
+			models[i] = new Model(i + 1, 36, new Texture(i + 1));
+			models[i].setBoundingRadius(1);
+		}
+		entityStore = new EntityStore();
+		for(var i = 0; i < ENTITIES; i++)
+			entityStore.add(new Entity(models[i % MODELS], new Vector3f(i % 40 - 20, 0, -i / 40), new Vector3f(0, i % 360, 0), 1));
+
+		final var directionalLight = new DirectionalLight(new Vector3f(1), new Vector3f(0, -1, 0), 1);
+		final var pointLights      = new PointLight[]{new PointLight(new Vector3f(1), new Vector3f(0, 2, 0), 1), new PointLight(new Vector3f(1), new Vector3f(4, 2, 0), 1)};
+		final var spotLights       = new SpotLight[]{new SpotLight(new Vector3f(1), new Vector3f(0, 5, 0), 1, 0, 0, 1, new Vector3f(0, -1, 0), 0.5f)};
+		scene = new Scene()
+		{
+			@Override
+			public Vector3f getAmbientLight()
+			{
+				return directionalLight.getColor();
+			}
+
+			@Override
+			public DirectionalLight getDirectionalLight()
+			{
+				return directionalLight;
+			}
+
+			@Override
+			public EntityStore getEntityStore()
+			{
+				return entityStore;
+			}
+
+			@Override
+			public PointLight[] getPointLights()
+			{
+				return pointLights;
+			}
+
+			@Override
+			public SpotLight[] getSpotLights()
+			{
+				return spotLights;
+			}
+
+			@Override
+			public List<Terrain> getTerrains()
+			{
+				return List.of();
+			}
+		};
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		renderManager.cleanup();
+		renderManager.setJobSystem(null);
+		jobSystem.shutdown();
+		profiler.setEnabled(false);
+	}
+}
@@ -0,0 +1,75 @@
+package core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of OBJ models held in memory, without the GPU upload done by {@link ObjectLoader#loadObjModel(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectLoaderBenchmark
+{
+	private static final int GRID_SIZE = 64;
+
+	@Param({"cube", "grid"})
+	private String model;
+
+	private ObjectLoader objectLoader;
+	private byte[]       source;
+
+	/**
+	 * Generates an OBJ grid of GRID_SIZE x GRID_SIZE quads.
+	 */
+	private static byte[] createGrid()
+	{
+		final var obj = new StringBuilder();
+		for(var z = 0; z <= GRID_SIZE; z++)
+			for(var x = 0; x <= GRID_SIZE; x++)
+				obj.append("v ").append(x).append(" 0 ").append(z).append('\n').append("vt ").append((float) x / GRID_SIZE).append(' ')
+						.append((float) z / GRID_SIZE).append('\n');
+		obj.append("vn 0 1 0\n");
+		for(var z = 0; z < GRID_SIZE; z++)
+			for(var x = 0; x < GRID_SIZE; x++)
+			{
+				final var topLeft    = z * (GRID_SIZE + 1) + x + 1;
+				final var bottomLeft = topLeft + GRID_SIZE + 1;
+				obj.append(String.format("f %d/%d/1 %d/%d/1 %d/%d/1%n", topLeft, topLeft, bottomLeft, bottomLeft, topLeft + 1, topLeft + 1));
+				obj.append(String.format("f %d/%d/1 %d/%d/1 %d/%d/1%n", topLeft + 1, topLeft + 1, bottomLeft, bottomLeft, bottomLeft + 1, bottomLeft + 1));
+			}
+		return obj.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public ObjectLoader.MeshData parseObjModel()
+	{
+		return objectLoader.parseObjModel(source);
+	}
+
+	@Setup
+	public void setup() throws Exception
+	{
+		objectLoader = ObjectLoader.getInstance();
+		if(model.equals("grid")) source = createGrid();
+		else try(final var in = ObjectLoaderBenchmark.class.getResourceAsStream("/models/cube.obj"))
+		{
+			source = in.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package core.entity;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per frame entity updates done on the columns of an {@link EntityStore} compared to the same updates on standalone entities that build their
+ * matrices with JOML, plus culling the store against a view frustum, updating deep hierarchies and spawning and despawning pooled entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityStoreBenchmark
+{
+	@Param({"1", "8"})
+	private int archetypeCount;
+
+	@Param({"10000"})
+	private int entityCount;
+
+	private Entity[]     entities;
+	private EntityStore  entityStore;
+	private long[]       handles;
+	private EntityStore  hierarchy;
+	private Matrix4f     matrix;
+	private Model        model;
+	private int          next;
+	private float[]      planes;
+	private SceneManager sceneManager;
+	private boolean[]    visible;
+
+	@Benchmark
+	public boolean[] cull()
+	{
+		entityStore.cull(planes, visible);
+		return visible;
+	}
+
+	/**
+	 * Despawns the oldest of the spawned entities and spawns a new one in its place, in the same archetype. With several archetypes removing and
+	 * adding swap an entity per archetype.
+	 */
+	@Benchmark
+	public long respawn()
+	{
+		sceneManager.despawnEntity(handles[next]);
+		handles[next] = sceneManager.spawnEntity(model, next, 0, -next, 0, 0, 0, 1);
+		sceneManager.getEntityStore().setComponents(handles[next], next % archetypeCount);
+		next          = (next + 1) % handles.length;
+		return handles[next];
+	}
+
+	/**
+	 * Moves a few entities in a forest of deep hierarchies, so only their subtrees are recomputed.
+	 */
+	@Benchmark
+	public EntityStore updateHierarchy()
+	{
+		for(var i = 0; i < 4; i++)
+			hierarchy.incRotation((next + i * 997) % entityCount, 0, 0.5f, 0);
+		next = (next + 1) % entityCount;
+		hierarchy.updateTransformations(0, entityCount);
+		hierarchy.updateHierarchy();
+		return hierarchy;
+	}
+
+	@Benchmark
+	public Matrix4f updateEntities()
+	{
+		for(final Entity entity: entities)
+		{
+			entity.incRotation(0, 0.5f, 0);
+			matrix.identity().translate(entity.getPos()).rotateX((float) Math.toRadians(entity.getRotation().x))
+					.rotateY((float) Math.toRadians(entity.getRotation().y)).rotateZ((float) Math.toRadians(entity.getRotation().z)).scale(entity.getScale());
+		}
+		return matrix;
+	}
+
+	@Benchmark
+	public EntityStore updateStore()
+	{
+		final var size = entityStore.size();
+		for(var i = 0; i < size; i++)
+			entityStore.incRotation(i, 0, 0.5f, 0);
+		entityStore.updateTransformations(0, size);
+		return entityStore;
+	}
+
+	@Setup
+	public void setup()
+	{
+		model = new Model(1, 36);
+		model.setBoundingRadius(1);
+		entities     = new Entity[entityCount];
+		entityStore  = new EntityStore();
+		handles      = new long[entityCount];
+		hierarchy    = new EntityStore();
+		matrix       = new Matrix4f();
+		sceneManager = SceneManager.getInstance();
+		visible      = new boolean[entityCount];
+		for(var i = 0; i < entityCount; i++)
+		{
+			entities[i] = new Entity(model, new Vector3f(i % 100, 0, -i / 100), new Vector3f(i % 360, 45, 0), 1);
+			entityStore.add(new Entity(model, new Vector3f(i % 100, 0, -i / 100), new Vector3f(i % 360, 45, 0), 1));
+			handles[i] = sceneManager.spawnEntity(model, i, 0, -i, 0, 0, 0, 1);
+			sceneManager.getEntityStore().setComponents(handles[i], i % archetypeCount);
+
+			//Chains of 100 entities, each offset from its parent
+			final var handle = hierarchy.add(new Entity(model, new Vector3f(1, 0, 0), new Vector3f(0, 5, 0), 1));
+			if(i % 100 != 0) hierarchy.setParent(handle, hierarchy.getEntity(i - 1).getHandle());
+		}
+		hierarchy.updateTransformations(0, entityCount);
+		hierarchy.updateHierarchy();
+
+		final var viewProjection = new Matrix4f().setPerspective((float) Math.toRadians(60), 16f / 9, 0.01f, 1000).lookAt(0, 10, 10, 50, 0, -50, 0, 1, 0);
+		final var plane          = new Vector4f();
+		planes = new float[24];
+		for(var i = 0; i < 6; i++)
+		{
+			viewProjection.frustumPlane(i, plane);
+			planes[i * 4]     = plane.x;
+			planes[i * 4 + 1] = plane.y;
+			planes[i * 4 + 2] = plane.z;
+			planes[i * 4 + 3] = plane.w;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package core.rendering;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.GraphicsDevice;
+import core.JobSystem;
+import core.ObjectLoader;
+import core.RecordingDevice;
+import core.entity.Entity;
+import core.entity.EntityStore;
+import core.entity.Model;
+import core.entity.Scene;
+import core.entity.Texture;
+import core.entity.terrain.Terrain;
+import core.lighting.DirectionalLight;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+
+/**
+ * CPU cost of submitting a frame: the render manager draws a scene into a {@link RecordingDevice}, so everything the renderers do except the
+ * driver work is measured, with and without recording command buffers on the job system. Also measures resolving uniform names in the shader
+ * manager.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderSubmissionBenchmark
+{
+	private static final int MODELS = 16;
+
+	@Param({"100", "10000"})
+	private int entityCount;
+
+	@Param({"0", "4"})
+	private int jobThreads;
+
+	private RecordingDevice device;
+	private JobSystem       jobSystem;
+	private Matrix4f        matrix;
+	private RenderManager   renderManager;
+	private Scene           scene;
+	private ShaderManager   shaderManager;
+
+	@Benchmark
+	public RecordingDevice render()
+	{
+		renderManager.render(scene);
+		return device;
+	}
+
+	@Benchmark
+	public ShaderManager setUniform()
+	{
+		shaderManager.setUniform("transformationMatrix", matrix);
+		return shaderManager;
+	}
+
+	@Setup
+	public void setup() throws Exception
+	{
+		//The object loader is only handed out by the engine, so create it the way the engine does
+		final var getObjectLoaderInstance = ObjectLoader.class.getDeclaredMethod("getInstance");
+		final var setGraphicsDevice       = ObjectLoader.class.getDeclaredMethod("setGraphicsDevice", GraphicsDevice.class);
+		getObjectLoaderInstance.setAccessible(true);
+		setGraphicsDevice.setAccessible(true);
+		final var objectLoader = (ObjectLoader) getObjectLoaderInstance.invoke(null);
+		device = new RecordingDevice();
+		setGraphicsDevice.invoke(objectLoader, device);
+
+		//Without job threads the command buffers are recorded on the benchmark thread
+		if(jobThreads > 0)
+		{
+			final var constructor = JobSystem.class.getDeclaredConstructor(int.class);
+			constructor.setAccessible(true);
+			jobSystem = constructor.newInstance(jobThreads);
+		}
+
+		renderManager = RenderManager.getInstance();
+		renderManager.setJobSystem(jobSystem);
+		renderManager.initialize(objectLoader);
+		renderManager.setProjectionMatrix(new Matrix4f().setPerspective((float) Math.toRadians(60), 16f / 9, 0.01f, 1000));
+		matrix = new Matrix4f();
+
+		shaderManager = new ShaderManager(device, null);
+		shaderManager.createVertexShader(objectLoader.loadResource("/shaders/entity_vertex.vs"));
+		shaderManager.createFragmentShader(objectLoader.loadResource("/shaders/entity_fragment.fs"));
+		shaderManager.link();
+		shaderManager.createUniform("transformationMatrix");
+		shaderManager.createUniform("materialIndex");
+
+		final var models = new Model[MODELS];
+		for(var i = 0; i < MODELS; i++)
+			models[i] = new Model(i + 1, 36, new Texture(i + 1));
+		final var entityStore = new EntityStore();
+		for(var i = 0; i < entityCount; i++)
+			entityStore.add(new Entity(models[i % MODELS], new Vector3f(i, 0, -i), new Vector3f(i % 360, 45, 0), 1));
+
+		final var directionalLight = new DirectionalLight(new Vector3f(1), new Vector3f(0, -1, 0), 1);
+		final var pointLights      = new PointLight[]{new PointLight(new Vector3f(1), new Vector3f(0, 2, 0), 1)};
+		scene = new Scene()
+		{
+			@Override
+			public Vector3f getAmbientLight()
+			{
+				return new Vector3f(0.3f);
+			}
+
+			@Override
+			public DirectionalLight getDirectionalLight()
+			{
+				return directionalLight;
+			}
+
+			@Override
+			public EntityStore getEntityStore()
+			{
+				return entityStore;
+			}
+
+			@Override
+			public PointLight[] getPointLights()
+			{
+				return pointLights;
+			}
+
+			@Override
+			public SpotLight[] getSpotLights()
+			{
+				return new SpotLight[0];
+			}
+
+			@Override
+			public List<Terrain> getTerrains()
+			{
+				return List.of();
+			}
+		};
+
+		//Render once to check the submission reaches the device
+		renderManager.render(scene);
+		if(device.getDrawCalls() != entityCount) throw new IllegalStateException("Expected " + entityCount + " draws, recorded " + device.getDrawCalls());
+		device.reset();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		renderManager.cleanup();
+		renderManager.setJobSystem(null);
+	}
+}
@@ -0,0 +1,133 @@
+package core.rendering;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.entity.Entity;
+import core.entity.EntityStore;
+import core.entity.Model;
+import core.entity.Scene;
+import core.entity.terrain.Terrain;
+import core.lighting.DirectionalLight;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+
+/**
+ * CPU side work the renderers do every frame: matrix computation and bucketing, which updates the entity transformations, culls the entities
+ * against the view frustum and groups them by model. None of it touches GL.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderingBenchmark
+{
+	private static final int MODELS = 16;
+
+	@Param({"100", "10000"})
+	private int entityCount;
+
+	private Camera         camera;
+	private Entity         entity;
+	private EntityRenderer entityRenderer;
+	private Matrix4f       matrix;
+	private RenderManager  renderManager;
+	private Scene          scene;
+
+	@Benchmark
+	public RenderManager bucketing()
+	{
+		renderManager.bucket(scene, camera);
+		renderManager.getTerrainRenderer().getTerrains().clear();
+		return renderManager;
+	}
+
+	@Benchmark
+	public Matrix4f createTransformationMatrix()
+	{
+		return entityRenderer.createTransformationMatrix(entity, matrix);
+	}
+
+	@Benchmark
+	public Matrix4f getViewMatrix()
+	{
+		return camera.getViewMatrix();
+	}
+
+	@Setup
+	public void setup() throws Exception
+	{
+		renderManager = RenderManager.getInstance();
+		renderManager.createRenderers();
+		renderManager.setProjectionMatrix(new Matrix4f().setPerspective((float) Math.toRadians(60), 16f / 9, 0.01f, 1000));
+		entityRenderer = renderManager.getEntityRenderer();
+		camera         = new Camera(new Vector3f(1, 2, 3), new Vector3f(10, 20, 30));
+		matrix         = new Matrix4f();
+
+		final var models = new Model[MODELS];
+		for(var i = 0; i < MODELS; i++)
+		{
+			models[i] = new Model(i + 1, 36);
+			models[i].setBoundingRadius(1);
+		}
+		final var entityStore = new EntityStore();
+		for(var i = 0; i < entityCount; i++)
+			entityStore.add(new Entity(models[i % MODELS], new Vector3f(i, 0, -i), new Vector3f(i % 360, 45, 0), 1));
+		entity = entityStore.getEntity(0);
+
+		scene = new Scene()
+		{
+			@Override
+			public Vector3f getAmbientLight()
+			{
+				return new Vector3f(0.3f);
+			}
+
+			@Override
+			public DirectionalLight getDirectionalLight()
+			{
+				return null;
+			}
+
+			@Override
+			public EntityStore getEntityStore()
+			{
+				return entityStore;
+			}
+
+			@Override
+			public PointLight[] getPointLights()
+			{
+				return new PointLight[0];
+			}
+
+			@Override
+			public SpotLight[] getSpotLights()
+			{
+				return new SpotLight[0];
+			}
+
+			@Override
+			public List<Terrain> getTerrains()
+			{
+				return List.of();
+			}
+		};
+	}
+}
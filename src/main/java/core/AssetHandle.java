@@ -0,0 +1,71 @@
+package core;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handle to an asset that is being loaded asynchronously by the {@link ObjectLoader}. The asset returned by {@link #get()} is usable immediately and
+ * is backed by a placeholder resource until its data has been uploaded on the render thread.
+ *
+ * @param <T> Type of the asset
+ */
+public final class AssetHandle<T>
+{
+	private final T                    asset;
+	private final CompletableFuture<T> future;
+
+	AssetHandle(final T asset)
+	{
+		this.asset = asset;
+		future     = new CompletableFuture<>();
+	}
+
+	/**
+	 * Returns the asset. Until {@link #isReady()} returns true the asset is backed by a placeholder resource.
+	 *
+	 * @return T - Asset
+	 */
+	public T get()
+	{
+		return asset;
+	}
+
+	/**
+	 * Returns a future that is completed on the render thread once the asset has been uploaded, or completed exceptionally if loading failed.
+	 *
+	 * @return CompletableFuture - Future for the loaded asset
+	 */
+	public CompletableFuture<T> getFuture()
+	{
+		return future;
+	}
+
+	/**
+	 * Returns true if loading failed.
+	 *
+	 * @return boolean - True if loading failed
+	 */
+	public boolean isFailed()
+	{
+		return future.isCompletedExceptionally();
+	}
+
+	/**
+	 * Returns true if the asset has been uploaded and no longer uses a placeholder resource.
+	 *
+	 * @return boolean - True if the asset is ready
+	 */
+	public boolean isReady()
+	{
+		return future.isDone() && !future.isCompletedExceptionally();
+	}
+
+	void complete()
+	{
+		future.complete(asset);
+	}
+
+	void fail(final Throwable throwable)
+	{
+		future.completeExceptionally(throwable);
+	}
+}
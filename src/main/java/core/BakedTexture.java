@@ -0,0 +1,111 @@
+package core;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * CPU side texture data ready to be uploaded to the GPU. Holds one or more mip levels of a single {@link TextureFormat} packed into one native
+ * buffer which must be released with {@link #free()} once uploaded.
+ */
+final class BakedTexture
+{
+	private final ByteBuffer    data;
+	private final TextureFormat format;
+	private final int[]         widths, heights, offsets, sizes;
+	private final boolean       stbImage;
+
+	BakedTexture(final TextureFormat format, final int[] widths, final int[] heights, final int[] sizes, final ByteBuffer data)
+	{
+		this(format, widths, heights, sizes, data, false);
+	}
+
+	private BakedTexture(final TextureFormat format, final int[] widths, final int[] heights, final int[] sizes, final ByteBuffer data, final boolean stbImage)
+	{
+		this.format   = format;
+		this.widths   = widths;
+		this.heights  = heights;
+		this.sizes    = sizes;
+		this.data     = data;
+		this.stbImage = stbImage;
+
+		offsets = new int[sizes.length];
+		for(var i = 1; i < sizes.length; i++)
+			offsets[i] = offsets[i - 1] + sizes[i - 1];
+	}
+
+	/**
+	 * Decodes an image file to a single level RGBA8 texture.
+	 *
+	 * @param filename
+	 * @return BakedTexture - Decoded texture
+	 * @throws Exception
+	 */
+	static BakedTexture decode(final String filename) throws Exception
+	{
+		try(var stack = MemoryStack.stackPush())
+		{
+			final var w = stack.mallocInt(1);
+			final var h = stack.mallocInt(1);
+			final var c = stack.mallocInt(1);
+
+			final var buffer = STBImage.stbi_load(filename, w, h, c, 4);
+			if(buffer == null) throw new Exception("Image file " + filename + " not loaded. " + STBImage.stbi_failure_reason());
+
+			final int width = w.get(), height = h.get();
+			return new BakedTexture(TextureFormat.RGBA8, new int[]{width}, new int[]{height}, new int[]{width * height * 4}, buffer, true);
+		}
+	}
+
+	/**
+	 * Releases the native memory holding the texture data.
+	 */
+	void free()
+	{
+		if(stbImage) STBImage.stbi_image_free(data);
+		else MemoryUtil.memFree(data);
+	}
+
+	/**
+	 * Returns the total size of all mip levels in bytes.
+	 *
+	 * @return long - Size in bytes
+	 */
+	long getByteSize()
+	{
+		return (long) offsets[offsets.length - 1] + sizes[sizes.length - 1];
+	}
+
+	TextureFormat getFormat()
+	{
+		return format;
+	}
+
+	int getHeight(final int level)
+	{
+		return heights[level];
+	}
+
+	/**
+	 * Returns a view of the data of a single mip level.
+	 *
+	 * @param level
+	 * @return ByteBuffer - Level data
+	 */
+	ByteBuffer getLevel(final int level)
+	{
+		return data.slice(offsets[level], sizes[level]);
+	}
+
+	int getLevelCount()
+	{
+		return sizes.length;
+	}
+
+	int getWidth(final int level)
+	{
+		return widths[level];
+	}
+}
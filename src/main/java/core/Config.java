@@ -0,0 +1,558 @@
+package core;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Typed configuration read from a properties file. Settings are declared with a key, a type, a default and the valid range, and are parsed and
+ * validated once when declared, so reading a setting is a field read. While the engine runs the file is watched: a changed file is read on a
+ * background thread and applied on the main thread at the start of the next frame. A reload is applied as a whole, if any
+ * setting is invalid none of them change. Only watched settings take the reloaded values, the others keep the value they were declared with
+ * because the engine only reads them at startup.
+ */
+public final class Config
+{
+	private final Path                        file;
+	private final AtomicReference<Properties> pending;
+	private final Map<String, Setting>        settings;
+
+	private Properties   properties;
+	private Thread       watcher;
+	private WatchService watchService;
+
+	/**
+	 * Creates a configuration that is not backed by a file and never reloads.
+	 *
+	 * @param properties
+	 */
+	public Config(final Properties properties)
+	{
+		this(null, properties);
+	}
+
+	private Config(final Path file, final Properties properties)
+	{
+		this.file       = file;
+		pending         = new AtomicReference<>();
+		this.properties = properties;
+		settings        = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Reads a configuration from a properties file.
+	 *
+	 * @param file
+	 * @return Config - Configuration backed by the file
+	 * @throws IOException
+	 */
+	public static Config load(final Path file) throws IOException
+	{
+		return new Config(file, read(file));
+	}
+
+	private static Properties read(final Path file) throws IOException
+	{
+		final var properties = new Properties();
+		try(var reader = Files.newBufferedReader(file))
+		{
+			properties.load(reader);
+		}
+		return properties;
+	}
+
+	public BooleanSetting booleanSetting(final String key, final boolean defaultValue)
+	{
+		return declare(key, BooleanSetting.class, ()->new BooleanSetting(key, defaultValue));
+	}
+
+	public <E extends Enum<E>> EnumSetting<E> enumSetting(final String key, final Class<E> type, final E defaultValue)
+	{
+		@SuppressWarnings("unchecked")
+		final EnumSetting<E> setting = declare(key, EnumSetting.class, ()->new EnumSetting<>(key, type, defaultValue));
+		if(setting.type != type) throw new IllegalArgumentException("Setting " + key + " is already declared with another type.");
+		return setting;
+	}
+
+	public FloatSetting floatSetting(final String key, final float defaultValue, final float min, final float max)
+	{
+		return declare(key, FloatSetting.class, ()->new FloatSetting(key, defaultValue, min, max));
+	}
+
+	/**
+	 * @return Path - File backing the configuration, null if it is not backed by one
+	 */
+	public Path getFile()
+	{
+		return file;
+	}
+
+	public IntSetting intSetting(final String key, final int defaultValue, final int min, final int max)
+	{
+		return declare(key, IntSetting.class, ()->new IntSetting(key, defaultValue, min, max));
+	}
+
+	/**
+	 * Reads the file again and queues it to be applied at the start of the next frame.
+	 *
+	 * @throws IOException
+	 */
+	public void reload() throws IOException
+	{
+		if(file != null) reload(read(file));
+	}
+
+	public StringSetting stringSetting(final String key, final String defaultValue)
+	{
+		return declare(key, StringSetting.class, ()->new StringSetting(key, defaultValue));
+	}
+
+	/**
+	 * Queues properties to be applied at the start of the next frame, as if the file had been reloaded with them.
+	 *
+	 * @param properties
+	 */
+	void reload(final Properties properties)
+	{
+		pending.set(properties);
+	}
+
+	/**
+	 * Starts watching the file for changes on a daemon thread. Does nothing if the configuration is not backed by a file.
+	 *
+	 * @throws IOException
+	 */
+	synchronized void startWatching() throws IOException
+	{
+		if(file == null || watcher != null) return;
+
+		watchService = file.getFileSystem().newWatchService();
+		file.toAbsolutePath().getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		watcher = new Thread(this::watch, "config-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	synchronized void stopWatching()
+	{
+		if(watcher == null) return;
+
+		try
+		{
+			watchService.close();
+		}
+		catch(final IOException e)
+		{
+			System.err.println("Could not stop watching " + file + ": " + e.getMessage());
+		}
+		watcher = null;
+	}
+
+	/**
+	 * Applies a reloaded file if there is one, calling the listeners of the watched settings that changed. Called by the engine at the start of
+	 * every frame on the main thread.
+	 *
+	 * @return List - Settings that changed but are not watched and need a restart to apply, empty if nothing was reloaded
+	 */
+	synchronized List<Setting> update()
+	{
+		final var reloaded = pending.getAndSet(null);
+		if(reloaded == null) return List.of();
+
+		try
+		{
+			for(final Setting setting: settings.values())
+				setting.stage(reloaded.getProperty(setting.key));
+		}
+		catch(final IllegalArgumentException e)
+		{
+			System.err.println("Ignoring changes to " + file + ": " + e.getMessage());
+			return List.of();
+		}
+
+		properties = reloaded;
+		final List<Setting> changed = new ArrayList<>();
+		final List<Setting> restart = new ArrayList<>();
+		for(final Setting setting: settings.values())
+		{
+			if(!setting.isStagedChange()) continue;
+
+			if(setting.watched)
+			{
+				setting.commit();
+				changed.add(setting);
+			}
+			else
+			{
+				System.out.println("Setting " + setting.key + " changed, restart to apply it.");
+				restart.add(setting);
+			}
+		}
+		for(final Setting setting: changed)
+			for(final Runnable listener: setting.listeners)
+				listener.run();
+		return restart;
+	}
+
+	private synchronized <S extends Setting> S declare(final String key, final Class<S> type, final Supplier<S> factory)
+	{
+		final var existing = settings.get(key);
+		if(existing != null)
+		{
+			if(!type.isInstance(existing)) throw new IllegalArgumentException("Setting " + key + " is already declared with another type.");
+			return type.cast(existing);
+		}
+
+		final var setting = factory.get();
+		setting.stage(properties.getProperty(key));
+		setting.commit();
+		settings.put(key, setting);
+		return setting;
+	}
+
+	private void watch()
+	{
+		final var fileName = file.getFileName();
+		try
+		{
+			while(true)
+			{
+				final var key     = watchService.take();
+				var       changed = false;
+				for(final var event: key.pollEvents())
+					changed |= fileName.equals(event.context());
+				key.reset();
+
+				if(changed) try
+				{
+					reload();
+				}
+				catch(final IOException e)
+				{
+					System.err.println("Could not reload " + file + ": " + e.getMessage());
+				}
+			}
+		}
+		catch(final InterruptedException | ClosedWatchServiceException e)
+		{
+			//Stopped watching
+		}
+	}
+
+	/**
+	 * A declared setting. Values are parsed in two steps so a reload can validate every setting before changing any of them.
+	 */
+	public abstract static class Setting
+	{
+		private final String         key;
+		private final List<Runnable> listeners = new ArrayList<>();
+
+		private boolean watched;
+
+		Setting(final String key)
+		{
+			this.key = key;
+		}
+
+		/**
+		 * Watches the setting and adds a listener called on the main thread after a reload changed its value.
+		 *
+		 * @param listener
+		 */
+		public void addListener(final Runnable listener)
+		{
+			watch();
+			listeners.add(listener);
+		}
+
+		public String getKey()
+		{
+			return key;
+		}
+
+		public boolean isWatched()
+		{
+			return watched;
+		}
+
+		/**
+		 * Makes the setting take the values of reloads.
+		 */
+		public void watch()
+		{
+			watched = true;
+		}
+
+		/**
+		 * Makes the staged value the value of the setting.
+		 */
+		abstract void commit();
+
+		/**
+		 * @return boolean - True if the staged value differs from the value
+		 */
+		abstract boolean isStagedChange();
+
+		/**
+		 * Parses and validates a value without changing the setting.
+		 *
+		 * @param value - Value from the file, null if the key is missing to use the default
+		 * @throws IllegalArgumentException if the value is invalid
+		 */
+		abstract void stage(String value);
+
+		IllegalArgumentException invalid(final String value, final String reason)
+		{
+			return new IllegalArgumentException("Invalid value '" + value + "' for " + key + ", " + reason + ".");
+		}
+	}
+
+	public static final class BooleanSetting extends Setting
+	{
+		private final boolean defaultValue;
+
+		private boolean          staged;
+		private volatile boolean value;
+
+		BooleanSetting(final String key, final boolean defaultValue)
+		{
+			super(key);
+			this.defaultValue = defaultValue;
+		}
+
+		public boolean get()
+		{
+			return value;
+		}
+
+		@Override
+		void commit()
+		{
+			value = staged;
+		}
+
+		@Override
+		boolean isStagedChange()
+		{
+			return staged != value;
+		}
+
+		@Override
+		void stage(final String value)
+		{
+			if(value == null) staged = defaultValue;
+			else if(value.trim().equalsIgnoreCase("true")) staged = true;
+			else if(value.trim().equalsIgnoreCase("false")) staged = false;
+			else throw invalid(value, "expected true or false");
+		}
+	}
+
+	public static final class EnumSetting<E extends Enum<E>> extends Setting
+	{
+		private final E        defaultValue;
+		private final Class<E> type;
+
+		private E          staged;
+		private volatile E value;
+
+		EnumSetting(final String key, final Class<E> type, final E defaultValue)
+		{
+			super(key);
+			this.defaultValue = defaultValue;
+			this.type         = type;
+		}
+
+		public E get()
+		{
+			return value;
+		}
+
+		@Override
+		void commit()
+		{
+			value = staged;
+		}
+
+		@Override
+		boolean isStagedChange()
+		{
+			return staged != value;
+		}
+
+		@Override
+		void stage(final String value)
+		{
+			if(value == null)
+			{
+				staged = defaultValue;
+				return;
+			}
+
+			for(final E constant: type.getEnumConstants())
+				if(constant.name().equalsIgnoreCase(value.trim()))
+				{
+					staged = constant;
+					return;
+				}
+			throw invalid(value, "expected one of " + Arrays.toString(type.getEnumConstants()));
+		}
+	}
+
+	public static final class FloatSetting extends Setting
+	{
+		private final float defaultValue, min, max;
+
+		private float          staged;
+		private volatile float value;
+
+		FloatSetting(final String key, final float defaultValue, final float min, final float max)
+		{
+			super(key);
+			this.defaultValue = defaultValue;
+			this.min          = min;
+			this.max          = max;
+		}
+
+		public float get()
+		{
+			return value;
+		}
+
+		@Override
+		void commit()
+		{
+			value = staged;
+		}
+
+		@Override
+		boolean isStagedChange()
+		{
+			return Float.compare(staged, value) != 0;
+		}
+
+		@Override
+		void stage(final String value)
+		{
+			if(value == null)
+			{
+				staged = defaultValue;
+				return;
+			}
+
+			final float parsed;
+			try
+			{
+				parsed = Float.parseFloat(value.trim());
+			}
+			catch(final NumberFormatException e)
+			{
+				throw invalid(value, "expected a number");
+			}
+			if(!(parsed >= min && parsed <= max)) throw invalid(value, "expected a number from " + min + " to " + max);
+			staged = parsed;
+		}
+	}
+
+	public static final class IntSetting extends Setting
+	{
+		private final int defaultValue, min, max;
+
+		private int          staged;
+		private volatile int value;
+
+		IntSetting(final String key, final int defaultValue, final int min, final int max)
+		{
+			super(key);
+			this.defaultValue = defaultValue;
+			this.min          = min;
+			this.max          = max;
+		}
+
+		public int get()
+		{
+			return value;
+		}
+
+		@Override
+		void commit()
+		{
+			value = staged;
+		}
+
+		@Override
+		boolean isStagedChange()
+		{
+			return staged != value;
+		}
+
+		@Override
+		void stage(final String value)
+		{
+			if(value == null)
+			{
+				staged = defaultValue;
+				return;
+			}
+
+			final int parsed;
+			try
+			{
+				parsed = Integer.parseInt(value.trim());
+			}
+			catch(final NumberFormatException e)
+			{
+				throw invalid(value, "expected an integer");
+			}
+			if(parsed < min || parsed > max) throw invalid(value, "expected an integer from " + min + " to " + max);
+			staged = parsed;
+		}
+	}
+
+	public static final class StringSetting extends Setting
+	{
+		private final String defaultValue;
+
+		private String          staged;
+		private volatile String value;
+
+		StringSetting(final String key, final String defaultValue)
+		{
+			super(key);
+			this.defaultValue = defaultValue;
+		}
+
+		public String get()
+		{
+			return value;
+		}
+
+		@Override
+		void commit()
+		{
+			value = staged;
+		}
+
+		@Override
+		boolean isStagedChange()
+		{
+			return !staged.equals(value);
+		}
+
+		@Override
+		void stage(final String value)
+		{
+			staged = value != null ? value.trim() : defaultValue;
+		}
+	}
+}
@@ -1,13 +1,21 @@
 package core;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.Properties;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import jdk.jfr.EventType;
 
 import org.joml.Matrix4f;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
 
+import core.Metrics.Counter;
 import core.entity.SceneManager;
+import core.entity.SceneSnapshot;
 import core.rendering.RenderManager;
 
 /**
@@ -17,25 +25,89 @@ public final class DragonEngine
 {
 	private static final long ONE_SECOND = 1000000000;
 
-	private static volatile DragonEngine instance;
+	//Levels of the engine's quality knobs below the highest one, which leaves the setting unlimited. Draw distances are fractions of the far plane
+	private static final int[]   DEFERRED_LIGHT_LIMITS = {16, 32, 64, 128};
+	private static final float[] DRAW_DISTANCES        = {0.25f, 0.5f, 0.75f};
+	private static final int[]   FORWARD_LIGHT_LIMITS  = {1, 2, 3, 4};
 
-	private static boolean       clampFramerate;
-	private static long          frameTime;
-	private static boolean       initialized;
-	private static long          tickTime;
-	private static InputManager  inputManager;
-	private static ObjectLoader  objectLoader;
-	private static RenderManager renderManager;
-	private static SceneManager  sceneManager;
-	private static Window        window;
+	private static final Metrics   metrics    = new Metrics();
+	private static final Profiler  profiler   = new Profiler();
+	private static final EventType tickEvents = EventType.getEventType(TickEvent.class);
 
-	private GLFWErrorCallback errorCallback;
-	private IGameLogic        gameLogic;
-	private Properties        gameProperties;
+	private static volatile DragonEngine instance;
+
+	private static boolean         clampFramerate;
+	private static Config          config;
+	private static FrameStats      frameStats;
+	private static long            frameTime;
+	private static boolean         governed;
+	private static boolean         initialized;
+	private static boolean         pipelined;
+	private static long            tickTime;
+	private static InputManager    inputManager;
+	private static JobSystem       jobSystem;
+	private static ObjectLoader    objectLoader;
+	private static QualityGovernor qualityGovernor;
+	private static RenderManager   renderManager;
+	private static SceneManager    sceneManager;
+	//Null while frames are run headless
+	private static Window          window;
+
+	private final AtomicLong    droppedSimulationTime = new AtomicLong();
+	private final Counter       droppedTimeCounter    = metrics.counter(Metrics.DROPPED_SIMULATION_TIME);
+	private final FrameLimiter  frameLimiter          = new FrameLimiter();
+	private final AtomicInteger simulatedTicks        = new AtomicInteger();
+	private final Counter       tickCounter           = metrics.counter(Metrics.TICKS);
+
+	private DynamicResolution           dynamicResolution;
+	private GLFWErrorCallback           errorCallback;
+	private int                         frames;
+	private IGameLogic                  gameLogic;
+	private int                         maxCatchUpTicks;
+	private long                        nextFrameTime;
+	private long                        reportedDroppedTime;
+	private long                        secondCounter;
+	private volatile boolean            simulating;
+	private Thread                      simulationThread;
+	private TripleBuffer<SceneSnapshot> snapshots;
+	//Only used by the thread processing the ticks, the simulation thread if the game loop is pipelined
+	private long                        unprocessedTime;
 
 	private DragonEngine()
 	{}
 
+	/**
+	 * Returns the configuration the engine was started with.
+	 *
+	 * @return Config - Configuration instance
+	 */
+	public static Config getConfig()
+	{
+		if(!initialized) throw new IllegalStateException("Engine has not been initialized.");
+		return config;
+	}
+
+	/**
+	 * Returns the total game time in nanoseconds that was not simulated because more ticks were due than the maximum number of catch-up ticks.
+	 *
+	 * @return long - Dropped simulation time
+	 */
+	public long getDroppedSimulationTime()
+	{
+		return droppedSimulationTime.get();
+	}
+
+	/**
+	 * Returns the frame and tick timing statistics of the game loop.
+	 *
+	 * @return FrameStats - Frame statistics instance
+	 */
+	public static FrameStats getFrameStats()
+	{
+		if(!initialized) throw new IllegalStateException("Engine has not been initialized.");
+		return frameStats;
+	}
+
 	/**
 	 * Returns an instance of the input manager.
 	 *
@@ -62,6 +134,28 @@ public final class DragonEngine
 		return instance;
 	}
 
+	/**
+	 * Returns the job system shared by the engine and the game. Jobs submitted during a tick are waited for before the next tick starts.
+	 *
+	 * @return JobSystem - Job system instance
+	 */
+	public static JobSystem getJobSystem()
+	{
+		if(!initialized) throw new IllegalStateException("Engine has not been initialized.");
+		return jobSystem;
+	}
+
+	/**
+	 * Returns the metrics registry. Unlike the other components it is available before the engine is initialized, so components can look up
+	 * their counters while being created.
+	 *
+	 * @return Metrics - Metrics instance
+	 */
+	public static Metrics getMetrics()
+	{
+		return metrics;
+	}
+
 	/**
 	 * Returns an instance of the object loader.
 	 *
@@ -73,6 +167,29 @@ public final class DragonEngine
 		return objectLoader;
 	}
 
+	/**
+	 * Returns the scope profiler. Engine stages are recorded as scopes if profiling is enabled. Like the metrics registry it is available before
+	 * the engine is initialized.
+	 *
+	 * @return Profiler - Profiler instance
+	 */
+	public static Profiler getProfiler()
+	{
+		return profiler;
+	}
+
+	/**
+	 * Returns the quality governor. Games register their own scalable settings with it while they are initialized, it only adjusts them if it is
+	 * enabled in the configuration.
+	 *
+	 * @return QualityGovernor - Quality governor instance
+	 */
+	public static QualityGovernor getQualityGovernor()
+	{
+		if(!initialized) throw new IllegalStateException("Engine has not been initialized.");
+		return qualityGovernor;
+	}
+
 	/**
 	 * Returns an instance of the render manager.
 	 *
@@ -110,16 +227,18 @@ public final class DragonEngine
 	 * Initializes the engine and starts the game.
 	 *
 	 * @param gameLogic
+	 * @param config
 	 * @throws Exception
 	 */
-	public void start(final IGameLogic gameLogic, final Properties gameProperties) throws Exception
+	public void start(final IGameLogic gameLogic, final Config config) throws Exception
 	{
 		if(initialized) return;
 		this.gameLogic      = gameLogic;
-		this.gameProperties = gameProperties;
+		DragonEngine.config = config;
 
 		initialize();
-		run();
+		if(pipelined) runPipelined();
+		else run();
 		cleanup();
 	}
 
@@ -128,10 +247,24 @@ public final class DragonEngine
 	 */
 	private void cleanup()
 	{
+		final var traceFile = config.stringSetting("engine.profiler.trace.file", "").get();
+		if(profiler.isEnabled() && !traceFile.isBlank()) try
+		{
+			profiler.writeChromeTrace(Path.of(traceFile));
+		}
+		catch(final IOException e)
+		{
+			System.err.println("Could not write profiler trace: " + e.getMessage());
+		}
+		profiler.cleanup();
+		if(config.booleanSetting("engine.stats.dump", true).get()) frameStats.dump(System.out);
+		config.stopWatching();
+
 		window.cleanup();
 		renderManager.cleanup();
 		objectLoader.cleanup();
 		gameLogic.cleanup();
+		jobSystem.shutdown();
 		errorCallback.free();
 		GLFW.glfwTerminate();
 	}
@@ -147,13 +280,36 @@ public final class DragonEngine
 		GLFW.glfwSetErrorCallback(errorCallback = GLFWErrorCallback.createPrint(System.err));
 		if(!GLFW.glfwInit()) throw new IllegalStateException("Unable to initialize GLFW.");
 
-		//Set clampFramerate, frameTime and tickTime
-		clampFramerate = Boolean.parseBoolean(gameProperties.getProperty("engine.clamp.framerate"));
-		frameTime      = ONE_SECOND / Long.parseLong(gameProperties.getProperty("engine.max.framerate"));
-		tickTime       = ONE_SECOND / Long.parseLong(gameProperties.getProperty("engine.tickrate"));
+		//Create the game window, the other components are initialized with its OpenGL context
+		window = new Window(config);
+		window.initialize();
+		profiler.initialize();
+		InputManager.getInstance().initialize(window.getHandle());
+		initializeComponents();
+	}
 
-		//Create the game window
-		window = new Window(gameProperties);
+	/**
+	 * Initializes the engines components and the game. Without a window, see {@link #initializeHeadless(IGameLogic, Config)}, the object loader
+	 * must be set to a graphics device that does not need an OpenGL context.
+	 *
+	 * @throws Exception
+	 */
+	private void initializeComponents() throws Exception
+	{
+		//Set clampFramerate, frameTime, tickTime and the maximum number of catch-up ticks per frame, 0 meaning unlimited. The frame rate limit is
+		//applied on the main thread, so it follows changes to the configuration file
+		final var clampFramerateSetting = config.booleanSetting("engine.clamp.framerate", false);
+		final var maxFramerateSetting   = config.intSetting("engine.max.framerate", 60, 1, 1000);
+		clampFramerateSetting.addListener(()->clampFramerate = clampFramerateSetting.get());
+		maxFramerateSetting.addListener(()->frameTime = ONE_SECOND / maxFramerateSetting.get());
+		clampFramerate  = clampFramerateSetting.get();
+		frameTime       = ONE_SECOND / maxFramerateSetting.get();
+		tickTime        = ONE_SECOND / config.intSetting("engine.tickrate", 20, 1, 1000).get();
+		pipelined       = config.booleanSetting("engine.pipelined", false).get();
+		maxCatchUpTicks = config.intSetting("engine.max.catchup.ticks", 5, 0, Integer.MAX_VALUE).get();
+		frames          = 0;
+		secondCounter   = 0;
+		unprocessedTime = 0;
 
 		//Use reflection to access the getInstance methods of RenderManager and SceneManager because they are in 'sub-packages'
 		final Method getRenderManagerInstance = RenderManager.class.getDeclaredMethod("getInstance");
@@ -161,85 +317,355 @@ public final class DragonEngine
 		getRenderManagerInstance.setAccessible(true);
 		getSceneManagerInstance.setAccessible(true);
 
-		//Create instances of the engines components
+		//Create instances of the engines components, using all but one core for jobs unless a thread count is configured
+		final var jobThreads = config.intSetting("engine.job.threads", 0, 0, 1024).get();
+		jobSystem     = new JobSystem(jobThreads > 0 ? jobThreads : Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
 		inputManager  = InputManager.getInstance();
 		objectLoader  = ObjectLoader.getInstance();
+		frameStats    = new FrameStats(config.intSetting("engine.stats.slowest.frames", 10, 0, 1000).get());
 		renderManager = (RenderManager) getRenderManagerInstance.invoke(null);
 		sceneManager  = (SceneManager) getSceneManagerInstance.invoke(null);
 
-		//Initialize the engines components
-		window.initialize();
-		inputManager.initialize(window.getHandle());
+		//Publish the metrics and sample the GPU memory in use from the object loader
+		metrics.gauge(Metrics.GPU_MEMORY, objectLoader::getResidentBytes);
+		metrics.gauge(Metrics.GPU_RESOURCES, ()->objectLoader.getResources().size());
+		metrics.register();
+
+		//Initialize the engines components, caching linked shader binaries if a directory is configured and lighting with the configured pipeline
+		profiler.setEnabled(config.booleanSetting("engine.profiler.enabled", false).get());
+		final var shaderCacheDirectory = config.stringSetting("engine.shader.cache.directory", "").get();
+		if(!shaderCacheDirectory.isBlank()) renderManager.setShaderCacheDirectory(Path.of(shaderCacheDirectory));
+		renderManager.setJobSystem(jobSystem);
+		renderManager.setPipeline(config.enumSetting("engine.render.pipeline", RenderManager.Pipeline.class, RenderManager.Pipeline.FORWARD).get());
 		renderManager.initialize(objectLoader);
 
-		//TODO make clampFramerate configurable
-		clampFramerate = false;
-		initialized    = true;
+		//Render the scene at a fixed scale of the window size, or let the scale adjust to hold the target frame time. Both dynamic resolution and
+		//the governor react to the target frame time, with the governor enabled it adjusts the scale as one of its knobs instead
+		final var targetFrameTime = (long) (config.floatSetting("engine.render.target.frame.ms", 16.7f, 0.1f, 1000).get() * 1000000);
+		final var dynamicScale    = config.booleanSetting("engine.render.scale.dynamic", false).get();
+		final var minScale        = config.floatSetting("engine.render.scale.min", 0.5f, 0.1f, 1).get();
+		governed = config.booleanSetting("engine.quality.governor", false).get();
+		renderManager.setRenderScale(config.floatSetting("engine.render.scale", 1, 0.1f, 1).get());
+		dynamicResolution = dynamicScale && !governed ? new DynamicResolution(targetFrameTime, minScale, renderManager.getRenderScale()) : null;
+
+		//Register the engine's quality knobs, lights are given up before draw distance and the render scale last. The governor only adjusts them
+		//if it is enabled
+		qualityGovernor = new QualityGovernor(targetFrameTime);
+		final var lightLimits = renderManager.getPipeline() == RenderManager.Pipeline.DEFERRED ? DEFERRED_LIGHT_LIMITS : FORWARD_LIGHT_LIMITS;
+		qualityGovernor.register(QualityKnob.of("lights", lightLimits.length + 1,
+				level->renderManager.setLightLimit(level < lightLimits.length ? lightLimits[level] : Integer.MAX_VALUE)));
+		qualityGovernor.register(QualityKnob.of("draw distance", DRAW_DISTANCES.length + 1,
+				level->renderManager.setDrawDistance(level < DRAW_DISTANCES.length ? DRAW_DISTANCES[level] * window.getZFar() : Float.POSITIVE_INFINITY)));
+		if(dynamicScale && governed) qualityGovernor.register(DynamicResolution.knob(renderManager, minScale, renderManager.getRenderScale()));
+
+		//Set the per frame time budget for uploading asynchronously loaded assets, the GPU memory budget and enable the texture cache if a directory
+		//is configured
+		objectLoader.setUploadBudget((long) (config.floatSetting("engine.upload.budget.ms", 2, 0, 1000).get() * 1000000));
+		final var memoryBudget = config.intSetting("engine.gpu.memory.budget.mb", 0, 0, Integer.MAX_VALUE).get();
+		if(memoryBudget > 0) objectLoader.setMemoryBudget(memoryBudget * 1024L * 1024);
+		final var textureCacheDirectory = config.stringSetting("engine.texture.cache.directory", "").get();
+		if(!textureCacheDirectory.isBlank()) objectLoader.setTextureCache(
+				new TextureCache(Path.of(textureCacheDirectory), config.enumSetting("engine.texture.compression", TextureFormat.class, TextureFormat.AUTO).get()));
+
+		//Reload the watched settings when the configuration file changes and create the buffers handing snapshots to the render thread
+		config.startWatching();
+		snapshots = pipelined ? new TripleBuffer<>(SceneSnapshot::new) : null;
+		initialized = true;
 
 		//Initialize the game
 		gameLogic.initialize();
 	}
 
 	/**
-	 * Runs the main game loop. Processes input, then processes game ticks using a fixed time step, renders as often as possible unless clamp frame
-	 * rate is enabled and then updates the FPS/TPS display if a second has passed.+
+	 * Initializes the engine without a window, so frames can be run headless with {@link #frame(long, long)} or, if the configuration enables
+	 * the pipelined game loop, {@link #simulateFrame(long)} and {@link #renderFrame(long, long)}. The viewport and projection of the render
+	 * manager are left to the caller.
+	 *
+	 * @param gameLogic
+	 * @param config
+	 * @throws Exception
+	 */
+	void initializeHeadless(final IGameLogic gameLogic, final Config config) throws Exception
+	{
+		this.gameLogic      = gameLogic;
+		DragonEngine.config = config;
+		initializeComponents();
+	}
+
+	/**
+	 * Runs the main game loop until the game window is marked to be closed, one {@link #frame(long, long)} at a time.
 	 */
-	//TODO Review main game loop
 	private void run()
 	{
-		//Initialize game loop variables
 		long previousStartTime = System.nanoTime();
-		int  frames            = 0;
-		int  ticks             = 0;
-		long secondCounter     = 0L;
-		long unprocessedTime   = 0L;
-		long unrenderedTime    = 0L;
-		//Run the main game loop until the game window is marked to be closed
+		nextFrameTime = previousStartTime + frameTime;
 		while(!window.windowShouldClose())
 		{
-			//Set the start time of this run, calculate the time elapsed since the last run started and update the previous start time for the next run
-			final long startTime   = System.nanoTime();
-			final long elapsedTime = startTime - previousStartTime;
+			//Set the start time of this run, pass the time elapsed since the last run started and update the previous start time for the next run
+			final long startTime = System.nanoTime();
+			frame(startTime, startTime - previousStartTime);
 			previousStartTime = startTime;
+		}
+	}
 
-			//Add the elapsed time to the unprocessed time, unrendered time and second counter
-			unprocessedTime += elapsedTime;
-			unrenderedTime  += elapsedTime;
-			secondCounter   += elapsedTime;
+	/**
+	 * Runs one frame of the main game loop. Processes input, then processes game ticks using a fixed time step, renders and then updates the
+	 * FPS/TPS display if a second has passed. If clamp frame rate is enabled the frame waits for the next frame deadline after rendering.
+	 *
+	 * @param startTime   - Start time of the frame in nanoseconds
+	 * @param elapsedTime - Time since the previous frame started in nanoseconds
+	 */
+	void frame(final long startTime, final long elapsedTime)
+	{
+		//Add the elapsed time to the unprocessed time and second counter
+		unprocessedTime += elapsedTime;
+		secondCounter   += elapsedTime;
+
+		//Apply changes to the configuration file and process input
+		config.update();
+		profiler.begin("input");
+		inputManager.poll();
+		gameLogic.input();
+		profiler.end();
+		frameStats.mark(FrameStats.Stage.INPUT);
+
+		//Process game ticks using a fixed time step
+		unprocessedTime = processTicks(unprocessedTime);
+		frameStats.mark(FrameStats.Stage.UPDATE);
+
+		//Render
+		profiler.begin("render");
+		updateViewport();
+		objectLoader.processUploads();
+		gameLogic.render();
+		renderManager.render(sceneManager);
+		profiler.end();
+		frameStats.mark(FrameStats.Stage.RENDER);
+		swapBuffers();
+		endFrame(startTime);
+	}
 
-			//Process input
-			inputManager.updateMouseData();
-			gameLogic.input();
+	/**
+	 * Runs the main game loop with simulation and rendering on separate threads. The simulation thread processes input, game ticks and the game's
+	 * render method, then publishes a snapshot of the scene and camera. Meanwhile this thread renders the most recently published snapshot, so a
+	 * frame takes about as long as the slower of the two instead of their sum. Assets must still be loaded from the render thread, i.e. in the
+	 * game's initialize method.
+	 */
+	private void runPipelined()
+	{
+		simulating       = true;
+		simulationThread = new Thread(this::simulate, "simulation");
+		simulationThread.setUncaughtExceptionHandler((thread, throwable)->
+		{
+			throwable.printStackTrace();
+			GLFW.glfwSetWindowShouldClose(window.getHandle(), true);
+		});
+		simulationThread.start();
 
-			//Process game ticks using a fixed time step
-			while(unprocessedTime > tickTime)
-			{
-				final long updateStartTime = System.nanoTime();
-				unprocessedTime -= tickTime;
-				gameLogic.update();
-				if(System.nanoTime() - updateStartTime > tickTime) System.out.println("Time to process game update has exceeded tick time.");
-				ticks++;
-			}
+		long previousStartTime = System.nanoTime();
+		nextFrameTime = previousStartTime + frameTime;
+		while(!window.windowShouldClose())
+		{
+			final long startTime = System.nanoTime();
+			renderFrame(startTime, startTime - previousStartTime);
+			previousStartTime = startTime;
+		}
+
+		simulating = false;
+		LockSupport.unpark(simulationThread);
+		try
+		{
+			simulationThread.join();
+		}
+		catch(final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
 
-			//Always render unless clamp frame rate option is enabled
-			if(!clampFramerate || unrenderedTime > frameTime)
+	/**
+	 * Runs one frame on the render thread of the pipelined game loop, rendering the most recently published snapshot and waking the simulation
+	 * thread to produce the next one.
+	 *
+	 * @param startTime   - Start time of the frame in nanoseconds
+	 * @param elapsedTime - Time since the previous frame started in nanoseconds
+	 */
+	void renderFrame(final long startTime, final long elapsedTime)
+	{
+		secondCounter += elapsedTime;
+
+		final var snapshot = snapshots.getFront();
+		LockSupport.unpark(simulationThread);
+		config.update();
+
+		profiler.begin("render");
+		updateViewport();
+		objectLoader.processUploads();
+		renderManager.render(snapshot, snapshot.getCamera());
+		profiler.end();
+		frameStats.mark(FrameStats.Stage.RENDER);
+		swapBuffers();
+		endFrame(startTime);
+	}
+
+	/**
+	 * Ends a rendered frame. Adjusts the render scale and quality to the time the frame took, waits for the next frame if the clamp frame rate
+	 * option is enabled and updates the FPS/TPS display if a second has passed.
+	 *
+	 * @param startTime - Start time of the frame in nanoseconds
+	 */
+	private void endFrame(final long startTime)
+	{
+		frames++;
+		final var workTime = System.nanoTime() - startTime;
+		if(dynamicResolution != null) renderManager.setRenderScale(dynamicResolution.update(workTime));
+		if(governed) qualityGovernor.update(workTime);
+		if(clampFramerate) nextFrameTime = limitFramerate(nextFrameTime);
+		metrics.endFrame(frameStats.endFrame());
+
+		if(secondCounter >= ONE_SECOND)
+		{
+			report();
+			frames        = 0;
+			secondCounter = 0;
+		}
+	}
+
+	/**
+	 * Waits for the frame deadline using the frame limiter and returns the next one. If the frame finished late the next deadline is counted from
+	 * now, so a slow frame does not cause a burst of unlimited frames.
+	 *
+	 * @param frameDeadline - Deadline of the current frame
+	 * @return long - Deadline of the next frame
+	 */
+	private long limitFramerate(final long frameDeadline)
+	{
+		frameLimiter.waitUntil(frameDeadline);
+		return Math.max(frameDeadline, System.nanoTime() - frameTime) + frameTime;
+	}
+
+	/**
+	 * Processes game ticks for the unprocessed time using a fixed time step. At most the configured number of catch-up ticks are processed, the
+	 * remaining whole ticks are dropped and added to the dropped simulation time so a long stall does not make the engine fall further behind.
+	 *
+	 * @param unprocessedTime - Time not yet simulated in nanoseconds
+	 * @return long - Time left unprocessed
+	 */
+	private long processTicks(long unprocessedTime)
+	{
+		var catchUpTicks = 0;
+		while(unprocessedTime > tickTime)
+		{
+			if(maxCatchUpTicks > 0 && catchUpTicks == maxCatchUpTicks)
 			{
-				unrenderedTime = 0;
-				window.updateViewport();
-				gameLogic.render();
-				renderManager.render(sceneManager);
-				window.update();
-				frames++;
+				final long dropped = unprocessedTime - unprocessedTime % tickTime;
+				//Counted instead of logged, an overloaded engine drops time every frame. The once a second report mentions it
+				droppedSimulationTime.addAndGet(dropped);
+				droppedTimeCounter.add(dropped);
+				return unprocessedTime - dropped;
 			}
 
-			//Update the FPS/TPS display if a second has passed
-			if(secondCounter >= ONE_SECOND)
+			final long updateStartTime = System.nanoTime();
+			unprocessedTime -= tickTime;
+			//Like the frame events, tick events are only created while the flight recorder records them so ticks do not allocate
+			final var tickEvent = tickEvents.isEnabled() ? new TickEvent() : null;
+			if(tickEvent != null) tickEvent.begin();
+			profiler.begin("update");
+			inputManager.updateSnapshot();
+			gameLogic.update();
+			jobSystem.waitAll();
+			profiler.end();
+			final var tick = metrics.nextTick();
+			if(tickEvent != null)
 			{
-				window.appendToTitle("fps=" + frames + "/tps=" + ticks);
-				frames        = 0;
-				ticks         = 0;
-				secondCounter = 0;
+				tickEvent.tick = tick;
+				tickEvent.commit();
 			}
+			tickCounter.increment();
+			final long updateTime = System.nanoTime() - updateStartTime;
+			frameStats.recordTick(updateTime);
+			if(updateTime > tickTime) System.out.println("Time to process game update has exceeded tick time.");
+			simulatedTicks.incrementAndGet();
+			catchUpTicks++;
+		}
+		return unprocessedTime;
+	}
+
+	/**
+	 * Shows the frame and tick rates of the last second in the window title and reports the simulation time dropped since the last report, once
+	 * instead of in every frame that drops time.
+	 */
+	private void report()
+	{
+		final var ticks = simulatedTicks.getAndSet(0);
+		if(window != null) window.appendToTitle("fps=" + frames + "/tps=" + ticks);
+		final var dropped = droppedSimulationTime.get();
+		if(dropped > reportedDroppedTime) System.out.println("Dropped " + (dropped - reportedDroppedTime) / 1000000 + " ms of simulation time in the last second.");
+		reportedDroppedTime = dropped;
+	}
+
+	/**
+	 * Swaps the window buffers and ends the profiler frame.
+	 */
+	private void swapBuffers()
+	{
+		profiler.begin("swap");
+		if(window != null) window.update();
+		profiler.end();
+		profiler.endFrame();
+		frameStats.mark(FrameStats.Stage.SWAP);
+	}
+
+	/**
+	 * Simulation thread of the pipelined game loop. Produces one snapshot per rendered frame, waiting for the render thread to pick up the last one
+	 * so input and the game's render method keep running once per frame.
+	 */
+	private void simulate()
+	{
+		long previousStartTime = System.nanoTime();
+		while(simulating)
+		{
+			final long startTime = System.nanoTime();
+			simulateFrame(startTime - previousStartTime);
+			previousStartTime = startTime;
+
+			while(simulating && !snapshots.isConsumed())
+				LockSupport.park(this);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Runs one frame on the simulation thread of the pipelined game loop. Processes input, game ticks and the game's render method, then
+	 * publishes a snapshot of the scene and camera.
+	 *
+	 * @param elapsedTime - Time since the previous frame started in nanoseconds
+	 */
+	void simulateFrame(final long elapsedTime)
+	{
+		unprocessedTime += elapsedTime;
+
+		profiler.begin("input");
+		inputManager.poll();
+		gameLogic.input();
+		profiler.end();
+
+		unprocessedTime = processTicks(unprocessedTime);
+
+		profiler.begin("capture");
+		gameLogic.render();
+		snapshots.getBack().capture(sceneManager, renderManager.getCamera());
+		snapshots.publish();
+		profiler.end();
+	}
+
+	/**
+	 * Sizes the viewport and projection of the render manager to the window. Running headless they keep the values they were set to.
+	 */
+	private void updateViewport()
+	{
+		if(window == null) return;
+		window.updateViewport();
+		renderManager.setViewportSize(window.getWidth(), window.getHeight());
+		renderManager.setProjectionMatrix(window.getProjectionMatrix());
+	}
+}
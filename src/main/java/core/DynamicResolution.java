@@ -0,0 +1,93 @@
+package core;
+
+import core.rendering.RenderManager;
+
+/**
+ * Picks the render scale each frame so the time the frame takes stays under a target. The frame time is smoothed and the scale moves in steps:
+ * down as soon as the smoothed time exceeds the target, up only if the predicted time at the larger scale, assuming the cost grows with the
+ * pixel count, keeps a margin below it. After every change the scale holds for a few frames so the effect is measured before the next one, which
+ * keeps it from oscillating. Changing the scale only changes the part of the render targets drawn into, they are never recreated for it.
+ * <p>
+ * Dynamic resolution and the {@link QualityGovernor} would both react to the same frame time budget, so with the governor enabled the engine
+ * registers the render scale as one of its knobs, see {@link #knob(RenderManager, float, float)}, instead of updating a dynamic resolution.
+ */
+final class DynamicResolution
+{
+	private static final float SMOOTHING     = 0.1f;
+	private static final float STEP          = 0.05f;
+	private static final float UPSCALE_LIMIT = 0.9f;
+	private static final int   HOLD_FRAMES   = 15;
+
+	private final float maxScale, minScale;
+	private final long  targetFrameTime;
+
+	private float frameTime;
+	private int   holdFrames;
+	private float scale;
+
+	/**
+	 * @param targetFrameTime - Target frame time in nanoseconds
+	 * @param minScale        - Lowest render scale
+	 * @param maxScale        - Highest render scale, the scale started at
+	 */
+	DynamicResolution(final long targetFrameTime, final float minScale, final float maxScale)
+	{
+		this.targetFrameTime = targetFrameTime;
+		this.minScale        = Math.min(minScale, maxScale);
+		this.maxScale        = maxScale;
+		scale                = maxScale;
+	}
+
+	/**
+	 * Creates a quality knob setting the render scale, the same steps dynamic resolution moves in from the highest scale down to the lowest.
+	 *
+	 * @param renderManager
+	 * @param minScale      - Lowest render scale, at level 0
+	 * @param maxScale      - Highest render scale, at the highest level
+	 * @return QualityKnob - Render scale knob
+	 */
+	static QualityKnob knob(final RenderManager renderManager, final float minScale, final float maxScale)
+	{
+		final var lowest     = Math.min(minScale, maxScale);
+		final var levelCount = 1 + Math.round((maxScale - lowest) / STEP);
+		return QualityKnob.of("render scale", levelCount, level->renderManager.setRenderScale(Math.max(lowest, maxScale - (levelCount - 1 - level) * STEP)));
+	}
+
+	/**
+	 * @return float - Current render scale
+	 */
+	float getScale()
+	{
+		return scale;
+	}
+
+	/**
+	 * Adds the time a frame took and returns the render scale for the next frame.
+	 *
+	 * @param frameTime - Time the frame took, without waiting for the frame limiter, in nanoseconds
+	 * @return float - Render scale
+	 */
+	float update(final long frameTime)
+	{
+		this.frameTime = this.frameTime == 0 ? frameTime : this.frameTime + (frameTime - this.frameTime) * SMOOTHING;
+		if(holdFrames > 0)
+		{
+			holdFrames--;
+			return scale;
+		}
+
+		var next = scale;
+		if(this.frameTime > targetFrameTime) next = Math.max(minScale, scale - STEP);
+		else
+		{
+			final var larger = Math.min(maxScale, scale + STEP);
+			if(this.frameTime * (larger * larger) / (scale * scale) < targetFrameTime * UPSCALE_LIMIT) next = larger;
+		}
+		if(next != scale)
+		{
+			scale      = next;
+			holdFrames = HOLD_FRAMES;
+		}
+		return scale;
+	}
+}
@@ -0,0 +1,47 @@
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event committed at the end of every frame with the engine counters of that frame.
+ */
+@Name("core.Frame")
+@Label("Frame")
+@Category("DragonEngine")
+@Description("Engine counters of a rendered frame")
+final class FrameEvent extends jdk.jfr.Event
+{
+	@Label("Frame")
+	long frame;
+
+	@Label("Frame Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long frameTime;
+
+	@Label("Draw Calls")
+	long drawCalls;
+
+	@Label("Triangles")
+	long triangles;
+
+	@Label("State Changes")
+	long stateChanges;
+
+	@Label("Uniform Uploads")
+	long uniformUploads;
+
+	@Label("Textures Bound")
+	long texturesBound;
+
+	@Label("Entities Processed")
+	long entitiesProcessed;
+
+	@Label("GPU Memory")
+	@DataAmount
+	long gpuMemory;
+}
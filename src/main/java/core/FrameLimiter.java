@@ -0,0 +1,51 @@
+package core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for frame deadlines without burning a core. Parks the thread for most of the remaining time and spins for the last part, learning how
+ * far the scheduler overshoots a park so the spin stays short.
+ */
+final class FrameLimiter
+{
+	private static final long INITIAL_OVERSHOOT = 1000000;
+	private static final long MAXIMUM_OVERSHOOT = 4000000;
+	private static final long SPIN_MARGIN       = 50000;
+
+	private long overshoot = INITIAL_OVERSHOOT;
+
+	/**
+	 * Returns the expected time a park overshoots the requested duration in nanoseconds.
+	 *
+	 * @return long - Overshoot estimate
+	 */
+	long getOvershoot()
+	{
+		return overshoot;
+	}
+
+	/**
+	 * Blocks until System.nanoTime() has reached the deadline. Returns immediately if it already has.
+	 *
+	 * @param deadline - Deadline in nanoseconds
+	 */
+	void waitUntil(final long deadline)
+	{
+		//Park while the remaining time is longer than the expected overshoot, rising quickly and decaying slowly so late wakeups stay rare
+		long now = System.nanoTime();
+		while(deadline - now > overshoot + SPIN_MARGIN)
+		{
+			final long requested = deadline - now - overshoot - SPIN_MARGIN;
+			LockSupport.parkNanos(this, requested);
+			final long woken = System.nanoTime();
+			final long error = Math.max(0, woken - now - requested);
+			if(error > overshoot) overshoot = Math.min(error, MAXIMUM_OVERSHOOT);
+			else overshoot -= overshoot - error >> 4;
+			now = woken;
+		}
+
+		//Spin for the rest
+		while(deadline - System.nanoTime() > 0)
+			Thread.onSpinWait();
+	}
+}
@@ -0,0 +1,231 @@
+package core;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Frame and tick timing statistics of the main game loop. Every frame time and tick duration is recorded into a rolling
+ * {@link LatencyHistogram}, and a hitch detector keeps the slowest frames of the window together with the time spent in each stage of the loop.
+ * Recording does not allocate.
+ */
+public final class FrameStats
+{
+	private static final long INTERVAL_LENGTH  = 1000000000;
+	private static final int  INTERVALS        = 10;
+	private static final int  THRESHOLD_FRAMES = 64;
+
+	/**
+	 * Stages of a frame. With the pipelined game loop input and update run on the simulation thread and are not part of the frame breakdown.
+	 */
+	public enum Stage
+	{
+		INPUT, UPDATE, RENDER, SWAP, WAIT
+	}
+
+	private final LatencyHistogram frameTimes = new LatencyHistogram("frame", INTERVALS, INTERVAL_LENGTH);
+	private final Hitch[]          hitches;
+	private final long[]           stageTimes = new long[Stage.values().length];
+	private final LatencyHistogram tickTimes  = new LatencyHistogram("tick", INTERVALS, INTERVAL_LENGTH);
+
+	private long frame;
+	private long frameStart;
+	private long hitchCount;
+	private long hitchThreshold = Long.MAX_VALUE;
+	private long stageStart;
+
+	/**
+	 * @param slowestFrames - Number of slowest frames kept by the hitch detector
+	 */
+	FrameStats(final int slowestFrames)
+	{
+		hitches = new Hitch[slowestFrames];
+		for(var i = 0; i < slowestFrames; i++)
+			hitches[i] = new Hitch();
+		frameStart = stageStart = System.nanoTime();
+	}
+
+	/**
+	 * Writes the frame and tick percentiles and the slowest frames.
+	 *
+	 * @param out
+	 */
+	public void dump(final PrintStream out)
+	{
+		out.println(frameTimes);
+		out.println(tickTimes);
+		out.println("hitches=" + getHitchCount());
+		for(final Hitch hitch: getSlowestFrames())
+			out.println("  " + hitch);
+	}
+
+	/**
+	 * Returns the histogram of frame times, measured from the start of one frame to the start of the next.
+	 *
+	 * @return LatencyHistogram - Frame times
+	 */
+	public LatencyHistogram getFrameTimes()
+	{
+		return frameTimes;
+	}
+
+	/**
+	 * Returns the number of frames that took more than twice the median frame time.
+	 *
+	 * @return long - Number of hitches
+	 */
+	public synchronized long getHitchCount()
+	{
+		return hitchCount;
+	}
+
+	/**
+	 * Returns copies of the slowest frames still inside the histogram window, slowest first.
+	 *
+	 * @return List - Slowest frames
+	 */
+	public synchronized List<Hitch> getSlowestFrames()
+	{
+		final var windowStart = System.nanoTime() - INTERVALS * INTERVAL_LENGTH;
+		final var slowest     = new ArrayList<Hitch>();
+		for(final Hitch hitch: hitches)
+			if(hitch.frameTime > 0 && hitch.timestamp - windowStart > 0) slowest.add(hitch.copy());
+		slowest.sort(Comparator.comparingLong(Hitch::getFrameTime).reversed());
+		return slowest;
+	}
+
+	/**
+	 * Returns the histogram of game tick durations.
+	 *
+	 * @return LatencyHistogram - Tick durations
+	 */
+	public LatencyHistogram getTickTimes()
+	{
+		return tickTimes;
+	}
+
+	/**
+	 * Ends the current frame and starts the next one. Time since the last marked stage is counted as waiting.
+	 *
+	 * @return long - Frame time in nanoseconds
+	 */
+	synchronized long endFrame()
+	{
+		mark(Stage.WAIT);
+		final var now       = stageStart;
+		final var frameTime = now - frameStart;
+		frameStart = now;
+		frame++;
+
+		//Count frames slower than twice the median, which is only recomputed every few frames since it walks the whole histogram
+		if(frameTime > hitchThreshold) hitchCount++;
+		frameTimes.record(frameTime);
+		if(frame % THRESHOLD_FRAMES == 0) hitchThreshold = 2 * frameTimes.getPercentile(50);
+
+		//Replace the fastest kept frame, or one that has left the window
+		final var windowStart = now - INTERVALS * INTERVAL_LENGTH;
+		var       replace     = hitches[0];
+		for(final Hitch hitch: hitches)
+		{
+			if(hitch.timestamp - windowStart <= 0)
+			{
+				replace = hitch;
+				break;
+			}
+			if(hitch.frameTime < replace.frameTime) replace = hitch;
+		}
+		if(replace.timestamp - windowStart <= 0 || frameTime > replace.frameTime) replace.set(frame, now, frameTime, stageTimes);
+		Arrays.fill(stageTimes, 0);
+		return frameTime;
+	}
+
+	/**
+	 * Adds the time since the last marked stage to the given stage of the current frame.
+	 *
+	 * @param stage
+	 */
+	synchronized void mark(final Stage stage)
+	{
+		final var now = System.nanoTime();
+		stageTimes[stage.ordinal()] += now - stageStart;
+		stageStart                   = now;
+	}
+
+	/**
+	 * Records the duration of a game tick.
+	 *
+	 * @param duration - Duration in nanoseconds
+	 */
+	void recordTick(final long duration)
+	{
+		tickTimes.record(duration);
+	}
+
+	/**
+	 * A slow frame and the time spent in each stage.
+	 */
+	public static final class Hitch
+	{
+		private final long[] stageTimes = new long[Stage.values().length];
+
+		private long frame;
+		private long frameTime;
+		private long timestamp = Long.MIN_VALUE / 2;
+
+		public long getFrame()
+		{
+			return frame;
+		}
+
+		/**
+		 * @return long - Frame time in nanoseconds
+		 */
+		public long getFrameTime()
+		{
+			return frameTime;
+		}
+
+		/**
+		 * @param stage
+		 * @return long - Time spent in the stage in nanoseconds
+		 */
+		public long getStageTime(final Stage stage)
+		{
+			return stageTimes[stage.ordinal()];
+		}
+
+		/**
+		 * @return long - System.nanoTime() at the end of the frame
+		 */
+		public long getTimestamp()
+		{
+			return timestamp;
+		}
+
+		@Override
+		public String toString()
+		{
+			final var string = new StringBuilder(String.format("frame %d: %.2fms", frame, frameTime / 1e6));
+			for(final Stage stage: Stage.values())
+				string.append(String.format(" %s=%.2fms", stage.name().toLowerCase(), stageTimes[stage.ordinal()] / 1e6));
+			return string.toString();
+		}
+
+		private Hitch copy()
+		{
+			final var copy = new Hitch();
+			copy.set(frame, timestamp, frameTime, stageTimes);
+			return copy;
+		}
+
+		private void set(final long frame, final long timestamp, final long frameTime, final long[] stageTimes)
+		{
+			this.frame     = frame;
+			this.timestamp = timestamp;
+			this.frameTime = frameTime;
+			System.arraycopy(stageTimes, 0, this.stageTimes, 0, stageTimes.length);
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package core;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A model or texture held in GPU memory by the {@link ObjectLoader}. Resources loaded from a file are shared between every handle loaded from the
+ * same path or from a file with the same content, and are reference counted so they can be unloaded once no handle uses them anymore.
+ */
+public final class GpuResource
+{
+	/**
+	 * Kind of GPU object backing a resource.
+	 */
+	public enum Type
+	{
+		MODEL, TEXTURE
+	}
+
+	private final CompletableFuture<GpuResource> future;
+	private final String                         path;
+	private final Type                           type;
+
+	private float   boundingRadius;
+	private int[]   buffers;
+	private long    byteSize;
+	private String  contentHash;
+	private int     id;
+	private long    lastUsedFrame;
+	private boolean loaded;
+	private int     referenceCount;
+	private int     vertexCount;
+
+	GpuResource(final String path, final Type type)
+	{
+		this.path = path;
+		this.type = type;
+		future    = new CompletableFuture<>();
+	}
+
+	/**
+	 * Returns the GPU memory used by the resource.
+	 *
+	 * @return long - Size in bytes
+	 */
+	public long getByteSize()
+	{
+		return byteSize;
+	}
+
+	/**
+	 * Returns the hash of the file the resource was loaded from, or null if it was created from data in memory.
+	 *
+	 * @return String - SHA-256 hash of the source file
+	 */
+	public String getContentHash()
+	{
+		return contentHash;
+	}
+
+	/**
+	 * Returns the number of the last frame the resource was drawn in.
+	 *
+	 * @return long - Frame number
+	 */
+	public long getLastUsedFrame()
+	{
+		return lastUsedFrame;
+	}
+
+	/**
+	 * Returns the path the resource was first loaded from, or null if it was created from data in memory.
+	 *
+	 * @return String - Asset path
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * Returns the number of handles currently using the resource. Resources without references are unloaded once the GPU memory budget is exceeded.
+	 *
+	 * @return int - Reference count
+	 */
+	public int getReferenceCount()
+	{
+		return referenceCount;
+	}
+
+	public Type getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Returns true while the resource's GPU objects exist.
+	 *
+	 * @return boolean - True if loaded
+	 */
+	public boolean isLoaded()
+	{
+		return loaded;
+	}
+
+	int[] getBuffers()
+	{
+		return buffers;
+	}
+
+	CompletableFuture<GpuResource> getFuture()
+	{
+		return future;
+	}
+
+	/**
+	 * @return float - Radius of a sphere around the origin containing every vertex of a model
+	 */
+	float getBoundingRadius()
+	{
+		return boundingRadius;
+	}
+
+	int getId()
+	{
+		return id;
+	}
+
+	int getVertexCount()
+	{
+		return vertexCount;
+	}
+
+	void reference()
+	{
+		referenceCount++;
+	}
+
+	int release()
+	{
+		return --referenceCount;
+	}
+
+	void setBoundingRadius(final float boundingRadius)
+	{
+		this.boundingRadius = boundingRadius;
+	}
+
+	void setContentHash(final String contentHash)
+	{
+		this.contentHash = contentHash;
+	}
+
+	void setLastUsedFrame(final long lastUsedFrame)
+	{
+		this.lastUsedFrame = lastUsedFrame;
+	}
+
+	void setLoaded(final int id, final int[] buffers, final int vertexCount, final long byteSize)
+	{
+		this.id          = id;
+		this.buffers     = buffers;
+		this.vertexCount = vertexCount;
+		this.byteSize    = byteSize;
+		loaded           = true;
+	}
+
+	void setUnloaded()
+	{
+		loaded = false;
+	}
+}
@@ -0,0 +1,342 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Thin layer between the engine and the graphics API. Every method maps to one or a few OpenGL calls and takes the same ids and constants, so
+ * {@link OpenGLDevice} stays a direct translation. {@link RecordingDevice} implements it without a driver to run the renderers headless.
+ */
+public interface GraphicsDevice
+{
+	/**
+	 * Selects the texture unit used by {@link #bindTexture(int)}.
+	 *
+	 * @param unit - Texture unit index, starting at 0
+	 */
+	void activeTexture(int unit);
+
+	void attachShader(int program, int shader);
+
+	void bindBuffer(int target, int buffer);
+
+	/**
+	 * Binds a buffer to an indexed binding point, e.g. of uniform blocks.
+	 *
+	 * @param target - Indexed buffer target
+	 * @param index  - Binding point
+	 * @param buffer
+	 */
+	void bindBufferBase(int target, int index, int buffer);
+
+	/**
+	 * Binds a framebuffer as the target of draws and clears, 0 for the window's framebuffer.
+	 *
+	 * @param framebuffer
+	 */
+	void bindFramebuffer(int framebuffer);
+
+	/**
+	 * Binds a 2D texture to the active texture unit.
+	 *
+	 * @param texture
+	 */
+	void bindTexture(int texture);
+
+	void bindVertexArray(int vertexArray);
+
+	/**
+	 * Copies the color buffer of a framebuffer into the window's framebuffer with linear filtering, stretching it to the given size. Leaves the
+	 * window's framebuffer bound.
+	 *
+	 * @param source       - Framebuffer to copy
+	 * @param sourceWidth
+	 * @param sourceHeight
+	 * @param width        - Width of the copy in the window's framebuffer
+	 * @param height       - Height of the copy in the window's framebuffer
+	 */
+	void blitFramebuffer(int source, int sourceWidth, int sourceHeight, int width, int height);
+
+	void bufferData(int target, FloatBuffer data);
+
+	void bufferData(int target, IntBuffer data);
+
+	/**
+	 * Allocates uninitialized storage for the buffer bound to a target, meant to be updated every frame with
+	 * {@link #bufferSubData(int, int, ByteBuffer)}.
+	 *
+	 * @param target
+	 * @param size   - Size in bytes
+	 */
+	void bufferData(int target, int size);
+
+	/**
+	 * Replaces part of the storage of the buffer bound to a target with the remaining bytes of the data.
+	 *
+	 * @param target
+	 * @param offset - Offset in bytes
+	 * @param data
+	 */
+	void bufferSubData(int target, int offset, ByteBuffer data);
+
+	/**
+	 * Clears the color and depth buffers.
+	 */
+	void clear();
+
+	/**
+	 * Sets the source of a shader and compiles it.
+	 *
+	 * @param shader
+	 * @param source
+	 * @return boolean - True if the shader compiled
+	 */
+	boolean compileShader(int shader, String source);
+
+	/**
+	 * Uploads a compressed level of the bound 2D texture.
+	 */
+	void compressedTexImage2D(int level, int internalFormat, int width, int height, ByteBuffer data);
+
+	int createBuffer();
+
+	int createFramebuffer();
+
+	int createProgram();
+
+	int createShader(int type);
+
+	int createTexture();
+
+	int createVertexArray();
+
+	/**
+	 * Selects which faces are culled while culling is enabled.
+	 *
+	 * @param face - GL_BACK or GL_FRONT
+	 */
+	void cullFace(int face);
+
+	void deleteBuffer(int buffer);
+
+	void deleteFramebuffer(int framebuffer);
+
+	void deleteProgram(int program);
+
+	void deleteTexture(int texture);
+
+	void deleteVertexArray(int vertexArray);
+
+	void detachShader(int program, int shader);
+
+	void disableVertexAttribArray(int index);
+
+	/**
+	 * Makes the fragment shader outputs write to the first color attachments of the bound framebuffer.
+	 *
+	 * @param count - Number of color attachments
+	 */
+	void drawBuffers(int count);
+
+	/**
+	 * Draws triangles from the element buffer of the bound vertex array.
+	 *
+	 * @param indexCount - Number of indices
+	 */
+	void drawTriangles(int indexCount);
+
+	void enableVertexAttribArray(int index);
+
+	/**
+	 * Attaches a 2D texture to the bound framebuffer.
+	 *
+	 * @param attachment - Attachment point, e.g. GL_COLOR_ATTACHMENT0 or GL_DEPTH_ATTACHMENT
+	 * @param texture
+	 */
+	void framebufferTexture(int attachment, int texture);
+
+	/**
+	 * Generates the mip chain of the bound 2D texture.
+	 */
+	void generateMipmap();
+
+	/**
+	 * Returns a description of the driver, identifying which program binaries it accepts.
+	 *
+	 * @return String - Vendor, renderer and version
+	 */
+	String getDriverDescription();
+
+	/**
+	 * Retrieves the binary of a linked program into the buffer, starting at its position.
+	 *
+	 * @param program
+	 * @param binary
+	 * @return int - Binary format
+	 */
+	int getProgramBinary(int program, ByteBuffer binary);
+
+	/**
+	 * @param program
+	 * @return int - Length of the program's binary in bytes, 0 if none is available
+	 */
+	int getProgramBinaryLength(int program);
+
+	String getProgramInfoLog(int program);
+
+	String getShaderInfoLog(int shader);
+
+	/**
+	 * @param program
+	 * @param name
+	 * @return int - Index of the program's uniform block, -1 if the program has no active block of that name
+	 */
+	int getUniformBlockIndex(int program, String name);
+
+	int getUniformLocation(int program, String name);
+
+	/**
+	 * @return boolean - True if the bound framebuffer is complete
+	 */
+	boolean isFramebufferComplete();
+
+	/**
+	 * Returns true if linked programs can be retrieved and restored as binaries.
+	 *
+	 * @return boolean - True if program binaries are supported
+	 */
+	boolean isProgramBinarySupported();
+
+	/**
+	 * @param program
+	 * @return boolean - True if the program linked
+	 */
+	boolean linkProgram(int program);
+
+	/**
+	 * Restores a program from a binary retrieved by {@link #getProgramBinary(int, ByteBuffer)}.
+	 *
+	 * @return boolean - True if the driver accepted the binary
+	 */
+	boolean programBinary(int program, int format, ByteBuffer binary);
+
+	/**
+	 * Enables or disables adding the fragment colors to the colors already in the framebuffer.
+	 *
+	 * @param blending
+	 */
+	void setAdditiveBlending(boolean blending);
+
+	/**
+	 * Enables or disables culling of back faces. Enabling culling selects back faces again after {@link #cullFace(int)} selected others.
+	 *
+	 * @param culling
+	 */
+	void setCulling(boolean culling);
+
+	/**
+	 * Enables or disables clamping depth instead of clipping primitives at the near and far planes.
+	 *
+	 * @param clamp
+	 */
+	void setDepthClamp(boolean clamp);
+
+	/**
+	 * Enables or disables writing depth.
+	 *
+	 * @param mask
+	 */
+	void setDepthMask(boolean mask);
+
+	/**
+	 * Enables or disables the depth test.
+	 *
+	 * @param test
+	 */
+	void setDepthTest(boolean test);
+
+	/**
+	 * Hints that the binary of the program will be retrieved after linking.
+	 *
+	 * @param program
+	 */
+	void setProgramBinaryRetrievable(int program);
+
+	void setUnpackAlignment(int alignment);
+
+	/**
+	 * Uploads an RGBA8 level of the bound 2D texture.
+	 */
+	void texImage2D(int level, int width, int height, ByteBuffer data);
+
+	/**
+	 * Allocates a level of the bound 2D texture in any format, e.g. for render targets.
+	 *
+	 * @param level
+	 * @param internalFormat
+	 * @param width
+	 * @param height
+	 * @param format
+	 * @param type
+	 * @param data           - Texel data, null to leave the level uninitialized
+	 */
+	void texImage2D(int level, int internalFormat, int width, int height, int format, int type, ByteBuffer data);
+
+	/**
+	 * Sets an integer parameter of the bound 2D texture.
+	 */
+	void texParameter(int name, int value);
+
+	void uniform1f(int location, float value);
+
+	void uniform1i(int location, int value);
+
+	void uniform2f(int location, float x, float y);
+
+	void uniform3f(int location, float x, float y, float z);
+
+	void uniform4f(int location, float x, float y, float z, float w);
+
+	/**
+	 * Makes a uniform block of a program read the buffer bound to a uniform buffer binding point.
+	 *
+	 * @param program
+	 * @param blockIndex - Index returned by {@link #getUniformBlockIndex(int, String)}
+	 * @param binding    - Binding point
+	 */
+	void uniformBlockBinding(int program, int blockIndex, int binding);
+
+	/**
+	 * Uploads the column major matrix starting at the given offset of a buffer.
+	 *
+	 * @param location
+	 * @param data
+	 * @param offset   - Offset of the matrix in floats
+	 */
+	void uniformMatrix4(int location, FloatBuffer data, int offset);
+
+	void useProgram(int program);
+
+	/**
+	 * @param program
+	 * @return boolean - True if the program validated
+	 */
+	boolean validateProgram(int program);
+
+	/**
+	 * Describes float vertex data in the bound array buffer for a vertex attribute.
+	 *
+	 * @param index - Attribute index
+	 * @param size  - Components per vertex
+	 */
+	void vertexAttribPointer(int index, int size);
+
+	/**
+	 * Sets the area of the bound framebuffer draws are mapped to, starting at its lower left corner.
+	 *
+	 * @param width
+	 * @param height
+	 */
+	void viewport(int width, int height);
+}
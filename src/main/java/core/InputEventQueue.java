@@ -0,0 +1,85 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free ring buffer handing input events from a single producer thread to a single consumer thread. GLFW callbacks push events on the thread
+ * polling the window and the thread processing input drains them, neither waits for the other and neither allocates. Every event takes two
+ * longs: a header holding the type, action and key or button code, and a payload holding the cursor position of cursor events.
+ */
+final class InputEventQueue
+{
+	static final int KEY             = 1;
+	static final int MOUSE_BUTTON    = 2;
+	static final int CURSOR_POSITION = 3;
+	static final int CURSOR_ENTER    = 4;
+
+	private final long[]     events;
+	private final AtomicLong head, tail;
+	private final int        mask;
+
+	/**
+	 * @param capacity - Maximum number of queued events, a power of two
+	 */
+	InputEventQueue(final int capacity)
+	{
+		if(Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two.");
+
+		events = new long[capacity * 2];
+		head   = new AtomicLong();
+		tail   = new AtomicLong();
+		mask   = capacity - 1;
+	}
+
+	/**
+	 * Passes every queued event to a handler in the order they were pushed. Only called from the consumer thread.
+	 *
+	 * @param handler
+	 * @return int - Number of events drained
+	 */
+	int drain(final Handler handler)
+	{
+		final var start = head.get();
+		final var end   = tail.getAcquire();
+		for(var position = start; position < end; position++)
+		{
+			final var index   = (int) (position & mask) * 2;
+			final var header  = events[index];
+			final var payload = events[index + 1];
+			handler.handle((int) (header >>> 56), (int) (header >>> 48) & 0xFF, (int) header, Float.intBitsToFloat((int) (payload >>> 32)),
+					Float.intBitsToFloat((int) payload));
+		}
+		head.setRelease(end);
+		return (int) (end - start);
+	}
+
+	/**
+	 * Pushes an event, dropping it if the queue is full. Only called from the producer thread.
+	 *
+	 * @param type   - Event type
+	 * @param action - GLFW action, or 1 and 0 for entering and leaving the window
+	 * @param code   - Key or mouse button code
+	 * @param x      - Cursor x position
+	 * @param y      - Cursor y position
+	 * @return boolean - False if the event was dropped
+	 */
+	boolean offer(final int type, final int action, final int code, final float x, final float y)
+	{
+		final var position = tail.get();
+		if(position - head.getAcquire() > mask) return false;
+
+		final var index = (int) (position & mask) * 2;
+		events[index]     = (long) type << 56 | (long) (action & 0xFF) << 48 | code & 0xFFFFFFFFL;
+		events[index + 1] = (long) Float.floatToRawIntBits(x) << 32 | Float.floatToRawIntBits(y) & 0xFFFFFFFFL;
+		tail.setRelease(position + 1);
+		return true;
+	}
+
+	/**
+	 * Receives the events of a queue while it is drained.
+	 */
+	interface Handler
+	{
+		void handle(int type, int action, int code, float x, float y);
+	}
+}
@@ -1,24 +1,44 @@
 package core;
 
+import java.util.Arrays;
+
 import org.joml.Vector2d;
 import org.joml.Vector2f;
 import org.lwjgl.glfw.GLFW;
 
+/**
+ * Tracks keyboard and mouse input. GLFW callbacks only push events into a lock free queue, the thread processing input drains it once per frame
+ * with {@link #poll()}, so input can be processed on another thread than the one polling the window. The state queried from the input manager
+ * is updated every frame, the {@link InputSnapshot} returned by {@link #getSnapshot()} once per tick.
+ */
 public final class InputManager
 {
+	private static final int QUEUE_CAPACITY = 4096;
+
 	private static volatile InputManager instance;
 
-	private final Vector2d mousePreviousPosition, mouseCurrentPosition;
+	private final InputEventQueue         events;
+	private final InputEventQueue.Handler handler;
+	private final long[]                  keysDown, keysPressed, keysReleased;
+	private final Vector2f                mouseDisplayVector;
+	private final Vector2d                mousePreviousPosition, mouseCurrentPosition;
+	private final InputSnapshot           snapshot;
 
-	private Vector2f mouseDisplayVector;
-	private boolean  mouseInWindow = false, mouseLeftButtonPress = false, mouseRightButtonPress = false;
-	private long     windowHandle;
+	private int     buttonsDown, buttonsPressed, buttonsReleased;
+	private float   cursorDeltaX, cursorDeltaY;
+	private boolean mouseInWindow = false;
 
 	private InputManager()
 	{
+		events                = new InputEventQueue(QUEUE_CAPACITY);
+		handler               = this::handle;
+		keysDown              = new long[InputSnapshot.KEY_WORDS];
+		keysPressed           = new long[InputSnapshot.KEY_WORDS];
+		keysReleased          = new long[InputSnapshot.KEY_WORDS];
 		mousePreviousPosition = new Vector2d(-1);
 		mouseCurrentPosition  = new Vector2d();
 		mouseDisplayVector    = new Vector2f();
+		snapshot              = new InputSnapshot();
 	}
 
 	static InputManager getInstance()
@@ -31,69 +51,152 @@ public final class InputManager
 		return instance;
 	}
 
+	/**
+	 * Returns the distance the mouse moved during the last frame. The vector is reused and overwritten every frame.
+	 *
+	 * @return Vector2f - Mouse movement, x holding the vertical and y the horizontal distance
+	 */
 	public Vector2f getMouseDisplayVector()
 	{
 		return mouseDisplayVector;
 	}
 
+	/**
+	 * @return InputSnapshot - Input of the current tick
+	 */
+	public InputSnapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
 	public boolean isKeyPressed(final int keyCode)
 	{
-		return GLFW.glfwGetKey(windowHandle, keyCode) == GLFW.GLFW_PRESS;
+		return keyCode >= 0 && keyCode <= GLFW.GLFW_KEY_LAST && (keysDown[keyCode >>> 6] & 1L << keyCode) != 0;
 	}
 
 	public boolean isLeftMouseButtonPressed()
 	{
-		return mouseLeftButtonPress;
+		return isMouseButtonPressed(GLFW.GLFW_MOUSE_BUTTON_1);
+	}
+
+	public boolean isMouseButtonPressed(final int button)
+	{
+		return button >= 0 && button <= GLFW.GLFW_MOUSE_BUTTON_LAST && (buttonsDown & 1 << button) != 0;
 	}
 
 	public boolean isRightMouseButtonPressed()
 	{
-		return mouseRightButtonPress;
+		return isMouseButtonPressed(GLFW.GLFW_MOUSE_BUTTON_2);
 	}
 
 	/**
-	 * Sets the windowHandle and creates callback functions for when the mouse cursor position updates, when it enters/exits the window and when the
-	 * mouse buttons are pressed.
+	 * Sets the callback functions queuing key presses, mouse button presses, cursor movement and the cursor entering or leaving the window. The
+	 * window's own key callback is still called.
 	 *
 	 * @param windowHandle
 	 */
 	void initialize(final long windowHandle)
 	{
-		this.windowHandle = windowHandle;
+		final var windowKeyCallback = GLFW.glfwSetKeyCallback(windowHandle, null);
+		GLFW.glfwSetKeyCallback(windowHandle, (window, key, scancode, action, mods)->
+		{
+			events.offer(InputEventQueue.KEY, action, key, 0, 0);
+			if(windowKeyCallback != null) windowKeyCallback.invoke(window, key, scancode, action, mods);
+		});
 
-		GLFW.glfwSetCursorPosCallback(windowHandle, (window, xpos, ypos)->
+		GLFW.glfwSetMouseButtonCallback(windowHandle, (window, button, action, mods)->
 		{
-			mouseCurrentPosition.x = xpos;
-			mouseCurrentPosition.y = ypos;
+			events.offer(InputEventQueue.MOUSE_BUTTON, action, button, 0, 0);
 		});
 
-		GLFW.glfwSetCursorEnterCallback(windowHandle, (window, entered)->
+		GLFW.glfwSetCursorPosCallback(windowHandle, (window, xpos, ypos)->
 		{
-			mouseInWindow = entered;
+			events.offer(InputEventQueue.CURSOR_POSITION, 0, 0, (float) xpos, (float) ypos);
 		});
 
-		GLFW.glfwSetMouseButtonCallback(windowHandle, (window, button, action, mod)->
+		GLFW.glfwSetCursorEnterCallback(windowHandle, (window, entered)->
 		{
-			mouseLeftButtonPress  = button == GLFW.GLFW_MOUSE_BUTTON_1 && action == GLFW.GLFW_PRESS;
-			mouseRightButtonPress = button == GLFW.GLFW_MOUSE_BUTTON_2 && action == GLFW.GLFW_PRESS;
+			events.offer(InputEventQueue.CURSOR_ENTER, entered ? 1 : 0, 0, 0, 0);
 		});
 	}
 
 	/**
-	 * Updates the current position, previous position and display vector of the mouse.
+	 * Applies the queued input events and updates the current position, previous position and display vector of the mouse.
 	 */
-	void updateMouseData()
+	void poll()
 	{
-		mouseDisplayVector = new Vector2f(0, 0);
+		events.drain(handler);
+
+		mouseDisplayVector.set(0, 0);
 		if(mousePreviousPosition.x > 0 && mousePreviousPosition.y > 0 && mouseInWindow)
 		{
 			final double x = mouseCurrentPosition.x - mousePreviousPosition.x;
 			final double y = mouseCurrentPosition.y - mousePreviousPosition.y;
-			if(x != 0) mouseDisplayVector.y = (float) x;
-			if(y != 0) mouseDisplayVector.x = (float) y;
+			mouseDisplayVector.y  = (float) x;
+			mouseDisplayVector.x  = (float) y;
+			cursorDeltaX         += (float) x;
+			cursorDeltaY         += (float) y;
 		}
 
 		mousePreviousPosition.x = mouseCurrentPosition.x;
 		mousePreviousPosition.y = mouseCurrentPosition.y;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Copies the input state into the snapshot for the next tick and starts collecting the presses and releases of the tick after it.
+	 */
+	void updateSnapshot()
+	{
+		snapshot.set(keysDown, keysPressed, keysReleased, buttonsDown, buttonsPressed, buttonsReleased, (float) mouseCurrentPosition.x,
+				(float) mouseCurrentPosition.y, cursorDeltaX, cursorDeltaY);
+		Arrays.fill(keysPressed, 0);
+		Arrays.fill(keysReleased, 0);
+		buttonsPressed  = 0;
+		buttonsReleased = 0;
+		cursorDeltaX    = 0;
+		cursorDeltaY    = 0;
+	}
+
+	private void handle(final int type, final int action, final int code, final float x, final float y)
+	{
+		switch(type)
+		{
+			case InputEventQueue.KEY ->
+			{
+				if(code < 0 || code > GLFW.GLFW_KEY_LAST) return;
+
+				final var word = code >>> 6;
+				final var bit  = 1L << code;
+				if(action == GLFW.GLFW_PRESS)
+				{
+					keysDown[word]    |= bit;
+					keysPressed[word] |= bit;
+				}
+				else if(action == GLFW.GLFW_RELEASE)
+				{
+					keysDown[word]     &= ~bit;
+					keysReleased[word] |= bit;
+				}
+			}
+			case InputEventQueue.MOUSE_BUTTON ->
+			{
+				if(code < 0 || code > GLFW.GLFW_MOUSE_BUTTON_LAST) return;
+
+				final var bit = 1 << code;
+				if(action == GLFW.GLFW_PRESS)
+				{
+					buttonsDown    |= bit;
+					buttonsPressed |= bit;
+				}
+				else if(action == GLFW.GLFW_RELEASE)
+				{
+					buttonsDown     &= ~bit;
+					buttonsReleased |= bit;
+				}
+			}
+			case InputEventQueue.CURSOR_POSITION -> mouseCurrentPosition.set(x, y);
+			case InputEventQueue.CURSOR_ENTER -> mouseInWindow = action != 0;
+			default -> throw new IllegalStateException("Unknown input event type " + type);
+		}
+	}
+}
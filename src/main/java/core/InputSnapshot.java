@@ -0,0 +1,130 @@
+package core;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * The input state of one game tick: which keys and mouse buttons are down, which were pressed or released since the previous tick and how far
+ * the cursor moved. A press and release between two ticks shows up as both pressed and released, so short taps are never missed when ticks are
+ * far apart. The engine rebuilds the snapshot before every tick, it does not change during a tick.
+ */
+public final class InputSnapshot
+{
+	static final int KEY_WORDS = (GLFW.GLFW_KEY_LAST >>> 6) + 1;
+
+	private final long[] keysDown, keysPressed, keysReleased;
+
+	private int   buttonsDown, buttonsPressed, buttonsReleased;
+	private float cursorX, cursorY, cursorDeltaX, cursorDeltaY;
+
+	InputSnapshot()
+	{
+		keysDown     = new long[KEY_WORDS];
+		keysPressed  = new long[KEY_WORDS];
+		keysReleased = new long[KEY_WORDS];
+	}
+
+	/**
+	 * @return float - Horizontal distance the cursor moved inside the window since the previous tick
+	 */
+	public float getCursorDeltaX()
+	{
+		return cursorDeltaX;
+	}
+
+	/**
+	 * @return float - Vertical distance the cursor moved inside the window since the previous tick
+	 */
+	public float getCursorDeltaY()
+	{
+		return cursorDeltaY;
+	}
+
+	public float getCursorX()
+	{
+		return cursorX;
+	}
+
+	public float getCursorY()
+	{
+		return cursorY;
+	}
+
+	/**
+	 * @param button - GLFW mouse button
+	 * @return boolean - True if the button is down
+	 */
+	public boolean isButtonDown(final int button)
+	{
+		return test(buttonsDown, button);
+	}
+
+	/**
+	 * @param key - GLFW key code
+	 * @return boolean - True if the key is down
+	 */
+	public boolean isKeyDown(final int key)
+	{
+		return test(keysDown, key);
+	}
+
+	/**
+	 * @param button - GLFW mouse button
+	 * @return boolean - True if the button was pressed since the previous tick
+	 */
+	public boolean wasButtonPressed(final int button)
+	{
+		return test(buttonsPressed, button);
+	}
+
+	/**
+	 * @param button - GLFW mouse button
+	 * @return boolean - True if the button was released since the previous tick
+	 */
+	public boolean wasButtonReleased(final int button)
+	{
+		return test(buttonsReleased, button);
+	}
+
+	/**
+	 * @param key - GLFW key code
+	 * @return boolean - True if the key was pressed since the previous tick
+	 */
+	public boolean wasKeyPressed(final int key)
+	{
+		return test(keysPressed, key);
+	}
+
+	/**
+	 * @param key - GLFW key code
+	 * @return boolean - True if the key was released since the previous tick
+	 */
+	public boolean wasKeyReleased(final int key)
+	{
+		return test(keysReleased, key);
+	}
+
+	void set(final long[] keysDown, final long[] keysPressed, final long[] keysReleased, final int buttonsDown, final int buttonsPressed,
+			final int buttonsReleased, final float cursorX, final float cursorY, final float cursorDeltaX, final float cursorDeltaY)
+	{
+		System.arraycopy(keysDown, 0, this.keysDown, 0, KEY_WORDS);
+		System.arraycopy(keysPressed, 0, this.keysPressed, 0, KEY_WORDS);
+		System.arraycopy(keysReleased, 0, this.keysReleased, 0, KEY_WORDS);
+		this.buttonsDown     = buttonsDown;
+		this.buttonsPressed  = buttonsPressed;
+		this.buttonsReleased = buttonsReleased;
+		this.cursorX         = cursorX;
+		this.cursorY         = cursorY;
+		this.cursorDeltaX    = cursorDeltaX;
+		this.cursorDeltaY    = cursorDeltaY;
+	}
+
+	private static boolean test(final int bits, final int button)
+	{
+		return button >= 0 && button <= GLFW.GLFW_MOUSE_BUTTON_LAST && (bits & 1 << button) != 0;
+	}
+
+	private static boolean test(final long[] bits, final int key)
+	{
+		return key >= 0 && key <= GLFW.GLFW_KEY_LAST && (bits[key >>> 6] & 1L << key) != 0;
+	}
+}
@@ -0,0 +1,39 @@
+package core;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A unit of work submitted to the {@link JobSystem}. Jobs start once every job they depend on has completed.
+ */
+public final class Job
+{
+	private final CompletableFuture<Void> future;
+
+	Job(final CompletableFuture<Void> future)
+	{
+		this.future = future;
+	}
+
+	/**
+	 * Blocks until the job has completed. Rethrows the exception of the job, or of a job it depends on, if one failed.
+	 */
+	public void await()
+	{
+		future.join();
+	}
+
+	/**
+	 * Returns true if the job has completed, successfully or not.
+	 *
+	 * @return boolean - True if completed
+	 */
+	public boolean isDone()
+	{
+		return future.isDone();
+	}
+
+	CompletableFuture<Void> getFuture()
+	{
+		return future;
+	}
+}
@@ -0,0 +1,314 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Work stealing job system shared by the engine and games. Jobs run on a fork join pool and can depend on other jobs, either explicitly or
+ * through the objects they declare to read and write: a job writing an object runs after every earlier job of the same tick that reads or writes
+ * it, and a job reading an object runs after the earlier job that writes it. The engine waits for all jobs at the end of each tick.
+ */
+public final class JobSystem
+{
+	private static final Job[] NO_DEPENDENCIES = new Job[0];
+	private static final int   MINIMUM_GRAIN   = 1;
+
+	private final Map<Object, Job>         lastWriters = new HashMap<>();
+	private final ThreadLocal<ParallelLoop> loops;
+	private final Map<Object, List<Job>>   readers     = new HashMap<>();
+	private final List<Job>                submitted   = new ArrayList<>();
+	private final AtomicInteger            threadCount = new AtomicInteger();
+	private final ForkJoinPool             pool;
+
+	/**
+	 * @param parallelism - Number of worker threads
+	 */
+	JobSystem(final int parallelism)
+	{
+		pool = new ForkJoinPool(parallelism, pool->
+		{
+			final var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("job-" + threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}, null, true);
+		loops = ThreadLocal.withInitial(()->new ParallelLoop(pool));
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 *
+	 * @return int - Parallelism
+	 */
+	public int getParallelism()
+	{
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Runs a loop body for every index from 0 to count - 1, splitting the range into chunks of at least grain indices that are processed in
+	 * parallel. Blocks until every index has been processed and rethrows the first exception thrown by the body. Every thread reuses the same
+	 * loop state, so a loop does not allocate once the thread has run one, unless it is started from inside another loop on the same thread.
+	 *
+	 * @param count - Number of indices
+	 * @param grain - Smallest number of indices processed by one task
+	 * @param body  - Loop body receiving the index
+	 */
+	public void parallelFor(final int count, final int grain, final IntConsumer body)
+	{
+		final var chunk = Math.max(grain, MINIMUM_GRAIN);
+		if(count <= chunk)
+		{
+			for(var i = 0; i < count; i++)
+				body.accept(i);
+			return;
+		}
+
+		final var loop = loops.get();
+		if(loop.isRunning()) new ParallelLoop(pool).run(count, chunk, body);
+		else loop.run(count, chunk, body);
+	}
+
+	/**
+	 * Submits a job that runs once the given jobs have completed.
+	 *
+	 * @param task
+	 * @param dependencies
+	 * @return Job - Submitted job
+	 */
+	public Job submit(final Runnable task, final Job... dependencies)
+	{
+		return submit(task, null, null, dependencies);
+	}
+
+	/**
+	 * Submits a job that runs once the given jobs and every conflicting job submitted earlier in the same tick have completed. Two jobs conflict
+	 * if one of them writes an object the other reads or writes.
+	 *
+	 * @param task
+	 * @param reads        - Objects the job reads, or null
+	 * @param writes       - Objects the job writes, or null
+	 * @param dependencies
+	 * @return Job - Submitted job
+	 */
+	public synchronized Job submit(final Runnable task, final Object[] reads, final Object[] writes, final Job... dependencies)
+	{
+		final List<Job> after = new ArrayList<>(List.of(dependencies != null ? dependencies : NO_DEPENDENCIES));
+		if(reads != null) for(final Object read: reads)
+		{
+			final var writer = lastWriters.get(read);
+			if(writer != null) after.add(writer);
+		}
+		if(writes != null) for(final Object write: writes)
+		{
+			final var writer = lastWriters.get(write);
+			if(writer != null) after.add(writer);
+			final var objectReaders = readers.remove(write);
+			if(objectReaders != null) after.addAll(objectReaders);
+		}
+
+		final var futures = new CompletableFuture<?>[after.size()];
+		for(var i = 0; i < futures.length; i++)
+			futures[i] = after.get(i).getFuture();
+		final var job = new Job(CompletableFuture.allOf(futures).thenRunAsync(task, pool));
+
+		if(reads != null) for(final Object read: reads)
+			readers.computeIfAbsent(read, key->new ArrayList<>()).add(job);
+		if(writes != null) for(final Object write: writes)
+			lastWriters.put(write, job);
+		submitted.add(job);
+		return job;
+	}
+
+	/**
+	 * Blocks until every job submitted since the last call has completed and forgets the objects they read and wrote. Rethrows the first
+	 * exception of a failed job.
+	 */
+	public void waitAll()
+	{
+		final Job[] jobs;
+		synchronized(this)
+		{
+			jobs = submitted.toArray(NO_DEPENDENCIES);
+			submitted.clear();
+			lastWriters.clear();
+			readers.clear();
+		}
+
+		RuntimeException failure = null;
+		for(final Job job: jobs)
+			try
+			{
+				job.await();
+			}
+			catch(final RuntimeException e)
+			{
+				if(failure == null) failure = e;
+			}
+		if(failure != null) throw failure;
+	}
+
+	void shutdown()
+	{
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Helper task working on the loop of the thread that forked it.
+	 */
+	private static final class Helper extends ForkJoinTask<Void>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final transient ParallelLoop loop;
+
+		private boolean forked;
+
+		Helper(final ParallelLoop loop)
+		{
+			this.loop = loop;
+		}
+
+		@Override
+		public Void getRawResult()
+		{
+			return null;
+		}
+
+		@Override
+		protected boolean exec()
+		{
+			loop.work();
+			return true;
+		}
+
+		@Override
+		protected void setRawResult(final Void value)
+		{}
+
+		/**
+		 * Forks the helper again if it has finished its last run, helpers still queued work on the next loop once they start.
+		 */
+		void fork(final ForkJoinPool pool, final boolean worker)
+		{
+			if(forked && !isDone()) return;
+
+			reinitialize();
+			forked = true;
+			if(worker) fork();
+			else pool.execute(this);
+		}
+	}
+
+	/**
+	 * State of a parallel loop, reused by every loop its thread runs. The range is split into chunks that the calling thread and helper tasks
+	 * forked to the pool claim one at a time, so chunks go to whichever thread is free. The caller claims chunks too and afterwards only waits for
+	 * the chunks other threads are still processing, never for helpers to be scheduled, so helpers can still be queued when the loop returns.
+	 * Each loop is a new generation of the cursor, which helpers validate every claim against, and a helper starting late works on whichever
+	 * loop is running at the time or finds nothing left to do.
+	 */
+	private static final class ParallelLoop
+	{
+		private static final long CLOSED = Integer.MAX_VALUE;
+		private static final int  SPINS  = 100;
+
+		private final AtomicInteger              completed = new AtomicInteger();
+		private final AtomicLong                 cursor    = new AtomicLong(CLOSED);
+		private final AtomicReference<Throwable> failure   = new AtomicReference<>();
+		private final Helper[]                   helpers;
+		private final ForkJoinPool               pool;
+
+		//Written while the cursor is closed, read by helpers between reading the cursor and claiming a chunk from it
+		private volatile IntConsumer body;
+		private volatile int         chunkCount, count, grain;
+
+		private long    generation;
+		private boolean running;
+
+		ParallelLoop(final ForkJoinPool pool)
+		{
+			this.pool = pool;
+			helpers   = new Helper[pool.getParallelism()];
+			for(var i = 0; i < helpers.length; i++)
+				helpers[i] = new Helper(this);
+		}
+
+		boolean isRunning()
+		{
+			return running;
+		}
+
+		void run(final int count, final int grain, final IntConsumer body)
+		{
+			running = true;
+			generation++;
+			this.body  = body;
+			this.count = count;
+			this.grain = grain;
+			chunkCount = (count + grain - 1) / grain;
+			completed.set(0);
+			cursor.set(generation << 32);
+
+			final var worker = Thread.currentThread() instanceof final ForkJoinWorkerThread thread && thread.getPool() == pool;
+			for(var i = 0; i < Math.min(helpers.length, chunkCount - 1); i++)
+				helpers[i].fork(pool, worker);
+
+			//Claim chunks until none are left, then wait for the ones other threads are still processing, which each take at most a chunk's time.
+			//Yields after a short spin so a thread processing a chunk on the same core gets to finish it
+			work();
+			for(var spins = 0; completed.get() < chunkCount; spins++)
+				if(spins < SPINS) Thread.onSpinWait();
+				else Thread.yield();
+
+			//Closed until the next loop has written its fields, so helpers reading them meanwhile fail to claim a chunk
+			cursor.set(generation << 32 | CLOSED);
+			this.body = null;
+			running   = false;
+			final var throwable = failure.getAndSet(null);
+			if(throwable instanceof final RuntimeException exception) throw exception;
+			if(throwable instanceof final Error error) throw error;
+		}
+
+		/**
+		 * Processes chunks of the current generation until none are left.
+		 */
+		void work()
+		{
+			while(true)
+			{
+				final var state = cursor.get();
+				final var chunk = (int) state;
+				final var body  = this.body;
+				final var count = this.count;
+				final var grain = this.grain;
+				if(chunk >= chunkCount) return;
+				if(!cursor.compareAndSet(state, state + 1)) continue;
+
+				try
+				{
+					final var end = Math.min(count, (chunk + 1) * grain);
+					for(var i = chunk * grain; i < end; i++)
+						body.accept(i);
+				}
+				catch(final Throwable throwable)
+				{
+					failure.compareAndSet(null, throwable);
+				}
+				finally
+				{
+					completed.incrementAndGet();
+				}
+			}
+		}
+	}
+}
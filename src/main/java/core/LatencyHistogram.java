@@ -0,0 +1,200 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Allocation free histogram of durations in nanoseconds over a rolling window. Values are counted in log-linear buckets, every power of two is
+ * split into {@link #SUB_BUCKET_COUNT} buckets, so percentiles are accurate to about 1.5% at any magnitude. The window is made up of a fixed
+ * number of intervals, when an interval has passed the oldest one is cleared and reused.
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS  = 6;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT     = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final long[][] counts;
+	private final long     intervalLength;
+	private final long[]   maximums;
+	private final String   name;
+	private final long[]   totals;
+
+	private int  current;
+	private long intervalStart;
+
+	/**
+	 * @param name           - Name used when dumping the histogram
+	 * @param intervals      - Number of intervals in the window
+	 * @param intervalLength - Length of an interval in nanoseconds
+	 */
+	public LatencyHistogram(final String name, final int intervals, final long intervalLength)
+	{
+		this.name           = name;
+		this.intervalLength = intervalLength;
+		counts              = new long[intervals][BUCKET_COUNT];
+		maximums            = new long[intervals];
+		totals              = new long[intervals];
+		intervalStart       = System.nanoTime();
+	}
+
+	private static int bucketOf(final long value)
+	{
+		if(value < SUB_BUCKET_COUNT) return (int) Math.max(value, 0);
+		final var shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift & SUB_BUCKET_COUNT - 1);
+	}
+
+	private static long highestValueOf(final int bucket)
+	{
+		if(bucket < SUB_BUCKET_COUNT) return bucket;
+		final var shift = bucket / SUB_BUCKET_COUNT - 1;
+		return (SUB_BUCKET_COUNT + (long) (bucket % SUB_BUCKET_COUNT) << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * Returns the number of values recorded in the window.
+	 *
+	 * @return long - Number of values
+	 */
+	public long getCount()
+	{
+		return getCount(counts.length);
+	}
+
+	/**
+	 * Returns the number of values recorded in the most recent intervals.
+	 *
+	 * @param intervals - Number of intervals, including the current one
+	 * @return long - Number of values
+	 */
+	public synchronized long getCount(final int intervals)
+	{
+		rotate(System.nanoTime());
+		long count = 0;
+		for(var i = 0; i < Math.min(intervals, counts.length); i++)
+			count += totals[index(i)];
+		return count;
+	}
+
+	/**
+	 * Returns the largest value recorded in the window.
+	 *
+	 * @return long - Maximum in nanoseconds
+	 */
+	public long getMax()
+	{
+		return getMax(counts.length);
+	}
+
+	/**
+	 * Returns the largest value recorded in the most recent intervals.
+	 *
+	 * @param intervals - Number of intervals, including the current one
+	 * @return long - Maximum in nanoseconds
+	 */
+	public synchronized long getMax(final int intervals)
+	{
+		rotate(System.nanoTime());
+		long max = 0;
+		for(var i = 0; i < Math.min(intervals, counts.length); i++)
+			max = Math.max(max, maximums[index(i)]);
+		return max;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the values recorded in the window fall, e.g. 99.9 for the 99.9th percentile.
+	 *
+	 * @param percentile - Percentile between 0 and 100
+	 * @return long - Value in nanoseconds, 0 if nothing was recorded
+	 */
+	public long getPercentile(final double percentile)
+	{
+		return getPercentile(percentile, counts.length);
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the values recorded in the most recent intervals fall.
+	 *
+	 * @param percentile - Percentile between 0 and 100
+	 * @param intervals  - Number of intervals, including the current one
+	 * @return long - Value in nanoseconds, 0 if nothing was recorded
+	 */
+	public synchronized long getPercentile(final double percentile, final int intervals)
+	{
+		final var count = getCount(intervals);
+		if(count == 0) return 0;
+
+		final var window = Math.min(intervals, counts.length);
+		final var rank   = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long      seen   = 0;
+		for(var bucket = 0; bucket < BUCKET_COUNT; bucket++)
+		{
+			for(var i = 0; i < window; i++)
+				seen += counts[index(i)][bucket];
+			if(seen >= rank) return Math.min(highestValueOf(bucket), getMax(intervals));
+		}
+		return getMax(intervals);
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param value - Duration in nanoseconds
+	 */
+	public synchronized void record(final long value)
+	{
+		rotate(System.nanoTime());
+		counts[current][bucketOf(value)]++;
+		totals[current]++;
+		if(value > maximums[current]) maximums[current] = value;
+	}
+
+	/**
+	 * Clears all intervals.
+	 */
+	public synchronized void reset()
+	{
+		for(final long[] interval: counts)
+			Arrays.fill(interval, 0);
+		Arrays.fill(maximums, 0);
+		Arrays.fill(totals, 0);
+		intervalStart = System.nanoTime();
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return String.format("%s: count=%d p50=%.2fms p95=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms", name, getCount(), getPercentile(50) / 1e6,
+				getPercentile(95) / 1e6, getPercentile(99) / 1e6, getPercentile(99.9) / 1e6, getMax() / 1e6);
+	}
+
+	/**
+	 * Returns the index of the interval the given number of intervals before the current one.
+	 */
+	private int index(final int age)
+	{
+		return Math.floorMod(current - age, counts.length);
+	}
+
+	/**
+	 * Advances to the interval containing the given time, clearing the intervals that are reused.
+	 */
+	private void rotate(final long now)
+	{
+		final var passed = (now - intervalStart) / intervalLength;
+		if(passed <= 0) return;
+		for(var i = 0; i < Math.min(passed, counts.length); i++)
+		{
+			current = (current + 1) % counts.length;
+			Arrays.fill(counts[current], 0);
+			maximums[current] = 0;
+			totals[current]   = 0;
+		}
+		intervalStart += passed * intervalLength;
+	}
+}
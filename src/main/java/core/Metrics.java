@@ -0,0 +1,213 @@
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registry of per frame counters and gauges. Counters are striped so they can be incremented from any thread at low cost, at the end of every
+ * frame their sums become the values of the last frame and they start again from zero. Gauges are sampled when read. The registry is exposed as
+ * an MXBean and the engine counters are committed as a flight recorder event every frame.
+ */
+public final class Metrics implements MetricsMXBean
+{
+	public static final String ASSET_UPLOADS           = "assetUploads";
+	public static final String DRAW_CALLS              = "drawCalls";
+	public static final String DROPPED_SIMULATION_TIME = "droppedSimulationNanos";
+	public static final String ENTITIES_PROCESSED      = "entitiesProcessed";
+	public static final String GPU_MEMORY              = "gpuMemoryBytes";
+	public static final String GPU_RESOURCES           = "gpuResources";
+	public static final String STATE_CHANGES           = "stateChanges";
+	public static final String TEXTURES_BOUND          = "texturesBound";
+	public static final String TICKS                   = "ticks";
+	public static final String TRIANGLES               = "triangles";
+	public static final String UNIFORM_UPLOADS         = "uniformUploads";
+
+	private static final String OBJECT_NAME = "core:type=Metrics";
+
+	private final Counter                   drawCalls, entitiesProcessed, stateChanges, texturesBound, triangles, uniformUploads;
+	private final Map<String, LongSupplier> gauges = new TreeMap<>();
+
+	private volatile Counter[] counters = new Counter[0];
+	private volatile long      frame;
+	private LongSupplier       gpuMemory;
+	private long               tick;
+
+	Metrics()
+	{
+		counter(ASSET_UPLOADS);
+		counter(DROPPED_SIMULATION_TIME);
+		counter(TICKS);
+		drawCalls         = counter(DRAW_CALLS);
+		entitiesProcessed = counter(ENTITIES_PROCESSED);
+		stateChanges      = counter(STATE_CHANGES);
+		texturesBound     = counter(TEXTURES_BOUND);
+		triangles         = counter(TRIANGLES);
+		uniformUploads    = counter(UNIFORM_UPLOADS);
+	}
+
+	/**
+	 * Returns the counter with the given name, creating it if it does not exist. Counters should be looked up once and kept.
+	 *
+	 * @param name
+	 * @return Counter - Counter with the name
+	 */
+	public synchronized Counter counter(final String name)
+	{
+		for(final Counter counter: counters)
+			if(counter.name.equals(name)) return counter;
+
+		final var counter = new Counter(name);
+		final var grown   = Arrays.copyOf(counters, counters.length + 1);
+		grown[counters.length] = counter;
+		counters               = grown;
+		return counter;
+	}
+
+	/**
+	 * Registers a gauge whose value is sampled from the supplier whenever it is read, replacing an existing gauge with the same name.
+	 *
+	 * @param name
+	 * @param supplier
+	 */
+	public synchronized void gauge(final String name, final LongSupplier supplier)
+	{
+		gauges.put(name, supplier);
+		if(name.equals(GPU_MEMORY)) gpuMemory = supplier;
+	}
+
+	@Override
+	public Map<String, Long> getCounters()
+	{
+		final Map<String, Long> values = new TreeMap<>();
+		for(final Counter counter: counters)
+			values.put(counter.name, counter.lastFrame);
+		return values;
+	}
+
+	@Override
+	public long getFrame()
+	{
+		return frame;
+	}
+
+	/**
+	 * Returns the current value of a gauge, or 0 if no gauge with the name is registered.
+	 *
+	 * @param name
+	 * @return long - Gauge value
+	 */
+	public synchronized long getGauge(final String name)
+	{
+		final var supplier = gauges.get(name);
+		return supplier != null ? supplier.getAsLong() : 0;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getGauges()
+	{
+		final Map<String, Long> values = new TreeMap<>();
+		gauges.forEach((name, supplier)->values.put(name, supplier.getAsLong()));
+		return values;
+	}
+
+	/**
+	 * Completes the current frame, storing the counter sums as the values of the last frame and committing a frame event if the flight recorder
+	 * is recording it.
+	 *
+	 * @param frameTime - Frame time in nanoseconds
+	 */
+	void endFrame(final long frameTime)
+	{
+		for(final Counter counter: counters)
+			counter.lastFrame = counter.adder.sumThenReset();
+		frame++;
+
+		final var event = new FrameEvent();
+		if(event.shouldCommit())
+		{
+			event.frame             = frame;
+			event.frameTime         = frameTime;
+			event.drawCalls         = drawCalls.lastFrame;
+			event.triangles         = triangles.lastFrame;
+			event.stateChanges      = stateChanges.lastFrame;
+			event.uniformUploads    = uniformUploads.lastFrame;
+			event.texturesBound     = texturesBound.lastFrame;
+			event.entitiesProcessed = entitiesProcessed.lastFrame;
+			event.gpuMemory         = gpuMemory != null ? gpuMemory.getAsLong() : 0;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the number of the next tick, called once per tick by the game loop.
+	 */
+	long nextTick()
+	{
+		return ++tick;
+	}
+
+	/**
+	 * Registers the registry with the platform MBean server.
+	 */
+	void register()
+	{
+		try
+		{
+			final var server = ManagementFactory.getPlatformMBeanServer();
+			final var name   = new ObjectName(OBJECT_NAME);
+			if(!server.isRegistered(name)) server.registerMBean(this, name);
+		}
+		catch(final JMException e)
+		{
+			System.err.println("Could not register metrics MBean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Per frame counter.
+	 */
+	public static final class Counter
+	{
+		private final LongAdder adder = new LongAdder();
+		private final String    name;
+
+		private volatile long lastFrame;
+
+		private Counter(final String name)
+		{
+			this.name = name;
+		}
+
+		public void add(final long value)
+		{
+			adder.add(value);
+		}
+
+		/**
+		 * Returns the value of the counter in the last completed frame.
+		 *
+		 * @return long - Last frame value
+		 */
+		public long getLastFrame()
+		{
+			return lastFrame;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void increment()
+		{
+			adder.increment();
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package core;
+
+import java.util.Map;
+
+/**
+ * Management interface of the engine {@link Metrics}, registered as "core:type=Metrics" so the counters can be watched in JConsole or JDK
+ * Mission Control.
+ */
+public interface MetricsMXBean
+{
+	/**
+	 * Returns the values of all counters in the last completed frame.
+	 *
+	 * @return Map - Counter values by name
+	 */
+	Map<String, Long> getCounters();
+
+	/**
+	 * Returns the number of completed frames.
+	 *
+	 * @return long - Frame number
+	 */
+	long getFrame();
+
+	/**
+	 * Returns the current values of all gauges.
+	 *
+	 * @return Map - Gauge values by name
+	 */
+	Map<String, Long> getGauges();
+}
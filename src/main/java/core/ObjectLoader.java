@@ -1,34 +1,66 @@
 package core;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.ByteBuffer;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector3i;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
-import org.lwjgl.stb.STBImage;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
 import core.entity.Model;
+import core.entity.Texture;
 
 public class ObjectLoader
 {
+	private static final long DEFAULT_UPLOAD_BUDGET = 2000000;
+	private static final long UPLOAD_WAIT           = 10;
+
 	private static volatile ObjectLoader instance;
 
-	private final List<Integer> vaos     = new ArrayList<>();
-	private final List<Integer> vbos     = new ArrayList<>();
-	private final List<Integer> textures = new ArrayList<>();
+	private final Map<String, GpuResource>  resources        = new HashMap<>();
+	private final Map<String, GpuResource>  contentResources = new HashMap<>();
+	private final Map<Integer, GpuResource> modelResources   = new HashMap<>();
+	private final Map<Integer, GpuResource> textureResources = new HashMap<>();
+	private final BlockingQueue<Runnable>   uploads          = new LinkedBlockingQueue<>();
+	//Assets loaded asynchronously that are not uploaded yet, mapped to whether they have been released in the meantime
+	private final Map<Object, Boolean>      pendingAssets    = new IdentityHashMap<>();
+	private final Metrics.Counter           assetUploads     = DragonEngine.getMetrics().counter(Metrics.ASSET_UPLOADS);
+
+	private GraphicsDevice  device       = OpenGLDevice.getInstance();
+	private long            frame;
+	private long            memoryBudget = Long.MAX_VALUE;
+	private int             placeholderTexture;
+	private long            residentBytes;
+	private TextureCache    textureCache;
+	private long            uploadBudget = DEFAULT_UPLOAD_BUDGET;
+	private ExecutorService workers;
 
 	private ObjectLoader()
 	{}
@@ -43,20 +75,496 @@ public class ObjectLoader
 		return instance;
 	}
 
+	/**
+	 * Returns the graphics device resources are created on.
+	 *
+	 * @return GraphicsDevice - Graphics device
+	 */
+	public GraphicsDevice getGraphicsDevice()
+	{
+		return device;
+	}
+
+	/**
+	 * Returns the GPU memory budget. Once the memory used by loaded resources exceeds it, resources without references are unloaded, least
+	 * recently drawn first.
+	 *
+	 * @return long - Budget in bytes
+	 */
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	/**
+	 * Returns the GPU memory used by all loaded resources.
+	 *
+	 * @return long - Size in bytes
+	 */
+	public long getResidentBytes()
+	{
+		return residentBytes;
+	}
+
+	/**
+	 * Returns every loaded resource, for inspecting per resource memory use and reference counts.
+	 *
+	 * @return Collection - Loaded resources
+	 */
+	public Collection<GpuResource> getResources()
+	{
+		final List<GpuResource> loaded = new ArrayList<>(modelResources.values());
+		loaded.addAll(textureResources.values());
+		return loaded;
+	}
+
 	public Model loadModel(final float[] vertices, final float[] textureCoords, final float[] normals, final int[] indices)
 	{
-		final var id = createVao();
-		storeIndicesBuffer(indices);
-		storeDataInAttribList(0, 3, vertices);
-		storeDataInAttribList(1, 2, textureCoords);
-		storeDataInAttribList(2, 3, normals);
-		unbind();
-		return new Model(id, indices.length);
+		final var resource = new GpuResource(null, GpuResource.Type.MODEL);
+		createModel(resource, new MeshData(vertices, textureCoords, normals, indices));
+		resource.reference();
+		trim();
+		return createModel(resource);
 	}
 
+	/**
+	 * Loads an OBJ model from the classpath. Models already loaded from the same path or from a file with the same content are shared rather than
+	 * loaded again. Each call adds a reference to the model that must be removed with {@link #release(Model)} when it is no longer needed.
+	 *
+	 * @param fileName
+	 * @return Model - Loaded model
+	 */
 	public Model loadObjModel(final String fileName)
 	{
-		final var lines = readAllLines(fileName);
+		try
+		{
+			final var resource = acquire(fileName, GpuResource.Type.MODEL);
+			return createModel(resource);
+		}
+		catch(final Exception e)
+		{
+			throw new IllegalStateException("Unable to load model " + fileName + ".", e);
+		}
+	}
+
+	/**
+	 * Loads an OBJ model without blocking the render thread. The file is read and parsed on a worker thread and the model data is uploaded by
+	 * {@link #processUploads()}. Until then the returned model has a vertex count of zero and is skipped by the renderers. Must be called from the
+	 * render thread.
+	 *
+	 * @param fileName
+	 * @return AssetHandle - Handle to the model
+	 */
+	public AssetHandle<Model> loadObjModelAsync(final String fileName)
+	{
+		final var handle = new AssetHandle<>(new Model(0, 0));
+		pendingAssets.put(handle.get(), false);
+		acquireAsync(fileName, GpuResource.Type.MODEL).whenComplete((resource, throwable)->
+		{
+			final var released = Boolean.TRUE.equals(pendingAssets.remove(handle.get()));
+			if(throwable != null) handle.fail(throwable);
+			else if(released) cancel(handle, resource);
+			else
+			{
+				handle.get().setId(resource.getId());
+				handle.get().setResource(resource);
+				handle.get().setVertexCount(resource.getVertexCount());
+				handle.get().setBoundingRadius(resource.getBoundingRadius());
+				handle.complete();
+			}
+		});
+		return handle;
+	}
+
+	public String loadResource(final String fileName) throws Exception
+	{
+		String result;
+		try(var in = ObjectLoader.class.getResourceAsStream(fileName); var scanner = new Scanner(in, StandardCharsets.UTF_8.name()))
+		{
+			result = scanner.useDelimiter("\\A").next();
+		}
+		return result;
+	}
+
+	/**
+	 * Loads a texture from the file system. Textures are shared and reference counted the same way as models, see {@link #loadObjModel(String)}.
+	 *
+	 * @param filename
+	 * @return int - Texture id
+	 * @throws Exception
+	 */
+	public int loadTexture(final String filename) throws Exception
+	{
+		return acquire(filename, GpuResource.Type.TEXTURE).getId();
+	}
+
+	/**
+	 * Loads a texture without blocking the render thread. The image is decoded on a worker thread and uploaded by {@link #processUploads()}. Until
+	 * then the returned texture refers to a 1x1 white placeholder. Must be called from the render thread.
+	 *
+	 * @param filename
+	 * @return AssetHandle - Handle to the texture
+	 */
+	public AssetHandle<Texture> loadTextureAsync(final String filename)
+	{
+		final var handle = new AssetHandle<>(new Texture(getPlaceholderTexture()));
+		pendingAssets.put(handle.get(), false);
+		acquireAsync(filename, GpuResource.Type.TEXTURE).whenComplete((resource, throwable)->
+		{
+			final var released = Boolean.TRUE.equals(pendingAssets.remove(handle.get()));
+			if(throwable != null) handle.fail(throwable);
+			else if(released) cancel(handle, resource);
+			else
+			{
+				handle.get().setId(resource.getId());
+				handle.get().setResource(resource);
+				handle.complete();
+			}
+		});
+		return handle;
+	}
+
+	/**
+	 * Runs pending GPU uploads for assets loaded asynchronously until the upload budget for this frame has been used. At least one upload is run
+	 * per call so loading always makes progress. Called once per frame from the render thread.
+	 */
+	public void processUploads()
+	{
+		frame++;
+
+		final long startTime = System.nanoTime();
+		Runnable   upload;
+		while((upload = uploads.poll()) != null)
+		{
+			upload.run();
+			assetUploads.increment();
+			if(System.nanoTime() - startTime >= uploadBudget) break;
+		}
+	}
+
+	/**
+	 * Removes a reference to a model loaded by this object loader. The model is unloaded once it has no references and the GPU memory budget is
+	 * exceeded. A model loaded asynchronously can be released before it is uploaded, the reference is then removed as soon as the upload is done
+	 * and its handle fails with a {@link CancellationException}. Releasing a model whose resource has already been unloaded does nothing.
+	 *
+	 * @param model
+	 */
+	public void release(final Model model)
+	{
+		if(pendingAssets.containsKey(model)) pendingAssets.put(model, true);
+		else release(model.getResource());
+	}
+
+	/**
+	 * Removes a reference to a texture loaded by this object loader, see {@link #release(Model)}.
+	 *
+	 * @param texture
+	 */
+	public void release(final Texture texture)
+	{
+		if(pendingAssets.containsKey(texture)) pendingAssets.put(texture, true);
+		else if(texture.getResource() != null) release(texture.getResource());
+		else releaseTexture(texture.getId());
+	}
+
+	/**
+	 * Removes a reference to a texture loaded by this object loader, see {@link #release(Model)}. Texture ids are reused once a texture is
+	 * unloaded, prefer {@link #release(Texture)} for textures that may have been unloaded.
+	 *
+	 * @param id - Texture id
+	 */
+	public void releaseTexture(final int id)
+	{
+		if(id != placeholderTexture) release(textureResources.get(id));
+	}
+
+	/**
+	 * Marks a model and its texture as drawn in the current frame.
+	 *
+	 * @param model
+	 */
+	public void touch(final Model model)
+	{
+		touch(model.getResource());
+		final var texture = model.getTexture();
+		if(texture == null) return;
+		if(texture.getResource() != null) touch(texture.getResource());
+		else touchTexture(texture.getId());
+	}
+
+	/**
+	 * Marks a texture as drawn in the current frame.
+	 *
+	 * @param id - Texture id
+	 */
+	public void touchTexture(final int id)
+	{
+		final var resource = textureResources.get(id);
+		if(resource != null) resource.setLastUsedFrame(frame);
+	}
+
+	/**
+	 * Sets the GPU memory budget and unloads resources without references until it is met.
+	 *
+	 * @param memoryBudget - Budget in bytes
+	 */
+	void setMemoryBudget(final long memoryBudget)
+	{
+		this.memoryBudget = memoryBudget;
+		trim();
+	}
+
+	/**
+	 * Sets the cache used to load textures with pre-baked mip chains. Textures are decoded and uploaded as is when no cache is set.
+	 *
+	 * @param textureCache
+	 */
+	void setTextureCache(final TextureCache textureCache)
+	{
+		this.textureCache = textureCache;
+	}
+
+	/**
+	 * Sets the maximum time spent uploading asynchronously loaded assets per frame.
+	 *
+	 * @param uploadBudget - Upload budget in nanoseconds
+	 */
+	void setUploadBudget(final long uploadBudget)
+	{
+		this.uploadBudget = uploadBudget;
+	}
+
+	/**
+	 * Returns the resource for a path with a reference added, loading it if no resource with the same path or content is loaded yet.
+	 */
+	private GpuResource acquire(final String path, final GpuResource.Type type) throws Exception
+	{
+		var resource = resources.get(path);
+		if(resource == null)
+		{
+			final var source = readSource(path, type);
+			final var hash   = hash(source);
+			resource = contentResources.get(hash);
+			if(resource != null) resources.put(path, resource);
+			else
+			{
+				final var loading = resource = new GpuResource(path, type);
+				resources.put(path, loading);
+				try
+				{
+					upload(loading, hash, decode(path, type, source));
+				}
+				catch(final Exception e)
+				{
+					fail(loading, e);
+					throw e;
+				}
+			}
+		}
+		else if(!resource.getFuture().isDone())
+		{
+			//The resource is being loaded asynchronously, wait for the worker and finish its pending uploads right away
+			while(!resource.getFuture().isDone())
+			{
+				final var upload = uploads.poll(UPLOAD_WAIT, TimeUnit.MILLISECONDS);
+				if(upload != null)
+				{
+					upload.run();
+					assetUploads.increment();
+				}
+			}
+			resource = resource.getFuture().join();
+		}
+
+		resource.reference();
+		return resource;
+	}
+
+	/**
+	 * Asynchronous version of {@link #acquire(String, GpuResource.Type)}. The source file is read, hashed and decoded on a worker thread, the
+	 * reference is added on the render thread once the resource is loaded.
+	 */
+	private CompletableFuture<GpuResource> acquireAsync(final String path, final GpuResource.Type type)
+	{
+		var resource = resources.get(path);
+		if(resource == null)
+		{
+			final var loading = resource = new GpuResource(path, type);
+			resources.put(path, loading);
+			CompletableFuture.runAsync(()->
+			{
+				try
+				{
+					final var source = readSource(path, type);
+					final var hash   = hash(source);
+					final var data   = decode(path, type, source);
+					uploads.add(()->upload(loading, hash, data));
+				}
+				catch(final Exception e)
+				{
+					uploads.add(()->fail(loading, e));
+				}
+			}, getWorkers());
+		}
+
+		return resource.getFuture().thenApply(loaded->
+		{
+			loaded.reference();
+			return loaded;
+		});
+	}
+
+	/**
+	 * Removes the reference an asset released before it was uploaded holds on its resource.
+	 */
+	private void cancel(final AssetHandle<?> handle, final GpuResource resource)
+	{
+		release(resource);
+		handle.fail(new CancellationException("Asset " + resource.getPath() + " was released before it was loaded."));
+	}
+
+	private void createModel(final GpuResource resource, final MeshData mesh)
+	{
+		final var id      = createVao();
+		final var buffers = new int[]{storeIndicesBuffer(mesh.indices()), storeDataInAttribList(0, 3, mesh.vertices()), storeDataInAttribList(1, 2, mesh.textureCoords()),
+				storeDataInAttribList(2, 3, mesh.normals())};
+		unbind();
+
+		//Bounding sphere around the model's origin for culling
+		final var vertices      = mesh.vertices();
+		var       radiusSquared = 0f;
+		for(var i = 0; i + 2 < vertices.length; i += 3)
+			radiusSquared = Math.max(radiusSquared, vertices[i] * vertices[i] + vertices[i + 1] * vertices[i + 1] + vertices[i + 2] * vertices[i + 2]);
+		resource.setBoundingRadius((float) Math.sqrt(radiusSquared));
+
+		final var byteSize = 4L * (mesh.indices().length + mesh.vertices().length + mesh.textureCoords().length + mesh.normals().length);
+		resource.setLoaded(id, buffers, mesh.indices().length, byteSize);
+		resource.setLastUsedFrame(frame);
+		modelResources.put(id, resource);
+		residentBytes += byteSize;
+	}
+
+	private Model createModel(final GpuResource resource)
+	{
+		final var model = new Model(resource.getId(), resource.getVertexCount());
+		model.setBoundingRadius(resource.getBoundingRadius());
+		model.setResource(resource);
+		return model;
+	}
+
+	private void createTexture(final GpuResource resource, final BakedTexture texture)
+	{
+		//Mip chains generated by the driver add roughly a third to the size of the top level
+		final var byteSize = texture.getLevelCount() > 1 ? texture.getByteSize() : texture.getByteSize() * 4 / 3;
+		final var id       = uploadTexture(texture);
+		resource.setLoaded(id, null, 0, byteSize);
+		resource.setLastUsedFrame(frame);
+		textureResources.put(id, resource);
+		residentBytes += byteSize;
+	}
+
+	private int createVao()
+	{
+		final var id = device.createVertexArray();
+		device.bindVertexArray(id);
+		return id;
+	}
+
+	private Object decode(final String path, final GpuResource.Type type, final byte[] source) throws Exception
+	{
+		return type == GpuResource.Type.MODEL ? parseObjModel(source) : decodeImage(path);
+	}
+
+	private BakedTexture decodeImage(final String filename) throws Exception
+	{
+		return textureCache != null ? textureCache.load(filename) : BakedTexture.decode(filename);
+	}
+
+	private void fail(final GpuResource resource, final Throwable throwable)
+	{
+		resources.remove(resource.getPath(), resource);
+		resource.getFuture().completeExceptionally(throwable);
+	}
+
+	private void free(final GpuResource resource)
+	{
+		if(resource.getType() == GpuResource.Type.MODEL)
+		{
+			device.deleteVertexArray(resource.getId());
+			for(final int buffer: resource.getBuffers())
+				device.deleteBuffer(buffer);
+			modelResources.remove(resource.getId());
+		}
+		else
+		{
+			device.deleteTexture(resource.getId());
+			textureResources.remove(resource.getId());
+		}
+
+		residentBytes -= resource.getByteSize();
+		resources.values().removeIf(value->value == resource);
+		if(resource.getContentHash() != null) contentResources.remove(resource.getContentHash(), resource);
+		resource.setUnloaded();
+	}
+
+	private int getPlaceholderTexture()
+	{
+		if(placeholderTexture == 0)
+		{
+			placeholderTexture = device.createTexture();
+			device.bindTexture(placeholderTexture);
+			try(var stack = MemoryStack.stackPush())
+			{
+				final var pixel = stack.bytes((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF);
+				device.texImage2D(0, 1, 1, pixel);
+			}
+			device.texParameter(GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+			device.texParameter(GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+
+			final var resource = new GpuResource(null, GpuResource.Type.TEXTURE);
+			resource.setLoaded(placeholderTexture, null, 0, 4);
+			resource.reference();
+			textureResources.put(placeholderTexture, resource);
+			residentBytes += 4;
+		}
+
+		return placeholderTexture;
+	}
+
+	private synchronized ExecutorService getWorkers()
+	{
+		if(workers == null)
+		{
+			final var threadCount = new AtomicInteger();
+			workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable->
+			{
+				final var thread = new Thread(runnable, "asset-loader-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		return workers;
+	}
+
+	private String hash(final byte[] source)
+	{
+		try
+		{
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(source));
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Parses the vertex data of a Wavefront OBJ model. Kept free of GL calls so it can be benchmarked headless.
+	 */
+	MeshData parseObjModel(final byte[] source)
+	{
+		final var lines = new String(source, StandardCharsets.UTF_8).lines().toList();
 
 		final List<Vector3f> vertices = new ArrayList<>();
 		final List<Vector3f> normals  = new ArrayList<>();
@@ -109,52 +617,7 @@ public class ObjectLoader
 
 		final var indicesArr = indices.stream().mapToInt((final Integer v)->v).toArray();
 
-		return loadModel(verticesArr, texCoordArr, normalArr, indicesArr);
-	}
-
-	public String loadResource(final String fileName) throws Exception
-	{
-		String result;
-		try(var in = ObjectLoader.class.getResourceAsStream(fileName); var scanner = new Scanner(in, StandardCharsets.UTF_8.name()))
-		{
-			result = scanner.useDelimiter("\\A").next();
-		}
-		return result;
-	}
-
-	public int loadTexture(final String filename) throws Exception
-	{
-		int        width, height;
-		ByteBuffer buffer;
-		try(var stack = MemoryStack.stackPush())
-		{
-			final var w = stack.mallocInt(1);
-			final var h = stack.mallocInt(1);
-			final var c = stack.mallocInt(1);
-
-			buffer = STBImage.stbi_load(filename, w, h, c, 4);
-			if(buffer == null) throw new Exception("Image file " + filename + " not loaded. " + STBImage.stbi_failure_reason());
-
-			width  = w.get();
-			height = h.get();
-		}
-
-		final var id = GL11.glGenTextures();
-		textures.add(id);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
-		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
-		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer);
-		GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
-		STBImage.stbi_image_free(buffer);
-		return id;
-	}
-
-	private int createVao()
-	{
-		final var id = GL30.glGenVertexArrays();
-		vaos.add(id);
-		GL30.glBindVertexArray(id);
-		return id;
+		return new MeshData(verticesArr, texCoordArr, normalArr, indicesArr);
 	}
 
 	private void processFace(final String token, final List<Vector3i> faces)
@@ -194,58 +657,144 @@ public class ObjectLoader
 		}
 	}
 
-	private List<String> readAllLines(final String fileName)
+	private byte[] readSource(final String path, final GpuResource.Type type)
 	{
-		final List<String> list = new ArrayList<>();
-		try(var br = new BufferedReader(new InputStreamReader(Class.forName(ObjectLoader.class.getName()).getResourceAsStream(fileName))))
+		//Textures are read from the file system, models from the classpath
+		try(var in = type == GpuResource.Type.TEXTURE ? Files.newInputStream(Path.of(path)) : ObjectLoader.class.getResourceAsStream(path))
 		{
-			String line;
-			while((line = br.readLine()) != null)
-				list.add(line);
+			if(in == null) throw new IllegalArgumentException("Resource " + path + " not found.");
+			return in.readAllBytes();
 		}
-		catch(IOException | ClassNotFoundException e)
+		catch(final IOException e)
 		{
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			throw new UncheckedIOException(e);
 		}
+	}
+
+	private void release(final GpuResource resource)
+	{
+		//Unloaded resources are skipped, their handles are stale and the id may already belong to another resource
+		if(resource != null && resource.isLoaded() && resource.getReferenceCount() > 0 && resource.release() == 0) trim();
+	}
 
-		return list;
+	private void touch(final GpuResource resource)
+	{
+		if(resource != null && resource.isLoaded()) resource.setLastUsedFrame(frame);
 	}
 
-	private void storeDataInAttribList(final int attribNo, final int vertexCount, final float[] data)
+	private int storeDataInAttribList(final int attribNo, final int vertexCount, final float[] data)
 	{
-		final var vbo = GL15.glGenBuffers();
-		vbos.add(vbo);
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+		final var vbo = device.createBuffer();
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
 		final var buffer = MemoryUtil.memAllocFloat(data.length);
 		buffer.put(data).flip();
-		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
-		GL20.glVertexAttribPointer(attribNo, vertexCount, GL11.GL_FLOAT, false, 0, 0);
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		device.bufferData(GL15.GL_ARRAY_BUFFER, buffer);
+		MemoryUtil.memFree(buffer);
+		device.vertexAttribPointer(attribNo, vertexCount);
+		device.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		return vbo;
 	}
 
-	private void storeIndicesBuffer(final int[] indices)
+	private int storeIndicesBuffer(final int[] indices)
 	{
-		final var vbo = GL15.glGenBuffers();
-		vbos.add(vbo);
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
+		final var vbo = device.createBuffer();
+		device.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
 		final var buffer = MemoryUtil.memAllocInt(indices.length);
 		buffer.put(indices).flip();
-		GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+		device.bufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer);
+		MemoryUtil.memFree(buffer);
+		return vbo;
+	}
+
+	/**
+	 * Unloads resources without references, least recently drawn first, until the memory used is within the budget.
+	 */
+	private void trim()
+	{
+		if(residentBytes <= memoryBudget) return;
+
+		final List<GpuResource> unreferenced = new ArrayList<>();
+		for(final GpuResource resource: getResources())
+			if(resource.getReferenceCount() == 0) unreferenced.add(resource);
+		unreferenced.sort(Comparator.comparingLong(GpuResource::getLastUsedFrame));
+
+		for(final GpuResource resource: unreferenced)
+		{
+			if(residentBytes <= memoryBudget) break;
+			free(resource);
+		}
 	}
 
 	private void unbind()
 	{
-		GL30.glBindVertexArray(0);
+		device.bindVertexArray(0);
+	}
+
+	/**
+	 * Creates the GPU objects for decoded data on the render thread, unless a resource with the same content has been loaded in the meantime.
+	 */
+	private void upload(final GpuResource resource, final String hash, final Object data)
+	{
+		final var existing = contentResources.get(hash);
+		if(existing != null)
+		{
+			if(data instanceof final BakedTexture texture) texture.free();
+			resources.put(resource.getPath(), existing);
+			resource.getFuture().complete(existing);
+			return;
+		}
+
+		if(data instanceof final MeshData mesh) createModel(resource, mesh);
+		else createTexture(resource, (BakedTexture) data);
+		resource.setContentHash(hash);
+		contentResources.put(hash, resource);
+		resource.getFuture().complete(resource);
+		trim();
+	}
+
+	/**
+	 * Uploads every level of a texture, compressed levels with glCompressedTexImage2D. Textures with a single level get their mip chain generated
+	 * by the driver.
+	 */
+	private int uploadTexture(final BakedTexture texture)
+	{
+		final var id = device.createTexture();
+		device.bindTexture(id);
+		device.setUnpackAlignment(1);
+
+		final var format     = texture.getFormat();
+		final var levelCount = texture.getLevelCount();
+		for(var level = 0; level < levelCount; level++)
+		{
+			if(format.isCompressed()) device.compressedTexImage2D(level, format.getInternalFormat(), texture.getWidth(level), texture.getHeight(level), texture.getLevel(level));
+			else device.texImage2D(level, texture.getWidth(level), texture.getHeight(level), texture.getLevel(level));
+		}
+
+		if(levelCount > 1) device.texParameter(GL12.GL_TEXTURE_MAX_LEVEL, levelCount - 1);
+		else device.generateMipmap();
+		texture.free();
+		return id;
+	}
+
+	/**
+	 * Sets the graphics device resources are created on. Must be set before anything is loaded.
+	 *
+	 * @param device
+	 */
+	void setGraphicsDevice(final GraphicsDevice device)
+	{
+		this.device = device;
 	}
 
 	void cleanup()
 	{
-		for(final int vao: vaos)
-			GL30.glDeleteVertexArrays(vao);
-		for(final int vbo: vbos)
-			GL15.glDeleteBuffers(vbo);
-		for(final int texture: textures)
-			GL11.glDeleteTextures(texture);
+		if(workers != null) workers.shutdownNow();
+		uploads.clear();
+		pendingAssets.clear();
+		for(final GpuResource resource: getResources())
+			free(resource);
 	}
-}
\ No newline at end of file
+
+	record MeshData(float[] vertices, float[] textureCoords, float[] normals, int[] indices)
+	{}
+}
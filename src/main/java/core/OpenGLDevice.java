@@ -0,0 +1,467 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.opengl.ARBGetProgramBinary;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Graphics device calling OpenGL on the current context. Stateless, so one instance is shared.
+ */
+public final class OpenGLDevice implements GraphicsDevice
+{
+	private static final OpenGLDevice INSTANCE = new OpenGLDevice();
+
+	private static final int INFO_LOG_LENGTH = 1024;
+
+	private OpenGLDevice()
+	{}
+
+	/**
+	 * Returns the shared OpenGL device.
+	 *
+	 * @return OpenGLDevice - OpenGL device
+	 */
+	public static OpenGLDevice getInstance()
+	{
+		return INSTANCE;
+	}
+
+	@Override
+	public void activeTexture(final int unit)
+	{
+		GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+	}
+
+	@Override
+	public void attachShader(final int program, final int shader)
+	{
+		GL20.glAttachShader(program, shader);
+	}
+
+	@Override
+	public void bindBuffer(final int target, final int buffer)
+	{
+		GL15.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void bindBufferBase(final int target, final int index, final int buffer)
+	{
+		GL30.glBindBufferBase(target, index, buffer);
+	}
+
+	@Override
+	public void bindFramebuffer(final int framebuffer)
+	{
+		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+	}
+
+	@Override
+	public void bindTexture(final int texture)
+	{
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+	}
+
+	@Override
+	public void bindVertexArray(final int vertexArray)
+	{
+		GL30.glBindVertexArray(vertexArray);
+	}
+
+	@Override
+	public void blitFramebuffer(final int source, final int sourceWidth, final int sourceHeight, final int width, final int height)
+	{
+		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, source);
+		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, 0);
+		GL30.glBlitFramebuffer(0, 0, sourceWidth, sourceHeight, 0, 0, width, height, GL11.GL_COLOR_BUFFER_BIT, GL11.GL_LINEAR);
+		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+	}
+
+	@Override
+	public void bufferData(final int target, final FloatBuffer data)
+	{
+		GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+	}
+
+	@Override
+	public void bufferData(final int target, final IntBuffer data)
+	{
+		GL15.glBufferData(target, data, GL15.GL_STATIC_DRAW);
+	}
+
+	@Override
+	public void bufferData(final int target, final int size)
+	{
+		GL15.glBufferData(target, size, GL15.GL_DYNAMIC_DRAW);
+	}
+
+	@Override
+	public void bufferSubData(final int target, final int offset, final ByteBuffer data)
+	{
+		GL15.glBufferSubData(target, offset, data);
+	}
+
+	@Override
+	public void clear()
+	{
+		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+	}
+
+	@Override
+	public boolean compileShader(final int shader, final String source)
+	{
+		GL20.glShaderSource(shader, source);
+		GL20.glCompileShader(shader);
+		return GL20.glGetShaderi(shader, GL20.GL_COMPILE_STATUS) != 0;
+	}
+
+	@Override
+	public void compressedTexImage2D(final int level, final int internalFormat, final int width, final int height, final ByteBuffer data)
+	{
+		GL13.glCompressedTexImage2D(GL11.GL_TEXTURE_2D, level, internalFormat, width, height, 0, data);
+	}
+
+	@Override
+	public int createBuffer()
+	{
+		return GL15.glGenBuffers();
+	}
+
+	@Override
+	public int createFramebuffer()
+	{
+		return GL30.glGenFramebuffers();
+	}
+
+	@Override
+	public int createProgram()
+	{
+		return GL20.glCreateProgram();
+	}
+
+	@Override
+	public int createShader(final int type)
+	{
+		return GL20.glCreateShader(type);
+	}
+
+	@Override
+	public int createTexture()
+	{
+		return GL11.glGenTextures();
+	}
+
+	@Override
+	public int createVertexArray()
+	{
+		return GL30.glGenVertexArrays();
+	}
+
+	@Override
+	public void cullFace(final int face)
+	{
+		GL11.glCullFace(face);
+	}
+
+	@Override
+	public void deleteBuffer(final int buffer)
+	{
+		GL15.glDeleteBuffers(buffer);
+	}
+
+	@Override
+	public void deleteFramebuffer(final int framebuffer)
+	{
+		GL30.glDeleteFramebuffers(framebuffer);
+	}
+
+	@Override
+	public void deleteProgram(final int program)
+	{
+		GL20.glDeleteProgram(program);
+	}
+
+	@Override
+	public void deleteTexture(final int texture)
+	{
+		GL11.glDeleteTextures(texture);
+	}
+
+	@Override
+	public void deleteVertexArray(final int vertexArray)
+	{
+		GL30.glDeleteVertexArrays(vertexArray);
+	}
+
+	@Override
+	public void detachShader(final int program, final int shader)
+	{
+		GL20.glDetachShader(program, shader);
+	}
+
+	@Override
+	public void disableVertexAttribArray(final int index)
+	{
+		GL20.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void drawBuffers(final int count)
+	{
+		try(var stack = MemoryStack.stackPush())
+		{
+			final var buffers = stack.mallocInt(count);
+			for(var i = 0; i < count; i++)
+				buffers.put(i, GL30.GL_COLOR_ATTACHMENT0 + i);
+			GL20.glDrawBuffers(buffers);
+		}
+	}
+
+	@Override
+	public void drawTriangles(final int indexCount)
+	{
+		GL11.glDrawElements(GL11.GL_TRIANGLES, indexCount, GL11.GL_UNSIGNED_INT, 0);
+	}
+
+	@Override
+	public void enableVertexAttribArray(final int index)
+	{
+		GL20.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void framebufferTexture(final int attachment, final int texture)
+	{
+		GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, attachment, GL11.GL_TEXTURE_2D, texture, 0);
+	}
+
+	@Override
+	public void generateMipmap()
+	{
+		GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+	}
+
+	@Override
+	public String getDriverDescription()
+	{
+		return GL11.glGetString(GL11.GL_VENDOR) + "\0" + GL11.glGetString(GL11.GL_RENDERER) + "\0" + GL11.glGetString(GL11.GL_VERSION);
+	}
+
+	@Override
+	public int getProgramBinary(final int program, final ByteBuffer binary)
+	{
+		try(var stack = MemoryStack.stackPush())
+		{
+			final var format = stack.mallocInt(1);
+			ARBGetProgramBinary.glGetProgramBinary(program, null, format, binary);
+			return format.get(0);
+		}
+	}
+
+	@Override
+	public int getProgramBinaryLength(final int program)
+	{
+		return GL20.glGetProgrami(program, ARBGetProgramBinary.GL_PROGRAM_BINARY_LENGTH);
+	}
+
+	@Override
+	public String getProgramInfoLog(final int program)
+	{
+		return GL20.glGetProgramInfoLog(program, INFO_LOG_LENGTH);
+	}
+
+	@Override
+	public String getShaderInfoLog(final int shader)
+	{
+		return GL20.glGetShaderInfoLog(shader, INFO_LOG_LENGTH);
+	}
+
+	@Override
+	public int getUniformBlockIndex(final int program, final String name)
+	{
+		return GL31.glGetUniformBlockIndex(program, name);
+	}
+
+	@Override
+	public int getUniformLocation(final int program, final String name)
+	{
+		return GL20.glGetUniformLocation(program, name);
+	}
+
+	@Override
+	public boolean isFramebufferComplete()
+	{
+		return GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER) == GL30.GL_FRAMEBUFFER_COMPLETE;
+	}
+
+	@Override
+	public boolean isProgramBinarySupported()
+	{
+		return GL.getCapabilities().GL_ARB_get_program_binary && GL11.glGetInteger(ARBGetProgramBinary.GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+	}
+
+	@Override
+	public boolean linkProgram(final int program)
+	{
+		GL20.glLinkProgram(program);
+		return GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) != 0;
+	}
+
+	@Override
+	public boolean programBinary(final int program, final int format, final ByteBuffer binary)
+	{
+		ARBGetProgramBinary.glProgramBinary(program, format, binary);
+		return GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) != 0;
+	}
+
+	@Override
+	public void setAdditiveBlending(final boolean blending)
+	{
+		if(blending)
+		{
+			GL11.glEnable(GL11.GL_BLEND);
+			GL11.glBlendFunc(GL11.GL_ONE, GL11.GL_ONE);
+		}
+		else GL11.glDisable(GL11.GL_BLEND);
+	}
+
+	@Override
+	public void setCulling(final boolean culling)
+	{
+		if(culling)
+		{
+			GL11.glEnable(GL11.GL_CULL_FACE);
+			GL11.glCullFace(GL11.GL_BACK);
+		}
+		else GL11.glDisable(GL11.GL_CULL_FACE);
+	}
+
+	@Override
+	public void setDepthClamp(final boolean clamp)
+	{
+		if(clamp) GL11.glEnable(GL32.GL_DEPTH_CLAMP);
+		else GL11.glDisable(GL32.GL_DEPTH_CLAMP);
+	}
+
+	@Override
+	public void setDepthMask(final boolean mask)
+	{
+		GL11.glDepthMask(mask);
+	}
+
+	@Override
+	public void setDepthTest(final boolean test)
+	{
+		if(test) GL11.glEnable(GL11.GL_DEPTH_TEST);
+		else GL11.glDisable(GL11.GL_DEPTH_TEST);
+	}
+
+	@Override
+	public void setProgramBinaryRetrievable(final int program)
+	{
+		ARBGetProgramBinary.glProgramParameteri(program, ARBGetProgramBinary.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+	}
+
+	@Override
+	public void setUnpackAlignment(final int alignment)
+	{
+		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, alignment);
+	}
+
+	@Override
+	public void texImage2D(final int level, final int width, final int height, final ByteBuffer data)
+	{
+		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, data);
+	}
+
+	@Override
+	public void texImage2D(final int level, final int internalFormat, final int width, final int height, final int format, final int type, final ByteBuffer data)
+	{
+		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, internalFormat, width, height, 0, format, type, data);
+	}
+
+	@Override
+	public void texParameter(final int name, final int value)
+	{
+		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, name, value);
+	}
+
+	@Override
+	public void uniform1f(final int location, final float value)
+	{
+		GL20.glUniform1f(location, value);
+	}
+
+	@Override
+	public void uniform1i(final int location, final int value)
+	{
+		GL20.glUniform1i(location, value);
+	}
+
+	@Override
+	public void uniform2f(final int location, final float x, final float y)
+	{
+		GL20.glUniform2f(location, x, y);
+	}
+
+	@Override
+	public void uniform3f(final int location, final float x, final float y, final float z)
+	{
+		GL20.glUniform3f(location, x, y, z);
+	}
+
+	@Override
+	public void uniform4f(final int location, final float x, final float y, final float z, final float w)
+	{
+		GL20.glUniform4f(location, x, y, z, w);
+	}
+
+	@Override
+	public void uniformBlockBinding(final int program, final int blockIndex, final int binding)
+	{
+		GL31.glUniformBlockBinding(program, blockIndex, binding);
+	}
+
+	@Override
+	public void uniformMatrix4(final int location, final FloatBuffer data, final int offset)
+	{
+		GL20.nglUniformMatrix4fv(location, 1, false, MemoryUtil.memAddress(data, offset));
+	}
+
+	@Override
+	public void useProgram(final int program)
+	{
+		GL20.glUseProgram(program);
+	}
+
+	@Override
+	public boolean validateProgram(final int program)
+	{
+		GL20.glValidateProgram(program);
+		return GL20.glGetProgrami(program, GL20.GL_VALIDATE_STATUS) != 0;
+	}
+
+	@Override
+	public void vertexAttribPointer(final int index, final int size)
+	{
+		GL20.glVertexAttribPointer(index, size, GL11.GL_FLOAT, false, 0, 0);
+	}
+
+	@Override
+	public void viewport(final int width, final int height)
+	{
+		GL11.glViewport(0, 0, width, height);
+	}
+}
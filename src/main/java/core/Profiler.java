@@ -0,0 +1,298 @@
+package core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+/**
+ * Low overhead scope profiler. CPU scopes are recorded into a preallocated ring buffer per thread and GPU scopes are timed with GL_TIME_ELAPSED
+ * queries whose results are collected a few frames later so reading them never stalls the pipeline. The recorded scopes can be written as a
+ * Chrome trace, which can be opened in chrome://tracing or Perfetto.
+ */
+public final class Profiler
+{
+	private static final int CAPACITY        = 1 << 16;
+	private static final int MASK            = CAPACITY - 1;
+	private static final int MAX_DEPTH       = 64;
+	private static final int FRAME_LATENCY   = 4;
+	private static final int MAX_GPU_SCOPES  = 32;
+	private static final int GPU_THREAD_ID   = -1;
+	private static final int EVENT_JSON_SIZE = 96;
+
+	private final long                     origin = System.nanoTime();
+	private final List<ThreadTrace>        traces = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<ThreadTrace> local  = ThreadLocal.withInitial(()->register(Thread.currentThread().getName(), Thread.currentThread().threadId()));
+
+	private volatile boolean enabled;
+	private int              frame;
+	private GpuFrame[]       gpuFrames;
+	private boolean          gpuScopeOpen;
+	private ThreadTrace      gpuTrace;
+
+	Profiler()
+	{}
+
+	/**
+	 * Begins a named CPU scope on the calling thread. Scopes nest and must be ended in reverse order by {@link #end()}.
+	 *
+	 * @param name - Scope name, should be a constant so recording does not allocate
+	 */
+	public void begin(final String name)
+	{
+		if(!enabled) return;
+		final var trace = local.get();
+		final var head  = trace.head;
+		final var slot  = (int) (head & MASK);
+		trace.names[slot]  = name;
+		trace.starts[slot] = System.nanoTime();
+		trace.ends[slot]   = 0;
+		if(trace.depth < MAX_DEPTH) trace.open[trace.depth] = slot;
+		trace.depth++;
+		trace.head = head + 1;
+	}
+
+	/**
+	 * Begins a named GPU scope timing the GL commands issued until {@link #endGpu()}. Must be called on the render thread. GPU scopes do not nest,
+	 * a scope begun while another is open is ignored.
+	 *
+	 * @param name - Scope name
+	 */
+	public void beginGpu(final String name)
+	{
+		if(!enabled || gpuFrames == null || gpuScopeOpen) return;
+		final var gpuFrame = gpuFrames[frame % FRAME_LATENCY];
+		if(gpuFrame.count == MAX_GPU_SCOPES) return;
+
+		gpuFrame.names[gpuFrame.count]  = name;
+		gpuFrame.starts[gpuFrame.count] = System.nanoTime();
+		GL15.glBeginQuery(GL33.GL_TIME_ELAPSED, gpuFrame.queries[gpuFrame.count]);
+		gpuScopeOpen = true;
+	}
+
+	/**
+	 * Ends the innermost CPU scope of the calling thread.
+	 */
+	public void end()
+	{
+		if(!enabled) return;
+		final var trace = local.get();
+		if(trace.depth == 0) return;
+		trace.depth--;
+		if(trace.depth < MAX_DEPTH) trace.ends[trace.open[trace.depth]] = System.nanoTime();
+	}
+
+	/**
+	 * Ends the open GPU scope.
+	 */
+	public void endGpu()
+	{
+		if(!gpuScopeOpen) return;
+		GL15.glEndQuery(GL33.GL_TIME_ELAPSED);
+		gpuFrames[frame % FRAME_LATENCY].count++;
+		gpuScopeOpen = false;
+	}
+
+	/**
+	 * Returns true if scopes are being recorded.
+	 *
+	 * @return boolean - True if enabled
+	 */
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Begins a named CPU scope that is ended by closing the returned scope, for use in a try-with-resources statement. The returned object is
+	 * reused by the calling thread, so it must not be kept.
+	 *
+	 * @param name - Scope name, should be a constant so recording does not allocate
+	 * @return Scope - Scope of the calling thread
+	 */
+	public Scope scope(final String name)
+	{
+		begin(name);
+		return enabled ? local.get().scope : Scope.DISABLED;
+	}
+
+	/**
+	 * Enables or disables recording. Scopes open while recording is toggled may be lost.
+	 *
+	 * @param enabled
+	 */
+	public void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Writes the recorded CPU and GPU scopes as a Chrome trace. Scopes recorded while writing may be missing or incomplete.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeChromeTrace(final Path file) throws IOException
+	{
+		final var json  = new StringBuilder(EVENT_JSON_SIZE * CAPACITY).append("{\"traceEvents\":[");
+		var       first = true;
+		for(final ThreadTrace trace: traces)
+		{
+			if(!first) json.append(',');
+			first = false;
+			json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(trace.threadId).append(",\"args\":{\"name\":");
+			appendString(json, trace.threadName).append("}}");
+
+			final var head = trace.head;
+			for(var i = Math.max(0, head - CAPACITY); i < head; i++)
+			{
+				final var slot  = (int) (i & MASK);
+				final var name  = trace.names[slot];
+				final var start = trace.starts[slot];
+				final var end   = trace.ends[slot];
+				if(name == null || end < start) continue;
+
+				json.append(",{\"name\":");
+				appendString(json, name).append(",\"ph\":\"X\",\"pid\":1,\"tid\":").append(trace.threadId);
+				json.append(",\"ts\":").append((start - origin) / 1000d).append(",\"dur\":").append((end - start) / 1000d).append('}');
+			}
+		}
+		json.append("]}");
+
+		if(file.getParent() != null) Files.createDirectories(file.getParent());
+		Files.writeString(file, json);
+	}
+
+	void cleanup()
+	{
+		if(gpuFrames != null) for(final GpuFrame gpuFrame: gpuFrames)
+			GL15.glDeleteQueries(gpuFrame.queries);
+		gpuFrames = null;
+	}
+
+	/**
+	 * Ends the current frame on the render thread, collecting the GPU scopes of the frame issued {@link #FRAME_LATENCY} frames ago. Results
+	 * that are still not available are dropped rather than waited for.
+	 */
+	void endFrame()
+	{
+		if(gpuFrames == null) return;
+		endGpu();
+		frame++;
+
+		final var gpuFrame = gpuFrames[frame % FRAME_LATENCY];
+		for(var i = 0; i < gpuFrame.count; i++)
+		{
+			final var query = gpuFrame.queries[i];
+			if(GL15.glGetQueryObjecti(query, GL15.GL_QUERY_RESULT_AVAILABLE) == GL15.GL_FALSE) continue;
+			final var start = gpuFrame.starts[i];
+			gpuTrace.record(gpuFrame.names[i], start, start + GL33.glGetQueryObjecti64(query, GL15.GL_QUERY_RESULT));
+		}
+		gpuFrame.count = 0;
+	}
+
+	/**
+	 * Creates the GPU timer queries if the driver supports timer queries. Must be called on the render thread once the GL context exists.
+	 */
+	void initialize()
+	{
+		if(!GL.getCapabilities().GL_ARB_timer_query) return;
+		gpuTrace  = register("GPU", GPU_THREAD_ID);
+		gpuFrames = new GpuFrame[FRAME_LATENCY];
+		for(var i = 0; i < FRAME_LATENCY; i++)
+		{
+			gpuFrames[i] = new GpuFrame();
+			GL15.glGenQueries(gpuFrames[i].queries);
+		}
+	}
+
+	private static StringBuilder appendString(final StringBuilder json, final String value)
+	{
+		json.append('"');
+		for(var i = 0; i < value.length(); i++)
+		{
+			final var c = value.charAt(i);
+			if(c == '"' || c == '\\') json.append('\\').append(c);
+			else if(c < ' ') json.append(String.format("\\u%04x", (int) c));
+			else json.append(c);
+		}
+		return json.append('"');
+	}
+
+	private ThreadTrace register(final String threadName, final long threadId)
+	{
+		final var trace = new ThreadTrace(threadName, threadId);
+		traces.add(trace);
+		return trace;
+	}
+
+	/**
+	 * Scope ended by closing it. Closing does not throw.
+	 */
+	public static class Scope implements AutoCloseable
+	{
+		private static final Scope DISABLED = new Scope(null);
+
+		private final Profiler profiler;
+
+		private Scope(final Profiler profiler)
+		{
+			this.profiler = profiler;
+		}
+
+		@Override
+		public void close()
+		{
+			if(profiler != null) profiler.end();
+		}
+	}
+
+	/**
+	 * Timer queries and scope names of one frame.
+	 */
+	private static final class GpuFrame
+	{
+		private final String[] names   = new String[MAX_GPU_SCOPES];
+		private final int[]    queries = new int[MAX_GPU_SCOPES];
+		private final long[]   starts  = new long[MAX_GPU_SCOPES];
+
+		private int count;
+	}
+
+	/**
+	 * Ring buffer of the scopes recorded by one thread. Only the owning thread writes to it.
+	 */
+	private final class ThreadTrace
+	{
+		private final long[]   ends   = new long[CAPACITY];
+		private final String[] names  = new String[CAPACITY];
+		private final int[]    open   = new int[MAX_DEPTH];
+		private final Scope    scope  = new Scope(Profiler.this);
+		private final long[]   starts = new long[CAPACITY];
+		private final long     threadId;
+		private final String   threadName;
+
+		private int           depth;
+		private volatile long head;
+
+		private ThreadTrace(final String threadName, final long threadId)
+		{
+			this.threadName = threadName;
+			this.threadId   = threadId;
+		}
+
+		private void record(final String name, final long start, final long end)
+		{
+			final var slot = (int) (head & MASK);
+			names[slot]  = name;
+			starts[slot] = start;
+			ends[slot]   = end;
+			head++;
+		}
+	}
+}
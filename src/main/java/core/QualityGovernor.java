@@ -0,0 +1,127 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scales quality knobs to keep frames within a frame time budget. Frame times, without waiting for the frame limiter, are recorded into a
+ * rolling histogram that is evaluated twice a second: if its 90th percentile is over the budget one knob is lowered by a level, if it has stayed
+ * well under the budget for a few evaluations in a row one knob is raised. The gap between the two thresholds and the histogram being cleared
+ * after every change, so the next decision only sees frames rendered with the new settings, keep knobs from flipping back and forth.
+ * <p>
+ * Knobs are lowered in the order they were registered and raised in the reverse order, so the knobs registered first are given up first. The
+ * engine registers its own knobs before the game is initialized, a game's knobs are lowered once those are at their lowest.
+ */
+public final class QualityGovernor
+{
+	private static final long   EVALUATION_INTERVAL = 500000000;
+	private static final int    INTERVALS           = 2;
+	private static final int    MINIMUM_FRAMES      = 10;
+	private static final double PERCENTILE          = 90;
+	private static final double RAISE_THRESHOLD     = 0.75;
+	private static final int    RAISE_EVALUATIONS   = 4;
+
+	private final LatencyHistogram  frameTimes = new LatencyHistogram("governed frame", INTERVALS, EVALUATION_INTERVAL);
+	private final List<QualityKnob> knobs      = new ArrayList<>();
+
+	private long  budget;
+	private long  lastEvaluation = System.nanoTime();
+	private int[] levels         = new int[0];
+	private int   underBudget;
+
+	QualityGovernor(final long budget)
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the frame time budget.
+	 *
+	 * @return long - Budget in nanoseconds
+	 */
+	public synchronized long getBudget()
+	{
+		return budget;
+	}
+
+	/**
+	 * Returns the level a knob is at.
+	 *
+	 * @param knob
+	 * @return int - Level, -1 if the knob is not registered
+	 */
+	public synchronized int getLevel(final QualityKnob knob)
+	{
+		final var index = knobs.indexOf(knob);
+		return index >= 0 ? levels[index] : -1;
+	}
+
+	/**
+	 * Registers a knob and sets it to its highest level.
+	 *
+	 * @param knob
+	 */
+	public synchronized void register(final QualityKnob knob)
+	{
+		knobs.add(knob);
+		levels = Arrays.copyOf(levels, knobs.size());
+		levels[levels.length - 1] = knob.getLevelCount() - 1;
+		knob.setLevel(levels[levels.length - 1]);
+	}
+
+	/**
+	 * Sets the frame time budget.
+	 *
+	 * @param budget - Budget in nanoseconds
+	 */
+	public synchronized void setBudget(final long budget)
+	{
+		this.budget = budget;
+	}
+
+	/**
+	 * Records the time a frame took and lowers or raises a knob if an evaluation is due. Does not allocate.
+	 *
+	 * @param frameTime - Time the frame took, without waiting for the frame limiter, in nanoseconds
+	 */
+	synchronized void update(final long frameTime)
+	{
+		frameTimes.record(frameTime);
+		final var now = System.nanoTime();
+		if(now - lastEvaluation < EVALUATION_INTERVAL || frameTimes.getCount() < MINIMUM_FRAMES) return;
+		lastEvaluation = now;
+
+		final var percentile = frameTimes.getPercentile(PERCENTILE);
+		if(percentile > budget)
+		{
+			underBudget = 0;
+			for(var i = 0; i < levels.length; i++)
+				if(levels[i] > 0)
+				{
+					setLevel(i, levels[i] - 1);
+					return;
+				}
+		}
+		else if(percentile < budget * RAISE_THRESHOLD)
+		{
+			if(++underBudget < RAISE_EVALUATIONS) return;
+
+			underBudget = 0;
+			for(var i = levels.length - 1; i >= 0; i--)
+				if(levels[i] < knobs.get(i).getLevelCount() - 1)
+				{
+					setLevel(i, levels[i] + 1);
+					return;
+				}
+		}
+		else underBudget = 0;
+	}
+
+	private void setLevel(final int index, final int level)
+	{
+		levels[index] = level;
+		knobs.get(index).setLevel(level);
+		frameTimes.reset();
+	}
+}
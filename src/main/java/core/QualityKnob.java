@@ -0,0 +1,59 @@
+package core;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A setting the {@link QualityGovernor} scales to hold the frame time budget. A knob has discrete levels, 0 being the lowest quality and the
+ * cheapest to render, the governor starts it at its highest level and moves it one level at a time.
+ */
+public interface QualityKnob
+{
+	/**
+	 * Creates a knob applying its levels with a callback.
+	 *
+	 * @param name       - Name of the knob
+	 * @param levelCount - Number of levels
+	 * @param apply      - Applies a level
+	 * @return QualityKnob - Knob
+	 */
+	static QualityKnob of(final String name, final int levelCount, final IntConsumer apply)
+	{
+		return new QualityKnob()
+		{
+			@Override
+			public int getLevelCount()
+			{
+				return levelCount;
+			}
+
+			@Override
+			public String getName()
+			{
+				return name;
+			}
+
+			@Override
+			public void setLevel(final int level)
+			{
+				apply.accept(level);
+			}
+		};
+	}
+
+	/**
+	 * @return int - Number of levels, at least two for the knob to have an effect
+	 */
+	int getLevelCount();
+
+	/**
+	 * @return String - Name of the knob
+	 */
+	String getName();
+
+	/**
+	 * Applies a quality level. Called on the render thread between frames.
+	 *
+	 * @param level - Level between 0 and the level count - 1
+	 */
+	void setLevel(int level);
+}
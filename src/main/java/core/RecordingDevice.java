@@ -0,0 +1,570 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graphics device that records commands instead of calling a driver, for running the renderers headless. Every command is counted, binds that
+ * change the tracked state are counted as state changes, and commands can optionally be logged as text. Object ids are handed out in
+ * sequence, shaders always compile and link and program binaries are not supported. Counting does not allocate, logging does.
+ */
+public final class RecordingDevice implements GraphicsDevice
+{
+	private static final int TEXTURE_UNITS = 32;
+
+	/**
+	 * Commands recorded by the device, one per device method.
+	 */
+	public enum Command
+	{
+		ACTIVE_TEXTURE, ATTACH_SHADER, BIND_BUFFER, BIND_BUFFER_BASE, BIND_FRAMEBUFFER, BIND_TEXTURE, BIND_VERTEX_ARRAY, BLIT_FRAMEBUFFER,
+		BUFFER_DATA, BUFFER_SUB_DATA, CLEAR, COMPILE_SHADER, COMPRESSED_TEX_IMAGE_2D, CREATE_BUFFER, CREATE_FRAMEBUFFER, CREATE_PROGRAM,
+		CREATE_SHADER, CREATE_TEXTURE, CREATE_VERTEX_ARRAY, CULL_FACE, DELETE_BUFFER, DELETE_FRAMEBUFFER, DELETE_PROGRAM, DELETE_TEXTURE,
+		DELETE_VERTEX_ARRAY, DETACH_SHADER, DISABLE_VERTEX_ATTRIB_ARRAY, DRAW_BUFFERS, DRAW_TRIANGLES, ENABLE_VERTEX_ATTRIB_ARRAY,
+		FRAMEBUFFER_TEXTURE, GENERATE_MIPMAP, GET_UNIFORM_BLOCK_INDEX, GET_UNIFORM_LOCATION, LINK_PROGRAM, SET_BLENDING, SET_CULLING,
+		SET_DEPTH_CLAMP, SET_DEPTH_MASK, SET_DEPTH_TEST, SET_UNPACK_ALIGNMENT, TEX_IMAGE_2D, TEX_PARAMETER, UNIFORM, UNIFORM_BLOCK_BINDING,
+		USE_PROGRAM, VALIDATE_PROGRAM, VERTEX_ATTRIB_POINTER, VIEWPORT
+	}
+
+	private final long[]               counts           = new long[Command.values().length];
+	private final List<String>         log              = new ArrayList<>();
+	private final int[]                textures         = new int[TEXTURE_UNITS];
+	private final Map<String, Integer> uniformLocations = new HashMap<>();
+
+	private int     activeUnit;
+	private boolean culling;
+	private int     framebuffer;
+	private boolean logging;
+	private int     nextId = 1;
+	private int     program;
+	private long    stateChanges;
+	private long    triangles;
+	private int     vertexArray;
+
+	@Override
+	public void activeTexture(final int unit)
+	{
+		record(Command.ACTIVE_TEXTURE, unit);
+		activeUnit = unit;
+	}
+
+	@Override
+	public void attachShader(final int program, final int shader)
+	{
+		record(Command.ATTACH_SHADER, program, shader);
+	}
+
+	@Override
+	public void bindBuffer(final int target, final int buffer)
+	{
+		record(Command.BIND_BUFFER, target, buffer);
+	}
+
+	@Override
+	public void bindBufferBase(final int target, final int index, final int buffer)
+	{
+		record(Command.BIND_BUFFER_BASE, target, index, buffer);
+	}
+
+	@Override
+	public void bindFramebuffer(final int framebuffer)
+	{
+		record(Command.BIND_FRAMEBUFFER, framebuffer);
+		if(this.framebuffer != framebuffer) stateChanges++;
+		this.framebuffer = framebuffer;
+	}
+
+	@Override
+	public void bindTexture(final int texture)
+	{
+		record(Command.BIND_TEXTURE, texture);
+		if(textures[activeUnit] != texture) stateChanges++;
+		textures[activeUnit] = texture;
+	}
+
+	@Override
+	public void bindVertexArray(final int vertexArray)
+	{
+		record(Command.BIND_VERTEX_ARRAY, vertexArray);
+		if(this.vertexArray != vertexArray) stateChanges++;
+		this.vertexArray = vertexArray;
+	}
+
+	@Override
+	public void blitFramebuffer(final int source, final int sourceWidth, final int sourceHeight, final int width, final int height)
+	{
+		record(Command.BLIT_FRAMEBUFFER, source, width, height);
+		if(framebuffer != 0) stateChanges++;
+		framebuffer = 0;
+	}
+
+	@Override
+	public void bufferData(final int target, final FloatBuffer data)
+	{
+		record(Command.BUFFER_DATA, target, data.remaining());
+	}
+
+	@Override
+	public void bufferData(final int target, final IntBuffer data)
+	{
+		record(Command.BUFFER_DATA, target, data.remaining());
+	}
+
+	@Override
+	public void bufferData(final int target, final int size)
+	{
+		record(Command.BUFFER_DATA, target, size);
+	}
+
+	@Override
+	public void bufferSubData(final int target, final int offset, final ByteBuffer data)
+	{
+		record(Command.BUFFER_SUB_DATA, target, offset, data.remaining());
+	}
+
+	@Override
+	public void clear()
+	{
+		record(Command.CLEAR);
+	}
+
+	@Override
+	public boolean compileShader(final int shader, final String source)
+	{
+		record(Command.COMPILE_SHADER, shader);
+		return true;
+	}
+
+	@Override
+	public void compressedTexImage2D(final int level, final int internalFormat, final int width, final int height, final ByteBuffer data)
+	{
+		record(Command.COMPRESSED_TEX_IMAGE_2D, level, width, height);
+	}
+
+	@Override
+	public int createBuffer()
+	{
+		record(Command.CREATE_BUFFER);
+		return nextId++;
+	}
+
+	@Override
+	public int createFramebuffer()
+	{
+		record(Command.CREATE_FRAMEBUFFER);
+		return nextId++;
+	}
+
+	@Override
+	public int createProgram()
+	{
+		record(Command.CREATE_PROGRAM);
+		return nextId++;
+	}
+
+	@Override
+	public int createShader(final int type)
+	{
+		record(Command.CREATE_SHADER, type);
+		return nextId++;
+	}
+
+	@Override
+	public int createTexture()
+	{
+		record(Command.CREATE_TEXTURE);
+		return nextId++;
+	}
+
+	@Override
+	public int createVertexArray()
+	{
+		record(Command.CREATE_VERTEX_ARRAY);
+		return nextId++;
+	}
+
+	@Override
+	public void cullFace(final int face)
+	{
+		record(Command.CULL_FACE, face);
+	}
+
+	@Override
+	public void deleteBuffer(final int buffer)
+	{
+		record(Command.DELETE_BUFFER, buffer);
+	}
+
+	@Override
+	public void deleteFramebuffer(final int framebuffer)
+	{
+		record(Command.DELETE_FRAMEBUFFER, framebuffer);
+	}
+
+	@Override
+	public void deleteProgram(final int program)
+	{
+		record(Command.DELETE_PROGRAM, program);
+	}
+
+	@Override
+	public void deleteTexture(final int texture)
+	{
+		record(Command.DELETE_TEXTURE, texture);
+	}
+
+	@Override
+	public void deleteVertexArray(final int vertexArray)
+	{
+		record(Command.DELETE_VERTEX_ARRAY, vertexArray);
+	}
+
+	@Override
+	public void detachShader(final int program, final int shader)
+	{
+		record(Command.DETACH_SHADER, program, shader);
+	}
+
+	@Override
+	public void disableVertexAttribArray(final int index)
+	{
+		record(Command.DISABLE_VERTEX_ATTRIB_ARRAY, index);
+	}
+
+	@Override
+	public void drawBuffers(final int count)
+	{
+		record(Command.DRAW_BUFFERS, count);
+	}
+
+	@Override
+	public void drawTriangles(final int indexCount)
+	{
+		record(Command.DRAW_TRIANGLES, indexCount);
+		triangles += indexCount / 3;
+	}
+
+	@Override
+	public void enableVertexAttribArray(final int index)
+	{
+		record(Command.ENABLE_VERTEX_ATTRIB_ARRAY, index);
+	}
+
+	@Override
+	public void framebufferTexture(final int attachment, final int texture)
+	{
+		record(Command.FRAMEBUFFER_TEXTURE, attachment, texture);
+	}
+
+	@Override
+	public void generateMipmap()
+	{
+		record(Command.GENERATE_MIPMAP);
+	}
+
+	/**
+	 * Returns how often a command was recorded since the last reset.
+	 *
+	 * @param command
+	 * @return long - Number of calls
+	 */
+	public long getCount(final Command command)
+	{
+		return counts[command.ordinal()];
+	}
+
+	@Override
+	public String getDriverDescription()
+	{
+		return "recording";
+	}
+
+	/**
+	 * Returns the number of draw commands since the last reset.
+	 *
+	 * @return long - Number of draws
+	 */
+	public long getDrawCalls()
+	{
+		return getCount(Command.DRAW_TRIANGLES);
+	}
+
+	/**
+	 * Returns the commands logged since the last reset.
+	 *
+	 * @return List - Logged commands
+	 */
+	public List<String> getLog()
+	{
+		return log;
+	}
+
+	@Override
+	public int getProgramBinary(final int program, final ByteBuffer binary)
+	{
+		throw new UnsupportedOperationException("The recording device does not support program binaries.");
+	}
+
+	@Override
+	public int getProgramBinaryLength(final int program)
+	{
+		return 0;
+	}
+
+	@Override
+	public String getProgramInfoLog(final int program)
+	{
+		return "";
+	}
+
+	@Override
+	public String getShaderInfoLog(final int shader)
+	{
+		return "";
+	}
+
+	/**
+	 * Returns the number of binds that changed the bound framebuffer, vertex array, program or texture, or toggled culling, since the last reset.
+	 *
+	 * @return long - Number of state changes
+	 */
+	public long getStateChanges()
+	{
+		return stateChanges;
+	}
+
+	/**
+	 * Returns the number of triangles drawn since the last reset.
+	 *
+	 * @return long - Number of triangles
+	 */
+	public long getTriangles()
+	{
+		return triangles;
+	}
+
+	/**
+	 * Returns an index unique to the program and block name.
+	 */
+	@Override
+	public int getUniformBlockIndex(final int program, final String name)
+	{
+		record(Command.GET_UNIFORM_BLOCK_INDEX, program);
+		return uniformLocations.computeIfAbsent(program + ":" + name, key->uniformLocations.size());
+	}
+
+	/**
+	 * Returns a location unique to the program and uniform name.
+	 */
+	@Override
+	public int getUniformLocation(final int program, final String name)
+	{
+		record(Command.GET_UNIFORM_LOCATION, program);
+		return uniformLocations.computeIfAbsent(program + ":" + name, key->uniformLocations.size());
+	}
+
+	@Override
+	public boolean isFramebufferComplete()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean isProgramBinarySupported()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean linkProgram(final int program)
+	{
+		record(Command.LINK_PROGRAM, program);
+		return true;
+	}
+
+	@Override
+	public boolean programBinary(final int program, final int format, final ByteBuffer binary)
+	{
+		return false;
+	}
+
+	/**
+	 * Clears the counts and the log. The tracked state and object ids are kept.
+	 */
+	public void reset()
+	{
+		Arrays.fill(counts, 0);
+		log.clear();
+		stateChanges = 0;
+		triangles    = 0;
+	}
+
+	@Override
+	public void setAdditiveBlending(final boolean blending)
+	{
+		record(Command.SET_BLENDING, blending ? 1 : 0);
+	}
+
+	@Override
+	public void setCulling(final boolean culling)
+	{
+		record(Command.SET_CULLING, culling ? 1 : 0);
+		if(this.culling != culling) stateChanges++;
+		this.culling = culling;
+	}
+
+	@Override
+	public void setDepthClamp(final boolean clamp)
+	{
+		record(Command.SET_DEPTH_CLAMP, clamp ? 1 : 0);
+	}
+
+	@Override
+	public void setDepthMask(final boolean mask)
+	{
+		record(Command.SET_DEPTH_MASK, mask ? 1 : 0);
+	}
+
+	@Override
+	public void setDepthTest(final boolean test)
+	{
+		record(Command.SET_DEPTH_TEST, test ? 1 : 0);
+	}
+
+	/**
+	 * Enables or disables logging commands as text.
+	 *
+	 * @param logging
+	 */
+	public void setLogging(final boolean logging)
+	{
+		this.logging = logging;
+	}
+
+	@Override
+	public void setProgramBinaryRetrievable(final int program)
+	{}
+
+	@Override
+	public void setUnpackAlignment(final int alignment)
+	{
+		record(Command.SET_UNPACK_ALIGNMENT, alignment);
+	}
+
+	@Override
+	public void texImage2D(final int level, final int width, final int height, final ByteBuffer data)
+	{
+		record(Command.TEX_IMAGE_2D, level, width, height);
+	}
+
+	@Override
+	public void texImage2D(final int level, final int internalFormat, final int width, final int height, final int format, final int type, final ByteBuffer data)
+	{
+		record(Command.TEX_IMAGE_2D, level, width, height);
+	}
+
+	@Override
+	public void texParameter(final int name, final int value)
+	{
+		record(Command.TEX_PARAMETER, name, value);
+	}
+
+	@Override
+	public void uniform1f(final int location, final float value)
+	{
+		record(Command.UNIFORM, location);
+	}
+
+	@Override
+	public void uniform1i(final int location, final int value)
+	{
+		record(Command.UNIFORM, location);
+	}
+
+	@Override
+	public void uniform2f(final int location, final float x, final float y)
+	{
+		record(Command.UNIFORM, location);
+	}
+
+	@Override
+	public void uniform3f(final int location, final float x, final float y, final float z)
+	{
+		record(Command.UNIFORM, location);
+	}
+
+	@Override
+	public void uniform4f(final int location, final float x, final float y, final float z, final float w)
+	{
+		record(Command.UNIFORM, location);
+	}
+
+	@Override
+	public void uniformBlockBinding(final int program, final int blockIndex, final int binding)
+	{
+		record(Command.UNIFORM_BLOCK_BINDING, program, blockIndex, binding);
+	}
+
+	@Override
+	public void uniformMatrix4(final int location, final FloatBuffer data, final int offset)
+	{
+		record(Command.UNIFORM, location);
+	}
+
+	@Override
+	public void useProgram(final int program)
+	{
+		record(Command.USE_PROGRAM, program);
+		if(this.program != program) stateChanges++;
+		this.program = program;
+	}
+
+	@Override
+	public boolean validateProgram(final int program)
+	{
+		record(Command.VALIDATE_PROGRAM, program);
+		return true;
+	}
+
+	@Override
+	public void vertexAttribPointer(final int index, final int size)
+	{
+		record(Command.VERTEX_ATTRIB_POINTER, index, size);
+	}
+
+	@Override
+	public void viewport(final int width, final int height)
+	{
+		record(Command.VIEWPORT, width, height);
+	}
+
+	private void record(final Command command)
+	{
+		counts[command.ordinal()]++;
+		if(logging) log.add(command.name());
+	}
+
+	private void record(final Command command, final int argument)
+	{
+		counts[command.ordinal()]++;
+		if(logging) log.add(command.name() + " " + argument);
+	}
+
+	private void record(final Command command, final int first, final int second)
+	{
+		counts[command.ordinal()]++;
+		if(logging) log.add(command.name() + " " + first + " " + second);
+	}
+
+	private void record(final Command command, final int first, final int second, final int third)
+	{
+		counts[command.ordinal()]++;
+		if(logging) log.add(command.name() + " " + first + " " + second + " " + third);
+	}
+}
@@ -0,0 +1,259 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Bakes RGBA8 images into a full mip chain, optionally block compressed to BC1 or BC3. Mip levels are box filtered and blocks are encoded with a
+ * bounding box endpoint fit, both spread over rows in parallel.
+ */
+final class TextureBaker
+{
+	private TextureBaker()
+	{}
+
+	/**
+	 * Generates the mip chain of an RGBA8 image and encodes every level to the given format.
+	 *
+	 * @param pixels - RGBA8 pixels of the top level
+	 * @param width
+	 * @param height
+	 * @param format - Target format, {@link TextureFormat#AUTO} picks a format based on the image's alpha channel
+	 * @return BakedTexture - Baked texture, must be freed by the caller
+	 */
+	static BakedTexture bake(final ByteBuffer pixels, final int width, final int height, TextureFormat format)
+	{
+		final var levelCount = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+		final var levels     = new byte[levelCount][];
+		final var widths     = new int[levelCount];
+		final var heights    = new int[levelCount];
+
+		levels[0] = new byte[width * height * 4];
+		pixels.get(0, levels[0]);
+		widths[0]  = width;
+		heights[0] = height;
+		for(var i = 1; i < levelCount; i++)
+		{
+			widths[i]  = Math.max(1, widths[i - 1] >> 1);
+			heights[i] = Math.max(1, heights[i - 1] >> 1);
+			levels[i]  = downsample(levels[i - 1], widths[i - 1], heights[i - 1], widths[i], heights[i]);
+		}
+
+		if(format == TextureFormat.AUTO) format = hasAlpha(levels[0]) ? TextureFormat.BC3 : TextureFormat.BC1;
+
+		final var sizes = new int[levelCount];
+		var       total = 0;
+		for(var i = 0; i < levelCount; i++)
+		{
+			if(format.isCompressed()) levels[i] = encode(levels[i], widths[i], heights[i], format);
+			sizes[i]  = levels[i].length;
+			total    += sizes[i];
+		}
+
+		final var data = MemoryUtil.memAlloc(total);
+		for(final byte[] level: levels)
+			data.put(level);
+		data.flip();
+
+		return new BakedTexture(format, widths, heights, sizes, data);
+	}
+
+	private static byte[] downsample(final byte[] source, final int width, final int height, final int targetWidth, final int targetHeight)
+	{
+		final var target = new byte[targetWidth * targetHeight * 4];
+		IntStream.range(0, targetHeight).parallel().forEach(y->
+		{
+			final var row0 = Math.min(y * 2, height - 1) * width;
+			final var row1 = Math.min(y * 2 + 1, height - 1) * width;
+			for(var x = 0; x < targetWidth; x++)
+			{
+				final var column0 = Math.min(x * 2, width - 1);
+				final var column1 = Math.min(x * 2 + 1, width - 1);
+				for(var c = 0; c < 4; c++)
+				{
+					final var sum = (source[(row0 + column0) * 4 + c] & 0xFF) + (source[(row0 + column1) * 4 + c] & 0xFF) + (source[(row1 + column0) * 4 + c] & 0xFF)
+							+ (source[(row1 + column1) * 4 + c] & 0xFF);
+					target[(y * targetWidth + x) * 4 + c] = (byte) ((sum + 2) >> 2);
+				}
+			}
+		});
+		return target;
+	}
+
+	private static byte[] encode(final byte[] pixels, final int width, final int height, final TextureFormat format)
+	{
+		final var blocksWide = (width + 3) / 4;
+		final var blocksHigh = (height + 3) / 4;
+		final var blockSize  = format.getBlockSize();
+		final var encoded    = new byte[blocksWide * blocksHigh * blockSize];
+		IntStream.range(0, blocksHigh).parallel().forEach(blockY->
+		{
+			final var block = new int[64];
+			for(var blockX = 0; blockX < blocksWide; blockX++)
+			{
+				//Gather the 4x4 block, clamping to the image edge for levels smaller than a block
+				for(var i = 0; i < 16; i++)
+				{
+					final var x = Math.min(blockX * 4 + (i & 3), width - 1);
+					final var y = Math.min(blockY * 4 + (i >> 2), height - 1);
+					for(var c = 0; c < 4; c++)
+						block[i * 4 + c] = pixels[(y * width + x) * 4 + c] & 0xFF;
+				}
+
+				var offset = (blockY * blocksWide + blockX) * blockSize;
+				if(format == TextureFormat.BC3)
+				{
+					encodeAlphaBlock(block, encoded, offset);
+					offset += 8;
+				}
+				encodeColorBlock(block, encoded, offset);
+			}
+		});
+		return encoded;
+	}
+
+	private static void encodeAlphaBlock(final int[] block, final byte[] target, final int offset)
+	{
+		int max = 0, min = 255;
+		for(var i = 0; i < 16; i++)
+		{
+			max = Math.max(max, block[i * 4 + 3]);
+			min = Math.min(min, block[i * 4 + 3]);
+		}
+
+		target[offset]     = (byte) max;
+		target[offset + 1] = (byte) min;
+		if(max == min) return;
+
+		//With alpha0 > alpha1 the decoder interpolates six values between the endpoints, index 0 and 1 being the endpoints themselves
+		final var palette = new int[8];
+		palette[0] = max;
+		palette[1] = min;
+		for(var i = 1; i < 7; i++)
+			palette[i + 1] = ((7 - i) * max + i * min) / 7;
+
+		long bits = 0;
+		for(var i = 0; i < 16; i++)
+		{
+			final var alpha = block[i * 4 + 3];
+			var       index = 0;
+			for(var p = 1; p < 8; p++)
+				if(Math.abs(palette[p] - alpha) < Math.abs(palette[index] - alpha)) index = p;
+			bits |= (long) index << (i * 3);
+		}
+		for(var i = 0; i < 6; i++)
+			target[offset + 2 + i] = (byte) (bits >>> (i * 8));
+	}
+
+	private static void encodeColorBlock(final int[] block, final byte[] target, final int offset)
+	{
+		final int[] min = {255, 255, 255}, max = {0, 0, 0}, mean = new int[3];
+		for(var i = 0; i < 16; i++)
+			for(var c = 0; c < 3; c++)
+			{
+				min[c]   = Math.min(min[c], block[i * 4 + c]);
+				max[c]   = Math.max(max[c], block[i * 4 + c]);
+				mean[c] += block[i * 4 + c];
+			}
+
+		//Pick the bounding box diagonal that follows the colour distribution by flipping red and blue against green
+		int covarianceRG = 0, covarianceBG = 0;
+		for(var i = 0; i < 16; i++)
+		{
+			final var g = block[i * 4 + 1] * 16 - mean[1];
+			covarianceRG += (block[i * 4] * 16 - mean[0]) * g;
+			covarianceBG += (block[i * 4 + 2] * 16 - mean[2]) * g;
+		}
+		if(covarianceRG < 0) swap(min, max, 0);
+		if(covarianceBG < 0) swap(min, max, 2);
+
+		//Inset the endpoints slightly to reduce the error introduced by outliers
+		for(var c = 0; c < 3; c++)
+		{
+			final var inset = (max[c] - min[c]) / 16;
+			max[c] -= inset;
+			min[c] += inset;
+		}
+
+		var color0 = to565(max);
+		var color1 = to565(min);
+		if(color0 < color1)
+		{
+			final var swap = color0;
+			color0 = color1;
+			color1 = swap;
+		}
+
+		var indices = 0;
+		if(color0 != color1)
+		{
+			//color0 > color1 selects the four colour mode: endpoints plus two colours at 1/3 and 2/3
+			final var palette = new int[4][];
+			palette[0] = from565(color0);
+			palette[1] = from565(color1);
+			palette[2] = new int[3];
+			palette[3] = new int[3];
+			for(var c = 0; c < 3; c++)
+			{
+				palette[2][c] = (2 * palette[0][c] + palette[1][c]) / 3;
+				palette[3][c] = (palette[0][c] + 2 * palette[1][c]) / 3;
+			}
+
+			for(var i = 0; i < 16; i++)
+			{
+				int index = 0, bestDistance = Integer.MAX_VALUE;
+				for(var p = 0; p < 4; p++)
+				{
+					var distance = 0;
+					for(var c = 0; c < 3; c++)
+					{
+						final var delta = palette[p][c] - block[i * 4 + c];
+						distance += delta * delta;
+					}
+					if(distance < bestDistance)
+					{
+						bestDistance = distance;
+						index        = p;
+					}
+				}
+				indices |= index << (i * 2);
+			}
+		}
+
+		target[offset]     = (byte) color0;
+		target[offset + 1] = (byte) (color0 >> 8);
+		target[offset + 2] = (byte) color1;
+		target[offset + 3] = (byte) (color1 >> 8);
+		for(var i = 0; i < 4; i++)
+			target[offset + 4 + i] = (byte) (indices >>> (i * 8));
+	}
+
+	private static int[] from565(final int color)
+	{
+		final var r = color >> 11 & 0x1F;
+		final var g = color >> 5 & 0x3F;
+		final var b = color & 0x1F;
+		return new int[]{r << 3 | r >> 2, g << 2 | g >> 4, b << 3 | b >> 2};
+	}
+
+	private static boolean hasAlpha(final byte[] pixels)
+	{
+		for(var i = 3; i < pixels.length; i += 4)
+			if(pixels[i] != (byte) 0xFF) return true;
+		return false;
+	}
+
+	private static void swap(final int[] a, final int[] b, final int index)
+	{
+		final var swap = a[index];
+		a[index] = b[index];
+		b[index] = swap;
+	}
+
+	private static int to565(final int[] color)
+	{
+		return (color[0] * 31 + 127) / 255 << 11 | (color[1] * 63 + 127) / 255 << 5 | (color[2] * 31 + 127) / 255;
+	}
+}
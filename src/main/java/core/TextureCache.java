@@ -0,0 +1,184 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Disk cache of baked textures. The first time an image is loaded its mip chain is generated and encoded by the {@link TextureBaker} and written
+ * to a container file in the cache directory. Later loads read the container instead, as long as the size and modification time of the source
+ * image still match the ones recorded in it.
+ */
+final class TextureCache
+{
+	private static final int    MAGIC       = 0x44544558;
+	private static final int    VERSION     = 1;
+	private static final int    HEADER_SIZE = 32;
+	private static final int    MAX_LEVELS  = 32;
+	private static final String EXTENSION   = ".dtex";
+
+	private final Path          directory;
+	private final TextureFormat format;
+
+	/**
+	 * Must be called from the render thread. Falls back to uncompressed textures if the driver does not support S3TC compression.
+	 *
+	 * @param directory - Directory the container files are stored in
+	 * @param format    - Format textures are baked to
+	 * @throws IOException
+	 */
+	TextureCache(final Path directory, final TextureFormat format) throws IOException
+	{
+		this.directory = Files.createDirectories(directory);
+		this.format    = format != TextureFormat.RGBA8 && !GL.getCapabilities().GL_EXT_texture_compression_s3tc ? TextureFormat.RGBA8 : format;
+	}
+
+	/**
+	 * Loads the baked version of an image, baking it first if no valid container file exists.
+	 *
+	 * @param filename
+	 * @return BakedTexture - Baked texture
+	 * @throws Exception
+	 */
+	BakedTexture load(final String filename) throws Exception
+	{
+		final var source         = Path.of(filename);
+		final var sourceSize     = Files.size(source);
+		final var sourceModified = Files.getLastModifiedTime(source).toMillis();
+		final var cacheFile      = directory.resolve(filename.replaceAll("[^A-Za-z0-9._-]", "_") + EXTENSION);
+
+		if(Files.exists(cacheFile))
+		{
+			try
+			{
+				final var texture = read(cacheFile, sourceSize, sourceModified);
+				if(texture != null) return texture;
+			}
+			catch(final IOException e)
+			{
+				System.err.println("Unable to read texture cache file " + cacheFile + ", baking it again. " + e.getMessage());
+			}
+		}
+
+		final BakedTexture texture;
+		final var          image = BakedTexture.decode(filename);
+		try
+		{
+			texture = TextureBaker.bake(image.getLevel(0), image.getWidth(0), image.getHeight(0), format);
+		}
+		finally
+		{
+			image.free();
+		}
+
+		try
+		{
+			write(cacheFile, texture, sourceSize, sourceModified);
+		}
+		catch(final IOException e)
+		{
+			System.err.println("Unable to write texture cache file " + cacheFile + ". " + e.getMessage());
+		}
+
+		return texture;
+	}
+
+	/**
+	 * Reads a container file, returning null if it is stale or was baked to a different format.
+	 *
+	 * @throws IOException if the file is truncated or its header is corrupt
+	 */
+	private BakedTexture read(final Path cacheFile, final long sourceSize, final long sourceModified) throws IOException
+	{
+		try(var channel = FileChannel.open(cacheFile, StandardOpenOption.READ))
+		{
+			final var header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header);
+			if(header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != sourceSize || header.getLong() != sourceModified) return null;
+
+			final var formats = TextureFormat.values();
+			final var ordinal = header.getInt();
+			if(ordinal <= TextureFormat.AUTO.ordinal() || ordinal >= formats.length) throw new IOException("Invalid texture format " + ordinal + ".");
+			final var levelFormat = formats[ordinal];
+			if(format != TextureFormat.AUTO && levelFormat != format) return null;
+
+			final var levelCount = header.getInt();
+			if(levelCount < 1 || levelCount > MAX_LEVELS) throw new IOException("Invalid mip level count " + levelCount + ".");
+			final var table = ByteBuffer.allocate(levelCount * 12);
+			readFully(channel, table);
+
+			final var widths  = new int[levelCount];
+			final var heights = new int[levelCount];
+			final var sizes   = new int[levelCount];
+			var       total   = 0;
+			for(var i = 0; i < levelCount; i++)
+			{
+				widths[i]  = table.getInt();
+				heights[i] = table.getInt();
+				sizes[i]   = table.getInt();
+				if(widths[i] < 1 || heights[i] < 1 || sizes[i] < 0 || total + sizes[i] < 0) throw new IOException("Invalid mip level " + i + ".");
+				total += sizes[i];
+			}
+
+			final var data = MemoryUtil.memAlloc(total);
+			try
+			{
+				readFully(channel, data);
+			}
+			catch(final IOException e)
+			{
+				MemoryUtil.memFree(data);
+				throw e;
+			}
+
+			return new BakedTexture(levelFormat, widths, heights, sizes, data);
+		}
+	}
+
+	private void readFully(final FileChannel channel, final ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+			if(channel.read(buffer) < 0) throw new IOException("Unexpected end of texture cache file.");
+		buffer.flip();
+	}
+
+	/**
+	 * Writes a container file through a temporary file so concurrent readers never see a partial file.
+	 */
+	private void write(final Path cacheFile, final BakedTexture texture, final long sourceSize, final long sourceModified) throws IOException
+	{
+		final var levelCount = texture.getLevelCount();
+		final var header     = ByteBuffer.allocate(HEADER_SIZE + levelCount * 12);
+		header.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified).putInt(texture.getFormat().ordinal()).putInt(levelCount);
+		for(var i = 0; i < levelCount; i++)
+			header.putInt(texture.getWidth(i)).putInt(texture.getHeight(i)).putInt(texture.getLevel(i).remaining());
+		header.flip();
+
+		final var temporaryFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+		try(var channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE))
+		{
+			while(header.hasRemaining())
+				channel.write(header);
+			for(var i = 0; i < levelCount; i++)
+			{
+				final var level = texture.getLevel(i);
+				while(level.hasRemaining())
+					channel.write(level);
+			}
+		}
+		catch(final IOException e)
+		{
+			Files.deleteIfExists(temporaryFile);
+			throw e;
+		}
+
+		Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
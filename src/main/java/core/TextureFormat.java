@@ -0,0 +1,65 @@
+package core;
+
+import org.lwjgl.opengl.EXTTextureCompressionS3TC;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Pixel formats that textures can be baked to by the {@link TextureCache}.
+ */
+enum TextureFormat
+{
+	/** Picks BC1 for opaque images and BC3 for images with transparency. */
+	AUTO(0, 0),
+	/** 4x4 blocks of 8 bytes, opaque colour only (DXT1). */
+	BC1(EXTTextureCompressionS3TC.GL_COMPRESSED_RGB_S3TC_DXT1_EXT, 8),
+	/** 4x4 blocks of 16 bytes, interpolated alpha and colour (DXT5). */
+	BC3(EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT, 16),
+	/** Uncompressed, 4 bytes per pixel. */
+	RGBA8(GL11.GL_RGBA, 0);
+
+	private final int blockSize;
+	private final int internalFormat;
+
+	TextureFormat(final int internalFormat, final int blockSize)
+	{
+		this.internalFormat = internalFormat;
+		this.blockSize      = blockSize;
+	}
+
+	/**
+	 * Returns the size in bytes of a single 4x4 block, or zero if the format is not block compressed.
+	 *
+	 * @return int - Block size in bytes
+	 */
+	int getBlockSize()
+	{
+		return blockSize;
+	}
+
+	/**
+	 * Returns the OpenGL internal format used when uploading textures of this format.
+	 *
+	 * @return int - OpenGL internal format
+	 */
+	int getInternalFormat()
+	{
+		return internalFormat;
+	}
+
+	/**
+	 * Returns the size in bytes of a single mip level of this format.
+	 *
+	 * @param width
+	 * @param height
+	 * @return int - Size of the level in bytes
+	 */
+	int getLevelSize(final int width, final int height)
+	{
+		return isCompressed() ? (width + 3) / 4 * ((height + 3) / 4) * blockSize : width * height * 4;
+	}
+
+	boolean isCompressed()
+	{
+		return blockSize > 0;
+	}
+}
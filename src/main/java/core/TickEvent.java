@@ -0,0 +1,19 @@
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a game tick.
+ */
+@Name("core.Tick")
+@Label("Tick")
+@Category("DragonEngine")
+@Description("Game update of a fixed time step tick")
+final class TickEvent extends jdk.jfr.Event
+{
+	@Label("Tick")
+	long tick;
+}
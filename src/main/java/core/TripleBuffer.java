@@ -0,0 +1,70 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock free triple buffer handing values from a single producer thread to a single consumer thread. The producer fills the back buffer and
+ * publishes it, the consumer always reads the most recently published buffer, and neither ever waits for the other.
+ *
+ * @param <T> Type of the buffered values
+ */
+final class TripleBuffer<T>
+{
+	private static final int INDEX_MASK = 3;
+	private static final int PUBLISHED  = 4;
+
+	private final Object[]      buffers;
+	private final AtomicInteger middle;
+
+	private int back, front;
+
+	TripleBuffer(final Supplier<T> factory)
+	{
+		buffers = new Object[]{factory.get(), factory.get(), factory.get()};
+		front   = 0;
+		middle  = new AtomicInteger(1);
+		back    = 2;
+	}
+
+	/**
+	 * Returns the buffer the producer writes to. Only called from the producer thread.
+	 *
+	 * @return T - Back buffer
+	 */
+	@SuppressWarnings("unchecked")
+	T getBack()
+	{
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Returns the most recently published buffer, swapping it in if it has not been read yet. Only called from the consumer thread.
+	 *
+	 * @return T - Front buffer
+	 */
+	@SuppressWarnings("unchecked")
+	T getFront()
+	{
+		if((middle.get() & PUBLISHED) != 0) front = middle.getAndSet(front) & INDEX_MASK;
+		return (T) buffers[front];
+	}
+
+	/**
+	 * Returns true once the consumer has picked up the last published buffer.
+	 *
+	 * @return boolean - True if the last published buffer has been consumed
+	 */
+	boolean isConsumed()
+	{
+		return (middle.get() & PUBLISHED) == 0;
+	}
+
+	/**
+	 * Publishes the back buffer and takes over the previous middle buffer for writing. Only called from the producer thread.
+	 */
+	void publish()
+	{
+		back = middle.getAndSet(back | PUBLISHED) & INDEX_MASK;
+	}
+}
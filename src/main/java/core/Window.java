@@ -1,7 +1,5 @@
 package core;
 
-import java.util.Properties;
-
 import org.joml.Matrix4f;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.opengl.GL;
@@ -22,32 +20,17 @@ final class Window
 	private int     width, height;
 
 	/**
-	 * @param gameProperties
+	 * @param config
 	 */
-	Window(final Properties gameProperties)
+	Window(final Config config)
 	{
-		if(gameProperties == null)
-		{
-			//Set window properties to default values
-			fieldOfView = (float) Math.toRadians(60);
-			height      = 0;
-			title       = "DRAGON ENGINE";
-			vSync       = false;
-			width       = 0;
-			zFar        = 0.01f;
-			zNear       = 1000f;
-		}
-		else
-		{
-			fieldOfView = (float) Math.toRadians(Integer.parseInt(gameProperties.getProperty("window.field.of.view")));
-			height      = Integer.parseInt(gameProperties.getProperty("window.height"));
-			title       = gameProperties.getProperty("game.title");
-			vSync       = Boolean.parseBoolean(gameProperties.getProperty("window.vsync"));
-			width       = Integer.parseInt(gameProperties.getProperty("window.width"));
-			zFar        = Float.parseFloat(gameProperties.getProperty("window.z.far"));
-			zNear       = Float.parseFloat(gameProperties.getProperty("window.z.near"));
-		}
-
+		fieldOfView = (float) Math.toRadians(config.floatSetting("window.field.of.view", 60, 1, 179).get());
+		height      = config.intSetting("window.height", 0, 0, Integer.MAX_VALUE).get();
+		title       = config.stringSetting("game.title", "DRAGON ENGINE").get();
+		vSync       = config.booleanSetting("window.vsync", false).get();
+		width       = config.intSetting("window.width", 0, 0, Integer.MAX_VALUE).get();
+		zFar        = config.floatSetting("window.z.far", 1000, Float.MIN_VALUE, Float.MAX_VALUE).get();
+		zNear       = config.floatSetting("window.z.near", 0.01f, Float.MIN_VALUE, Float.MAX_VALUE).get();
 		projectionMatrix = new Matrix4f();
 	}
 
@@ -67,6 +50,11 @@ final class Window
 		return handle;
 	}
 
+	int getHeight()
+	{
+		return height;
+	}
+
 	Matrix4f getProjectionMatrix()
 	{
 		return projectionMatrix.setPerspective(fieldOfView, (float) width / height, zNear, zFar);
@@ -77,12 +65,22 @@ final class Window
 		return title;
 	}
 
+	int getWidth()
+	{
+		return width;
+	}
+
+	float getZFar()
+	{
+		return zFar;
+	}
+
 	void initialize()
 	{
 		//Use window hints to set initial window state
 		GLFW.glfwDefaultWindowHints();
 		GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
-		GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 2);
+		GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 3);
 		GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GL11.GL_TRUE);
 		GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
 		GLFW.glfwWindowHint(GLFW.GLFW_RESIZABLE, GL11.GL_TRUE);
@@ -2,11 +2,18 @@ package core.entity;
 
 import org.joml.Vector3f;
 
+/**
+ * An entity of a scene. Once added to an {@link EntityStore} the entity is a facade over its row in the store and its values live there, the
+ * vectors returned by {@link #getPos()} and {@link #getRotation()} are then copies that have to be changed through the setters. Position,
+ * rotation and scale are relative to the parent of the entity, if it has one.
+ */
 public class Entity
 {
 	private Model		model;
 	private Vector3f	pos, rotation;
 	private float		scale;
+	private EntityStore	store;
+	private long		handle;
 
 	public Entity(Model model, Vector3f pos, Vector3f rotation, float scale)
 	{
@@ -18,6 +25,11 @@ public class Entity
 
 	public void incPosition(float x, float y, float z)
 	{
+		if (store != null)
+		{
+			store.incPosition(store.indexOf(handle), x, y, z);
+			return;
+		}
 		this.pos.x += x;
 		this.pos.y += y;
 		this.pos.z += z;
@@ -25,6 +37,11 @@ public class Entity
 
 	public void setPosition(float x, float y, float z)
 	{
+		if (store != null)
+		{
+			store.setPosition(store.indexOf(handle), x, y, z);
+			return;
+		}
 		this.pos.x = x;
 		this.pos.y = y;
 		this.pos.z = z;
@@ -32,6 +49,11 @@ public class Entity
 
 	public void incRotation(float x, float y, float z)
 	{
+		if (store != null)
+		{
+			store.incRotation(store.indexOf(handle), x, y, z);
+			return;
+		}
 		this.rotation.x += x;
 		this.rotation.y += y;
 		this.rotation.z += z;
@@ -39,28 +61,112 @@ public class Entity
 
 	public void setRotation(float x, float y, float z)
 	{
+		if (store != null)
+		{
+			store.setRotation(store.indexOf(handle), x, y, z);
+			return;
+		}
 		this.rotation.x = x;
 		this.rotation.y = y;
 		this.rotation.z = z;
 	}
 
+	/**
+	 * Parents the entity to another entity of the same store, or makes it a root.
+	 *
+	 * @param parent - New parent, null to make the entity a root
+	 * @throws IllegalStateException    if the entity does not belong to a store
+	 * @throws IllegalArgumentException if the parent belongs to another store or is the entity or one of its descendants
+	 */
+	public void setParent(Entity parent)
+	{
+		if (store == null) throw new IllegalStateException("Entity does not belong to a store.");
+		if (parent != null && parent.store != store) throw new IllegalArgumentException("Parent belongs to another store.");
+
+		store.setParent(handle, parent != null ? parent.handle : 0);
+	}
+
+	public void setScale(float scale)
+	{
+		if (store != null)
+		{
+			store.setScale(store.indexOf(handle), scale);
+			return;
+		}
+		this.scale = scale;
+	}
+
+	/**
+	 * @return long - Handle of the entity in its store, 0 if it does not belong to one
+	 */
+	public long getHandle()
+	{
+		return handle;
+	}
+
 	public Model getModel()
 	{
-		return model;
+		return store != null ? store.getModel(store.indexOf(handle)) : model;
+	}
+
+	/**
+	 * @return Entity - Parent of the entity, null if it has none or does not belong to a store
+	 */
+	public Entity getParent()
+	{
+		return store != null ? store.get(store.getParent(handle)) : null;
 	}
 
 	public Vector3f getPos()
 	{
-		return pos;
+		return store != null ? store.getPosition(store.indexOf(handle), pos) : pos;
 	}
 
 	public Vector3f getRotation()
 	{
-		return rotation;
+		return store != null ? store.getRotation(store.indexOf(handle), rotation) : rotation;
 	}
 
 	public float getScale()
 	{
-		return scale;
+		return store != null ? store.getScale(store.indexOf(handle)) : scale;
+	}
+
+	/**
+	 * @return EntityStore - Store the entity belongs to, null if it does not belong to one
+	 */
+	public EntityStore getStore()
+	{
+		return store;
+	}
+
+	/**
+	 * Returns the position of the entity in world space as of the last update of its store's transformations.
+	 *
+	 * @param dest - Vector to store the position in
+	 * @return Vector3f - dest
+	 */
+	public Vector3f getWorldPosition(Vector3f dest)
+	{
+		return store != null ? store.getWorldPosition(store.indexOf(handle), dest) : dest.set(pos);
+	}
+
+	void attach(EntityStore store, long handle)
+	{
+		this.store = store;
+		this.handle = handle;
+	}
+
+	/**
+	 * Detaches the entity from its store and gives it new values, used when it is removed from a store or taken from a pool.
+	 */
+	void reset(Model model, float x, float y, float z, float rotationX, float rotationY, float rotationZ, float scale)
+	{
+		this.store = null;
+		this.handle = 0;
+		this.model = model;
+		this.pos.set(x, y, z);
+		this.rotation.set(rotationX, rotationY, rotationZ);
+		this.scale = scale;
 	}
-}
\ No newline at end of file
+}
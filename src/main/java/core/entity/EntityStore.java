@@ -0,0 +1,918 @@
+package core.entity;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.joml.Vector3f;
+
+/**
+ * Data oriented storage of entities. Position, rotation, scale, model id and the rotation and scale part of the transformation matrix are kept in
+ * primitive arrays indexed by a dense index, so the per frame kernels walk contiguous memory instead of chasing an object per entity. Entities are
+ * identified by handles combining a slot and a generation: removing an entity moves the last one into its place and bumps the generation of its
+ * slot, so stale handles are detected. {@link Entity} objects are facades over a row of the store.
+ * <p>
+ * Entities can be parented to other entities, their position, rotation and scale are then relative to the parent. World transformations are
+ * only recomputed for entities whose local transformation or an ancestor's changed, walking the hierarchy breadth first from the roots so a
+ * parent is always updated before its children.
+ * <p>
+ * Entities carry a mask of components, bits chosen by the game to tag what an entity takes part in. Entities with the same mask form an
+ * archetype and are kept next to each other in dense order, so a {@link Query} for the entities having or lacking some components yields a few
+ * dense ranges that kernels like {@link #updateTransformations(int, int)} process as a whole. Changing the mask of an entity moves it into the
+ * range of its new archetype, which swaps at most one entity per archetype. Removing an entity likewise swaps one entity per archetype from its
+ * own to the last one, so its cost grows with the number of archetypes but not with the number of entities.
+ * <p>
+ * A store must only be modified by one thread at a time. The kernels read and write disjoint ranges, so ranges can be processed in parallel.
+ */
+public final class EntityStore
+{
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int BASIS_SIZE       = 9;
+	private static final int WORLD_SIZE       = 12;
+
+	private static final int INITIAL_ARCHETYPES = 8;
+
+	private final List<Model>         models   = new ArrayList<>();
+	private final Map<Model, Integer> modelIds = new HashMap<>();
+	private final List<Entity>        view     = new EntityList();
+
+	private float[] modelRadii = new float[0];
+
+	//Archetypes in the order they were created, each a dense range ending where the next one starts
+	private int    archetypeCount = 1;
+	private int[]  archetypeEnds  = new int[INITIAL_ARCHETYPES];
+	private long[] archetypeMasks = new long[INITIAL_ARCHETYPES];
+
+	//Dense columns, indexed by dense index. Hierarchy links refer to slots, so they survive entities being moved
+	private int[]     archetypes  = new int[INITIAL_CAPACITY];
+	private float[]   basis       = new float[INITIAL_CAPACITY * BASIS_SIZE];
+	private boolean[] childDirty  = new boolean[INITIAL_CAPACITY];
+	private long[]    components  = new long[INITIAL_CAPACITY];
+	private boolean[] dirty       = new boolean[INITIAL_CAPACITY];
+	private Entity[]  entities    = new Entity[INITIAL_CAPACITY];
+	private int[]     firstChild  = new int[INITIAL_CAPACITY];
+	private int[]     modelId     = new int[INITIAL_CAPACITY];
+	private int[]     nextSibling = new int[INITIAL_CAPACITY];
+	private int[]     parent      = new int[INITIAL_CAPACITY];
+	private float[]   positionX   = new float[INITIAL_CAPACITY];
+	private float[]   positionY   = new float[INITIAL_CAPACITY];
+	private float[]   positionZ   = new float[INITIAL_CAPACITY];
+	private int[]     queue       = new int[INITIAL_CAPACITY];
+	private float[]   rotationX   = new float[INITIAL_CAPACITY];
+	private float[]   rotationY   = new float[INITIAL_CAPACITY];
+	private float[]   rotationZ   = new float[INITIAL_CAPACITY];
+	private float[]   scale       = new float[INITIAL_CAPACITY];
+	private int[]     slots       = new int[INITIAL_CAPACITY];
+	private int       size;
+	private float[]   world       = new float[INITIAL_CAPACITY * WORLD_SIZE];
+	private boolean[] worldDirty  = new boolean[INITIAL_CAPACITY];
+	private float[]   worldScale  = new float[INITIAL_CAPACITY];
+
+	//Sparse slots, indexed by the slot of a handle
+	private int[] denseIndices = new int[INITIAL_CAPACITY];
+	private int[] freeSlots    = new int[INITIAL_CAPACITY];
+	private int   freeSlotCount;
+	private int[] generations  = new int[INITIAL_CAPACITY];
+	private int   slotCount;
+
+	/**
+	 * Adds an entity to the store without components. Its current model, position, rotation and scale become the initial values of a new row
+	 * and the entity becomes a facade over that row.
+	 *
+	 * @param entity
+	 * @return long - Handle of the entity
+	 * @throws IllegalArgumentException if the entity already belongs to a store
+	 */
+	public long add(final Entity entity)
+	{
+		return add(entity, 0);
+	}
+
+	/**
+	 * Adds an entity to the store, see {@link #add(Entity)}.
+	 *
+	 * @param entity
+	 * @param components - Component mask of the entity
+	 * @return long - Handle of the entity
+	 * @throws IllegalArgumentException if the entity already belongs to a store
+	 */
+	public long add(final Entity entity, final long components)
+	{
+		if(entity.getStore() != null) throw new IllegalArgumentException("Entity already belongs to a store.");
+
+		final var slot  = allocateSlot();
+		final var index = size++;
+		//One more row than the entities, moving between archetypes swaps rows through it
+		ensureDenseCapacity(size + 1);
+		denseIndices[slot]     = index;
+		slots[index]           = slot;
+		entities[index]        = entity;
+		modelId[index]         = idOf(entity.getModel());
+		parent[index]          = -1;
+		firstChild[index]      = -1;
+		nextSibling[index]     = -1;
+		childDirty[index]      = false;
+		this.components[index] = components;
+		setRow(index, entity.getPos(), entity.getRotation(), entity.getScale());
+		insert(index, archetypeOf(components));
+
+		final var handle = handle(slot);
+		entity.attach(this, handle);
+		return handle;
+	}
+
+	/**
+	 * Removes every entity, detaching their facades.
+	 */
+	public void clear()
+	{
+		while(size > 0)
+			remove(handle(slots[size - 1]));
+	}
+
+	/**
+	 * Computes the frustum culling of every entity against six planes, writing whether its bounding sphere intersects the frustum. Entities with
+	 * models without bounds are always visible. The world transformations must be up to date, see {@link #updateHierarchy()}.
+	 *
+	 * @param planes  - Six plane equations as a, b, c, d with normals pointing into the frustum
+	 * @param visible - Visibility per dense index, at least {@link #size()} long
+	 */
+	public void cull(final float[] planes, final boolean[] visible)
+	{
+		if(modelRadii.length < models.size()) modelRadii = new float[models.size() * 2];
+		for(var i = 0; i < models.size(); i++)
+			modelRadii[i] = models.get(i).getBoundingRadius();
+
+		for(var i = 0; i < size; i++)
+		{
+			final var x      = world[i * WORLD_SIZE + 9];
+			final var y      = world[i * WORLD_SIZE + 10];
+			final var z      = world[i * WORLD_SIZE + 11];
+			final var radius = -modelRadii[modelId[i]] * worldScale[i];
+
+			//Non short circuit ands keep the loop free of branches, a NaN radius from unbounded models with zero scale counts as visible
+			visible[i] = !(planes[0] * x + planes[1] * y + planes[2] * z + planes[3] < radius) & !(planes[4] * x + planes[5] * y + planes[6] * z + planes[7] < radius)
+					& !(planes[8] * x + planes[9] * y + planes[10] * z + planes[11] < radius) & !(planes[12] * x + planes[13] * y + planes[14] * z + planes[15] < radius)
+					& !(planes[16] * x + planes[17] * y + planes[18] * z + planes[19] < radius) & !(planes[20] * x + planes[21] * y + planes[22] * z + planes[23] < radius);
+		}
+	}
+
+	/**
+	 * @param handle
+	 * @return long - Component mask of the entity, 0 if it has none or the handle is stale
+	 */
+	public long getComponents(final long handle)
+	{
+		final var index = indexOf(handle);
+		return index >= 0 ? components[index] : 0;
+	}
+
+	/**
+	 * Returns the facade of an entity.
+	 *
+	 * @param handle
+	 * @return Entity - Entity, or null if the handle is stale
+	 */
+	public Entity get(final long handle)
+	{
+		final var index = indexOf(handle);
+		return index >= 0 ? entities[index] : null;
+	}
+
+	/**
+	 * Returns a read only list of the entities in dense order. The list reflects later changes to the store.
+	 *
+	 * @return List - Entities
+	 */
+	public List<Entity> getEntities()
+	{
+		return view;
+	}
+
+	/**
+	 * @param index - Dense index
+	 * @return Entity - Entity at the index
+	 */
+	public Entity getEntity(final int index)
+	{
+		return entities[Objects.checkIndex(index, size)];
+	}
+
+	/**
+	 * @param index - Dense index
+	 * @return Model - Model of the entity at the index
+	 */
+	public Model getModel(final int index)
+	{
+		return models.get(modelId[Objects.checkIndex(index, size)]);
+	}
+
+	/**
+	 * Returns the model with an id. Ids are assigned in the order models are first used by an entity of the store and stay valid for its lifetime.
+	 *
+	 * @param id
+	 * @return Model - Model with the id
+	 */
+	public Model getModelById(final int id)
+	{
+		return models.get(id);
+	}
+
+	/**
+	 * @return int - Number of model ids assigned
+	 */
+	public int getModelCount()
+	{
+		return models.size();
+	}
+
+	/**
+	 * @param index - Dense index
+	 * @return int - Model id of the entity at the index
+	 */
+	public int getModelId(final int index)
+	{
+		return modelId[Objects.checkIndex(index, size)];
+	}
+
+	/**
+	 * @param handle
+	 * @return long - Handle of the entity's parent, 0 if it has none or the handle is stale
+	 */
+	public long getParent(final long handle)
+	{
+		final var index = indexOf(handle);
+		return index >= 0 && parent[index] >= 0 ? handle(parent[index]) : 0;
+	}
+
+	/**
+	 * Returns the dense index of an entity. Dense indices change when entities are removed.
+	 *
+	 * @param handle
+	 * @return int - Dense index, or -1 if the handle is stale
+	 */
+	public int indexOf(final long handle)
+	{
+		final var slot = (int) handle;
+		if(slot < 0 || slot >= slotCount || generations[slot] != (int) (handle >>> 32)) return -1;
+		return denseIndices[slot];
+	}
+
+	/**
+	 * @param handle
+	 * @return boolean - True if the handle refers to an entity of the store
+	 */
+	public boolean isAlive(final long handle)
+	{
+		return indexOf(handle) >= 0;
+	}
+
+	/**
+	 * Writes the world transformation matrix of an entity in column major order. The world transformations must be up to date, see
+	 * {@link #updateHierarchy()}.
+	 *
+	 * @param index      - Dense index
+	 * @param buffer
+	 * @param byteOffset - Absolute offset of the first float
+	 */
+	public void putTransformation(final int index, final ByteBuffer buffer, final int byteOffset)
+	{
+		final var w = index * WORLD_SIZE;
+		buffer.putFloat(byteOffset, world[w]).putFloat(byteOffset + 4, world[w + 1]).putFloat(byteOffset + 8, world[w + 2]).putFloat(byteOffset + 12, 0);
+		buffer.putFloat(byteOffset + 16, world[w + 3]).putFloat(byteOffset + 20, world[w + 4]).putFloat(byteOffset + 24, world[w + 5]).putFloat(byteOffset + 28, 0);
+		buffer.putFloat(byteOffset + 32, world[w + 6]).putFloat(byteOffset + 36, world[w + 7]).putFloat(byteOffset + 40, world[w + 8]).putFloat(byteOffset + 44, 0);
+		buffer.putFloat(byteOffset + 48, world[w + 9]).putFloat(byteOffset + 52, world[w + 10]).putFloat(byteOffset + 56, world[w + 11]).putFloat(byteOffset + 60, 1);
+	}
+
+	/**
+	 * Creates a query for the entities having all of some components and none of others. Queries can be kept and iterated again every frame.
+	 *
+	 * @param include - Components an entity must have
+	 * @param exclude - Components an entity must not have
+	 * @return Query - Query over the dense ranges of the matching archetypes
+	 */
+	public Query query(final long include, final long exclude)
+	{
+		return new Query(include, exclude);
+	}
+
+	/**
+	 * Removes an entity, moving the last entity of its archetype into its place and one boundary entity of every later archetype down to keep
+	 * them packed. The facade is detached and keeps the entity's last local values. Children of the entity become roots, keeping their local
+	 * transformation.
+	 *
+	 * @param handle
+	 * @return boolean - True if the entity was removed, false if the handle is stale
+	 */
+	public boolean remove(final long handle)
+	{
+		final var index = indexOf(handle);
+		if(index < 0) return false;
+
+		//Move the entity to the end of the dense order, its row is then dropped without moving another one into it
+		final var last = size - 1;
+		ensureDenseCapacity(size + 1);
+		extract(index, archetypes[index]);
+		size--;
+
+		final var entity = entities[last];
+		final var slot   = slots[last];
+		unlink(last);
+		for(var child = firstChild[last]; child >= 0;)
+		{
+			final var childIndex = denseIndices[child];
+			child                   = nextSibling[childIndex];
+			parent[childIndex]      = -1;
+			nextSibling[childIndex] = -1;
+			invalidate(childIndex, false);
+		}
+		firstChild[last] = -1;
+		entity.reset(models.get(modelId[last]), positionX[last], positionY[last], positionZ[last], rotationX[last], rotationY[last], rotationZ[last], scale[last]);
+		entities[last] = null;
+
+		generations[slot]++;
+		freeSlots[freeSlotCount++] = slot;
+		return true;
+	}
+
+	/**
+	 * Copies the contents of another store, including its handles. Facades of this store are reused, so copying only allocates when the other
+	 * store is larger than any store copied before.
+	 *
+	 * @param source
+	 */
+	public void set(final EntityStore source)
+	{
+		ensureDenseCapacity(source.size + 1);
+		ensureSlotCapacity(source.slotCount);
+		ensureArchetypeCapacity(source.archetypeCount);
+		for(var i = models.size(); i < source.models.size(); i++)
+		{
+			models.add(source.models.get(i));
+			modelIds.put(source.models.get(i), i);
+		}
+
+		final var count = source.size;
+		System.arraycopy(source.archetypes, 0, archetypes, 0, count);
+		System.arraycopy(source.basis, 0, basis, 0, count * BASIS_SIZE);
+		System.arraycopy(source.childDirty, 0, childDirty, 0, count);
+		System.arraycopy(source.components, 0, components, 0, count);
+		System.arraycopy(source.dirty, 0, dirty, 0, count);
+		System.arraycopy(source.firstChild, 0, firstChild, 0, count);
+		System.arraycopy(source.modelId, 0, modelId, 0, count);
+		System.arraycopy(source.nextSibling, 0, nextSibling, 0, count);
+		System.arraycopy(source.parent, 0, parent, 0, count);
+		System.arraycopy(source.positionX, 0, positionX, 0, count);
+		System.arraycopy(source.positionY, 0, positionY, 0, count);
+		System.arraycopy(source.positionZ, 0, positionZ, 0, count);
+		System.arraycopy(source.rotationX, 0, rotationX, 0, count);
+		System.arraycopy(source.rotationY, 0, rotationY, 0, count);
+		System.arraycopy(source.rotationZ, 0, rotationZ, 0, count);
+		System.arraycopy(source.scale, 0, scale, 0, count);
+		System.arraycopy(source.slots, 0, slots, 0, count);
+		System.arraycopy(source.world, 0, world, 0, count * WORLD_SIZE);
+		System.arraycopy(source.worldDirty, 0, worldDirty, 0, count);
+		System.arraycopy(source.worldScale, 0, worldScale, 0, count);
+		System.arraycopy(source.denseIndices, 0, denseIndices, 0, source.slotCount);
+		System.arraycopy(source.freeSlots, 0, freeSlots, 0, source.freeSlotCount);
+		System.arraycopy(source.generations, 0, generations, 0, source.slotCount);
+		System.arraycopy(source.archetypeEnds, 0, archetypeEnds, 0, source.archetypeCount);
+		System.arraycopy(source.archetypeMasks, 0, archetypeMasks, 0, source.archetypeCount);
+		archetypeCount = source.archetypeCount;
+		freeSlotCount  = source.freeSlotCount;
+		slotCount      = source.slotCount;
+
+		for(var i = 0; i < count; i++)
+		{
+			if(entities[i] == null) entities[i] = new Entity(null, new Vector3f(), new Vector3f(), 1);
+			entities[i].attach(this, handle(slots[i]));
+		}
+		for(var i = count; i < size; i++)
+			entities[i] = null;
+		size = count;
+	}
+
+	/**
+	 * Sets the component mask of an entity, moving it into the dense range of its new archetype. Dense indices of entities in the archetypes
+	 * between the old and the new one change.
+	 *
+	 * @param handle
+	 * @param components
+	 * @return boolean - True if the components were set, false if the handle is stale
+	 */
+	public boolean setComponents(final long handle, final long components)
+	{
+		final var index = indexOf(handle);
+		if(index < 0) return false;
+		if(this.components[index] == components) return true;
+
+		ensureDenseCapacity(size + 1);
+		extract(index, archetypes[index]);
+		this.components[size - 1] = components;
+		insert(size - 1, archetypeOf(components));
+		return true;
+	}
+
+	/**
+	 * Parents an entity to another entity of the store, or makes it a root. Its local position, rotation and scale are kept and become relative
+	 * to the new parent.
+	 *
+	 * @param handle
+	 * @param parentHandle - Handle of the new parent, 0 to make the entity a root
+	 * @return boolean - True if the parent was set, false if either handle is stale
+	 * @throws IllegalArgumentException if the entity is the new parent or one of its ancestors
+	 */
+	public boolean setParent(final long handle, final long parentHandle)
+	{
+		final var index       = indexOf(handle);
+		final var parentIndex = parentHandle == 0 ? -1 : indexOf(parentHandle);
+		if(index < 0 || parentHandle != 0 && parentIndex < 0) return false;
+
+		for(var ancestor = parentIndex; ancestor >= 0; ancestor = parent[ancestor] >= 0 ? denseIndices[parent[ancestor]] : -1)
+			if(ancestor == index) throw new IllegalArgumentException("An entity cannot be parented to itself or one of its descendants.");
+
+		unlink(index);
+		if(parentIndex >= 0)
+		{
+			parent[index]           = slots[parentIndex];
+			nextSibling[index]      = firstChild[parentIndex];
+			firstChild[parentIndex] = slots[index];
+		}
+		invalidate(index, false);
+		return true;
+	}
+
+	/**
+	 * @return int - Number of entities
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Recomputes the world transformations of the entities in a hierarchy that changed since they were last computed. Starts from the roots
+	 * that changed or have changed descendants and walks down breadth first, skipping subtrees where nothing changed. Must run after
+	 * {@link #updateTransformations(int, int)} has processed every entity.
+	 */
+	public void updateHierarchy()
+	{
+		var tail = 0;
+		for(var i = 0; i < size; i++)
+			if(parent[i] < 0 && (worldDirty[i] || childDirty[i])) queue[tail++] = i;
+
+		for(var head = 0; head < tail; head++)
+		{
+			final var index = queue[head];
+			if(worldDirty[index]) updateWorld(index);
+			for(var child = firstChild[index]; child >= 0; child = nextSibling[denseIndices[child]])
+			{
+				final var childIndex = denseIndices[child];
+				worldDirty[childIndex] |= worldDirty[index];
+				if(worldDirty[childIndex] || childDirty[childIndex]) queue[tail++] = childIndex;
+			}
+			worldDirty[index] = false;
+			childDirty[index] = false;
+		}
+	}
+
+	/**
+	 * Recomputes the rotation and scale part of the local transformation of every entity in a dense range that changed since it was last
+	 * computed. The world transformations of entities outside of hierarchies are computed as well, the others are left to
+	 * {@link #updateHierarchy()}.
+	 *
+	 * @param start - First dense index
+	 * @param end   - Dense index after the last
+	 */
+	public void updateTransformations(final int start, final int end)
+	{
+		for(var i = start; i < end; i++)
+		{
+			if(!dirty[i]) continue;
+
+			final var rx = (float) Math.toRadians(rotationX[i]);
+			final var ry = (float) Math.toRadians(rotationY[i]);
+			final var rz = (float) Math.toRadians(rotationZ[i]);
+			final var sx = (float) Math.sin(rx);
+			final var cx = (float) Math.cos(rx);
+			final var sy = (float) Math.sin(ry);
+			final var cy = (float) Math.cos(ry);
+			final var sz = (float) Math.sin(rz);
+			final var cz = (float) Math.cos(rz);
+			final var s  = scale[i];
+
+			//Translation * rotateX * rotateY * rotateZ * scale, as built by Matrix4f
+			final var b = i * BASIS_SIZE;
+			basis[b]     = cy * cz * s;
+			basis[b + 1] = (sx * sy * cz + cx * sz) * s;
+			basis[b + 2] = (sx * sz - cx * sy * cz) * s;
+			basis[b + 3] = -cy * sz * s;
+			basis[b + 4] = (cx * cz - sx * sy * sz) * s;
+			basis[b + 5] = (cx * sy * sz + sx * cz) * s;
+			basis[b + 6] = sy * s;
+			basis[b + 7] = -sx * cy * s;
+			basis[b + 8] = cx * cy * s;
+			dirty[i]     = false;
+		}
+
+		for(var i = start; i < end; i++)
+			if(worldDirty[i] && parent[i] < 0 && firstChild[i] < 0)
+			{
+				updateWorld(i);
+				worldDirty[i] = false;
+			}
+	}
+
+	Vector3f getPosition(final int index, final Vector3f dest)
+	{
+		return dest.set(positionX[index], positionY[index], positionZ[index]);
+	}
+
+	Vector3f getRotation(final int index, final Vector3f dest)
+	{
+		return dest.set(rotationX[index], rotationY[index], rotationZ[index]);
+	}
+
+	float getScale(final int index)
+	{
+		return scale[index];
+	}
+
+	Vector3f getWorldPosition(final int index, final Vector3f dest)
+	{
+		return dest.set(world[index * WORLD_SIZE + 9], world[index * WORLD_SIZE + 10], world[index * WORLD_SIZE + 11]);
+	}
+
+	void incPosition(final int index, final float x, final float y, final float z)
+	{
+		positionX[index] += x;
+		positionY[index] += y;
+		positionZ[index] += z;
+		invalidate(index, false);
+	}
+
+	void incRotation(final int index, final float x, final float y, final float z)
+	{
+		rotationX[index] += x;
+		rotationY[index] += y;
+		rotationZ[index] += z;
+		invalidate(index, true);
+	}
+
+	void setPosition(final int index, final float x, final float y, final float z)
+	{
+		positionX[index] = x;
+		positionY[index] = y;
+		positionZ[index] = z;
+		invalidate(index, false);
+	}
+
+	void setRotation(final int index, final float x, final float y, final float z)
+	{
+		rotationX[index] = x;
+		rotationY[index] = y;
+		rotationZ[index] = z;
+		invalidate(index, true);
+	}
+
+	void setScale(final int index, final float scale)
+	{
+		this.scale[index] = scale;
+		invalidate(index, true);
+	}
+
+	private int allocateSlot()
+	{
+		if(freeSlotCount > 0) return freeSlots[--freeSlotCount];
+
+		ensureSlotCapacity(slotCount + 1);
+		generations[slotCount] = 1;
+		return slotCount++;
+	}
+
+	private void ensureDenseCapacity(final int capacity)
+	{
+		if(capacity <= positionX.length) return;
+
+		final var grown = Math.max(capacity, positionX.length * 2);
+		archetypes  = Arrays.copyOf(archetypes, grown);
+		basis       = Arrays.copyOf(basis, grown * BASIS_SIZE);
+		childDirty  = Arrays.copyOf(childDirty, grown);
+		components  = Arrays.copyOf(components, grown);
+		dirty       = Arrays.copyOf(dirty, grown);
+		entities    = Arrays.copyOf(entities, grown);
+		firstChild  = Arrays.copyOf(firstChild, grown);
+		modelId     = Arrays.copyOf(modelId, grown);
+		nextSibling = Arrays.copyOf(nextSibling, grown);
+		parent      = Arrays.copyOf(parent, grown);
+		positionX   = Arrays.copyOf(positionX, grown);
+		positionY   = Arrays.copyOf(positionY, grown);
+		positionZ   = Arrays.copyOf(positionZ, grown);
+		queue       = new int[grown];
+		rotationX   = Arrays.copyOf(rotationX, grown);
+		rotationY   = Arrays.copyOf(rotationY, grown);
+		rotationZ   = Arrays.copyOf(rotationZ, grown);
+		scale       = Arrays.copyOf(scale, grown);
+		slots       = Arrays.copyOf(slots, grown);
+		world       = Arrays.copyOf(world, grown * WORLD_SIZE);
+		worldDirty  = Arrays.copyOf(worldDirty, grown);
+		worldScale  = Arrays.copyOf(worldScale, grown);
+	}
+
+	private void ensureArchetypeCapacity(final int capacity)
+	{
+		if(capacity <= archetypeMasks.length) return;
+
+		final var grown = Math.max(capacity, archetypeMasks.length * 2);
+		archetypeEnds  = Arrays.copyOf(archetypeEnds, grown);
+		archetypeMasks = Arrays.copyOf(archetypeMasks, grown);
+	}
+
+	private void ensureSlotCapacity(final int capacity)
+	{
+		if(capacity <= generations.length) return;
+
+		final var grown = Math.max(capacity, generations.length * 2);
+		denseIndices = Arrays.copyOf(denseIndices, grown);
+		freeSlots    = Arrays.copyOf(freeSlots, grown);
+		generations  = Arrays.copyOf(generations, grown);
+	}
+
+	/**
+	 * Marks the world transformation of an entity as changed, and its ancestors as having a changed descendant so the hierarchy update reaches it.
+	 *
+	 * @param index - Dense index
+	 * @param local - Whether the rotation or scale changed as well
+	 */
+	private void invalidate(final int index, final boolean local)
+	{
+		dirty[index]      |= local;
+		worldDirty[index]  = true;
+		for(var ancestor = parent[index]; ancestor >= 0 && !childDirty[denseIndices[ancestor]]; ancestor = parent[denseIndices[ancestor]])
+			childDirty[denseIndices[ancestor]] = true;
+	}
+
+	/**
+	 * Returns the archetype of a component mask, creating an empty one after the others if there is none yet.
+	 */
+	private int archetypeOf(final long components)
+	{
+		for(var archetype = 0; archetype < archetypeCount; archetype++)
+			if(archetypeMasks[archetype] == components) return archetype;
+
+		ensureArchetypeCapacity(archetypeCount + 1);
+		archetypeMasks[archetypeCount] = components;
+		archetypeEnds[archetypeCount]  = archetypeCount > 0 ? archetypeEnds[archetypeCount - 1] : 0;
+		return archetypeCount++;
+	}
+
+	/**
+	 * Moves an entity from the range of its archetype to the last dense index, the ranges of its and the later archetypes shrink by one. Swaps
+	 * the entity with the last entity of every archetype on the way.
+	 *
+	 * @param index     - Dense index of the entity
+	 * @param archetype - Archetype of the entity
+	 */
+	private void extract(final int index, final int archetype)
+	{
+		var position = index;
+		for(var i = archetype; i < archetypeCount; i++)
+		{
+			final var end = --archetypeEnds[i];
+			swap(position, end);
+			position = end;
+		}
+	}
+
+	private int idOf(final Model model)
+	{
+		var id = modelIds.get(model);
+		if(id == null)
+		{
+			id = models.size();
+			models.add(model);
+			modelIds.put(model, id);
+		}
+		return id;
+	}
+
+	private long handle(final int slot)
+	{
+		return (long) generations[slot] << 32 | slot;
+	}
+
+	/**
+	 * Moves an entity from the last dense index into the range of an archetype, the ranges of the archetype and the later ones grow by one.
+	 * Swaps the entity with the first entity of every later archetype on the way.
+	 *
+	 * @param index     - Dense index of the entity, the last one
+	 * @param archetype - New archetype of the entity
+	 */
+	private void insert(final int index, final int archetype)
+	{
+		var position = index;
+		for(var i = archetypeCount - 1; i > archetype; i--)
+		{
+			final var start = archetypeEnds[i - 1];
+			swap(position, start);
+			position = start;
+			archetypeEnds[i]++;
+		}
+		archetypeEnds[archetype]++;
+		archetypes[position] = archetype;
+	}
+
+	/**
+	 * Moves the row at one dense index to another, overwriting it.
+	 */
+	private void move(final int from, final int to)
+	{
+		System.arraycopy(basis, from * BASIS_SIZE, basis, to * BASIS_SIZE, BASIS_SIZE);
+		System.arraycopy(world, from * WORLD_SIZE, world, to * WORLD_SIZE, WORLD_SIZE);
+		archetypes[to]            = archetypes[from];
+		childDirty[to]            = childDirty[from];
+		components[to]            = components[from];
+		dirty[to]                 = dirty[from];
+		entities[to]              = entities[from];
+		firstChild[to]            = firstChild[from];
+		modelId[to]               = modelId[from];
+		nextSibling[to]           = nextSibling[from];
+		parent[to]                = parent[from];
+		positionX[to]             = positionX[from];
+		positionY[to]             = positionY[from];
+		positionZ[to]             = positionZ[from];
+		rotationX[to]             = rotationX[from];
+		rotationY[to]             = rotationY[from];
+		rotationZ[to]             = rotationZ[from];
+		scale[to]                 = scale[from];
+		slots[to]                 = slots[from];
+		worldDirty[to]            = worldDirty[from];
+		worldScale[to]            = worldScale[from];
+		denseIndices[slots[from]] = to;
+	}
+
+	/**
+	 * Swaps the rows at two dense indices through the spare row after the entities.
+	 */
+	private void swap(final int first, final int second)
+	{
+		if(first == second) return;
+
+		move(first, size);
+		move(second, first);
+		move(size, second);
+		entities[size] = null;
+	}
+
+	private void setRow(final int index, final Vector3f position, final Vector3f rotation, final float scale)
+	{
+		setPosition(index, position.x, position.y, position.z);
+		setRotation(index, rotation.x, rotation.y, rotation.z);
+		this.scale[index] = scale;
+	}
+
+	/**
+	 * Removes an entity from the children of its parent.
+	 */
+	private void unlink(final int index)
+	{
+		if(parent[index] < 0) return;
+
+		final var parentIndex = denseIndices[parent[index]];
+		if(firstChild[parentIndex] == slots[index]) firstChild[parentIndex] = nextSibling[index];
+		else
+		{
+			var sibling = denseIndices[firstChild[parentIndex]];
+			while(nextSibling[sibling] != slots[index])
+				sibling = denseIndices[nextSibling[sibling]];
+			nextSibling[sibling] = nextSibling[index];
+		}
+		parent[index]      = -1;
+		nextSibling[index] = -1;
+	}
+
+	/**
+	 * Computes the world transformation of an entity from its local transformation and the world transformation of its parent.
+	 */
+	private void updateWorld(final int index)
+	{
+		final var b = index * BASIS_SIZE;
+		final var w = index * WORLD_SIZE;
+		if(parent[index] < 0)
+		{
+			System.arraycopy(basis, b, world, w, BASIS_SIZE);
+			world[w + 9]      = positionX[index];
+			world[w + 10]     = positionY[index];
+			world[w + 11]     = positionZ[index];
+			worldScale[index] = Math.abs(scale[index]);
+			return;
+		}
+
+		//The parent's world matrix times the local matrix, both affine with the last row omitted
+		final var parentIndex = denseIndices[parent[index]];
+		final var p           = parentIndex * WORLD_SIZE;
+		for(var column = 0; column < 3; column++)
+		{
+			final var x = basis[b + column * 3];
+			final var y = basis[b + column * 3 + 1];
+			final var z = basis[b + column * 3 + 2];
+			world[w + column * 3]     = world[p] * x + world[p + 3] * y + world[p + 6] * z;
+			world[w + column * 3 + 1] = world[p + 1] * x + world[p + 4] * y + world[p + 7] * z;
+			world[w + column * 3 + 2] = world[p + 2] * x + world[p + 5] * y + world[p + 8] * z;
+		}
+		final var x = positionX[index];
+		final var y = positionY[index];
+		final var z = positionZ[index];
+		world[w + 9]      = world[p] * x + world[p + 3] * y + world[p + 6] * z + world[p + 9];
+		world[w + 10]     = world[p + 1] * x + world[p + 4] * y + world[p + 7] * z + world[p + 10];
+		world[w + 11]     = world[p + 2] * x + world[p + 5] * y + world[p + 8] * z + world[p + 11];
+		worldScale[index] = worldScale[parentIndex] * Math.abs(scale[index]);
+	}
+
+	/**
+	 * Iterates the dense ranges of the archetypes whose components match, one range per call to {@link #next()}. Iterating does not allocate,
+	 * the ranges are only valid until the store is modified.
+	 *
+	 * <pre>
+	 * query.reset();
+	 * while(query.next())
+	 * 	kernel(query.start(), query.end());
+	 * </pre>
+	 */
+	public final class Query
+	{
+		private final long exclude;
+		private final long include;
+
+		private int archetype = -1;
+
+		private Query(final long include, final long exclude)
+		{
+			this.include = include;
+			this.exclude = exclude;
+		}
+
+		/**
+		 * @return int - Dense index after the last entity of the current range
+		 */
+		public int end()
+		{
+			return archetypeEnds[archetype];
+		}
+
+		/**
+		 * Advances to the next non empty range of a matching archetype.
+		 *
+		 * @return boolean - False if there are no more ranges
+		 */
+		public boolean next()
+		{
+			while(++archetype < archetypeCount)
+			{
+				final var mask = archetypeMasks[archetype];
+				if((mask & include) == include && (mask & exclude) == 0 && start() < end()) return true;
+			}
+			archetype = archetypeCount;
+			return false;
+		}
+
+		/**
+		 * Restarts the iteration before the first range.
+		 */
+		public void reset()
+		{
+			archetype = -1;
+		}
+
+		/**
+		 * @return int - First dense index of the current range
+		 */
+		public int start()
+		{
+			return archetype > 0 ? archetypeEnds[archetype - 1] : 0;
+		}
+	}
+
+	/**
+	 * Read only view of the facades in dense order.
+	 */
+	private final class EntityList extends AbstractList<Entity>
+	{
+		@Override
+		public Entity get(final int index)
+		{
+			return getEntity(index);
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+}
@@ -1,117 +1,169 @@
 package core.entity;
 
-import org.joml.Vector4f;
+import java.util.Objects;
 
-public class Material
+import org.joml.Vector4f;
+import org.joml.Vector4fc;
+
+/**
+ * Immutable surface properties of a model. Materials are interned in the {@link MaterialRegistry}: models only hold interned instances, which
+ * have an id indexing the material table the renderers upload to the GPU. Changing a property creates another material instead of modifying one
+ * that other models may share. The texture belongs to the model, a material only records whether it is sampled, so models with different
+ * textures and otherwise equal surfaces share one material.
+ */
+public final class Material
 {
-	public static final Vector4f DEFAULT_COLOR = new Vector4f(1.0f, 1.0f, 1.0f, 1.0f);
+	public static final Vector4fc DEFAULT_COLOR = new Vector4f(1.0f, 1.0f, 1.0f, 1.0f);
 
-	private Vector4f	ambientColor, diffuseColor, specularColor;
-	private float		reflectance;
-	private Texture		texture;
-	private boolean		disableCulling;
+	private final Vector4f	ambientColor, diffuseColor, specularColor;
+	private final float		reflectance;
+	private final boolean	textured;
+	private final boolean	disableCulling;
 
-	public Material()
-	{
-		this.ambientColor = DEFAULT_COLOR;
-		this.diffuseColor = DEFAULT_COLOR;
-		this.specularColor = DEFAULT_COLOR;
-		this.reflectance = 0;
-		this.disableCulling = false;
-		this.texture = null;
-	}
+	private int id = -1;
 
-	public Material(Vector4f color, float reflectance)
+	public Material()
 	{
-		this(color, color, color, reflectance, null);
+		this(DEFAULT_COLOR, DEFAULT_COLOR, DEFAULT_COLOR, 0);
 	}
 
-	public Material(Vector4f color, float reflectance, Texture texture)
+	public Material(Vector4fc color, float reflectance)
 	{
-		this(color, color, color, reflectance, texture);
+		this(color, color, color, reflectance);
 	}
 
-	public Material(Texture texture)
+	public Material(Vector4fc ambientColor, Vector4fc diffuseColor, Vector4fc specularColor, float reflectance)
 	{
-		this(DEFAULT_COLOR, DEFAULT_COLOR, DEFAULT_COLOR, 0, texture);
+		this(ambientColor, diffuseColor, specularColor, reflectance, false, false);
 	}
 
-	public Material(Texture texture, float reflectance)
+	/**
+	 * @param ambientColor
+	 * @param diffuseColor
+	 * @param specularColor
+	 * @param reflectance
+	 * @param textured       - Whether the diffuse color is sampled from the model's texture
+	 * @param disableCulling
+	 */
+	public Material(Vector4fc ambientColor, Vector4fc diffuseColor, Vector4fc specularColor, float reflectance, boolean textured, boolean disableCulling)
 	{
-		this(DEFAULT_COLOR, DEFAULT_COLOR, DEFAULT_COLOR, reflectance, texture);
+		this.ambientColor = new Vector4f(ambientColor);
+		this.diffuseColor = new Vector4f(diffuseColor);
+		this.specularColor = new Vector4f(specularColor);
+		this.reflectance = reflectance;
+		this.textured = textured;
+		this.disableCulling = disableCulling;
 	}
 
-	public Material(Vector4f ambientColor, Vector4f diffuseColor, Vector4f specularColor, float reflectance, Texture texture)
+	public Vector4fc getAmbientColor()
 	{
-		this.ambientColor = ambientColor;
-		this.diffuseColor = diffuseColor;
-		this.specularColor = specularColor;
-		this.reflectance = reflectance;
-		this.texture = texture;
+		return ambientColor;
 	}
 
-	public Vector4f getAmbientColor()
+	public Vector4fc getDiffuseColor()
 	{
-		return ambientColor;
+		return diffuseColor;
 	}
 
-	public void setAmbientColor(Vector4f ambientColor)
+	public Vector4fc getSpecularColor()
 	{
-		this.ambientColor = ambientColor;
+		return specularColor;
 	}
 
-	public Vector4f getDiffuseColor()
+	/**
+	 * Returns the index of the material in the material table, or -1 if the material has not been interned.
+	 *
+	 * @return int - Material id
+	 */
+	public int getId()
 	{
-		return diffuseColor;
+		return id;
 	}
 
-	public void setDiffuseColor(Vector4f diffuseColor)
+	public float getReflectance()
 	{
-		this.diffuseColor = diffuseColor;
+		return reflectance;
 	}
 
-	public Vector4f getSpecularColor()
+	/**
+	 * Returns whether the material samples the texture of the model it is drawn with. The texture itself is part of the model, so models with
+	 * different textures share a material.
+	 *
+	 * @return boolean - Whether the material is textured
+	 */
+	public boolean hasTexture()
 	{
-		return specularColor;
+		return textured;
 	}
 
-	public void setSpecularColor(Vector4f specularColor)
+	/**
+	 * Returns the interned material equal to this one, registering this one if there is none.
+	 *
+	 * @return Material - Interned material
+	 */
+	public Material intern()
 	{
-		this.specularColor = specularColor;
+		return id >= 0 ? this : MaterialRegistry.intern(this);
 	}
 
-	public float getReflectance()
+	public boolean isDisableCulling()
 	{
-		return reflectance;
+		return disableCulling;
 	}
 
-	public void setReflectance(float reflectance)
+	/**
+	 * @param disableCulling
+	 * @return Material - Interned material with culling disabled or enabled
+	 */
+	public Material withDisableCulling(boolean disableCulling)
 	{
-		this.reflectance = reflectance;
+		return new Material(ambientColor, diffuseColor, specularColor, reflectance, textured, disableCulling).intern();
 	}
 
-	public Texture getTexture()
+	/**
+	 * @param reflectance
+	 * @return Material - Interned material with the given reflectance
+	 */
+	public Material withReflectance(float reflectance)
 	{
-		return texture;
+		return new Material(ambientColor, diffuseColor, specularColor, reflectance, textured, disableCulling).intern();
 	}
 
-	public void setTexture(Texture texture)
+	/**
+	 * @param textured
+	 * @return Material - Interned material sampling or not sampling the model's texture
+	 */
+	public Material withTextured(boolean textured)
 	{
-		this.texture = texture;
+		return new Material(ambientColor, diffuseColor, specularColor, reflectance, textured, disableCulling).intern();
 	}
 
-	public boolean hasTexture()
+	/**
+	 * Materials are equal if all their properties are.
+	 */
+	@Override
+	public boolean equals(Object object)
 	{
-		return texture != null;
+		if (this == object)
+		{
+			return true;
+		}
+		if (!(object instanceof Material material))
+		{
+			return false;
+		}
+		return ambientColor.equals(material.ambientColor) && diffuseColor.equals(material.diffuseColor) && specularColor.equals(material.specularColor)
+				&& Float.compare(reflectance, material.reflectance) == 0 && textured == material.textured && disableCulling == material.disableCulling;
 	}
 
-	public boolean isDisableCulling()
+	@Override
+	public int hashCode()
 	{
-		return disableCulling;
+		return Objects.hash(ambientColor, diffuseColor, specularColor, reflectance, textured, disableCulling);
 	}
 
-	public void setDisableCulling(boolean disableCulling)
+	void setId(int id)
 	{
-		this.disableCulling = disableCulling;
+		this.id = id;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package core.entity;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Interns materials, handing every distinct material a dense id below {@link #CAPACITY}. The registry only holds materials weakly: once no model
+ * references a material any more it is collected and its id is handed to the next material registered, so swapping textures, reflectances or
+ * colors at runtime does not use up the ids. Every registration is stamped with a generation, the renderers upload the material table
+ * incrementally by only writing the ids registered since the generation of their last upload.
+ * <p>
+ * Interning is synchronized so assets can be loaded on other threads, looking materials up by id does not lock.
+ */
+public final class MaterialRegistry
+{
+	/**
+	 * Number of materials that can be registered at the same time, the size of the material table on the GPU.
+	 */
+	public static final int CAPACITY = 256;
+
+	private static final Map<Material, WeakReference<Material>> interned = new WeakHashMap<>();
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final WeakReference<Material>[] materials   = new WeakReference[CAPACITY];
+	private static final int[]                     generations = new int[CAPACITY];
+
+	private static volatile int generation;
+	private static volatile int size;
+
+	private MaterialRegistry()
+	{}
+
+	/**
+	 * @param id
+	 * @return Material - Material with the given id, null if the material has been collected and the id is free
+	 */
+	public static Material get(final int id)
+	{
+		if(id < 0 || id >= size) throw new IndexOutOfBoundsException("No material with id " + id + ".");
+		final var material = materials[id];
+		return material != null ? material.get() : null;
+	}
+
+	/**
+	 * @return int - Generation of the latest registration, changes whenever a material is registered
+	 */
+	public static int getGeneration()
+	{
+		return generation;
+	}
+
+	/**
+	 * @param id
+	 * @return int - Generation in which the material with the given id was registered
+	 */
+	public static int getGeneration(final int id)
+	{
+		if(id < 0 || id >= size) throw new IndexOutOfBoundsException("No material with id " + id + ".");
+		return generations[id];
+	}
+
+	/**
+	 * @return int - Number of ids handed out so far, every id of a live material is below it
+	 */
+	public static int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the registered material equal to a material, registering it if there is none.
+	 *
+	 * @param material
+	 * @return Material - Interned material
+	 * @throws IllegalStateException if {@link #CAPACITY} materials are in use
+	 */
+	static synchronized Material intern(final Material material)
+	{
+		final var existing = interned.get(material);
+		if(existing != null)
+		{
+			final var live = existing.get();
+			if(live != null) return live;
+		}
+
+		final var id        = freeId();
+		final var reference = new WeakReference<>(material);
+		material.setId(id);
+		materials[id]   = reference;
+		generations[id] = generation + 1;
+		interned.put(material, reference);
+		//Published last, so readers seeing the new size or generation also see the material
+		if(id == size) size++;
+		generation++;
+		return material;
+	}
+
+	/**
+	 * Returns the next id that has never been used or, once all have been, the lowest id of a collected material.
+	 */
+	private static int freeId()
+	{
+		if(size < CAPACITY) return size;
+		for(var id = 0; id < CAPACITY; id++)
+			if(materials[id].get() == null) return id;
+		throw new IllegalStateException("All " + CAPACITY + " material ids are in use.");
+	}
+}
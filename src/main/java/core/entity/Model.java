@@ -1,31 +1,55 @@
 package core.entity;
 
+import core.GpuResource;
+
 public class Model
 {
 	private int			id;
 	private int			vertexCount;
 	private Material	material;
+	private Texture		texture;
+	private float		boundingRadius	= Float.POSITIVE_INFINITY;
+	private GpuResource	resource;
 
 	public Model(int id, int vertexCount)
 	{
 		this.id = id;
 		this.vertexCount = vertexCount;
-		this.material = new Material();
+		this.material = new Material().intern();
 	}
 
 	public Model(int id, int vertexCount, Texture texture)
 	{
 		this.id = id;
 		this.vertexCount = vertexCount;
-		this.material = new Material(texture);
+		this.texture = texture;
+		this.material = new Material().withTextured(texture != null);
 	}
 
 	public Model(Model model, Texture texture)
 	{
 		this.id = model.getId();
 		this.vertexCount = model.getVertexCount();
-		this.material = model.getMaterial();
-		this.material.setTexture(texture);
+		this.texture = texture;
+		this.material = model.getMaterial().withTextured(texture != null);
+		this.boundingRadius = model.getBoundingRadius();
+		this.resource = model.getResource();
+	}
+
+	/**
+	 * Returns the radius of a sphere around the model's origin containing all its vertices, used for culling. Models without known bounds have
+	 * an infinite radius and are never culled.
+	 *
+	 * @return float - Bounding radius
+	 */
+	public float getBoundingRadius()
+	{
+		return boundingRadius;
+	}
+
+	public void setBoundingRadius(float boundingRadius)
+	{
+		this.boundingRadius = boundingRadius;
 	}
 
 	public int getId()
@@ -38,20 +62,52 @@ public class Model
 		return vertexCount;
 	}
 
+	public void setId(int id)
+	{
+		this.id = id;
+	}
+
+	public void setVertexCount(int vertexCount)
+	{
+		this.vertexCount = vertexCount;
+	}
+
+	/**
+	 * Returns the resource backing the model's vertex data. Once the resource has been unloaded its id may belong to another model, so the
+	 * object loader ignores models whose resource is not loaded anymore.
+	 *
+	 * @return GpuResource - Resource, null if the model was not created by an object loader
+	 */
+	public GpuResource getResource()
+	{
+		return resource;
+	}
+
+	public void setResource(GpuResource resource)
+	{
+		this.resource = resource;
+	}
+
 	public Texture getTexture()
 	{
-		return material.getTexture();
+		return texture;
 	}
 
+	/**
+	 * Sets the model's texture. The material only changes if the model gains or loses its texture, swapping one texture for another keeps it.
+	 *
+	 * @param texture
+	 */
 	public void setTexture(Texture texture)
 	{
-		material.setTexture(texture);
+		this.texture = texture;
+		material = material.withTextured(texture != null);
 	}
 
 	public void setTexture(Texture texture, float reflectance)
 	{
-		material.setTexture(texture);
-		material.setReflectance(reflectance);
+		this.texture = texture;
+		material = new Material(material.getAmbientColor(), material.getDiffuseColor(), material.getSpecularColor(), reflectance, texture != null, material.isDisableCulling()).intern();
 	}
 
 	public Material getMaterial()
@@ -59,8 +115,13 @@ public class Model
 		return material;
 	}
 
+	/**
+	 * Sets the model's material, interning it if it is not interned yet. Whether the material is textured follows the model's texture.
+	 *
+	 * @param material
+	 */
 	public void setMaterial(Material material)
 	{
-		this.material = material;
+		this.material = material.hasTexture() == (texture != null) ? material.intern() : material.withTextured(texture != null);
 	}
 }
\ No newline at end of file
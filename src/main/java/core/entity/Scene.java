@@ -0,0 +1,39 @@
+package core.entity;
+
+import java.util.List;
+
+import org.joml.Vector3f;
+
+import core.entity.terrain.Terrain;
+import core.lighting.DirectionalLight;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+
+/**
+ * The state of a scene read by the renderers. Implemented by the {@link SceneManager} games modify and by the {@link SceneSnapshot}s published
+ * to the render thread when the engine runs simulation and rendering on separate threads.
+ */
+public interface Scene
+{
+	Vector3f getAmbientLight();
+
+	DirectionalLight getDirectionalLight();
+
+	/**
+	 * Returns the entities of the scene, in the dense order of its entity store.
+	 *
+	 * @return List - Entities
+	 */
+	default List<Entity> getEntities()
+	{
+		return getEntityStore().getEntities();
+	}
+
+	EntityStore getEntityStore();
+
+	PointLight[] getPointLights();
+
+	SpotLight[] getSpotLights();
+
+	List<Terrain> getTerrains();
+}
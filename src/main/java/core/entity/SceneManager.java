@@ -1,5 +1,6 @@
 package core.entity;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,13 +12,15 @@ import core.lighting.DirectionalLight;
 import core.lighting.PointLight;
 import core.lighting.SpotLight;
 
-public class SceneManager
+public class SceneManager implements Scene
 {
 	private static final Vector3f DEFAULT_AMBIENT_LIGHT = new Vector3f(1.3f, 1.3f, 1.3f);
 
 	private static volatile SceneManager instance;
 
-	private List<Entity>  entities;
+	private final ArrayDeque<Entity> entityPool;
+	private final EntityStore        entityStore;
+
 	private List<Terrain> terrains;
 
 	private Vector3f         ambientLight;
@@ -32,7 +35,8 @@ public class SceneManager
 	private SceneManager()
 	{
 		directionalLight = new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(-1, 0, 0), 1);
-		entities         = new ArrayList<>();
+		entityPool       = new ArrayDeque<>();
+		entityStore      = new EntityStore();
 		terrains         = new ArrayList<>();
 		ambientLight     = DEFAULT_AMBIENT_LIGHT;
 	}
@@ -47,9 +51,15 @@ public class SceneManager
 		return instance;
 	}
 
-	public void addEntity(final Entity entity)
+	/**
+	 * Adds an entity to the scene's entity store.
+	 *
+	 * @param entity
+	 * @return long - Handle of the entity
+	 */
+	public long addEntity(final Entity entity)
 	{
-		entities.add(entity);
+		return entityStore.add(entity);
 	}
 
 	public void addTerrain(final Terrain terrain)
@@ -57,19 +67,39 @@ public class SceneManager
 		terrains.add(terrain);
 	}
 
+	/**
+	 * Removes an entity and recycles it for {@link #spawnEntity}, so spawning and despawning does not create garbage once the pool has grown to the
+	 * peak number of despawned entities. The entity must not be used after it has been despawned.
+	 *
+	 * @param handle
+	 * @return boolean - True if the entity was despawned, false if the handle is stale
+	 */
+	public boolean despawnEntity(final long handle)
+	{
+		final var entity = entityStore.get(handle);
+		if(entity == null) return false;
+
+		entityStore.remove(handle);
+		entityPool.push(entity);
+		return true;
+	}
+
+	@Override
 	public Vector3f getAmbientLight()
 	{
 		return ambientLight;
 	}
 
+	@Override
 	public DirectionalLight getDirectionalLight()
 	{
 		return directionalLight;
 	}
 
-	public List<Entity> getEntities()
+	@Override
+	public EntityStore getEntityStore()
 	{
-		return entities;
+		return entityStore;
 	}
 
 	public float getLightAngle()
@@ -77,6 +107,7 @@ public class SceneManager
 		return lightAngle;
 	}
 
+	@Override
 	public PointLight[] getPointLights()
 	{
 		return pointLights;
@@ -92,11 +123,13 @@ public class SceneManager
 		return spotInc;
 	}
 
+	@Override
 	public SpotLight[] getSpotLights()
 	{
 		return spotLights;
 	}
 
+	@Override
 	public List<Terrain> getTerrains()
 	{
 		return terrains;
@@ -112,6 +145,18 @@ public class SceneManager
 		spotAngle *= spotAngle;
 	}
 
+	/**
+	 * Removes an entity by moving the last entity of its archetype into its place, see {@link EntityStore#remove(long)}. The cost does not grow
+	 * with the number of entities, only with the number of archetypes after the entity's. The entity keeps its last values and can be added again.
+	 *
+	 * @param handle
+	 * @return boolean - True if the entity was removed, false if the handle is stale
+	 */
+	public boolean removeEntity(final long handle)
+	{
+		return entityStore.remove(handle);
+	}
+
 	public void setAmbientLight(final float x, final float y, final float z)
 	{
 		ambientLight = new Vector3f(x, y, z);
@@ -127,9 +172,16 @@ public class SceneManager
 		this.directionalLight = directionalLight;
 	}
 
+	/**
+	 * Replaces the entities of the scene.
+	 *
+	 * @param entities
+	 */
 	public void setEntities(final List<Entity> entities)
 	{
-		this.entities = entities;
+		entityStore.clear();
+		for(final Entity entity: entities)
+			entityStore.add(entity);
 	}
 
 	public void setLightAngle(final float lightAngle)
@@ -161,4 +213,26 @@ public class SceneManager
 	{
 		this.terrains = terrains;
 	}
+
+	/**
+	 * Adds an entity, reusing one recycled by {@link #despawnEntity} if there is one.
+	 *
+	 * @param model
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param rotationX
+	 * @param rotationY
+	 * @param rotationZ
+	 * @param scale
+	 * @return long - Handle of the entity
+	 */
+	public long spawnEntity(final Model model, final float x, final float y, final float z, final float rotationX, final float rotationY, final float rotationZ,
+			final float scale)
+	{
+		var entity = entityPool.poll();
+		if(entity == null) entity = new Entity(model, new Vector3f(), new Vector3f(), scale);
+		entity.reset(model, x, y, z, rotationX, rotationY, rotationZ, scale);
+		return entityStore.add(entity);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package core.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joml.Vector3f;
+
+import core.entity.terrain.Terrain;
+import core.lighting.DirectionalLight;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+import core.rendering.Camera;
+
+/**
+ * A copy of the renderable state of a scene and camera taken at the end of a simulation step. Snapshots are reused: {@link #capture(Scene, Camera)}
+ * overwrites the previous contents and only allocates when the scene has grown, so the simulation thread can publish a new snapshot every frame
+ * while the render thread draws an older one.
+ */
+public final class SceneSnapshot implements Scene
+{
+	private final Vector3f         ambientLight;
+	private final Camera           camera;
+	private final DirectionalLight directionalLight;
+	private final EntityStore      entityStore;
+	private final List<Terrain>    terrains;
+
+	private PointLight[] pointLights;
+	private SpotLight[]  spotLights;
+
+	public SceneSnapshot()
+	{
+		ambientLight     = new Vector3f();
+		camera           = new Camera(new Vector3f(), new Vector3f());
+		directionalLight = new DirectionalLight(new Vector3f(), new Vector3f(), 0);
+		entityStore      = new EntityStore();
+		terrains         = new ArrayList<>();
+	}
+
+	/**
+	 * Copies the state of a scene and camera into this snapshot. The transformations of the scene's entities are brought up to date first, so
+	 * the render thread does not repeat the work for every snapshot.
+	 *
+	 * @param scene
+	 * @param camera
+	 */
+	public void capture(final Scene scene, final Camera camera)
+	{
+		final var sceneEntityStore = scene.getEntityStore();
+		sceneEntityStore.updateTransformations(0, sceneEntityStore.size());
+		sceneEntityStore.updateHierarchy();
+		entityStore.set(sceneEntityStore);
+
+		final var sceneTerrains = scene.getTerrains();
+		terrains.clear();
+		for(var i = 0; i < sceneTerrains.size(); i++)
+			terrains.add(sceneTerrains.get(i));
+
+		ambientLight.set(scene.getAmbientLight());
+		copy(scene.getDirectionalLight(), directionalLight);
+		this.camera.setPosition(camera.getPosition().x, camera.getPosition().y, camera.getPosition().z);
+		this.camera.setRotation(camera.getRotation().x, camera.getRotation().y, camera.getRotation().z);
+
+		final var scenePointLights = scene.getPointLights();
+		if(scenePointLights == null) pointLights = null;
+		else
+		{
+			if(pointLights == null || pointLights.length != scenePointLights.length)
+			{
+				pointLights = new PointLight[scenePointLights.length];
+				for(var i = 0; i < pointLights.length; i++)
+					pointLights[i] = new PointLight(new Vector3f(), new Vector3f(), 0);
+			}
+			for(var i = 0; i < pointLights.length; i++)
+				copy(scenePointLights[i], pointLights[i]);
+		}
+
+		final var sceneSpotLights = scene.getSpotLights();
+		if(sceneSpotLights == null) spotLights = null;
+		else
+		{
+			if(spotLights == null || spotLights.length != sceneSpotLights.length)
+			{
+				spotLights = new SpotLight[sceneSpotLights.length];
+				for(var i = 0; i < spotLights.length; i++)
+					spotLights[i] = new SpotLight(new Vector3f(), new Vector3f(), 0, 0, 0, 0, new Vector3f(), 0);
+			}
+			for(var i = 0; i < spotLights.length; i++)
+			{
+				copy(sceneSpotLights[i], spotLights[i]);
+				spotLights[i].getConeDirection().set(sceneSpotLights[i].getConeDirection());
+				spotLights[i].setCutoff(sceneSpotLights[i].getCutoff());
+			}
+		}
+	}
+
+	@Override
+	public Vector3f getAmbientLight()
+	{
+		return ambientLight;
+	}
+
+	/**
+	 * Returns the copy of the camera taken with the scene.
+	 *
+	 * @return Camera - Camera copy
+	 */
+	public Camera getCamera()
+	{
+		return camera;
+	}
+
+	@Override
+	public DirectionalLight getDirectionalLight()
+	{
+		return directionalLight;
+	}
+
+	@Override
+	public EntityStore getEntityStore()
+	{
+		return entityStore;
+	}
+
+	@Override
+	public PointLight[] getPointLights()
+	{
+		return pointLights;
+	}
+
+	@Override
+	public SpotLight[] getSpotLights()
+	{
+		return spotLights;
+	}
+
+	@Override
+	public List<Terrain> getTerrains()
+	{
+		return terrains;
+	}
+
+	private void copy(final DirectionalLight source, final DirectionalLight target)
+	{
+		target.getColor().set(source.getColor());
+		target.getDirection().set(source.getDirection());
+		target.setIntensity(source.getIntensity());
+	}
+
+	private void copy(final PointLight source, final PointLight target)
+	{
+		target.getColor().set(source.getColor());
+		target.getPosition().set(source.getPosition());
+		target.setIntensity(source.getIntensity());
+		target.setConstant(source.getConstant());
+		target.setLinear(source.getLinear());
+		target.setExponent(source.getExponent());
+	}
+}
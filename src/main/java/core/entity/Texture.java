@@ -1,8 +1,11 @@
 package core.entity;
 
+import core.GpuResource;
+
 public class Texture
 {
-	private final int id;
+	private int			id;
+	private GpuResource	resource;
 
 	public Texture(int id)
 	{
@@ -13,4 +16,24 @@ public class Texture
 	{
 		return id;
 	}
+
+	public void setId(int id)
+	{
+		this.id = id;
+	}
+
+	/**
+	 * Returns the resource backing the texture, see {@link Model#getResource()}.
+	 *
+	 * @return GpuResource - Resource, null if the texture was created from a texture id
+	 */
+	public GpuResource getResource()
+	{
+		return resource;
+	}
+
+	public void setResource(GpuResource resource)
+	{
+		this.resource = resource;
+	}
 }
\ No newline at end of file
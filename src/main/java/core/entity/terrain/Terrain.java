@@ -27,6 +27,15 @@ public class Terrain
 	}
 
 	private Model generateTerrain(ObjectLoader objectLoader)
+	{
+		Mesh mesh = generateMesh();
+		return objectLoader.loadModel(mesh.vertices(), mesh.textureCoords(), mesh.normals(), mesh.indices());
+	}
+
+	/**
+	 * Generates the vertex data of a flat terrain. Kept free of GL calls so it can be benchmarked headless.
+	 */
+	static Mesh generateMesh()
 	{
 		int count = VERTEX_COUNT * VERTEX_COUNT;
 		float[] vertices = new float[count * 3];
@@ -71,7 +80,7 @@ public class Terrain
 			}
 		}
 
-		return objectLoader.loadModel(vertices, textureCoords, normals, indices);
+		return new Mesh(vertices, textureCoords, normals, indices);
 	}
 
 	public Vector3f getPosition()
@@ -103,4 +112,7 @@ public class Terrain
 	{
 		return blendMapTerrain;
 	}
-}
\ No newline at end of file
+
+	record Mesh(float[] vertices, float[] textureCoords, float[] normals, int[] indices)
+	{}
+}
@@ -6,17 +6,18 @@ import org.joml.Vector3f;
 public class Camera
 {
 	private final Vector3f position, rotation;
+	private final Matrix4f viewMatrix;
 
 	public Camera()
 	{
-		position = new Vector3f(0.0f, 2.0f, 0.0f);
-		rotation = new Vector3f(0.0f, 0.0f, 0.0f);
+		this(new Vector3f(0.0f, 2.0f, 0.0f), new Vector3f(0.0f, 0.0f, 0.0f));
 	}
 
 	public Camera(final Vector3f position, final Vector3f rotation)
 	{
 		this.position = position;
 		this.rotation = rotation;
+		viewMatrix    = new Matrix4f();
 	}
 
 	public Vector3f getPosition()
@@ -29,14 +30,15 @@ public class Camera
 		return rotation;
 	}
 
+	/**
+	 * Computes the view matrix from the camera's position and rotation. The matrix is reused and overwritten by the next call.
+	 *
+	 * @return Matrix4f - View matrix
+	 */
 	public Matrix4f getViewMatrix()
 	{
-		final var matrix = new Matrix4f();
-		matrix.identity();
-		matrix.rotate((float) Math.toRadians(rotation.x), new Vector3f(1, 0, 0)).rotate((float) Math.toRadians(rotation.y), new Vector3f(0, 1, 0)).rotate((float) Math.toRadians(rotation.z),
-				new Vector3f(0, 0, 1));
-		matrix.translate(-position.x, -position.y, -position.z);
-		return matrix;
+		return viewMatrix.rotationX((float) Math.toRadians(rotation.x)).rotateY((float) Math.toRadians(rotation.y)).rotateZ((float) Math.toRadians(rotation.z))
+				.translate(-position.x, -position.y, -position.z);
 	}
 
 	public void movePosition(final float x, final float y, final float z)
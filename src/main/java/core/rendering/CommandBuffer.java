@@ -0,0 +1,133 @@
+package core.rendering;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.system.MemoryUtil;
+
+import core.entity.EntityStore;
+
+/**
+ * Compact list of draw commands recorded off the render thread and replayed on it. Every command is an int opcode followed by its payload, all
+ * stored in a direct buffer, so recording does not allocate once the buffer has grown to the size of a frame. Commands refer to shader variants
+ * and models by index, the replaying {@link Executor} resolves them. A buffer must only be recorded by one thread at a time.
+ */
+final class CommandBuffer
+{
+	static final int BIND_SHADER = 1;
+	static final int BIND_MODEL  = 2;
+	static final int DRAW        = 3;
+
+	private static final int INITIAL_CAPACITY = 16384;
+	private static final int DRAW_SIZE        = 4 * (2 + 16);
+
+	private ByteBuffer  bytes  = MemoryUtil.memAlloc(INITIAL_CAPACITY);
+	private FloatBuffer floats = bytes.asFloatBuffer();
+	private int         size;
+
+	/**
+	 * Records binding a model.
+	 *
+	 * @param model - Index of the model
+	 */
+	void bindModel(final int model)
+	{
+		ensureCapacity(8);
+		bytes.putInt(size, BIND_MODEL).putInt(size + 4, model);
+		size += 8;
+	}
+
+	/**
+	 * Records binding a shader variant.
+	 *
+	 * @param key - Shader permutation key
+	 */
+	void bindShader(final int key)
+	{
+		ensureCapacity(8);
+		bytes.putInt(size, BIND_SHADER).putInt(size + 4, key);
+		size += 8;
+	}
+
+	void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Records drawing the bound model with the transformation matrix of an entity.
+	 *
+	 * @param vertexCount
+	 * @param entityStore
+	 * @param index       - Dense index of the entity
+	 */
+	void draw(final int vertexCount, final EntityStore entityStore, final int index)
+	{
+		ensureCapacity(DRAW_SIZE);
+		bytes.putInt(size, DRAW).putInt(size + 4, vertexCount);
+		entityStore.putTransformation(index, bytes, size + 8);
+		size += DRAW_SIZE;
+	}
+
+	void free()
+	{
+		MemoryUtil.memFree(bytes);
+		bytes  = null;
+		floats = null;
+	}
+
+	/**
+	 * Executes the recorded commands in order.
+	 *
+	 * @param executor
+	 */
+	void replay(final Executor executor)
+	{
+		var position = 0;
+		while(position < size)
+		{
+			final var opcode = bytes.getInt(position);
+			switch(opcode)
+			{
+				case BIND_SHADER -> executor.bindShader(bytes.getInt(position + 4));
+				case BIND_MODEL -> executor.bindModel(bytes.getInt(position + 4));
+				case DRAW -> executor.draw(bytes.getInt(position + 4), floats, position / 4 + 2);
+				default -> throw new IllegalStateException("Unknown opcode " + opcode + " at " + position);
+			}
+			position += opcode == DRAW ? DRAW_SIZE : 8;
+		}
+	}
+
+	/**
+	 * @return int - Number of bytes recorded
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	private void ensureCapacity(final int bytesNeeded)
+	{
+		if(size + bytesNeeded <= bytes.capacity()) return;
+
+		bytes  = MemoryUtil.memRealloc(bytes, Math.max(bytes.capacity() * 2, size + bytesNeeded));
+		floats = bytes.asFloatBuffer();
+	}
+
+	/**
+	 * Receives the commands of a buffer during replay.
+	 */
+	interface Executor
+	{
+		void bindModel(int model);
+
+		void bindShader(int key);
+
+		/**
+		 * @param vertexCount
+		 * @param transformations - Buffer holding the transformation matrix
+		 * @param offset          - Offset of the matrix in floats
+		 */
+		void draw(int vertexCount, FloatBuffer transformations, int offset);
+	}
+}
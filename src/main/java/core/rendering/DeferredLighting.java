@@ -0,0 +1,401 @@
+package core.rendering;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL11;
+
+import core.DragonEngine;
+import core.GraphicsDevice;
+import core.Metrics;
+import core.Metrics.Counter;
+import core.ObjectLoader;
+import core.entity.Model;
+import core.entity.Scene;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+
+/**
+ * The lighting half of the deferred pipeline. The renderers write the material colors and normals of the visible surfaces into a G-buffer, the
+ * light pass then shades every light only where its light volume covers the screen: point lights as spheres, spot lights as cones and the
+ * directional light and lights without a bounded range as a fullscreen quad, accumulated with additive blending. Lighting costs scale with the
+ * pixels each light touches instead of the lights every fragment loops over, so scenes can have hundreds of lights. Only needs GL 3.3.
+ */
+final class DeferredLighting
+{
+	//Light types, must match deferred_light.fs
+	private static final int DIRECTIONAL_LIGHT = 0;
+	private static final int POINT_LIGHT       = 1;
+	private static final int SPOT_LIGHT        = 2;
+
+	//G-buffer textures and the texture units the light pass samples them from
+	private static final int AMBIENT  = 0;
+	private static final int DIFFUSE  = 1;
+	private static final int SPECULAR = 2;
+	private static final int NORMAL   = 3;
+	private static final int DEPTH    = 4;
+
+	private static final int SPHERE_SLICES = 16;
+	private static final int SPHERE_STACKS = 8;
+	private static final int CONE_SEGMENTS = 16;
+
+	//The meshes are inscribed in the unit sphere and cone, scaled up so their faces enclose them
+	private static final float SPHERE_SCALE = (float) (1 / (Math.cos(Math.PI / SPHERE_SLICES) * Math.cos(Math.PI / SPHERE_STACKS)));
+	private static final float CONE_SCALE   = (float) (1 / Math.cos(Math.PI / CONE_SEGMENTS));
+
+	/**
+	 * Spot lights with a wider cone than this cutoff are drawn as spheres, a cone that wide would be mostly base.
+	 */
+	private static final float MIN_CONE_CUTOFF = 0.2f;
+
+	/**
+	 * Light contributions below this are invisible in an 8 bit framebuffer, a light's volume ends where its attenuation brings it below.
+	 */
+	private static final float MIN_CONTRIBUTION = 1 / 256f;
+
+	private final Counter        drawCalls, triangles;
+	private final GraphicsDevice device;
+	private final RenderTarget   geometryBuffer;
+	private final Matrix4f       identity              = new Matrix4f();
+	private final Matrix4f       inverseViewProjection = new Matrix4f();
+	private final Matrix4f       volumeMatrix          = new Matrix4f();
+	private final RenderManager  renderManager;
+	private final Vector2f       renderScale           = new Vector2f(1);
+	private final Vector3f       vector                = new Vector3f();
+
+	private Model         cone, quad, sphere;
+	private ObjectLoader  objectLoader;
+	private ShaderManager shaderManager;
+
+	DeferredLighting(final RenderManager renderManager)
+	{
+		this.renderManager = renderManager;
+		device             = renderManager.getGraphicsDevice();
+		geometryBuffer     = new RenderTarget(device, GL11.GL_NEAREST, RenderTarget.Format.RGBA8, RenderTarget.Format.RGBA8, RenderTarget.Format.RGBA8,
+				RenderTarget.Format.RGBA16F);
+
+		final var metrics = DragonEngine.getMetrics();
+		drawCalls = metrics.counter(Metrics.DRAW_CALLS);
+		triangles = metrics.counter(Metrics.TRIANGLES);
+	}
+
+	/**
+	 * Binds the G-buffer so the renderers draw into it. The G-buffer has the size of the viewport, a scene rendered at a lower resolution is
+	 * drawn into its lower left corner, so changing the render scale never recreates it.
+	 *
+	 * @param width        - Width of the viewport
+	 * @param height       - Height of the viewport
+	 * @param renderWidth  - Width the scene is rendered at, at most the viewport's
+	 * @param renderHeight - Height the scene is rendered at, at most the viewport's
+	 */
+	void bindGeometryBuffer(final int width, final int height, final int renderWidth, final int renderHeight)
+	{
+		geometryBuffer.resize(width, height);
+		device.bindFramebuffer(geometryBuffer.getFramebuffer());
+		if(width > 0 && height > 0)
+		{
+			device.viewport(renderWidth, renderHeight);
+			renderScale.set((float) renderWidth / width, (float) renderHeight / height);
+		}
+		else renderScale.set(1);
+	}
+
+	void cleanup()
+	{
+		geometryBuffer.cleanup();
+		if(shaderManager != null) shaderManager.cleanup();
+		if(objectLoader != null)
+		{
+			objectLoader.release(cone);
+			objectLoader.release(quad);
+			objectLoader.release(sphere);
+		}
+	}
+
+	void initialize(final ObjectLoader objectLoader) throws Exception
+	{
+		this.objectLoader = objectLoader;
+		shaderManager     = new ShaderManager(device, renderManager.getShaderCacheDirectory());
+		shaderManager.createVertexShader(objectLoader.loadResource("/shaders/deferred_light.vs"));
+		shaderManager.createFragmentShader(objectLoader.loadResource("/shaders/deferred_light.fs"));
+		shaderManager.link();
+		shaderManager.setAllowInactiveUniforms(true);
+		shaderManager.createUniform("ambientBuffer");
+		shaderManager.createUniform("diffuseBuffer");
+		shaderManager.createUniform("specularBuffer");
+		shaderManager.createUniform("normalBuffer");
+		shaderManager.createUniform("depthBuffer");
+		shaderManager.createUniform("inverseViewProjection");
+		shaderManager.createUniform("renderScale");
+		shaderManager.createUniform("volumeMatrix");
+		shaderManager.createUniform("lightType");
+		shaderManager.createUniform("lightColor");
+		shaderManager.createUniform("lightVector");
+		shaderManager.createUniform("lightIntensity");
+		shaderManager.createUniform("attenuation");
+		shaderManager.createUniform("coneDirection");
+		shaderManager.createUniform("cutoff");
+		shaderManager.createUniformBlock(FrameUniforms.FRAME_BLOCK, FrameUniforms.FRAME_BINDING);
+		shaderManager.createUniformBlock(FrameUniforms.LIGHT_BLOCK, FrameUniforms.LIGHT_BINDING);
+
+		quad   = objectLoader.loadModel(new float[]{-1, -1, 0, 1, -1, 0, 1, 1, 0, -1, 1, 0}, new float[8], new float[12], new int[]{0, 1, 2, 2, 3, 0});
+		sphere = createSphere();
+		cone   = createCone();
+	}
+
+	/**
+	 * Accumulates the lights of a scene into the same rectangle of a framebuffer the renderers drew into the G-buffer, reading the surfaces they
+	 * wrote. Leaves the depth, blending and culling state as it found it.
+	 *
+	 * @param scene
+	 * @param viewProjection - View projection matrix the G-buffer was drawn with
+	 * @param framebuffer    - Framebuffer to light into, 0 for the window's
+	 */
+	void render(final Scene scene, final Matrix4f viewProjection, final int framebuffer)
+	{
+		device.bindFramebuffer(framebuffer);
+		device.clear();
+		for(var i = 0; i < geometryBuffer.getTextureCount(); i++)
+		{
+			device.activeTexture(i);
+			device.bindTexture(geometryBuffer.getTexture(i));
+		}
+
+		shaderManager.bind();
+		shaderManager.setUniform("ambientBuffer", AMBIENT);
+		shaderManager.setUniform("diffuseBuffer", DIFFUSE);
+		shaderManager.setUniform("specularBuffer", SPECULAR);
+		shaderManager.setUniform("normalBuffer", NORMAL);
+		shaderManager.setUniform("depthBuffer", DEPTH);
+		shaderManager.setUniform("inverseViewProjection", viewProjection.invert(inverseViewProjection));
+		shaderManager.setUniform("renderScale", renderScale);
+
+		//Lights are added to each other, the depth of the surfaces is already in the G-buffer
+		device.setDepthTest(false);
+		device.setDepthMask(false);
+		device.setAdditiveBlending(true);
+		//Keeps the far side of volumes reaching past the far plane from being clipped
+		device.setDepthClamp(true);
+
+		//Fullscreen lights first, the quad faces the camera
+		renderManager.disableCulling();
+		bind(quad);
+		final var directionalLight = scene.getDirectionalLight();
+		if(directionalLight != null && directionalLight.getIntensity() > 0)
+		{
+			shaderManager.setUniform("lightType", DIRECTIONAL_LIGHT);
+			shaderManager.setUniform("lightColor", directionalLight.getColor());
+			shaderManager.setUniform("lightVector", directionalLight.getDirection());
+			shaderManager.setUniform("lightIntensity", directionalLight.getIntensity());
+			draw(quad, identity);
+		}
+		//Only the first lights of the scene's arrays up to the render manager's light limit are drawn
+		final var pointLights     = scene.getPointLights();
+		final var spotLights      = scene.getSpotLights();
+		final var pointLightCount = pointLights != null ? Math.min(pointLights.length, renderManager.getLightLimit()) : 0;
+		final var spotLightCount  = spotLights != null ? Math.min(spotLights.length, renderManager.getLightLimit()) : 0;
+		for(var i = 0; i < pointLightCount; i++)
+			if(pointLights[i].getIntensity() > 0 && range(pointLights[i]) == Float.POSITIVE_INFINITY) drawPointLight(pointLights[i], quad, identity);
+		for(var i = 0; i < spotLightCount; i++)
+			if(spotLights[i].getIntensity() > 0 && range(spotLights[i]) == Float.POSITIVE_INFINITY) drawSpotLight(spotLights[i], quad, identity);
+		unbind();
+
+		//Volumes are drawn by their back faces, which cover the lit pixels whether the camera is inside the volume or not
+		renderManager.enableCulling();
+		device.cullFace(GL11.GL_FRONT);
+		if(pointLightCount > 0)
+		{
+			bind(sphere);
+			for(var i = 0; i < pointLightCount; i++)
+			{
+				final var pointLight = pointLights[i];
+				final var range      = range(pointLight);
+				if(pointLight.getIntensity() > 0 && range > 0 && range < Float.POSITIVE_INFINITY)
+					drawPointLight(pointLight, sphere, sphereMatrix(viewProjection, pointLight, range));
+			}
+			unbind();
+		}
+		if(spotLightCount > 0)
+		{
+			//Wide spot lights share the sphere, the others are drawn after them with the cone
+			bind(sphere);
+			for(var i = 0; i < spotLightCount; i++)
+			{
+				final var spotLight = spotLights[i];
+				final var range     = range(spotLight);
+				if(spotLight.getIntensity() > 0 && range > 0 && range < Float.POSITIVE_INFINITY && spotLight.getCutoff() < MIN_CONE_CUTOFF)
+					drawSpotLight(spotLight, sphere, sphereMatrix(viewProjection, spotLight, range));
+			}
+			unbind();
+			bind(cone);
+			for(var i = 0; i < spotLightCount; i++)
+			{
+				final var spotLight = spotLights[i];
+				final var range     = range(spotLight);
+				if(spotLight.getIntensity() > 0 && range > 0 && range < Float.POSITIVE_INFINITY && spotLight.getCutoff() >= MIN_CONE_CUTOFF)
+					drawSpotLight(spotLight, cone, coneMatrix(viewProjection, spotLight, range));
+			}
+			unbind();
+		}
+		device.cullFace(GL11.GL_BACK);
+
+		shaderManager.unbind();
+		device.setDepthClamp(false);
+		device.setAdditiveBlending(false);
+		device.setDepthMask(true);
+		device.setDepthTest(true);
+	}
+
+	private void bind(final Model model)
+	{
+		device.bindVertexArray(model.getId());
+		device.enableVertexAttribArray(0);
+		objectLoader.touch(model);
+	}
+
+	/**
+	 * Returns the transformation of the cone volume of a spot light: the apex at the light, the base a range along its cone direction.
+	 */
+	private Matrix4f coneMatrix(final Matrix4f viewProjection, final SpotLight spotLight, final float range)
+	{
+		final var cutoff    = spotLight.getCutoff();
+		final var radius    = range * (float) Math.sqrt(1 - cutoff * cutoff) / cutoff * CONE_SCALE;
+		final var direction = vector.set(spotLight.getConeDirection()).normalize();
+		//Any up vector not parallel to the cone direction does
+		final var upX = Math.abs(direction.y) > 0.99f ? 1 : 0;
+		return volumeMatrix.set(viewProjection).translate(spotLight.getPosition()).rotateTowards(direction.x, direction.y, direction.z, upX, 1 - upX, 0)
+				.scale(radius, radius, range);
+	}
+
+	/**
+	 * Creates a cone with its apex at the origin and a base of radius one at z = 1.
+	 */
+	private Model createCone()
+	{
+		final var vertices = new float[(CONE_SEGMENTS + 2) * 3];
+		final var indices  = new int[CONE_SEGMENTS * 6];
+		vertices[CONE_SEGMENTS * 3 + 5] = 1;
+		for(var i = 0; i < CONE_SEGMENTS; i++)
+		{
+			final var angle = 2 * Math.PI * i / CONE_SEGMENTS;
+			vertices[i * 3]     = (float) Math.cos(angle);
+			vertices[i * 3 + 1] = (float) Math.sin(angle);
+			vertices[i * 3 + 2] = 1;
+
+			final var next = (i + 1) % CONE_SEGMENTS;
+			//Side from the apex, base around its center
+			putTriangle(indices, i * 6, CONE_SEGMENTS, next, i);
+			putTriangle(indices, i * 6 + 3, CONE_SEGMENTS + 1, i, next);
+		}
+		return objectLoader.loadModel(vertices, new float[(CONE_SEGMENTS + 2) * 2], new float[vertices.length], indices);
+	}
+
+	/**
+	 * Creates a sphere of radius one around the origin from stacks of quads between the poles.
+	 */
+	private Model createSphere()
+	{
+		final var rings    = SPHERE_STACKS - 1;
+		final var vertices = new float[(rings * SPHERE_SLICES + 2) * 3];
+		final var indices  = new int[SPHERE_SLICES * (rings - 1) * 6 + SPHERE_SLICES * 6];
+		final var bottom   = rings * SPHERE_SLICES + 1;
+		vertices[1]              = 1;
+		vertices[bottom * 3 + 1] = -1;
+		for(var ring = 0; ring < rings; ring++)
+		{
+			final var polar = Math.PI * (ring + 1) / SPHERE_STACKS;
+			for(var slice = 0; slice < SPHERE_SLICES; slice++)
+			{
+				final var azimuth = 2 * Math.PI * slice / SPHERE_SLICES;
+				final var vertex  = (1 + ring * SPHERE_SLICES + slice) * 3;
+				vertices[vertex]     = (float) (Math.sin(polar) * Math.cos(azimuth));
+				vertices[vertex + 1] = (float) Math.cos(polar);
+				vertices[vertex + 2] = (float) (Math.sin(polar) * Math.sin(azimuth));
+			}
+		}
+
+		var index = 0;
+		for(var slice = 0; slice < SPHERE_SLICES; slice++)
+		{
+			final var next = (slice + 1) % SPHERE_SLICES;
+			putTriangle(indices, index, 0, 1 + next, 1 + slice);
+			putTriangle(indices, index + 3, bottom, 1 + (rings - 1) * SPHERE_SLICES + slice, 1 + (rings - 1) * SPHERE_SLICES + next);
+			index += 6;
+			for(var ring = 0; ring < rings - 1; ring++)
+			{
+				final var upper = 1 + ring * SPHERE_SLICES;
+				final var lower = upper + SPHERE_SLICES;
+				putTriangle(indices, index, upper + slice, upper + next, lower + next);
+				putTriangle(indices, index + 3, upper + slice, lower + next, lower + slice);
+				index += 6;
+			}
+		}
+		return objectLoader.loadModel(vertices, new float[(rings * SPHERE_SLICES + 2) * 2], new float[vertices.length], indices);
+	}
+
+	private void draw(final Model model, final Matrix4f matrix)
+	{
+		shaderManager.setUniform("volumeMatrix", matrix);
+		device.drawTriangles(model.getVertexCount());
+		drawCalls.increment();
+		triangles.add(model.getVertexCount() / 3);
+	}
+
+	private void drawPointLight(final PointLight pointLight, final Model volume, final Matrix4f matrix)
+	{
+		shaderManager.setUniform("lightType", POINT_LIGHT);
+		setPointLightUniforms(pointLight);
+		draw(volume, matrix);
+	}
+
+	private void drawSpotLight(final SpotLight spotLight, final Model volume, final Matrix4f matrix)
+	{
+		shaderManager.setUniform("lightType", SPOT_LIGHT);
+		setPointLightUniforms(spotLight);
+		shaderManager.setUniform("coneDirection", spotLight.getConeDirection());
+		shaderManager.setUniform("cutoff", spotLight.getCutoff());
+		draw(volume, matrix);
+	}
+
+	private void putTriangle(final int[] indices, final int index, final int a, final int b, final int c)
+	{
+		indices[index]     = a;
+		indices[index + 1] = b;
+		indices[index + 2] = c;
+	}
+
+	/**
+	 * Returns the distance at which a light's attenuation brings its contribution below {@link #MIN_CONTRIBUTION}, infinite if it never does.
+	 */
+	private float range(final PointLight pointLight)
+	{
+		final var color     = pointLight.getColor();
+		final var threshold = pointLight.getIntensity() * Math.max(color.x, Math.max(color.y, color.z)) / MIN_CONTRIBUTION;
+		final var constant  = pointLight.getConstant();
+		final var linear    = pointLight.getLinear();
+		final var exponent  = pointLight.getExponent();
+		if(constant >= threshold) return 0;
+		if(exponent > 0) return (float) ((-linear + Math.sqrt(linear * linear + 4 * exponent * (threshold - constant))) / (2 * exponent));
+		if(linear > 0) return (threshold - constant) / linear;
+		return Float.POSITIVE_INFINITY;
+	}
+
+	private void setPointLightUniforms(final PointLight pointLight)
+	{
+		shaderManager.setUniform("lightColor", pointLight.getColor());
+		shaderManager.setUniform("lightVector", pointLight.getPosition());
+		shaderManager.setUniform("lightIntensity", pointLight.getIntensity());
+		shaderManager.setUniform("attenuation", vector.set(pointLight.getConstant(), pointLight.getLinear(), pointLight.getExponent()));
+	}
+
+	private Matrix4f sphereMatrix(final Matrix4f viewProjection, final PointLight pointLight, final float range)
+	{
+		return volumeMatrix.set(viewProjection).translate(pointLight.getPosition()).scale(range * SPHERE_SCALE);
+	}
+
+	private void unbind()
+	{
+		device.disableVertexAttribArray(0);
+		device.bindVertexArray(0);
+	}
+}
@@ -1,120 +1,297 @@
 package core.rendering;
 
-import java.util.HashMap;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.function.IntConsumer;
 
 import org.joml.Matrix4f;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
 import core.DragonEngine;
+import core.GraphicsDevice;
+import core.Metrics;
+import core.Metrics.Counter;
 import core.ObjectLoader;
 import core.entity.Entity;
+import core.entity.EntityStore;
 import core.entity.Model;
-import core.entity.SceneManager;
+import core.entity.Scene;
 
-class EntityRenderer implements IRenderer<Entity>
+class EntityRenderer implements IRenderer<Entity>, CommandBuffer.Executor
 {
-	private final Map<Model, List<Entity>> entities;
-	private final RenderManager            renderManager;
-	private final ShaderManager            shaderManager;
+	private static final int SLICE_SIZE = 256;
+
+	private final List<CommandBuffer>   commandBuffers;
+	private final Counter               drawCalls, entitiesProcessed, stateChanges, texturesBound, triangles;
+	private final ThreadLocal<Matrix4f> matrices;
+	private final IntConsumer           recordSlice;
+	private final RenderManager         renderManager;
+
+	private int                boundKey, boundMaterial, boundModel;
+	private GraphicsDevice     device;
+	private int                drawCount;
+	private int[]              drawIndices = new int[SLICE_SIZE];
+	private int[]              drawModels  = new int[SLICE_SIZE];
+	private EntityStore        entityStore;
+	private int[]              modelKeys   = new int[SLICE_SIZE];
+	private int[]              modelStarts = new int[SLICE_SIZE];
+	private ObjectLoader       objectLoader;
+	private ShaderManager      shaderManager;
+	private ShaderPermutations shaders;
+	private int                sliceCount;
 
 	public EntityRenderer(final RenderManager renderManager) throws Exception
 	{
-		entities           = new HashMap<>();
-		shaderManager      = new ShaderManager();
+		commandBuffers     = new ArrayList<>();
+		matrices           = ThreadLocal.withInitial(Matrix4f::new);
+		recordSlice        = this::record;
 		this.renderManager = renderManager;
+
+		final var metrics = DragonEngine.getMetrics();
+		drawCalls         = metrics.counter(Metrics.DRAW_CALLS);
+		entitiesProcessed = metrics.counter(Metrics.ENTITIES_PROCESSED);
+		stateChanges      = metrics.counter(Metrics.STATE_CHANGES);
+		texturesBound     = metrics.counter(Metrics.TEXTURES_BOUND);
+		triangles         = metrics.counter(Metrics.TRIANGLES);
 	}
 
 	@Override
 	public void bind(final Model model)
 	{
-		GL30.glBindVertexArray(model.getId());
-		GL20.glEnableVertexAttribArray(0);
-		GL20.glEnableVertexAttribArray(1);
-		GL20.glEnableVertexAttribArray(2);
+		device.bindVertexArray(model.getId());
+		device.enableVertexAttribArray(0);
+		device.enableVertexAttribArray(1);
+		device.enableVertexAttribArray(2);
+		objectLoader.touch(model);
+		stateChanges.increment();
 
 		if(model.getMaterial().isDisableCulling()) renderManager.disableCulling();
 		else renderManager.enableCulling();
 
-		shaderManager.setUniform("material", model.getMaterial());
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getId());
+		//Models sharing a material share its index, which only changes with the material
+		final var material = model.getMaterial().getId();
+		if(material != boundMaterial)
+		{
+			shaderManager.setUniform("materialIndex", material);
+			boundMaterial = material;
+		}
+		device.activeTexture(0);
+		device.bindTexture(model.getTexture().getId());
+		texturesBound.increment();
+	}
+
+	@Override
+	public void bindModel(final int model)
+	{
+		if(model == boundModel) return;
+
+		if(boundModel >= 0) unbind();
+		bind(entityStore.getModelById(model));
+		boundModel = model;
+	}
+
+	/**
+	 * Binds a shader variant. The camera, lights and materials come from the frame's uniform blocks, only the sampler is set on the program.
+	 */
+	@Override
+	public void bindShader(final int key)
+	{
+		if(key == boundKey) return;
+
+		if(boundModel >= 0) unbind();
+		boundMaterial = -1;
+		boundModel    = -1;
+		boundKey      = key;
+		shaderManager = shaders.get(key);
+		shaderManager.bind();
+		shaderManager.setUniform("textureSampler", 0);
 	}
 
 	@Override
 	public void cleanup()
 	{
-		shaderManager.cleanup();
+		shaders.cleanup();
+		for(final CommandBuffer commandBuffer: commandBuffers)
+			commandBuffer.free();
+		commandBuffers.clear();
 	}
 
-	public Map<Model, List<Entity>> getEntities()
+	@Override
+	public void draw(final int vertexCount, final FloatBuffer transformations, final int offset)
 	{
-		return entities;
+		shaderManager.setUniform("transformationMatrix", transformations, offset);
+		device.drawTriangles(vertexCount);
+		drawCalls.increment();
+		triangles.add(vertexCount / 3);
 	}
 
 	@Override
 	public void initialize(final ObjectLoader objectLoader) throws Exception
 	{
-		shaderManager.createVertexShader(objectLoader.loadResource("/shaders/entity_vertex.vs"));
-		shaderManager.createFragmentShader(objectLoader.loadResource("/shaders/entity_fragment.fs"));
-		shaderManager.link();
-		shaderManager.createUniform("textureSampler");
-		shaderManager.createUniform("transformationMatrix");
-		shaderManager.createUniform("projectionMatrix");
-		shaderManager.createUniform("viewMatrix");
-		shaderManager.createUniform("ambientLight");
-		shaderManager.createMaterialUniform("material");
-		shaderManager.createUniform("specularPower");
-		shaderManager.createDirectionalLightUniform("directionalLight");
-		shaderManager.createPointLightListUniform("pointLights", MAX_POINT_LIGHTS);
-		shaderManager.createSpotLightListUniform("spotLights", MAX_SPOT_LIGHTS);
+		//The deferred pipeline writes the surfaces into the G-buffer instead of lighting them
+		final var fragmentShader = renderManager.getPipeline() == RenderManager.Pipeline.DEFERRED ? "/shaders/entity_gbuffer.fs" : "/shaders/entity_fragment.fs";
+
+		this.objectLoader = objectLoader;
+		device            = renderManager.getGraphicsDevice();
+		shaders           = new ShaderPermutations(renderManager.getGraphicsDevice(), renderManager.getShaderCacheDirectory(), objectLoader.loadResource("/shaders/entity_vertex.vs"),
+				objectLoader.loadResource(fragmentShader), (shaderManager, pointLights, spotLights)->
+				{
+					shaderManager.createUniform("textureSampler");
+					shaderManager.createUniform("transformationMatrix");
+					shaderManager.createUniform("materialIndex");
+					shaderManager.createUniformBlock(FrameUniforms.FRAME_BLOCK, FrameUniforms.FRAME_BINDING);
+					shaderManager.createUniformBlock(FrameUniforms.LIGHT_BLOCK, FrameUniforms.LIGHT_BINDING);
+					shaderManager.createUniformBlock(MaterialTable.BLOCK, MaterialTable.BINDING);
+				});
 	}
 
+	/**
+	 * Uploads the transformation matrix of a single entity. The bound shader variant must already have its shared uniforms set.
+	 */
 	@Override
 	public void prepare(final Entity entity)
 	{
-		shaderManager.setUniform("textureSampler", 0);
-		shaderManager.setUniform("transformationMatrix", createTransformationMatrix(entity));
-		shaderManager.setUniform("viewMatrix", renderManager.getCamera().getViewMatrix());
+		shaderManager.setUniform("transformationMatrix", createTransformationMatrix(entity, matrices.get()));
 	}
 
+	/**
+	 * Records the queued entities into command buffers in parallel on the job system, which the render thread then replays in order.
+	 */
 	@Override
-	public void render(final SceneManager sceneManager)
+	public void render(final Scene scene)
 	{
-		shaderManager.bind();
-		shaderManager.setUniform("projectionMatrix", DragonEngine.getWindowProjectionMatrix());
-		renderManager.renderLights(sceneManager, shaderManager);
-		for(final Model model: entities.keySet())
+		entitiesProcessed.add(drawCount);
+		record();
+		replay();
+		drawCount   = 0;
+		entityStore = null;
+	}
+
+	@Override
+	public void unbind()
+	{
+		device.disableVertexAttribArray(0);
+		device.disableVertexAttribArray(1);
+		device.disableVertexAttribArray(2);
+		device.bindVertexArray(0);
+	}
+
+	/**
+	 * Queues the visible entities of a scene for the next render. Models are grouped by the cheapest shader variant that covers the scene's lights
+	 * and their material, and the entities are laid out in draw order by a counting sort on their model. Entities whose model is still being
+	 * loaded asynchronously are skipped.
+	 *
+	 * @param scene
+	 * @param visible - Visibility per dense index of the scene's entity store
+	 */
+	void queue(final Scene scene, final boolean[] visible)
+	{
+		entityStore = scene.getEntityStore();
+		final var pointLights = renderManager.getPointLightCount(scene);
+		final var spotLights  = renderManager.getSpotLightCount(scene);
+		final var modelCount  = entityStore.getModelCount();
+		final var size        = entityStore.size();
+		if(modelKeys.length < modelCount)
+		{
+			modelKeys   = new int[modelCount * 2];
+			modelStarts = new int[modelCount * 2];
+		}
+		if(drawIndices.length < size)
+		{
+			drawIndices = new int[size * 2];
+			drawModels  = new int[size * 2];
+		}
+
+		for(var model = 0; model < modelCount; model++)
+		{
+			final var material = entityStore.getModelById(model).getMaterial();
+			modelKeys[model]   = entityStore.getModelById(model).getVertexCount() == 0 ? -1
+					: ShaderPermutations.key(pointLights, spotLights, material.hasTexture(), material.getReflectance() > 0);
+			modelStarts[model] = 0;
+		}
+
+		//Count the visible entities of every model, then turn the counts into start offsets with the models ordered by shader variant
+		for(var i = 0; i < size; i++)
+			if(visible[i]) modelStarts[entityStore.getModelId(i)]++;
+		drawCount = 0;
+		for(var key = 0; key < ShaderPermutations.VARIANT_COUNT; key++)
+			for(var model = 0; model < modelCount; model++)
+				if(modelKeys[model] == key)
+				{
+					final var count = modelStarts[model];
+					modelStarts[model]  = drawCount;
+					drawCount          += count;
+				}
+
+		for(var i = 0; i < size; i++)
+		{
+			if(!visible[i]) continue;
+
+			final var model = entityStore.getModelId(i);
+			if(modelKeys[model] < 0) continue;
+
+			final var position = modelStarts[model]++;
+			drawIndices[position] = i;
+			drawModels[position]  = model;
+		}
+	}
+
+	/**
+	 * Records the draw list into command buffers, one per slice of consecutive entities. Slices are recorded on the job system if the render
+	 * manager has one.
+	 */
+	private void record()
+	{
+		sliceCount = (drawCount + SLICE_SIZE - 1) / SLICE_SIZE;
+		while(commandBuffers.size() < sliceCount)
+			commandBuffers.add(new CommandBuffer());
+
+		final var jobSystem = renderManager.getJobSystem();
+		if(jobSystem != null) jobSystem.parallelFor(sliceCount, 1, recordSlice);
+		else for(var slice = 0; slice < sliceCount; slice++)
+			record(slice);
+	}
+
+	/**
+	 * Records a slice of the draw list. Every slice starts by binding its shader variant and model so it can be recorded independently, replay
+	 * skips the binds that do not change anything.
+	 */
+	private void record(final int slice)
+	{
+		final var commandBuffer = commandBuffers.get(slice);
+		final var end           = Math.min(drawCount, (slice + 1) * SLICE_SIZE);
+		var       key           = -1;
+		var       model         = -1;
+		var       vertexCount   = 0;
+		commandBuffer.clear();
+		for(var i = slice * SLICE_SIZE; i < end; i++)
 		{
-			bind(model);
-			final var entityList = entities.get(model);
-			for(final Entity entity: entityList)
+			if(modelKeys[drawModels[i]] != key) commandBuffer.bindShader(key = modelKeys[drawModels[i]]);
+			if(drawModels[i] != model)
 			{
-				prepare(entity);
-				GL11.glDrawElements(GL11.GL_TRIANGLES, entity.getModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+				commandBuffer.bindModel(model = drawModels[i]);
+				vertexCount = entityStore.getModelById(model).getVertexCount();
 			}
-			unbind();
+			commandBuffer.draw(vertexCount, entityStore, drawIndices[i]);
 		}
-		entities.clear();
-		shaderManager.unbind();
 	}
 
-	@Override
-	public void unbind()
+	/**
+	 * Replays the recorded command buffers in order on the render thread.
+	 */
+	private void replay()
 	{
-		GL20.glDisableVertexAttribArray(0);
-		GL20.glDisableVertexAttribArray(1);
-		GL20.glDisableVertexAttribArray(2);
-		GL30.glBindVertexArray(0);
+		boundKey   = -1;
+		boundModel = -1;
+		for(var slice = 0; slice < sliceCount; slice++)
+			commandBuffers.get(slice).replay(this);
+
+		if(boundModel >= 0) unbind();
+		if(boundKey >= 0) shaderManager.unbind();
 	}
 
-	private Matrix4f createTransformationMatrix(final Entity entity)
+	Matrix4f createTransformationMatrix(final Entity entity, final Matrix4f matrix)
 	{
-		final var matrix = new Matrix4f();
 		matrix.identity().translate(entity.getPos()).rotateX((float) Math.toRadians(entity.getRotation().x)).rotateY((float) Math.toRadians(entity.getRotation().y))
 				.rotateZ((float) Math.toRadians(entity.getRotation().z)).scale(entity.getScale());
 		return matrix;
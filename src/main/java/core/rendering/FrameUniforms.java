@@ -0,0 +1,139 @@
+package core.rendering;
+
+import java.nio.ByteBuffer;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+import core.DragonEngine;
+import core.GraphicsDevice;
+import core.Metrics;
+import core.Metrics.Counter;
+import core.entity.Scene;
+import core.lighting.PointLight;
+
+/**
+ * The std140 uniform blocks shared by every shader program. FrameData holds the projection and view matrices and the camera position, LightData
+ * the ambient light, specular power and the scene's lights. Both blocks are written into direct staging buffers once per frame and uploaded with
+ * one buffer update each, the programs read them through fixed binding points instead of having the uniforms set on every program.
+ */
+final class FrameUniforms
+{
+	static final String FRAME_BLOCK   = "FrameData";
+	static final int    FRAME_BINDING = 0;
+	static final String LIGHT_BLOCK   = "LightData";
+	static final int    LIGHT_BINDING = 1;
+
+	//std140 layout of FrameData, matrices are four vec4 columns
+	private static final int PROJECTION_OFFSET      = 0;
+	private static final int VIEW_OFFSET            = 64;
+	private static final int CAMERA_POSITION_OFFSET = 128;
+	private static final int FRAME_SIZE             = 144;
+
+	//std140 layout of LightData, structs and array elements are aligned and padded to vec4
+	private static final int AMBIENT_LIGHT_OFFSET     = 0;
+	private static final int SPECULAR_POWER_OFFSET    = 12;
+	private static final int DIRECTIONAL_LIGHT_OFFSET = 16;
+	private static final int POINT_LIGHTS_OFFSET      = 48;
+	private static final int POINT_LIGHT_SIZE         = 48;
+	private static final int SPOT_LIGHTS_OFFSET       = POINT_LIGHTS_OFFSET + IRenderer.MAX_POINT_LIGHTS * POINT_LIGHT_SIZE;
+	private static final int SPOT_LIGHT_SIZE          = 64;
+	private static final int LIGHT_SIZE               = SPOT_LIGHTS_OFFSET + IRenderer.MAX_SPOT_LIGHTS * SPOT_LIGHT_SIZE;
+
+	private final GraphicsDevice device;
+	private final ByteBuffer     frameData, lightData;
+	private final int            frameBuffer, lightBuffer;
+	private final Counter        uniformUploads;
+
+	FrameUniforms(final GraphicsDevice device)
+	{
+		this.device    = device;
+		frameData      = MemoryUtil.memCalloc(FRAME_SIZE);
+		lightData      = MemoryUtil.memCalloc(LIGHT_SIZE);
+		frameBuffer    = createBuffer(FRAME_SIZE);
+		lightBuffer    = createBuffer(LIGHT_SIZE);
+		uniformUploads = DragonEngine.getMetrics().counter(Metrics.UNIFORM_UPLOADS);
+	}
+
+	void cleanup()
+	{
+		device.deleteBuffer(frameBuffer);
+		device.deleteBuffer(lightBuffer);
+		MemoryUtil.memFree(frameData);
+		MemoryUtil.memFree(lightData);
+	}
+
+	/**
+	 * Writes the camera and lights of a frame into the blocks, uploads them and binds them to their binding points.
+	 *
+	 * @param projectionMatrix
+	 * @param camera
+	 * @param scene
+	 * @param specularPower
+	 * @param pointLights      - Number of point lights to upload
+	 * @param spotLights       - Number of spot lights to upload
+	 */
+	void update(final Matrix4f projectionMatrix, final Camera camera, final Scene scene, final float specularPower, final int pointLights,
+			final int spotLights)
+	{
+		projectionMatrix.get(PROJECTION_OFFSET, frameData);
+		camera.getViewMatrix().get(VIEW_OFFSET, frameData);
+		camera.getPosition().get(CAMERA_POSITION_OFFSET, frameData);
+
+		scene.getAmbientLight().get(AMBIENT_LIGHT_OFFSET, lightData);
+		lightData.putFloat(SPECULAR_POWER_OFFSET, specularPower);
+		final var directionalLight = scene.getDirectionalLight();
+		putLight(DIRECTIONAL_LIGHT_OFFSET, directionalLight.getColor(), directionalLight.getDirection(), directionalLight.getIntensity());
+		final var scenePointLights = scene.getPointLights();
+		for(var i = 0; i < pointLights; i++)
+			putPointLight(POINT_LIGHTS_OFFSET + i * POINT_LIGHT_SIZE, scenePointLights[i]);
+		final var sceneSpotLights = scene.getSpotLights();
+		for(var i = 0; i < spotLights; i++)
+		{
+			final var offset = SPOT_LIGHTS_OFFSET + i * SPOT_LIGHT_SIZE;
+			putPointLight(offset, sceneSpotLights[i]);
+			sceneSpotLights[i].getConeDirection().get(offset + POINT_LIGHT_SIZE, lightData);
+			lightData.putFloat(offset + POINT_LIGHT_SIZE + 12, sceneSpotLights[i].getCutoff());
+		}
+
+		upload(frameBuffer, FRAME_BINDING, frameData);
+		upload(lightBuffer, LIGHT_BINDING, lightData);
+	}
+
+	private int createBuffer(final int size)
+	{
+		final var buffer = device.createBuffer();
+		device.bindBuffer(GL31.GL_UNIFORM_BUFFER, buffer);
+		device.bufferData(GL31.GL_UNIFORM_BUFFER, size);
+		device.bindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+		return buffer;
+	}
+
+	/**
+	 * Writes the members shared by every light: a color, a vec3 packed with the intensity into the next vec4 slot.
+	 */
+	private void putLight(final int offset, final Vector3f color, final Vector3f vector, final float intensity)
+	{
+		color.get(offset, lightData);
+		vector.get(offset + 16, lightData);
+		lightData.putFloat(offset + 28, intensity);
+	}
+
+	private void putPointLight(final int offset, final PointLight pointLight)
+	{
+		putLight(offset, pointLight.getColor(), pointLight.getPosition(), pointLight.getIntensity());
+		lightData.putFloat(offset + 32, pointLight.getConstant());
+		lightData.putFloat(offset + 36, pointLight.getLinear());
+		lightData.putFloat(offset + 40, pointLight.getExponent());
+	}
+
+	private void upload(final int buffer, final int binding, final ByteBuffer data)
+	{
+		device.bindBuffer(GL31.GL_UNIFORM_BUFFER, buffer);
+		device.bufferSubData(GL31.GL_UNIFORM_BUFFER, 0, data);
+		device.bindBufferBase(GL31.GL_UNIFORM_BUFFER, binding, buffer);
+		uniformUploads.increment();
+	}
+}
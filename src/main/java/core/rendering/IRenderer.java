@@ -2,7 +2,7 @@ package core.rendering;
 
 import core.ObjectLoader;
 import core.entity.Model;
-import core.entity.SceneManager;
+import core.entity.Scene;
 
 public interface IRenderer<T>
 {
@@ -17,7 +17,7 @@ public interface IRenderer<T>
 
 	void prepare(T t);
 
-	void render(final SceneManager sceneManager);
+	void render(final Scene scene);
 
 	void unbind();
 }
\ No newline at end of file
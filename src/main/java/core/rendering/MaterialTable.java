@@ -0,0 +1,105 @@
+package core.rendering;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+import core.DragonEngine;
+import core.GraphicsDevice;
+import core.Metrics;
+import core.Metrics.Counter;
+import core.entity.Material;
+import core.entity.MaterialRegistry;
+
+/**
+ * The GPU copy of the {@link MaterialRegistry}: a std140 uniform block holding every interned material, indexed by material id. Shaders look the
+ * material of a draw up by its index, so binding a model uploads one integer instead of the material. Materials never change once registered,
+ * an update only writes the ids registered since the previous one, new ones as well as ids reused after their material was collected.
+ */
+final class MaterialTable
+{
+	static final String BLOCK   = "MaterialData";
+	static final int    BINDING = 2;
+
+	/**
+	 * Number of materials the table holds, must match MAX_MATERIALS in the shaders. Keeps the block within the 16KB every driver supports.
+	 */
+	static final int CAPACITY = MaterialRegistry.CAPACITY;
+
+	//std140 layout of a Material, the ints and floats after the colors are padded to a whole vec4
+	private static final int AMBIENT_OFFSET     = 0;
+	private static final int DIFFUSE_OFFSET     = 16;
+	private static final int SPECULAR_OFFSET    = 32;
+	private static final int HAS_TEXTURE_OFFSET = 48;
+	private static final int REFLECTANCE_OFFSET = 52;
+	private static final int MATERIAL_SIZE      = 64;
+
+	private final int            buffer;
+	private final ByteBuffer     data;
+	private final GraphicsDevice device;
+	private final Counter        uniformUploads;
+
+	private int uploadedGeneration;
+
+	MaterialTable(final GraphicsDevice device)
+	{
+		this.device    = device;
+		data           = MemoryUtil.memCalloc(CAPACITY * MATERIAL_SIZE);
+		buffer         = device.createBuffer();
+		uniformUploads = DragonEngine.getMetrics().counter(Metrics.UNIFORM_UPLOADS);
+		device.bindBuffer(GL31.GL_UNIFORM_BUFFER, buffer);
+		device.bufferData(GL31.GL_UNIFORM_BUFFER, CAPACITY * MATERIAL_SIZE);
+		device.bindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+	}
+
+	void cleanup()
+	{
+		device.deleteBuffer(buffer);
+		MemoryUtil.memFree(data);
+	}
+
+	/**
+	 * Uploads the materials registered since the last update and binds the table to its binding point.
+	 */
+	void update()
+	{
+		final var generation = MaterialRegistry.getGeneration();
+		if(generation != uploadedGeneration)
+		{
+			//One upload covering every changed id, ids in between that did not change are written again unchanged
+			final var size  = MaterialRegistry.size();
+			var       first = CAPACITY;
+			var       last  = -1;
+			for(var id = 0; id < size; id++)
+			{
+				if(MaterialRegistry.getGeneration(id) <= uploadedGeneration) continue;
+
+				final var material = MaterialRegistry.get(id);
+				if(material == null) continue;
+				put(id * MATERIAL_SIZE, material);
+				first = Math.min(first, id);
+				last  = id;
+			}
+
+			if(last >= first)
+			{
+				device.bindBuffer(GL31.GL_UNIFORM_BUFFER, buffer);
+				device.bufferSubData(GL31.GL_UNIFORM_BUFFER, first * MATERIAL_SIZE, data.limit((last + 1) * MATERIAL_SIZE).position(first * MATERIAL_SIZE));
+				data.clear();
+				uniformUploads.increment();
+			}
+			uploadedGeneration = generation;
+		}
+		device.bindBufferBase(GL31.GL_UNIFORM_BUFFER, BINDING, buffer);
+	}
+
+	private void put(final int offset, final Material material)
+	{
+		material.getAmbientColor().get(offset + AMBIENT_OFFSET, data);
+		material.getDiffuseColor().get(offset + DIFFUSE_OFFSET, data);
+		material.getSpecularColor().get(offset + SPECULAR_OFFSET, data);
+		data.putInt(offset + HAS_TEXTURE_OFFSET, material.hasTexture() ? 1 : 0);
+		data.putFloat(offset + REFLECTANCE_OFFSET, material.getReflectance());
+	}
+}
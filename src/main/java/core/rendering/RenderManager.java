@@ -1,28 +1,72 @@
 package core.rendering;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.function.IntConsumer;
 
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
 import org.lwjgl.opengl.GL11;
 
+import core.DragonEngine;
+import core.GraphicsDevice;
+import core.JobSystem;
+import core.Metrics;
+import core.Metrics.Counter;
 import core.ObjectLoader;
-import core.entity.Entity;
-import core.entity.SceneManager;
+import core.entity.EntityStore;
+import core.entity.Scene;
 
 public class RenderManager
 {
-	private static final float SPECULAR_POWER = 10f;
+	/**
+	 * How scenes are lit. Forward shading lights every fragment with the scene's first {@link IRenderer#MAX_POINT_LIGHTS} point and
+	 * {@link IRenderer#MAX_SPOT_LIGHTS} spot lights while it is drawn. Deferred shading draws the surfaces into a G-buffer first and then draws
+	 * every light as a light volume, for scenes with many lights.
+	 */
+	public enum Pipeline
+	{
+		FORWARD, DEFERRED
+	}
+
+	private static final float SPECULAR_POWER       = 10f;
+	private static final int   TRANSFORMATION_GRAIN = 1024;
 
 	private static volatile RenderManager instance;
 
-	private Camera          camera;
-	private EntityRenderer  entityRenderer;
-	private TerrainRenderer terrainRenderer;
+	private final Counter     stateChanges = DragonEngine.getMetrics().counter(Metrics.STATE_CHANGES);
+	private final IntConsumer transformChunk;
+
+	private final Vector3f cameraDirection  = new Vector3f();
+	private final float[]  frustumPlanes    = new float[24];
+	private final Vector4f planeEquation    = new Vector4f();
+	private final Matrix4f projectionMatrix = new Matrix4f();
+	private final Matrix4f viewProjection   = new Matrix4f();
+
+	private Camera           camera;
+	private DeferredLighting deferredLighting;
+	private GraphicsDevice   device;
+	private float            drawDistance = Float.POSITIVE_INFINITY;
+	private EntityRenderer   entityRenderer;
+	private FrameUniforms    frameUniforms;
+	private JobSystem        jobSystem;
+	private int              lightLimit   = Integer.MAX_VALUE;
+	private MaterialTable    materialTable;
+	private Pipeline         pipeline     = Pipeline.FORWARD;
+	private float            renderScale  = 1;
+	private RenderTarget     sceneTarget;
+	private Path             shaderCacheDirectory;
+	private TerrainRenderer  terrainRenderer;
+	private EntityStore      transformedStore;
+	private int              viewportHeight, viewportWidth;
+	private boolean[]        visible      = new boolean[0];
 
 	private boolean isCulling = false;
 
 	private RenderManager()
-	{}
+	{
+		transformChunk = this::transformChunk;
+	}
 
 	/**
 	 * Returns an instance of the render manager.
@@ -43,19 +87,26 @@ public class RenderManager
 	{
 		entityRenderer.cleanup();
 		terrainRenderer.cleanup();
+		if(frameUniforms != null) frameUniforms.cleanup();
+		if(materialTable != null) materialTable.cleanup();
+		if(deferredLighting != null) deferredLighting.cleanup();
+		if(sceneTarget != null) sceneTarget.cleanup();
+		//Created on the device of the next initialization
+		sceneTarget = null;
 	}
 
 	public void clear()
 	{
-		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+		device.clear();
 	}
 
 	public void disableCulling()
 	{
 		if(isCulling)
 		{
-			GL11.glDisable(GL11.GL_CULL_FACE);
+			device.setCulling(false);
 			isCulling = false;
+			stateChanges.increment();
 		}
 	}
 
@@ -63,9 +114,9 @@ public class RenderManager
 	{
 		if(!isCulling)
 		{
-			GL11.glEnable(GL11.GL_CULL_FACE);
-			GL11.glCullFace(GL11.GL_BACK);
+			device.setCulling(true);
 			isCulling = true;
+			stateChanges.increment();
 		}
 	}
 
@@ -74,57 +125,372 @@ public class RenderManager
 		return camera;
 	}
 
-	public void initialize(final ObjectLoader objectLoader) throws Exception
+	/**
+	 * Returns the distance from the camera beyond which entities are culled.
+	 *
+	 * @return float - Draw distance, infinite if only the far plane culls
+	 */
+	public float getDrawDistance()
 	{
-		if(camera == null) camera = new Camera();
-		entityRenderer  = new EntityRenderer(this);
-		terrainRenderer = new TerrainRenderer(this);
+		return drawDistance;
+	}
+
+	/**
+	 * Returns the graphics device the renderers submit to, the object loader's device once initialized.
+	 *
+	 * @return GraphicsDevice - Graphics device
+	 */
+	public GraphicsDevice getGraphicsDevice()
+	{
+		return device;
+	}
+
+	/**
+	 * Returns the job system CPU side render work is spread over, or null if it runs on the render thread.
+	 *
+	 * @return JobSystem - Job system
+	 */
+	public JobSystem getJobSystem()
+	{
+		return jobSystem;
+	}
+
+	/**
+	 * Returns the largest number of point lights and of spot lights a scene is lit with.
+	 *
+	 * @return int - Light limit
+	 */
+	public int getLightLimit()
+	{
+		return lightLimit;
+	}
+
+	/**
+	 * Returns the pipeline scenes are lit with.
+	 *
+	 * @return Pipeline - Lighting pipeline
+	 */
+	public Pipeline getPipeline()
+	{
+		return pipeline;
+	}
+
+	/**
+	 * Returns the number of point lights uploaded to the light uniform block. The deferred pipeline draws point lights as light volumes and
+	 * uploads none.
+	 *
+	 * @param scene
+	 * @return int - Number of point lights
+	 */
+	public int getPointLightCount(final Scene scene)
+	{
+		if(pipeline == Pipeline.DEFERRED) return 0;
+
+		final var pointLights = scene.getPointLights();
+		return pointLights != null ? Math.min(Math.min(pointLights.length, IRenderer.MAX_POINT_LIGHTS), lightLimit) : 0;
+	}
+
+	/**
+	 * Returns the directory linked shader program binaries are cached in, or null if shader binaries are not cached.
+	 *
+	 * @return Path - Shader binary cache directory
+	 */
+	public Path getShaderCacheDirectory()
+	{
+		return shaderCacheDirectory;
+	}
 
+	/**
+	 * Returns the number of spot lights uploaded to the light uniform block. The deferred pipeline draws spot lights as light volumes and uploads
+	 * none.
+	 *
+	 * @param scene
+	 * @return int - Number of spot lights
+	 */
+	public int getSpotLightCount(final Scene scene)
+	{
+		if(pipeline == Pipeline.DEFERRED) return 0;
+
+		final var spotLights = scene.getSpotLights();
+		return spotLights != null ? Math.min(Math.min(spotLights.length, IRenderer.MAX_SPOT_LIGHTS), lightLimit) : 0;
+	}
+
+	/**
+	 * Returns the projection matrix used for rendering.
+	 *
+	 * @return Matrix4f - Projection matrix
+	 */
+	public Matrix4f getProjectionMatrix()
+	{
+		return projectionMatrix;
+	}
+
+	/**
+	 * Returns the scale of the viewport size the scene is rendered at.
+	 *
+	 * @return float - Render scale
+	 */
+	public float getRenderScale()
+	{
+		return renderScale;
+	}
+
+	public void initialize(final ObjectLoader objectLoader) throws Exception
+	{
+		device        = objectLoader.getGraphicsDevice();
+		frameUniforms = new FrameUniforms(device);
+		materialTable = new MaterialTable(device);
+		createRenderers();
 		entityRenderer.initialize(objectLoader);
 		terrainRenderer.initialize(objectLoader);
+		deferredLighting = pipeline == Pipeline.DEFERRED ? new DeferredLighting(this) : null;
+		if(deferredLighting != null) deferredLighting.initialize(objectLoader);
 	}
 
-	public void render(final SceneManager sceneManager)
+	public void render(final Scene scene)
 	{
-		for(final Entity entity: sceneManager.getEntities())
+		render(scene, camera);
+	}
+
+	/**
+	 * Renders a scene as seen from the given camera instead of the render manager's camera, used to render snapshots taken on the simulation
+	 * thread. The camera, lights and newly registered materials are uploaded once into the uniform blocks every program reads. The deferred
+	 * pipeline draws the scene into the G-buffer and then lights it. Below a render scale of one the scene is rendered into the scaled lower left
+	 * part of a viewport sized offscreen target, which is then stretched over the viewport with bilinear filtering.
+	 *
+	 * @param scene
+	 * @param camera
+	 */
+	public void render(final Scene scene, final Camera camera)
+	{
+		final var profiler = DragonEngine.getProfiler();
+		profiler.begin("bucketing");
+		bucket(scene, camera);
+		profiler.end();
+
+		//Without a viewport size the scene is drawn into the window's framebuffer with whatever viewport it has
+		final var scaled       = renderScale != 1 && viewportWidth > 0 && viewportHeight > 0;
+		final var renderWidth  = scaled ? Math.max(1, Math.round(viewportWidth * renderScale)) : viewportWidth;
+		final var renderHeight = scaled ? Math.max(1, Math.round(viewportHeight * renderScale)) : viewportHeight;
+		//Targets have the viewport's size and the scene is drawn into their lower left corner, only resizing the viewport recreates them
+		if(scaled)
 		{
-			final var entityList = entityRenderer.getEntities().get(entity.getModel());
-			if(entityList != null) entityList.add(entity);
-			else
-			{
-				final List<Entity> newEntityList = new ArrayList<>();
-				newEntityList.add(entity);
-				entityRenderer.getEntities().put(entity.getModel(), newEntityList);
-			}
+			if(sceneTarget == null) sceneTarget = new RenderTarget(device, GL11.GL_LINEAR, RenderTarget.Format.RGBA8);
+			sceneTarget.resize(viewportWidth, viewportHeight);
+		}
+		final var framebuffer = scaled ? sceneTarget.getFramebuffer() : 0;
+		if(deferredLighting != null) deferredLighting.bindGeometryBuffer(viewportWidth, viewportHeight, renderWidth, renderHeight);
+		else
+		{
+			device.bindFramebuffer(framebuffer);
+			if(viewportWidth > 0 && viewportHeight > 0) device.viewport(renderWidth, renderHeight);
 		}
-		terrainRenderer.getTerrains().addAll(sceneManager.getTerrains());
-
 		clear();
+		frameUniforms.update(projectionMatrix, camera, scene, SPECULAR_POWER, getPointLightCount(scene), getSpotLightCount(scene));
+		materialTable.update();
+
+		profiler.begin("entity render");
+		profiler.beginGpu("entity render");
+		entityRenderer.render(scene);
+		profiler.endGpu();
+		profiler.end();
 
-		entityRenderer.render(sceneManager);
-		terrainRenderer.render(sceneManager);
+		profiler.begin("terrain render");
+		profiler.beginGpu("terrain render");
+		terrainRenderer.render(scene);
+		profiler.endGpu();
+		profiler.end();
+
+		if(deferredLighting != null)
+		{
+			profiler.begin("deferred lighting");
+			profiler.beginGpu("deferred lighting");
+			deferredLighting.render(scene, viewProjection, framebuffer);
+			profiler.endGpu();
+			profiler.end();
+		}
+
+		if(scaled)
+		{
+			profiler.begin("upscale");
+			profiler.beginGpu("upscale");
+			device.blitFramebuffer(framebuffer, renderWidth, renderHeight, viewportWidth, viewportHeight);
+			device.viewport(viewportWidth, viewportHeight);
+			profiler.endGpu();
+			profiler.end();
+		}
 	}
 
-	public void renderLights(final SceneManager sceneManager, final ShaderManager shaderManager)
+	/**
+	 * Brings the transformations of the scene's entities up to date, culls them against the camera's view frustum and queues the visible ones for
+	 * the entity renderer, and queues the scene's terrains for the terrain renderer.
+	 *
+	 * @param scene
+	 * @param camera
+	 */
+	void bucket(final Scene scene, final Camera camera)
 	{
-		shaderManager.setUniform("ambientLight", sceneManager.getAmbientLight());
-		shaderManager.setUniform("specularPower", SPECULAR_POWER);
+		final var entityStore = scene.getEntityStore();
+		final var size        = entityStore.size();
+		if(jobSystem != null)
+		{
+			transformedStore = entityStore;
+			jobSystem.parallelFor((size + TRANSFORMATION_GRAIN - 1) / TRANSFORMATION_GRAIN, 1, transformChunk);
+			transformedStore = null;
+		}
+		else entityStore.updateTransformations(0, size);
+		entityStore.updateHierarchy();
 
-		final var pointLights = sceneManager.getPointLights();
-		var       numLights   = pointLights != null ? pointLights.length : 0;
-		for(var i = 0; i < numLights; i++)
-			shaderManager.setUniform("pointLights", pointLights[i], i);
+		viewProjection.set(projectionMatrix).mul(camera.getViewMatrix());
+		for(var plane = 0; plane < 6; plane++)
+		{
+			viewProjection.frustumPlane(plane, planeEquation);
+			frustumPlanes[plane * 4]     = planeEquation.x;
+			frustumPlanes[plane * 4 + 1] = planeEquation.y;
+			frustumPlanes[plane * 4 + 2] = planeEquation.z;
+			frustumPlanes[plane * 4 + 3] = planeEquation.w;
+		}
+		if(drawDistance < Float.POSITIVE_INFINITY)
+		{
+			//Replace the far plane with one at the draw distance, facing back towards the camera
+			final var normal = camera.getViewMatrix().positiveZ(cameraDirection);
+			frustumPlanes[Matrix4f.PLANE_PZ * 4]     = normal.x;
+			frustumPlanes[Matrix4f.PLANE_PZ * 4 + 1] = normal.y;
+			frustumPlanes[Matrix4f.PLANE_PZ * 4 + 2] = normal.z;
+			frustumPlanes[Matrix4f.PLANE_PZ * 4 + 3] = drawDistance - normal.dot(camera.getPosition());
+		}
+		if(visible.length < size) visible = new boolean[size * 2];
+		entityStore.cull(frustumPlanes, visible);
 
-		final var spotLights = sceneManager.getSpotLights();
-		numLights = spotLights != null ? spotLights.length : 0;
-		for(var i = 0; i < numLights; i++)
-			shaderManager.setUniform("spotLights", spotLights[i], i);
+		entityRenderer.queue(scene, visible);
 
-		shaderManager.setUniform("directionalLight", sceneManager.getDirectionalLight());
+		//Added one by one, addAll copies the list into a temporary array
+		final var terrains = scene.getTerrains();
+		for(var i = 0; i < terrains.size(); i++)
+			terrainRenderer.getTerrains().add(terrains.get(i));
+	}
+
+	/**
+	 * Creates the renderers without initializing their shaders.
+	 */
+	void createRenderers() throws Exception
+	{
+		if(camera == null) camera = new Camera();
+		entityRenderer  = new EntityRenderer(this);
+		terrainRenderer = new TerrainRenderer(this);
+	}
+
+	/**
+	 * Returns the entity renderer.
+	 */
+	EntityRenderer getEntityRenderer()
+	{
+		return entityRenderer;
+	}
+
+	/**
+	 * Returns the terrain renderer.
+	 */
+	TerrainRenderer getTerrainRenderer()
+	{
+		return terrainRenderer;
 	}
 
 	public void setCamera(final Camera camera)
 	{
 		this.camera = camera;
 	}
+
+	/**
+	 * Sets the distance from the camera beyond which entities are culled, in front of the far plane.
+	 *
+	 * @param drawDistance - Draw distance, infinite to only cull with the far plane
+	 */
+	public void setDrawDistance(final float drawDistance)
+	{
+		this.drawDistance = drawDistance;
+	}
+
+	/**
+	 * Sets the job system CPU side render work is spread over. Without one it runs on the render thread.
+	 *
+	 * @param jobSystem
+	 */
+	public void setJobSystem(final JobSystem jobSystem)
+	{
+		this.jobSystem = jobSystem;
+	}
+
+	/**
+	 * Limits the number of point lights and of spot lights a scene is lit with, the first lights of the scene's arrays are used.
+	 *
+	 * @param lightLimit
+	 */
+	public void setLightLimit(final int lightLimit)
+	{
+		this.lightLimit = lightLimit;
+	}
+
+	/**
+	 * Sets the pipeline scenes are lit with. Must be set before the render manager is initialized to take effect.
+	 *
+	 * @param pipeline
+	 */
+	public void setPipeline(final Pipeline pipeline)
+	{
+		this.pipeline = pipeline;
+	}
+
+	/**
+	 * Sets the projection matrix used for rendering.
+	 *
+	 * @param projectionMatrix
+	 */
+	public void setProjectionMatrix(final Matrix4f projectionMatrix)
+	{
+		this.projectionMatrix.set(projectionMatrix);
+	}
+
+	/**
+	 * Sets the scale of the viewport size the scene is rendered at. Scales below one render the scene at a lower resolution and upscale it, trading
+	 * sharpness for fill rate.
+	 *
+	 * @param renderScale - Render scale, in (0, 1]
+	 * @throws IllegalArgumentException if the scale is out of range
+	 */
+	public void setRenderScale(final float renderScale)
+	{
+		if(!(renderScale > 0 && renderScale <= 1)) throw new IllegalArgumentException("The render scale must be in (0, 1], was " + renderScale + ".");
+		this.renderScale = renderScale;
+	}
+
+	/**
+	 * Sets the directory linked shader program binaries are cached in. Must be set before the render manager is initialized to take effect.
+	 *
+	 * @param shaderCacheDirectory
+	 */
+	public void setShaderCacheDirectory(final Path shaderCacheDirectory)
+	{
+		this.shaderCacheDirectory = shaderCacheDirectory;
+	}
+
+	/**
+	 * Sets the size of the viewport scenes are rendered to, which the deferred pipeline sizes its G-buffer to.
+	 *
+	 * @param width
+	 * @param height
+	 */
+	public void setViewportSize(final int width, final int height)
+	{
+		viewportWidth  = width;
+		viewportHeight = height;
+	}
+
+	/**
+	 * Brings the transformations of a chunk of the entities being bucketed up to date, run on the job system.
+	 */
+	private void transformChunk(final int chunk)
+	{
+		transformedStore.updateTransformations(chunk * TRANSFORMATION_GRAIN, Math.min(transformedStore.size(), (chunk + 1) * TRANSFORMATION_GRAIN));
+	}
 }
\ No newline at end of file
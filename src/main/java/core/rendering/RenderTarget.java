@@ -0,0 +1,136 @@
+package core.rendering;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL30;
+
+import core.GraphicsDevice;
+
+/**
+ * An offscreen framebuffer with color textures and a depth texture, rendered into instead of the window's framebuffer and sampled or copied
+ * afterwards. The textures are only (re)created when the target is resized to a different size.
+ */
+final class RenderTarget
+{
+	/**
+	 * Formats of color attachments.
+	 */
+	enum Format
+	{
+		RGBA8(GL11.GL_RGBA8, GL11.GL_UNSIGNED_BYTE), RGBA16F(GL30.GL_RGBA16F, GL11.GL_FLOAT);
+
+		private final int internalFormat, type;
+
+		Format(final int internalFormat, final int type)
+		{
+			this.internalFormat = internalFormat;
+			this.type           = type;
+		}
+	}
+
+	private final Format[]       colorFormats;
+	private final GraphicsDevice device;
+	private final int            filter;
+
+	private int   framebuffer;
+	private int   height, width;
+	private int[] textures = new int[0];
+
+	/**
+	 * @param device
+	 * @param filter       - Minification and magnification filter of the textures
+	 * @param colorFormats - Formats of the color attachments, in attachment order
+	 */
+	RenderTarget(final GraphicsDevice device, final int filter, final Format... colorFormats)
+	{
+		this.device       = device;
+		this.filter       = filter;
+		this.colorFormats = colorFormats;
+	}
+
+	void cleanup()
+	{
+		if(framebuffer != 0) device.deleteFramebuffer(framebuffer);
+		for(final int texture: textures)
+			device.deleteTexture(texture);
+		framebuffer = 0;
+		textures    = new int[0];
+		width       = 0;
+		height      = 0;
+	}
+
+	int getFramebuffer()
+	{
+		return framebuffer;
+	}
+
+	int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * Returns a texture of the target, the color attachments in attachment order followed by the depth texture.
+	 *
+	 * @param index
+	 * @return int - Texture id
+	 */
+	int getTexture(final int index)
+	{
+		return textures[index];
+	}
+
+	int getTextureCount()
+	{
+		return textures.length;
+	}
+
+	int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * Resizes the target, recreating its textures if the size changed. A target without a size has no framebuffer and binds the window's.
+	 *
+	 * @param width
+	 * @param height
+	 * @throws IllegalStateException if the driver cannot render into the target's formats
+	 */
+	void resize(final int width, final int height)
+	{
+		if(width == this.width && height == this.height) return;
+
+		cleanup();
+		this.width  = width;
+		this.height = height;
+		if(width == 0 || height == 0) return;
+
+		framebuffer = device.createFramebuffer();
+		device.bindFramebuffer(framebuffer);
+		textures = new int[colorFormats.length + 1];
+		for(var i = 0; i < colorFormats.length; i++)
+		{
+			textures[i] = createTexture(colorFormats[i].internalFormat, GL11.GL_RGBA, colorFormats[i].type);
+			device.framebufferTexture(GL30.GL_COLOR_ATTACHMENT0 + i, textures[i]);
+		}
+		textures[colorFormats.length] = createTexture(GL14.GL_DEPTH_COMPONENT24, GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT);
+		device.framebufferTexture(GL30.GL_DEPTH_ATTACHMENT, textures[colorFormats.length]);
+		device.drawBuffers(colorFormats.length);
+		device.bindTexture(0);
+		if(!device.isFramebufferComplete()) throw new IllegalStateException("Unable to create a " + width + "x" + height + " render target.");
+	}
+
+	private int createTexture(final int internalFormat, final int format, final int type)
+	{
+		final var texture = device.createTexture();
+		device.bindTexture(texture);
+		device.texImage2D(0, internalFormat, width, height, format, type, null);
+		device.texParameter(GL11.GL_TEXTURE_MIN_FILTER, filter);
+		device.texParameter(GL11.GL_TEXTURE_MAG_FILTER, filter);
+		device.texParameter(GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		device.texParameter(GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+		return texture;
+	}
+}
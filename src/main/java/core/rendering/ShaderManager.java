@@ -1,14 +1,32 @@
 package core.rendering;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 
 import org.joml.Matrix4f;
+import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
+import org.joml.Vector4fc;
 import org.lwjgl.opengl.GL20;
-import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
 
+import core.DragonEngine;
+import core.GraphicsDevice;
+import core.Metrics;
+import core.Metrics.Counter;
+import core.OpenGLDevice;
 import core.entity.Material;
 import core.lighting.DirectionalLight;
 import core.lighting.PointLight;
@@ -16,97 +34,197 @@ import core.lighting.SpotLight;
 
 public class ShaderManager
 {
+	private static final String[]	DIRECTIONAL_LIGHT_MEMBERS	= { ".color", ".direction", ".intensity" };
+	private static final String[]	MATERIAL_MEMBERS			= { ".ambient", ".diffuse", ".specular", ".hasTexture", ".reflectance" };
+	private static final String[]	POINT_LIGHT_MEMBERS			= { ".color", ".position", ".intensity", ".constant", ".linear", ".exponent" };
+	private static final String[]	SPOT_LIGHT_MEMBERS			= { ".pl.color", ".pl.position", ".pl.intensity", ".pl.constant", ".pl.linear",
+			".pl.exponent", ".coneDir", ".cutoff" };
+
 	private final Map<String, Integer>	uniforms;
+	private final Map<String, int[]>	structs;
+	private final FloatBuffer			matrixBuffer;
 	private final int					programId;
+	private final Path					binaryCacheDirectory;
+	private final Counter				stateChanges, uniformUploads;
+	private final GraphicsDevice		device;
 
-	private int vertexShaderId, fragmentShaderId;
+	private int		vertexShaderId, fragmentShaderId;
+	private String	vertexShaderCode, fragmentShaderCode;
+	private boolean	allowInactiveUniforms;
 
 	public ShaderManager() throws Exception
 	{
-		programId = GL20.glCreateProgram();
+		this(OpenGLDevice.getInstance(), null);
+	}
+
+	public ShaderManager(Path binaryCacheDirectory) throws Exception
+	{
+		this(OpenGLDevice.getInstance(), binaryCacheDirectory);
+	}
+
+	/**
+	 * Creates a shader program that stores its linked binary in the given directory and restores it on later runs instead of compiling the
+	 * shader code again. The cache is ignored if the directory is null or the device does not support program binaries.
+	 *
+	 * @param device
+	 * @param binaryCacheDirectory
+	 * @throws Exception
+	 */
+	public ShaderManager(GraphicsDevice device, Path binaryCacheDirectory) throws Exception
+	{
+		this.device = device;
+		programId = device.createProgram();
 		if (programId == 0)
 		{
 			throw new Exception("Could not create shader.");
 		}
 
 		uniforms = new HashMap<>();
+		structs = new HashMap<>();
+		matrixBuffer = MemoryUtil.memAllocFloat(16);
+
+		Metrics metrics = DragonEngine.getMetrics();
+		stateChanges = metrics.counter(Metrics.STATE_CHANGES);
+		uniformUploads = metrics.counter(Metrics.UNIFORM_UPLOADS);
+
+		this.binaryCacheDirectory = device.isProgramBinarySupported() ? binaryCacheDirectory : null;
 	}
 
 	public void createUniform(String uniformName) throws Exception
 	{
-		int uniformLocation = GL20.glGetUniformLocation(programId, uniformName);
-		if (uniformLocation < 0)
+		int uniformLocation = device.getUniformLocation(programId, uniformName);
+		if (uniformLocation < 0 && !allowInactiveUniforms)
 		{
 			throw new Exception("Could not find uniform " + uniformName);
 		}
 		uniforms.put(uniformName, uniformLocation);
 	}
 
+	/**
+	 * Makes the program's uniform block read the uniform buffer bound to a binding point.
+	 *
+	 * @param blockName
+	 * @param binding
+	 * @throws Exception if the program has no such block and inactive uniforms are not allowed
+	 */
+	public void createUniformBlock(String blockName, int binding) throws Exception
+	{
+		int blockIndex = device.getUniformBlockIndex(programId, blockName);
+		if (blockIndex < 0)
+		{
+			if (!allowInactiveUniforms)
+			{
+				throw new Exception("Could not find uniform block " + blockName);
+			}
+			return;
+		}
+		device.uniformBlockBinding(programId, blockIndex, binding);
+	}
+
+	/**
+	 * Allows creating uniforms that were compiled out of the program. Setting them is silently ignored, which lets shader variants share the
+	 * uniform setup of the full program.
+	 *
+	 * @param allowInactiveUniforms
+	 */
+	public void setAllowInactiveUniforms(boolean allowInactiveUniforms)
+	{
+		this.allowInactiveUniforms = allowInactiveUniforms;
+	}
+
 	public void createDirectionalLightUniform(String uniformName) throws Exception
 	{
-		createUniform(uniformName + ".color");
-		createUniform(uniformName + ".direction");
-		createUniform(uniformName + ".intensity");
+		structs.put(uniformName, createStructUniform(uniformName, DIRECTIONAL_LIGHT_MEMBERS));
 	}
 
 	public void createMaterialUniform(String uniformName) throws Exception
 	{
-		createUniform(uniformName + ".ambient");
-		createUniform(uniformName + ".diffuse");
-		createUniform(uniformName + ".specular");
-		createUniform(uniformName + ".hasTexture");
-		createUniform(uniformName + ".reflectance");
+		structs.put(uniformName, createStructUniform(uniformName, MATERIAL_MEMBERS));
 	}
 
 	public void createPointLightUniform(String uniformName) throws Exception
 	{
-		createUniform(uniformName + ".color");
-		createUniform(uniformName + ".position");
-		createUniform(uniformName + ".intensity");
-		createUniform(uniformName + ".constant");
-		createUniform(uniformName + ".linear");
-		createUniform(uniformName + ".exponent");
+		structs.put(uniformName, createStructUniform(uniformName, POINT_LIGHT_MEMBERS));
 	}
 
 	public void createPointLightListUniform(String uniformName, int size) throws Exception
 	{
-		for (int i = 0; i < size; i++)
+		structs.put(uniformName, createStructListUniform(uniformName, size, POINT_LIGHT_MEMBERS));
+	}
+
+	public void createSpotLightListUniform(String uniformName, int size) throws Exception
+	{
+		structs.put(uniformName, createStructListUniform(uniformName, size, SPOT_LIGHT_MEMBERS));
+	}
+
+	public void createSpotLightUniform(String uniformName) throws Exception
+	{
+		structs.put(uniformName, createStructUniform(uniformName, SPOT_LIGHT_MEMBERS));
+	}
+
+	/**
+	 * Creates the uniforms of every member of a struct and returns their locations in member order. The setters look the locations up by the
+	 * struct's name, so no member names are built while rendering.
+	 */
+	private int[] createStructUniform(String uniformName, String[] members) throws Exception
+	{
+		int[] locations = new int[members.length];
+		for (int i = 0; i < members.length; i++)
 		{
-			createPointLightUniform(uniformName + "[" + i + "]");
+			createUniform(uniformName + members[i]);
+			locations[i] = uniforms.get(uniformName + members[i]);
 		}
+		return locations;
 	}
 
-	public void createSpotLightListUniform(String uniformName, int size) throws Exception
+	/**
+	 * Creates the uniforms of an array of structs, also registering every element as a struct of its own. Returns the locations of all elements
+	 * one after another.
+	 */
+	private int[] createStructListUniform(String uniformName, int size, String[] members) throws Exception
 	{
+		int[] locations = new int[size * members.length];
 		for (int i = 0; i < size; i++)
 		{
-			createSpotLightUniform(uniformName + "[" + i + "]");
+			String elementName = uniformName + "[" + i + "]";
+			int[] element = createStructUniform(elementName, members);
+			structs.put(elementName, element);
+			System.arraycopy(element, 0, locations, i * members.length, members.length);
 		}
+		return locations;
 	}
 
-	public void createSpotLightUniform(String uniformName) throws Exception
+	public void setUniform(String uniformName, Matrix4f value)
 	{
-		createPointLightUniform(uniformName + ".pl");
-		createUniform(uniformName + ".coneDir");
-		createUniform(uniformName + ".cutoff");
+		device.uniformMatrix4(uniforms.get(uniformName), value.get(matrixBuffer), 0);
+		uniformUploads.increment();
 	}
 
-	public void setUniform(String uniformName, Matrix4f value)
+	/**
+	 * Uploads the column major matrix starting at the given offset, in floats, of a buffer.
+	 */
+	public void setUniform(String uniformName, FloatBuffer data, int offset)
 	{
-		try (MemoryStack stack = MemoryStack.stackPush())
-		{
-			GL20.glUniformMatrix4fv(uniforms.get(uniformName), false, value.get(stack.mallocFloat(16)));
-		}
+		device.uniformMatrix4(uniforms.get(uniformName), data, offset);
+		uniformUploads.increment();
 	}
 
 	public void setUniform(String uniformName, Vector4f value)
 	{
-		GL20.glUniform4f(uniforms.get(uniformName), value.x, value.y, value.z, value.w);
+		device.uniform4f(uniforms.get(uniformName), value.x, value.y, value.z, value.w);
+		uniformUploads.increment();
+	}
+
+	public void setUniform(String uniformName, Vector2f value)
+	{
+		device.uniform2f(uniforms.get(uniformName), value.x, value.y);
+		uniformUploads.increment();
 	}
 
 	public void setUniform(String uniformName, Vector3f value)
 	{
-		GL20.glUniform3f(uniforms.get(uniformName), value.x, value.y, value.z);
+		device.uniform3f(uniforms.get(uniformName), value.x, value.y, value.z);
+		uniformUploads.increment();
 	}
 
 	public void setUniform(String uniformName, boolean value)
@@ -116,50 +234,48 @@ public class ShaderManager
 		{
 			res = 1;
 		}
-		GL20.glUniform1f(uniforms.get(uniformName), res);
+		device.uniform1f(uniforms.get(uniformName), res);
+		uniformUploads.increment();
 	}
 
 	public void setUniform(String uniformName, int value)
 	{
-		GL20.glUniform1i(uniforms.get(uniformName), value);
+		device.uniform1i(uniforms.get(uniformName), value);
+		uniformUploads.increment();
 	}
 
 	public void setUniform(String uniformName, float value)
 	{
-		GL20.glUniform1f(uniforms.get(uniformName), value);
+		device.uniform1f(uniforms.get(uniformName), value);
+		uniformUploads.increment();
 	}
 
 	public void setUniform(String uniformName, Material material)
 	{
-		setUniform(uniformName + ".ambient", material.getAmbientColor());
-		setUniform(uniformName + ".diffuse", material.getDiffuseColor());
-		setUniform(uniformName + ".specular", material.getSpecularColor());
-		setUniform(uniformName + ".hasTexture", material.hasTexture() ? 1 : 0);
-		setUniform(uniformName + ".reflectance", material.getReflectance());
+		int[] locations = structs.get(uniformName);
+		setUniform(locations[0], material.getAmbientColor());
+		setUniform(locations[1], material.getDiffuseColor());
+		setUniform(locations[2], material.getSpecularColor());
+		setUniform(locations[3], material.hasTexture() ? 1 : 0);
+		setUniform(locations[4], material.getReflectance());
 	}
 
 	public void setUniform(String uniformName, DirectionalLight directionalLight)
 	{
-		setUniform(uniformName + ".color", directionalLight.getColor());
-		setUniform(uniformName + ".direction", directionalLight.getDirection());
-		setUniform(uniformName + ".intensity", directionalLight.getIntensity());
+		int[] locations = structs.get(uniformName);
+		setUniform(locations[0], directionalLight.getColor());
+		setUniform(locations[1], directionalLight.getDirection());
+		setUniform(locations[2], directionalLight.getIntensity());
 	}
 
 	public void setUniform(String uniformName, PointLight pointLight)
 	{
-		setUniform(uniformName + ".color", pointLight.getColor());
-		setUniform(uniformName + ".position", pointLight.getPosition());
-		setUniform(uniformName + ".intensity", pointLight.getIntensity());
-		setUniform(uniformName + ".constant", pointLight.getConstant());
-		setUniform(uniformName + ".linear", pointLight.getLinear());
-		setUniform(uniformName + ".exponent", pointLight.getExponent());
+		setUniform(structs.get(uniformName), 0, pointLight);
 	}
 
 	public void setUniform(String uniformName, SpotLight spotLight)
 	{
-		setUniform(uniformName + ".pl", (PointLight) spotLight);
-		setUniform(uniformName + ".coneDir", spotLight.getConeDirection());
-		setUniform(uniformName + ".cutoff", spotLight.getCutoff());
+		setUniform(structs.get(uniformName), 0, spotLight);
 	}
 
 	public void setUniform(String uniformName, PointLight[] pointLights)
@@ -173,7 +289,7 @@ public class ShaderManager
 
 	public void setUniform(String uniformName, PointLight pointLight, int pos)
 	{
-		setUniform(uniformName + "[" + pos + "]", pointLight);
+		setUniform(structs.get(uniformName), pos * POINT_LIGHT_MEMBERS.length, pointLight);
 	}
 
 	public void setUniform(String uniformName, SpotLight[] spotLights)
@@ -187,83 +303,260 @@ public class ShaderManager
 
 	public void setUniform(String uniformName, SpotLight spotLight, int pos)
 	{
-		setUniform(uniformName + "[" + pos + "]", spotLight);
+		setUniform(structs.get(uniformName), pos * SPOT_LIGHT_MEMBERS.length, spotLight);
+	}
+
+	private void setUniform(int location, Vector4fc value)
+	{
+		device.uniform4f(location, value.x(), value.y(), value.z(), value.w());
+		uniformUploads.increment();
+	}
+
+	private void setUniform(int location, Vector3f value)
+	{
+		device.uniform3f(location, value.x, value.y, value.z);
+		uniformUploads.increment();
+	}
+
+	private void setUniform(int location, int value)
+	{
+		device.uniform1i(location, value);
+		uniformUploads.increment();
+	}
+
+	private void setUniform(int location, float value)
+	{
+		device.uniform1f(location, value);
+		uniformUploads.increment();
+	}
+
+	/**
+	 * Uploads a point light to the struct members starting at the given index of a location array.
+	 */
+	private void setUniform(int[] locations, int offset, PointLight pointLight)
+	{
+		setUniform(locations[offset], pointLight.getColor());
+		setUniform(locations[offset + 1], pointLight.getPosition());
+		setUniform(locations[offset + 2], pointLight.getIntensity());
+		setUniform(locations[offset + 3], pointLight.getConstant());
+		setUniform(locations[offset + 4], pointLight.getLinear());
+		setUniform(locations[offset + 5], pointLight.getExponent());
+	}
+
+	/**
+	 * Uploads a spot light to the struct members starting at the given index of a location array.
+	 */
+	private void setUniform(int[] locations, int offset, SpotLight spotLight)
+	{
+		setUniform(locations, offset, (PointLight) spotLight);
+		setUniform(locations[offset + 6], spotLight.getConeDirection());
+		setUniform(locations[offset + 7], spotLight.getCutoff());
 	}
 
 	public void createVertexShader(String shaderCode) throws Exception
 	{
-		vertexShaderId = createShader(shaderCode, GL20.GL_VERTEX_SHADER);
+		vertexShaderCode = shaderCode;
+		if (binaryCacheDirectory == null)
+		{
+			vertexShaderId = createShader(shaderCode, GL20.GL_VERTEX_SHADER);
+		}
 	}
 
 	public void createFragmentShader(String shaderCode) throws Exception
 	{
-		fragmentShaderId = createShader(shaderCode, GL20.GL_FRAGMENT_SHADER);
+		fragmentShaderCode = shaderCode;
+		if (binaryCacheDirectory == null)
+		{
+			fragmentShaderId = createShader(shaderCode, GL20.GL_FRAGMENT_SHADER);
+		}
 	}
 
 	public int createShader(String shaderCode, int shaderType) throws Exception
 	{
-		int shaderId = GL20.glCreateShader(shaderType);
+		int shaderId = device.createShader(shaderType);
 		if (shaderId == 0)
 		{
 			throw new Exception("Error creating shader.  Type: " + shaderType);
 		}
 
-		GL20.glShaderSource(shaderId, shaderCode);
-		GL20.glCompileShader(shaderId);
-
-		if (GL20.glGetShaderi(shaderId, GL20.GL_COMPILE_STATUS) == 0)
+		if (!device.compileShader(shaderId, shaderCode))
 		{
-			throw new Exception("Error compiling shader code. Type: " + shaderType + " Info: " + GL20.glGetShaderInfoLog(shaderId, 1024));
+			throw new Exception("Error compiling shader code. Type: " + shaderType + " Info: " + device.getShaderInfoLog(shaderId));
 		}
 
-		GL20.glAttachShader(programId, shaderId);
+		device.attachShader(programId, shaderId);
 
 		return shaderId;
 	}
 
 	public void link() throws Exception
 	{
-		GL20.glLinkProgram(programId);
+		Path binaryFile = null;
+		if (binaryCacheDirectory != null)
+		{
+			// Shaders are only compiled when no binary matching the shader code and driver has been cached
+			binaryFile = binaryCacheDirectory.resolve(createBinaryKey() + ".bin");
+			if (loadBinary(binaryFile))
+			{
+				return;
+			}
+
+			if (vertexShaderCode != null)
+			{
+				vertexShaderId = createShader(vertexShaderCode, GL20.GL_VERTEX_SHADER);
+			}
+
+			if (fragmentShaderCode != null)
+			{
+				fragmentShaderId = createShader(fragmentShaderCode, GL20.GL_FRAGMENT_SHADER);
+			}
+
+			device.setProgramBinaryRetrievable(programId);
+		}
 
-		if (GL20.glGetProgrami(programId, GL20.GL_LINK_STATUS) == 0)
+		if (!device.linkProgram(programId))
 		{
-			throw new Exception("Error linking shader code. Info: " + GL20.glGetProgramInfoLog(programId, 1024));
+			throw new Exception("Error linking shader code. Info: " + device.getProgramInfoLog(programId));
 		}
 
 		if (vertexShaderId != 0)
 		{
-			GL20.glDetachShader(programId, vertexShaderId);
+			device.detachShader(programId, vertexShaderId);
 		}
 
 		if (fragmentShaderId != 0)
 		{
-			GL20.glDetachShader(programId, fragmentShaderId);
+			device.detachShader(programId, fragmentShaderId);
+		}
+
+		if (!device.validateProgram(programId))
+		{
+			throw new Exception("Unable to validate shader code. Info: " + device.getProgramInfoLog(programId));
 		}
 
-		GL20.glValidateProgram(programId);
+		if (binaryFile != null)
+		{
+			saveBinary(binaryFile);
+		}
+	}
 
-		if (GL20.glGetProgrami(programId, GL20.GL_VALIDATE_STATUS) == 0)
+	/**
+	 * Creates the name of the cached binary from the shader code and the driver description, so binaries are never restored after the shader
+	 * code changed or on a different driver.
+	 */
+	private String createBinaryKey() throws Exception
+	{
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		for (String part : new String[] { device.getDriverDescription(), vertexShaderCode, fragmentShaderCode })
+		{
+			digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Restores a cached binary, returning false if there is none or the driver rejects it.
+	 */
+	private boolean loadBinary(Path binaryFile)
+	{
+		if (!Files.exists(binaryFile))
+		{
+			return false;
+		}
+
+		ByteBuffer binary = null;
+		try
+		{
+			byte[] data = Files.readAllBytes(binaryFile);
+			binary = MemoryUtil.memAlloc(data.length);
+			binary.put(data).flip();
+
+			int binaryFormat = binary.getInt();
+			return device.programBinary(programId, binaryFormat, binary);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			return false;
+		}
+		finally
+		{
+			if (binary != null)
+			{
+				MemoryUtil.memFree(binary);
+			}
+		}
+	}
+
+	/**
+	 * Stores the binary of the linked program, prefixed with its binary format. Failing to write the cache is not an error.
+	 */
+	private void saveBinary(Path binaryFile)
+	{
+		int length = device.getProgramBinaryLength(programId);
+		if (length <= 0)
+		{
+			return;
+		}
+
+		ByteBuffer binary = MemoryUtil.memAlloc(4 + length);
+		Path temporaryFile = null;
+		try
+		{
+			int binaryFormat = device.getProgramBinary(programId, binary.position(4));
+			binary.putInt(0, binaryFormat).position(0);
+
+			Files.createDirectories(binaryCacheDirectory);
+			temporaryFile = Files.createTempFile(binaryCacheDirectory, binaryFile.getFileName().toString(), ".tmp");
+			try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE))
+			{
+				while (binary.hasRemaining())
+				{
+					channel.write(binary);
+				}
+			}
+			Files.move(temporaryFile, binaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Unable to write shader binary cache file " + binaryFile + ". " + e.getMessage());
+			//Leaves no partial file behind in the cache directory
+			if (temporaryFile != null)
+			{
+				try
+				{
+					Files.deleteIfExists(temporaryFile);
+				}
+				catch (IOException deleteException)
+				{
+					System.err.println("Unable to delete temporary file " + temporaryFile + ". " + deleteException.getMessage());
+				}
+			}
+		}
+		finally
 		{
-			throw new Exception("Unable to validate shader code. Info: " + GL20.glGetProgramInfoLog(programId, 1024));
+			MemoryUtil.memFree(binary);
 		}
 	}
 
 	public void bind()
 	{
-		GL20.glUseProgram(programId);
+		device.useProgram(programId);
+		stateChanges.increment();
 	}
 
 	public void unbind()
 	{
-		GL20.glUseProgram(0);
+		device.useProgram(0);
 	}
 
 	public void cleanup()
 	{
 		unbind();
+		MemoryUtil.memFree(matrixBuffer);
 		if (programId != 0)
 		{
-			GL20.glDeleteProgram(programId);
+			device.deleteProgram(programId);
 		}
 	}
 }
\ No newline at end of file
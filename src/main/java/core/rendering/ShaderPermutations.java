@@ -0,0 +1,111 @@
+package core.rendering;
+
+import java.nio.file.Path;
+
+import core.GraphicsDevice;
+
+/**
+ * Lazily compiled variants of a shader program. Each variant is the same shader code compiled with a different set of preprocessor defines, so
+ * lighting and material paths a draw does not use are compiled out. Variants are identified by a key packing the number of point and spot lights
+ * and whether the material has a texture and specular reflections.
+ */
+class ShaderPermutations
+{
+	/**
+	 * Creates the uniforms of a newly compiled variant.
+	 */
+	@FunctionalInterface
+	interface UniformSetup
+	{
+		void createUniforms(ShaderManager shaderManager, int pointLights, int spotLights) throws Exception;
+	}
+
+	private static final int LIGHT_BITS = 3;
+	private static final int LIGHT_MASK = (1 << LIGHT_BITS) - 1;
+	private static final int TEXTURE    = 1 << LIGHT_BITS * 2;
+	private static final int SPECULAR   = TEXTURE << 1;
+
+	static final int VARIANT_COUNT = SPECULAR << 1;
+
+	private final Path            binaryCacheDirectory;
+	private final GraphicsDevice  device;
+	private final String          fragmentShaderCode;
+	private final UniformSetup    uniformSetup;
+	private final ShaderManager[] variants;
+	private final String          vertexShaderCode;
+
+	ShaderPermutations(final GraphicsDevice device, final Path binaryCacheDirectory, final String vertexShaderCode, final String fragmentShaderCode,
+			final UniformSetup uniformSetup)
+	{
+		this.device               = device;
+		this.binaryCacheDirectory = binaryCacheDirectory;
+		this.vertexShaderCode     = vertexShaderCode;
+		this.fragmentShaderCode   = fragmentShaderCode;
+		this.uniformSetup         = uniformSetup;
+		variants                  = new ShaderManager[VARIANT_COUNT];
+	}
+
+	/**
+	 * Packs the features of a draw into a variant key.
+	 *
+	 * @param pointLights - Number of point lights, at most {@link IRenderer#MAX_POINT_LIGHTS}
+	 * @param spotLights  - Number of spot lights, at most {@link IRenderer#MAX_SPOT_LIGHTS}
+	 * @param hasTexture
+	 * @param hasSpecular
+	 * @return int - Variant key
+	 */
+	static int key(final int pointLights, final int spotLights, final boolean hasTexture, final boolean hasSpecular)
+	{
+		return pointLights | spotLights << LIGHT_BITS | (hasTexture ? TEXTURE : 0) | (hasSpecular ? SPECULAR : 0);
+	}
+
+	void cleanup()
+	{
+		for(final ShaderManager variant: variants)
+			if(variant != null) variant.cleanup();
+	}
+
+	/**
+	 * Returns the variant for a key, compiling it the first time it is requested.
+	 *
+	 * @param key - Variant key created with {@link #key(int, int, boolean, boolean)}
+	 * @return ShaderManager - Shader program of the variant
+	 */
+	ShaderManager get(final int key)
+	{
+		if(variants[key] == null) variants[key] = compile(key);
+		return variants[key];
+	}
+
+	private ShaderManager compile(final int key)
+	{
+		final var pointLights = key & LIGHT_MASK;
+		final var spotLights  = key >> LIGHT_BITS & LIGHT_MASK;
+		final var defines     = "#define POINT_LIGHTS " + pointLights + "\n#define SPOT_LIGHTS " + spotLights + "\n" + ((key & TEXTURE) != 0 ? "#define HAS_TEXTURE\n" : "")
+				+ ((key & SPECULAR) != 0 ? "#define HAS_SPECULAR\n" : "");
+
+		try
+		{
+			final var variant = new ShaderManager(device, binaryCacheDirectory);
+			variant.createVertexShader(insertDefines(vertexShaderCode, defines));
+			variant.createFragmentShader(insertDefines(fragmentShaderCode, defines));
+			variant.link();
+			variant.setAllowInactiveUniforms(true);
+			uniformSetup.createUniforms(variant, pointLights, spotLights);
+			return variant;
+		}
+		catch(final Exception e)
+		{
+			throw new IllegalStateException("Unable to compile shader variant " + key + ".", e);
+		}
+	}
+
+	/**
+	 * Inserts the defines after the #version directive, which has to stay the first line of the shader code.
+	 */
+	private String insertDefines(final String shaderCode, final String defines)
+	{
+		final var versionEnd = shaderCode.indexOf('\n') + 1;
+		return shaderCode.substring(0, versionEnd) + defines + shaderCode.substring(versionEnd);
+	}
+}
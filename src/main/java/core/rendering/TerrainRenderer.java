@@ -4,37 +4,51 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.joml.Matrix4f;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
 
 import core.DragonEngine;
+import core.GraphicsDevice;
+import core.Metrics;
+import core.Metrics.Counter;
 import core.ObjectLoader;
 import core.entity.Model;
-import core.entity.SceneManager;
+import core.entity.Scene;
 import core.entity.terrain.Terrain;
 
 class TerrainRenderer implements IRenderer<Terrain>
 {
+	private final Counter       drawCalls, entitiesProcessed, stateChanges, texturesBound, triangles;
 	private final List<Terrain> terrains;
+	private final Matrix4f      transformationMatrix;
 	private final RenderManager renderManager;
-	private final ShaderManager shaderManager;
+
+	private GraphicsDevice     device;
+	private ObjectLoader       objectLoader;
+	private ShaderManager      shaderManager;
+	private ShaderPermutations shaders;
 
 	public TerrainRenderer(final RenderManager renderManager) throws Exception
 	{
-		terrains           = new ArrayList<>();
-		shaderManager      = new ShaderManager();
-		this.renderManager = renderManager;
+		terrains             = new ArrayList<>();
+		this.renderManager   = renderManager;
+		transformationMatrix = new Matrix4f();
+
+		final var metrics = DragonEngine.getMetrics();
+		drawCalls         = metrics.counter(Metrics.DRAW_CALLS);
+		entitiesProcessed = metrics.counter(Metrics.ENTITIES_PROCESSED);
+		stateChanges      = metrics.counter(Metrics.STATE_CHANGES);
+		texturesBound     = metrics.counter(Metrics.TEXTURES_BOUND);
+		triangles         = metrics.counter(Metrics.TRIANGLES);
 	}
 
 	@Override
 	public void bind(final Model model)
 	{
-		GL30.glBindVertexArray(model.getId());
-		GL20.glEnableVertexAttribArray(0);
-		GL20.glEnableVertexAttribArray(1);
-		GL20.glEnableVertexAttribArray(2);
+		device.bindVertexArray(model.getId());
+		device.enableVertexAttribArray(0);
+		device.enableVertexAttribArray(1);
+		device.enableVertexAttribArray(2);
+		objectLoader.touch(model);
+		stateChanges.increment();
 
 		renderManager.enableCulling();
 
@@ -43,13 +57,13 @@ class TerrainRenderer implements IRenderer<Terrain>
 		shaderManager.setUniform("greenTexture", 2);
 		shaderManager.setUniform("blueTexture", 3);
 		shaderManager.setUniform("blendMap", 4);
-		shaderManager.setUniform("material", model.getMaterial());
+		shaderManager.setUniform("materialIndex", model.getMaterial().getId());
 	}
 
 	@Override
 	public void cleanup()
 	{
-		shaderManager.cleanup();
+		shaders.cleanup();
 	}
 
 	public List<Terrain> getTerrains()
@@ -60,74 +74,93 @@ class TerrainRenderer implements IRenderer<Terrain>
 	@Override
 	public void initialize(final ObjectLoader objectLoader) throws Exception
 	{
-		shaderManager.createVertexShader(objectLoader.loadResource("/shaders/terrain_vertex.vs"));
-		shaderManager.createFragmentShader(objectLoader.loadResource("/shaders/terrain_fragment.fs"));
-		shaderManager.link();
-		shaderManager.createUniform("backgroundTexture");
-		shaderManager.createUniform("redTexture");
-		shaderManager.createUniform("greenTexture");
-		shaderManager.createUniform("blueTexture");
-		shaderManager.createUniform("blendMap");
-		shaderManager.createUniform("transformationMatrix");
-		shaderManager.createUniform("projectionMatrix");
-		shaderManager.createUniform("viewMatrix");
-		shaderManager.createUniform("ambientLight");
-		shaderManager.createMaterialUniform("material");
-		shaderManager.createUniform("specularPower");
-		shaderManager.createDirectionalLightUniform("directionalLight");
-		shaderManager.createPointLightListUniform("pointLights", MAX_POINT_LIGHTS);
-		shaderManager.createSpotLightListUniform("spotLights", MAX_SPOT_LIGHTS);
+		//The deferred pipeline writes the surfaces into the G-buffer instead of lighting them
+		final var fragmentShader = renderManager.getPipeline() == RenderManager.Pipeline.DEFERRED ? "/shaders/terrain_gbuffer.fs" : "/shaders/terrain_fragment.fs";
+
+		this.objectLoader = objectLoader;
+		device            = renderManager.getGraphicsDevice();
+		shaders           = new ShaderPermutations(renderManager.getGraphicsDevice(), renderManager.getShaderCacheDirectory(), objectLoader.loadResource("/shaders/terrain_vertex.vs"),
+				objectLoader.loadResource(fragmentShader), (shaderManager, pointLights, spotLights)->
+				{
+					shaderManager.createUniform("backgroundTexture");
+					shaderManager.createUniform("redTexture");
+					shaderManager.createUniform("greenTexture");
+					shaderManager.createUniform("blueTexture");
+					shaderManager.createUniform("blendMap");
+					shaderManager.createUniform("transformationMatrix");
+					shaderManager.createUniform("materialIndex");
+					shaderManager.createUniformBlock(FrameUniforms.FRAME_BLOCK, FrameUniforms.FRAME_BINDING);
+					shaderManager.createUniformBlock(FrameUniforms.LIGHT_BLOCK, FrameUniforms.LIGHT_BINDING);
+					shaderManager.createUniformBlock(MaterialTable.BLOCK, MaterialTable.BINDING);
+				});
 	}
 
 	@Override
 	public void prepare(final Terrain terrain)
 	{
 		final var blendMapTerrain = terrain.getBlendMapTerrain();
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, blendMapTerrain.getBackground().getId());
-		GL13.glActiveTexture(GL13.GL_TEXTURE1);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, blendMapTerrain.getRedTexture().getId());
-		GL13.glActiveTexture(GL13.GL_TEXTURE2);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, blendMapTerrain.getGreenTexture().getId());
-		GL13.glActiveTexture(GL13.GL_TEXTURE3);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, blendMapTerrain.getBlueTexture().getId());
-		GL13.glActiveTexture(GL13.GL_TEXTURE4);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, terrain.getBlendMap().getId());
+		device.activeTexture(0);
+		device.bindTexture(blendMapTerrain.getBackground().getId());
+		device.activeTexture(1);
+		device.bindTexture(blendMapTerrain.getRedTexture().getId());
+		device.activeTexture(2);
+		device.bindTexture(blendMapTerrain.getGreenTexture().getId());
+		device.activeTexture(3);
+		device.bindTexture(blendMapTerrain.getBlueTexture().getId());
+		device.activeTexture(4);
+		device.bindTexture(terrain.getBlendMap().getId());
+		objectLoader.touchTexture(blendMapTerrain.getBackground().getId());
+		objectLoader.touchTexture(blendMapTerrain.getRedTexture().getId());
+		objectLoader.touchTexture(blendMapTerrain.getGreenTexture().getId());
+		objectLoader.touchTexture(blendMapTerrain.getBlueTexture().getId());
+		objectLoader.touchTexture(terrain.getBlendMap().getId());
+		texturesBound.add(5);
 
 		shaderManager.setUniform("transformationMatrix", createTransformationMatrix(terrain));
-		shaderManager.setUniform("viewMatrix", renderManager.getCamera().getViewMatrix());
 	}
 
 	@Override
-	public void render(final SceneManager sceneManager)
+	public void render(final Scene scene)
 	{
-		shaderManager.bind();
-		shaderManager.setUniform("projectionMatrix", DragonEngine.getWindowProjectionMatrix());
-		renderManager.renderLights(sceneManager, shaderManager);
-		for(final Terrain terrain: terrains)
+		final var pointLights = renderManager.getPointLightCount(scene);
+		final var spotLights  = renderManager.getSpotLightCount(scene);
+		for(var i = 0; i < terrains.size(); i++)
 		{
+			final var terrain = terrains.get(i);
+
+			//Switch to the cheapest shader variant for the terrain's material
+			final var material = terrain.getMaterial();
+			final var variant  = shaders.get(ShaderPermutations.key(pointLights, spotLights, material.hasTexture(), material.getReflectance() > 0));
+			if(variant != shaderManager)
+			{
+				shaderManager = variant;
+				shaderManager.bind();
+			}
+
 			bind(terrain.getModel());
 			prepare(terrain);
-			GL11.glDrawElements(GL11.GL_TRIANGLES, terrain.getModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+			device.drawTriangles(terrain.getModel().getVertexCount());
+			drawCalls.increment();
+			triangles.add(terrain.getModel().getVertexCount() / 3);
 			unbind();
 		}
+		entitiesProcessed.add(terrains.size());
 		terrains.clear();
-		shaderManager.unbind();
+		if(shaderManager != null) shaderManager.unbind();
+		shaderManager = null;
 	}
 
 	@Override
 	public void unbind()
 	{
-		GL20.glDisableVertexAttribArray(0);
-		GL20.glDisableVertexAttribArray(1);
-		GL20.glDisableVertexAttribArray(2);
-		GL30.glBindVertexArray(0);
+		device.disableVertexAttribArray(0);
+		device.disableVertexAttribArray(1);
+		device.disableVertexAttribArray(2);
+		device.bindVertexArray(0);
 	}
 
 	private Matrix4f createTransformationMatrix(final Terrain terrain)
 	{
-		final var matrix = new Matrix4f();
-		matrix.identity().translate(terrain.getPosition()).scale(1);
-		return matrix;
+		return transformationMatrix.translation(terrain.getPosition());
 	}
 }
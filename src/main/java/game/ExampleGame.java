@@ -1,8 +1,8 @@
 package game;
 
-import java.io.FileInputStream;
-import java.util.Properties;
+import java.nio.file.Path;
 
+import core.Config;
 import core.DragonEngine;
 
 final class ExampleGame
@@ -11,10 +11,9 @@ final class ExampleGame
 	{
 		try
 		{
-			final Properties gameProperties = new Properties();
-			gameProperties.load(new FileInputStream("src/main/resources/game.properties"));
+			final Config config = Config.load(Path.of("src/main/resources/game.properties"));
 
-			DragonEngine.getInstance().start(new GameLogic(gameProperties), gameProperties);
+			DragonEngine.getInstance().start(new GameLogic(config), config);
 		}
 		catch(final Exception e)
 		{
@@ -1,11 +1,11 @@
 package game;
 
-import java.util.Properties;
-
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.lwjgl.glfw.GLFW;
 
+import core.Config;
+import core.Config.FloatSetting;
 import core.DragonEngine;
 import core.IGameLogic;
 import core.InputManager;
@@ -13,22 +13,24 @@ import core.ObjectLoader;
 import core.entity.Entity;
 import core.entity.Model;
 import core.entity.SceneManager;
-import core.entity.Texture;
 import core.rendering.Camera;
 
 final class GameLogic implements IGameLogic
 {
-	private final Vector3f   cameraIncrement;
-	private final Properties gameProperties;
+	private final Vector3f     cameraIncrement;
+	private final FloatSetting cameraMoveSpeed, mouseSensitivity;
 
 	private Vector2f     rotationVector;
 	private SceneManager sceneManager;
 
-	public GameLogic(final Properties gameProperties)
+	public GameLogic(final Config config)
 	{
-		cameraIncrement     = new Vector3f(0, 0, 0);
-		rotationVector      = new Vector2f();
-		this.gameProperties = gameProperties;
+		cameraIncrement  = new Vector3f(0, 0, 0);
+		cameraMoveSpeed  = config.floatSetting("camera.move.speed", 0.05f, 0, Float.MAX_VALUE);
+		mouseSensitivity = config.floatSetting("mouse.sensitivity", 0.2f, 0, Float.MAX_VALUE);
+		rotationVector   = new Vector2f();
+		cameraMoveSpeed.watch();
+		mouseSensitivity.watch();
 	}
 
 	@Override
@@ -42,8 +44,8 @@ final class GameLogic implements IGameLogic
 		//sceneManager.setLightAngle(-90);
 
 		final ObjectLoader objectLoader = DragonEngine.getObjectLoader();
-		final Model        model        = objectLoader.loadObjModel("/models/cube.obj");
-		model.setTexture(new Texture(objectLoader.loadTexture("textures/blue.png")), 1f);
+		final Model        model        = objectLoader.loadObjModelAsync("/models/cube.obj").get();
+		model.setTexture(objectLoader.loadTextureAsync("textures/blue.png").get(), 1f);
 
 		//		final var backgroundTexture = new TerrainTexture(objectLoader.loadTexture("textures/terrain.png"));
 		//		final var redTexture        = new TerrainTexture(objectLoader.loadTexture("textures/flowers.png"));
@@ -99,7 +101,7 @@ final class GameLogic implements IGameLogic
 		if(inputManager.isKeyPressed(GLFW.GLFW_KEY_Z)) cameraIncrement.y = -1;
 		if(inputManager.isKeyPressed(GLFW.GLFW_KEY_X)) cameraIncrement.y = 1;
 
-		if(inputManager.isRightMouseButtonPressed()) rotationVector = inputManager.getMouseDisplayVector();
+		if(inputManager.isRightMouseButtonPressed()) rotationVector.set(inputManager.getMouseDisplayVector());
 
 		//		SpotLight spotLight = sceneManager.getSpotLights()[0];
 		//		if(inputManager.isKeyPressed(GLFW.GLFW_KEY_N))
@@ -116,8 +118,8 @@ final class GameLogic implements IGameLogic
 	public void render()
 	{
 		final Camera camera           = DragonEngine.getRenderManager().getCamera();
-		final float  cameraMoveSpeed  = Float.parseFloat(gameProperties.getProperty("camera.move.speed"));
-		final float  mouseSensitivity = Float.parseFloat(gameProperties.getProperty("mouse.sensitivity"));
+		final float  cameraMoveSpeed  = this.cameraMoveSpeed.get();
+		final float  mouseSensitivity = this.mouseSensitivity.get();
 		camera.movePosition(cameraIncrement.x * cameraMoveSpeed, cameraIncrement.y * cameraMoveSpeed, cameraIncrement.z * cameraMoveSpeed);
 		camera.moveRotation(rotationVector.x * mouseSensitivity, rotationVector.y * mouseSensitivity, 0);
 
@@ -0,0 +1,136 @@
+#version 330 core
+
+//Sizes of the light arrays, fixed so every program shares the LightData layout, must match IRenderer
+#define MAX_POINT_LIGHTS 5
+#define MAX_SPOT_LIGHTS 5
+
+//Light types, must match DeferredLighting
+#define DIRECTIONAL_LIGHT 0
+#define POINT_LIGHT 1
+#define SPOT_LIGHT 2
+
+out vec4 fragColor;
+
+struct DirectionalLight
+{
+	vec3 color;
+	vec3 direction;
+	float intensity;
+};
+
+struct PointLight
+{
+	vec3 color;
+	vec3 position;
+	float intensity;
+	float constant;
+	float linear;
+	float exponent;
+};
+
+struct SpotLight
+{
+	PointLight pl;
+	vec3 coneDir;
+	float cutoff;
+};
+
+uniform sampler2D ambientBuffer;
+uniform sampler2D diffuseBuffer;
+uniform sampler2D specularBuffer;
+uniform sampler2D normalBuffer;
+uniform sampler2D depthBuffer;
+
+uniform mat4 inverseViewProjection;
+//Part of the G-buffer the scene was rendered into, from its lower left corner
+uniform vec2 renderScale;
+
+//The light drawn, its vector is the direction of a directional light and the position of the others
+uniform int lightType;
+uniform vec3 lightColor;
+uniform vec3 lightVector;
+uniform float lightIntensity;
+uniform vec3 attenuation;
+uniform vec3 coneDirection;
+uniform float cutoff;
+
+layout(std140) uniform FrameData
+{
+	mat4 projectionMatrix;
+	mat4 viewMatrix;
+	vec3 cameraPosition;
+};
+
+layout(std140) uniform LightData
+{
+	vec3 ambientLight;
+	float specularPower;
+	DirectionalLight directionalLight;
+	PointLight pointLights[MAX_POINT_LIGHTS];
+	SpotLight spotLights[MAX_SPOT_LIGHTS];
+};
+
+vec4 diffuseC;
+vec4 specularC;
+float reflectance;
+
+vec4 calcLightColor(vec3 position, vec3 toLightDir, vec3 normal)
+{
+	//diffuse light
+	float diffuseFactor = max(dot(normal, toLightDir), 0.0);
+	vec4 diffuseColor = diffuseC * vec4(lightColor, 1.0) * lightIntensity * diffuseFactor;
+	
+	//specular color
+	vec3 cameraDirection = normalize(cameraPosition - position);
+	vec3 fromLightDir = -toLightDir;
+	vec3 reflectedLight = normalize(reflect(fromLightDir, normal));
+	float specularFactor = max(dot(cameraDirection, reflectedLight), 0.0);
+	specularFactor = pow(specularFactor, specularPower);
+	vec4 specularColor = specularC * lightIntensity * specularFactor * reflectance * vec4(lightColor, 1.0);
+	
+	return diffuseColor + specularColor;
+}
+
+vec4 calcPointLight(vec3 position, vec3 normal)
+{
+	vec3 lightDir = lightVector - position;
+	vec4 color = calcLightColor(position, normalize(lightDir), normal);
+	
+	//attenuation
+	float distance = length(lightDir);
+	float attenuationInv = attenuation.x + attenuation.y * distance + attenuation.z * distance * distance;
+	return color / attenuationInv;
+}
+
+vec4 calcSpotLight(vec3 position, vec3 normal)
+{
+	vec3 fromLightDir = normalize(position - lightVector);
+	float spotAlpha = dot(fromLightDir, normalize(coneDirection));
+	if(spotAlpha <= cutoff) discard;
+	
+	return calcPointLight(position, normal) * (1.0 - (1.0 - spotAlpha) / (1.0 - cutoff));
+}
+
+void main()
+{
+	vec2 textureCoord = gl_FragCoord.xy / vec2(textureSize(depthBuffer, 0));
+	float depth = texture(depthBuffer, textureCoord).r;
+	//Nothing was drawn here
+	if(depth == 1.0) discard;
+	
+	//Reconstruct the world position from the depth, the viewport only covered the scaled part of the G-buffer
+	vec4 position = inverseViewProjection * vec4(vec3(textureCoord / renderScale, depth) * 2.0 - 1.0, 1.0);
+	position /= position.w;
+	
+	vec4 normal = texture(normalBuffer, textureCoord);
+	diffuseC = texture(diffuseBuffer, textureCoord);
+	specularC = texture(specularBuffer, textureCoord);
+	reflectance = normal.w;
+	
+	vec4 color;
+	if(lightType == DIRECTIONAL_LIGHT) color = calcLightColor(position.xyz, normalize(lightVector), normal.xyz);
+	else if(lightType == POINT_LIGHT) color = calcPointLight(position.xyz, normal.xyz);
+	else color = calcSpotLight(position.xyz, normal.xyz);
+	
+	fragColor = texture(ambientBuffer, textureCoord) * vec4(ambientLight, 1) * color;
+}
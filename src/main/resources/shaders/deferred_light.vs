@@ -0,0 +1,11 @@
+#version 330 core
+
+layout(location = 0) in vec3 position;
+
+//Clip space transformation of the light volume, identity for the fullscreen quad
+uniform mat4 volumeMatrix;
+
+void main()
+{
+	gl_Position = volumeMatrix * vec4(position, 1.0);
+}
@@ -1,7 +1,18 @@
-#version 400 core
+#version 330 core
 
-const int MAX_POINT_LIGHTS = 5;
-const int MAX_SPOT_LIGHTS = 5;
+//Sizes of the light arrays, fixed so every variant shares the LightData layout, must match IRenderer
+#define MAX_POINT_LIGHTS 5
+#define MAX_SPOT_LIGHTS 5
+//Size of the material table, must match MaterialTable
+#define MAX_MATERIALS 256
+
+//Variants are compiled with these defines set to the lights and material features a draw uses
+#ifndef POINT_LIGHTS
+#define POINT_LIGHTS MAX_POINT_LIGHTS
+#endif
+#ifndef SPOT_LIGHTS
+#define SPOT_LIGHTS MAX_SPOT_LIGHTS
+#endif
 
 in vec2 fragTextureCoord;
 in vec3 fragNormal;
@@ -43,12 +54,30 @@ struct SpotLight
 };
 
 uniform sampler2D textureSampler;
-uniform vec3 ambientLight;
-uniform Material material;
-uniform float specularPower;
-uniform DirectionalLight directionalLight;
-uniform PointLight pointLights[MAX_POINT_LIGHTS];
-uniform SpotLight spotLights[MAX_SPOT_LIGHTS];
+uniform int materialIndex;
+
+layout(std140) uniform FrameData
+{
+	mat4 projectionMatrix;
+	mat4 viewMatrix;
+	vec3 cameraPosition;
+};
+
+layout(std140) uniform LightData
+{
+	vec3 ambientLight;
+	float specularPower;
+	DirectionalLight directionalLight;
+	PointLight pointLights[MAX_POINT_LIGHTS];
+	SpotLight spotLights[MAX_SPOT_LIGHTS];
+};
+
+layout(std140) uniform MaterialData
+{
+	Material materials[MAX_MATERIALS];
+};
+
+Material material;
 
 vec4 ambientC;
 vec4 diffuseC;
@@ -56,18 +85,15 @@ vec4 specularC;
 
 void setupColors(Material material, vec2 textCoords)
 {
-	if(material.hasTexture == 1)
-	{
-		ambientC = texture(textureSampler, textCoords);
-		diffuseC = ambientC;
-		specularC = ambientC;
-	}
-	else
-	{
-		ambientC = material.ambient;
-		diffuseC = material.diffuse;
-		specularC = material.specular;
-	}
+#ifdef HAS_TEXTURE
+	ambientC = texture(textureSampler, textCoords);
+	diffuseC = ambientC;
+	specularC = ambientC;
+#else
+	ambientC = material.ambient;
+	diffuseC = material.diffuse;
+	specularC = material.specular;
+#endif
 }
 
 vec4 calcLightColor(vec3 lightColor, float lightIntensity, vec3 position, vec3 toLightDir, vec3 normal)
@@ -79,13 +105,15 @@ vec4 calcLightColor(vec3 lightColor, float lightIntensity, vec3 position, vec3 t
 	float diffuseFactor = max(dot(normal, toLightDir), 0.0);
 	diffuseColor = diffuseC * vec4(lightColor, 1.0) * lightIntensity * diffuseFactor;
 	
+#ifdef HAS_SPECULAR
 	//specular color
-	vec3 cameraDirection = normalize(-position);
+	vec3 cameraDirection = normalize(cameraPosition - position);
 	vec3 fromLightDir = -toLightDir;
 	vec3 reflectedLight = normalize(reflect(fromLightDir, normal));
 	float specularFactor = max(dot(cameraDirection, reflectedLight), 0.0);
 	specularFactor = pow(specularFactor, specularPower);
 	specularColor = specularC * lightIntensity * specularFactor * material.reflectance * vec4(lightColor, 1.0);
+#endif
 	
 	return diffuseColor + specularColor;
 }
@@ -127,25 +155,30 @@ vec4 calcDirectionalLight(DirectionalLight light, vec3 position, vec3 normal)
 
 void main()
 {
+	material = materials[materialIndex];
 	setupColors(material, fragTextureCoord);
 	
 	vec4 diffuseSpecularComp = calcDirectionalLight(directionalLight, fragPos, fragNormal);
 	
-	for(int i = 0; i < MAX_POINT_LIGHTS; i++)
+#if POINT_LIGHTS > 0
+	for(int i = 0; i < POINT_LIGHTS; i++)
 	{
 		if(pointLights[i].intensity > 0)
 		{
 			diffuseSpecularComp += calcPointLight(pointLights[i], fragPos, fragNormal);
 		}
 	}
+#endif
 	
-	for(int i = 0; i < MAX_SPOT_LIGHTS; i++)
+#if SPOT_LIGHTS > 0
+	for(int i = 0; i < SPOT_LIGHTS; i++)
 	{
 		if(spotLights[i].pl.intensity > 0)
 		{
 			diffuseSpecularComp += calcSpotLight(spotLights[i], fragPos, fragNormal);
 		}
 	}
+#endif
 	
 	fragColor = ambientC * vec4(ambientLight, 1) * diffuseSpecularComp;
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+#version 330 core
+
+//Size of the material table, must match MaterialTable
+#define MAX_MATERIALS 256
+
+in vec2 fragTextureCoord;
+in vec3 fragNormal;
+in vec3 fragPos;
+
+//G-buffer attachments, lit by the deferred light pass
+layout(location = 0) out vec4 gAmbient;
+layout(location = 1) out vec4 gDiffuse;
+layout(location = 2) out vec4 gSpecular;
+layout(location = 3) out vec4 gNormal;
+
+struct Material
+{
+	vec4 ambient;
+	vec4 diffuse;
+	vec4 specular;
+	int hasTexture;
+	float reflectance;
+};
+
+uniform sampler2D textureSampler;
+uniform int materialIndex;
+
+layout(std140) uniform MaterialData
+{
+	Material materials[MAX_MATERIALS];
+};
+
+void main()
+{
+	Material material = materials[materialIndex];
+	
+#ifdef HAS_TEXTURE
+	gAmbient = texture(textureSampler, fragTextureCoord);
+	gDiffuse = gAmbient;
+	gSpecular = gAmbient;
+#else
+	gAmbient = material.ambient;
+	gDiffuse = material.diffuse;
+	gSpecular = material.specular;
+#endif
+	
+	gNormal = vec4(fragNormal, material.reflectance);
+}
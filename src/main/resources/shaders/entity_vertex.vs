@@ -1,16 +1,21 @@
-#version 400 core
+#version 330 core
 
-in vec3 position;
-in vec2 textureCoord;
-in vec3 normal;
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec2 textureCoord;
+layout(location = 2) in vec3 normal;
 
 out vec2 fragTextureCoord;
 out vec3 fragNormal;
 out vec3 fragPos;
 
 uniform mat4 transformationMatrix;
-uniform mat4 projectionMatrix;
-uniform mat4 viewMatrix;
+
+layout(std140) uniform FrameData
+{
+	mat4 projectionMatrix;
+	mat4 viewMatrix;
+	vec3 cameraPosition;
+};
 
 void main()
 {
@@ -0,0 +1,61 @@
+#version 330 core
+
+//Size of the material table, must match MaterialTable
+#define MAX_MATERIALS 256
+
+in vec2 fragTextureCoord;
+in vec3 fragNormal;
+in vec3 fragPos;
+
+//G-buffer attachments, lit by the deferred light pass
+layout(location = 0) out vec4 gAmbient;
+layout(location = 1) out vec4 gDiffuse;
+layout(location = 2) out vec4 gSpecular;
+layout(location = 3) out vec4 gNormal;
+
+struct Material
+{
+	vec4 ambient;
+	vec4 diffuse;
+	vec4 specular;
+	int hasTexture;
+	float reflectance;
+};
+
+uniform sampler2D backgroundTexture;
+uniform sampler2D redTexture;
+uniform sampler2D greenTexture;
+uniform sampler2D blueTexture;
+uniform sampler2D blendMap;
+
+uniform int materialIndex;
+
+layout(std140) uniform MaterialData
+{
+	Material materials[MAX_MATERIALS];
+};
+
+void main()
+{
+	Material material = materials[materialIndex];
+	
+#ifndef HAS_TEXTURE
+	vec4 blendMapColor = texture(blendMap, fragTextureCoord);
+	float backgroundTextureAmt = 1 - (blendMapColor.r + blendMapColor.g + blendMapColor.b);
+	vec2 tiledCoords = fragTextureCoord / 2.5f;
+	vec4 backgroundTextureColor = texture(backgroundTexture, tiledCoords) * backgroundTextureAmt;
+	vec4 redTextureColor = texture(redTexture, tiledCoords) * blendMapColor.r;
+	vec4 greenTextureColor = texture(greenTexture, tiledCoords) * blendMapColor.g;
+	vec4 blueTextureColor = texture(blueTexture, tiledCoords) * blendMapColor.b;
+	
+	gAmbient = backgroundTextureColor + redTextureColor + greenTextureColor + blueTextureColor;
+	gDiffuse = gAmbient;
+	gSpecular = gAmbient;
+#else
+	gAmbient = material.ambient;
+	gDiffuse = material.diffuse;
+	gSpecular = material.specular;
+#endif
+	
+	gNormal = vec4(fragNormal, material.reflectance);
+}
@@ -0,0 +1,118 @@
+package core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Settings are parsed once when declared and hot reloads are applied as a whole, so invalid values must be rejected up front and a reload must
+ * only change the watched settings.
+ */
+class ConfigTest
+{
+	private enum Quality
+	{
+		LOW, HIGH
+	}
+
+	@Test
+	void settingsAreParsedIntoTheirTypes()
+	{
+		final var properties = new Properties();
+		properties.setProperty("int", " 42 ");
+		properties.setProperty("float", "0.5");
+		properties.setProperty("boolean", "TRUE");
+		properties.setProperty("enum", "high");
+		properties.setProperty("string", " title ");
+		final var config = new Config(properties);
+
+		assertEquals(42, config.intSetting("int", 0, 0, 100).get());
+		assertEquals(0.5f, config.floatSetting("float", 0, 0, 1).get());
+		assertTrue(config.booleanSetting("boolean", false).get());
+		assertEquals(Quality.HIGH, config.enumSetting("enum", Quality.class, Quality.LOW).get());
+		assertEquals("title", config.stringSetting("string", "").get());
+		assertEquals(7, config.intSetting("missing", 7, 0, 100).get());
+
+		//Declaring a key again returns the same setting, with another type it fails
+		assertSame(config.intSetting("int", 0, 0, 100), config.intSetting("int", 0, 0, 100));
+		assertThrows(IllegalArgumentException.class, ()->config.floatSetting("int", 0, 0, 100));
+
+		properties.setProperty("invalid", "many");
+		assertThrows(IllegalArgumentException.class, ()->config.intSetting("invalid", 0, 0, 100));
+		assertThrows(IllegalArgumentException.class, ()->config.booleanSetting("invalid", false));
+		assertThrows(IllegalArgumentException.class, ()->config.enumSetting("invalid", Quality.class, Quality.LOW));
+	}
+
+	@Test
+	void valuesMustBeWithinTheRange()
+	{
+		final var properties = new Properties();
+		properties.setProperty("max", "100");
+		properties.setProperty("above", "101");
+		properties.setProperty("below", "-0.1");
+		properties.setProperty("nan", "NaN");
+		final var config = new Config(properties);
+
+		assertEquals(100, config.intSetting("max", 0, 0, 100).get());
+		assertThrows(IllegalArgumentException.class, ()->config.intSetting("above", 0, 0, 100));
+		assertThrows(IllegalArgumentException.class, ()->config.floatSetting("below", 0, 0, 1));
+		assertThrows(IllegalArgumentException.class, ()->config.floatSetting("nan", 0, 0, 1));
+	}
+
+	@Test
+	void reloadsApplyWatchedSettingsAndReportTheOthers()
+	{
+		final var properties = new Properties();
+		properties.setProperty("speed", "1");
+		properties.setProperty("width", "800");
+		final var config  = new Config(properties);
+		final var speed   = config.floatSetting("speed", 0, 0, 10);
+		final var width   = config.intSetting("width", 0, 0, 4096);
+		final var changes = new AtomicInteger();
+		speed.addListener(changes::incrementAndGet);
+		assertEquals(List.of(), config.update());
+
+		final var reloaded = new Properties();
+		reloaded.setProperty("speed", "2");
+		reloaded.setProperty("width", "1024");
+		config.reload(reloaded);
+		assertEquals(List.of(width), config.update());
+		assertEquals(2, speed.get());
+		assertEquals(800, width.get());
+		assertEquals(1, changes.get());
+
+		//Applied once
+		assertEquals(List.of(), config.update());
+		assertEquals(1, changes.get());
+	}
+
+	@Test
+	void invalidReloadsChangeNothing()
+	{
+		final var properties = new Properties();
+		properties.setProperty("speed", "1");
+		final var config  = new Config(properties);
+		final var speed   = config.floatSetting("speed", 0, 0, 10);
+		final var enabled = config.booleanSetting("enabled", false);
+		final var changes = new AtomicInteger();
+		speed.addListener(changes::incrementAndGet);
+		enabled.watch();
+
+		final var reloaded = new Properties();
+		reloaded.setProperty("speed", "2");
+		reloaded.setProperty("enabled", "maybe");
+		config.reload(reloaded);
+		assertEquals(List.of(), config.update());
+		assertEquals(1, speed.get());
+		assertFalse(enabled.get());
+		assertEquals(0, changes.get());
+	}
+}
@@ -0,0 +1,36 @@
+package core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import core.rendering.RenderManager;
+
+/**
+ * With the quality governor enabled the render scale is one of its knobs, which must cover the same scales dynamic resolution would use.
+ */
+class DynamicResolutionTest
+{
+	@Test
+	void knobSpansTheScales() throws Exception
+	{
+		final var getRenderManagerInstance = RenderManager.class.getDeclaredMethod("getInstance");
+		getRenderManagerInstance.setAccessible(true);
+		final var renderManager = (RenderManager) getRenderManagerInstance.invoke(null);
+
+		final var knob = DynamicResolution.knob(renderManager, 0.5f, 1);
+		assertEquals(11, knob.getLevelCount());
+		knob.setLevel(0);
+		assertEquals(0.5f, renderManager.getRenderScale(), 1e-6f);
+		knob.setLevel(5);
+		assertEquals(0.75f, renderManager.getRenderScale(), 1e-6f);
+		knob.setLevel(knob.getLevelCount() - 1);
+		assertEquals(1, renderManager.getRenderScale());
+
+		//A governor registering the knob starts it at the highest scale
+		final var governor = new QualityGovernor(0);
+		renderManager.setRenderScale(0.3f);
+		governor.register(knob);
+		assertEquals(1, renderManager.getRenderScale());
+	}
+}
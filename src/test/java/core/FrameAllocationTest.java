@@ -0,0 +1,186 @@
+package core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import core.entity.Entity;
+import core.entity.EntityStore;
+import core.entity.Model;
+import core.entity.Texture;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+import core.rendering.RenderManager;
+
+/**
+ * Runs whole headless frames of the game loop through the engine, with the render work spread over a job system and the quality governor
+ * enabled: input, a tick moving entities, rendering into a {@link RecordingDevice} and ending the frame, and in the pipelined game loop capturing
+ * a snapshot in between. Once the frames are warmed up they must not allocate, neither on the render thread nor on the job system's workers.
+ */
+class FrameAllocationTest
+{
+	private static final int ENTITIES       = 2500;
+	private static final int MODELS         = 16;
+	private static final int WARMUP_FRAMES  = 20000;
+	private static final int CHECKED_FRAMES = 1000;
+	private static final int ATTEMPTS       = 3;
+	private static final int JOB_THREADS    = 2;
+	private static final int TICK_RATE      = 20;
+	private static final int TICK_TIME      = 1000000000 / TICK_RATE;
+
+	private DragonEngine engine;
+	private Game         game;
+	private boolean      pipelined;
+
+	@AfterEach
+	void tearDown()
+	{
+		DragonEngine.getRenderManager().cleanup();
+		DragonEngine.getRenderManager().setJobSystem(null);
+		DragonEngine.getJobSystem().shutdown();
+		DragonEngine.getProfiler().setEnabled(false);
+	}
+
+	@ParameterizedTest
+	@CsvSource({"FORWARD, 1, false", "FORWARD, 0.5, false", "DEFERRED, 1, false", "DEFERRED, 0.5, false", "FORWARD, 1, true", "DEFERRED, 0.5, true"})
+	void steadyStateFramesDoNotAllocate(final RenderManager.Pipeline pipeline, final float renderScale, final boolean pipelined) throws Exception
+	{
+		setUp(pipeline, renderScale, pipelined);
+
+		//Warm up until the hot paths are compiled, the job system's workers only exist after the first frames. Every frame but the first ticks once
+		for(var i = 0; i < WARMUP_FRAMES; i++)
+			frame();
+		assertEquals(WARMUP_FRAMES - 1, game.updates, "Ticks");
+		final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final var workers = Arrays.stream(threads.getThreadInfo(threads.getAllThreadIds())).filter(info->info != null && info.getThreadName().startsWith("job-"))
+				.mapToLong(ThreadInfo::getThreadId).toArray();
+		final var before  = new long[workers.length];
+		final var after   = new long[workers.length];
+		assertEquals(JOB_THREADS, workers.length, "Job system workers");
+
+		//A window can catch a one-off allocation while the JIT recompiles a method, so a few are tried, allocations in every frame fail them all
+		var renderThread = 0L;
+		var jobThreads   = 0L;
+		for(var attempt = 0; attempt < ATTEMPTS; attempt++)
+		{
+			allocatedBytes(threads, workers, before);
+			final var start = threads.getCurrentThreadAllocatedBytes();
+			for(var i = 0; i < CHECKED_FRAMES; i++)
+				frame();
+			renderThread = threads.getCurrentThreadAllocatedBytes() - start;
+			allocatedBytes(threads, workers, after);
+
+			jobThreads = 0;
+			for(var i = 0; i < workers.length; i++)
+				jobThreads += after[i] - before[i];
+			if(renderThread == 0 && jobThreads == 0) break;
+		}
+		assertEquals(0, renderThread, "Bytes allocated on the render thread in " + CHECKED_FRAMES + " frames");
+		assertEquals(0, jobThreads, "Bytes allocated by job system workers in " + CHECKED_FRAMES + " frames");
+	}
+
+	private void allocatedBytes(final com.sun.management.ThreadMXBean threads, final long[] threadIds, final long[] bytes)
+	{
+		for(var i = 0; i < threadIds.length; i++)
+			bytes[i] = threads.getThreadAllocatedBytes(threadIds[i]);
+	}
+
+	/**
+	 * Runs a frame a tick long, the pipelined game loop's simulation and render frames one after the other on this thread.
+	 */
+	private void frame()
+	{
+		final var startTime = System.nanoTime();
+		if(pipelined)
+		{
+			engine.simulateFrame(TICK_TIME);
+			engine.renderFrame(startTime, TICK_TIME);
+		}
+		else engine.frame(startTime, TICK_TIME);
+	}
+
+	private void setUp(final RenderManager.Pipeline pipeline, final float renderScale, final boolean pipelined) throws Exception
+	{
+		//The governor's target is far above the frame time, so it keeps every knob at the highest level and never needs a window
+		final var properties = new Properties();
+		properties.setProperty("engine.job.threads", String.valueOf(JOB_THREADS));
+		properties.setProperty("engine.pipelined", String.valueOf(pipelined));
+		properties.setProperty("engine.profiler.enabled", "true");
+		properties.setProperty("engine.quality.governor", "true");
+		properties.setProperty("engine.render.pipeline", pipeline.name());
+		properties.setProperty("engine.render.scale", String.valueOf(renderScale));
+		properties.setProperty("engine.render.target.frame.ms", "1000");
+		properties.setProperty("engine.tickrate", String.valueOf(TICK_RATE));
+
+		HeadlessRendering.useRecordingDevice();
+		engine         = DragonEngine.getInstance();
+		game           = new Game();
+		this.pipelined = pipelined;
+		engine.initializeHeadless(game, new Config(properties));
+		HeadlessRendering.setViewport(DragonEngine.getRenderManager());
+	}
+
+	/**
+	 * Fills the scene and turns every seventh entity and the camera each tick.
+	 */
+	private static final class Game implements IGameLogic
+	{
+		private EntityStore entityStore;
+		private int         updates;
+
+		@Override
+		public void cleanup()
+		{}
+
+		@Override
+		public void initialize()
+		{
+			final var models = new Model[MODELS];
+			for(var i = 0; i < MODELS; i++)
+			{
+				models[i] = new Model(i + 1, 36, new Texture(i + 1));
+				models[i].setBoundingRadius(1);
+			}
+			final List<Entity> entities = new ArrayList<>();
+			for(var i = 0; i < ENTITIES; i++)
+				entities.add(new Entity(models[i % MODELS], new Vector3f(i % 40 - 20, 0, -i / 40), new Vector3f(0, i % 360, 0), 1));
+
+			final var sceneManager = DragonEngine.getSceneManager();
+			sceneManager.setEntities(entities);
+			sceneManager.setPointLights(new PointLight[]{new PointLight(new Vector3f(1), new Vector3f(0, 2, 0), 1), new PointLight(new Vector3f(1), new Vector3f(4, 2, 0), 1)});
+			sceneManager.setSpotLights(new SpotLight[]{new SpotLight(new Vector3f(1), new Vector3f(0, 5, 0), 1, 0, 0, 1, new Vector3f(0, -1, 0), 0.5f)});
+			entityStore = sceneManager.getEntityStore();
+
+			final var camera = DragonEngine.getRenderManager().getCamera();
+			camera.setPosition(0, 5, 20);
+			camera.setRotation(10, 0, 0);
+		}
+
+		@Override
+		public void input()
+		{}
+
+		@Override
+		public void render()
+		{}
+
+		@Override
+		public void update()
+		{
+			for(var i = 0; i < entityStore.size(); i += 7)
+				entityStore.getEntity(i).incRotation(0, 0.5f, 0);
+			DragonEngine.getRenderManager().getCamera().moveRotation(0, 0.1f, 0);
+			updates++;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package core;
+
+import java.util.List;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import core.entity.EntityStore;
+import core.entity.Scene;
+import core.entity.terrain.Terrain;
+import core.lighting.DirectionalLight;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+import core.rendering.RenderManager;
+
+/**
+ * Setup shared by the tests rendering headless frames: the engine's object loader and render manager drawing into a {@link RecordingDevice},
+ * and scenes lit by a directional light over an entity store. Public only so the tests of the rendering package can use it as well.
+ */
+public final class HeadlessRendering
+{
+	private HeadlessRendering()
+	{}
+
+	/**
+	 * Points the object loader at a new recording device and initializes the render manager on it, see {@link #setViewport(RenderManager)}. The
+	 * pipeline and the job system of the render manager must be set before.
+	 *
+	 * @param renderManager
+	 * @return RecordingDevice - Device recording what the render manager submits
+	 * @throws Exception
+	 */
+	public static RecordingDevice initialize(final RenderManager renderManager) throws Exception
+	{
+		final var device = useRecordingDevice();
+		renderManager.initialize(ObjectLoader.getInstance());
+		setViewport(renderManager);
+		return device;
+	}
+
+	/**
+	 * Sets a 1280x720 viewport and a perspective projection with a 60 degree field of view, which a window would otherwise set.
+	 *
+	 * @param renderManager
+	 */
+	public static void setViewport(final RenderManager renderManager)
+	{
+		renderManager.setViewportSize(1280, 720);
+		renderManager.setProjectionMatrix(new Matrix4f().setPerspective((float) Math.toRadians(60), 16f / 9, 0.01f, 1000));
+	}
+
+	/**
+	 * Points the object loader at a new recording device, so render managers initialized afterwards draw into it.
+	 *
+	 * @return RecordingDevice - Device recording what is submitted
+	 */
+	public static RecordingDevice useRecordingDevice()
+	{
+		final var device = new RecordingDevice();
+		ObjectLoader.getInstance().setGraphicsDevice(device);
+		return device;
+	}
+
+	/**
+	 * Creates a scene without terrains, lit by a white directional light pointing down.
+	 *
+	 * @param entityStore
+	 * @param pointLights
+	 * @param spotLights
+	 * @return Scene - Scene over the entity store
+	 */
+	public static Scene scene(final EntityStore entityStore, final PointLight[] pointLights, final SpotLight[] spotLights)
+	{
+		final var directionalLight = new DirectionalLight(new Vector3f(1), new Vector3f(0, -1, 0), 1);
+		return new Scene()
+		{
+			@Override
+			public Vector3f getAmbientLight()
+			{
+				return directionalLight.getColor();
+			}
+
+			@Override
+			public DirectionalLight getDirectionalLight()
+			{
+				return directionalLight;
+			}
+
+			@Override
+			public EntityStore getEntityStore()
+			{
+				return entityStore;
+			}
+
+			@Override
+			public PointLight[] getPointLights()
+			{
+				return pointLights;
+			}
+
+			@Override
+			public SpotLight[] getSpotLights()
+			{
+				return spotLights;
+			}
+
+			@Override
+			public List<Terrain> getTerrains()
+			{
+				return List.of();
+			}
+		};
+	}
+}
@@ -0,0 +1,74 @@
+package core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Parallel loops reuse their state between calls, so every loop must still process each index exactly once, no matter how late helpers from
+ * earlier loops start.
+ */
+class JobSystemTest
+{
+	private static final int THREADS = 3;
+
+	private JobSystem jobSystem;
+
+	@BeforeEach
+	void setUp()
+	{
+		jobSystem = new JobSystem(THREADS);
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		jobSystem.shutdown();
+	}
+
+	@Test
+	void parallelForProcessesEveryIndexOnce()
+	{
+		final var counts = new AtomicIntegerArray(1000);
+		for(var loop = 0; loop < 2000; loop++)
+		{
+			//Vary the range and grain so helpers queued by one loop run into the next one
+			final var count = 1 + loop % counts.length();
+			jobSystem.parallelFor(count, 1 + loop % 7, counts::incrementAndGet);
+			for(var i = 0; i < counts.length(); i++)
+				assertEquals(i < count ? 1 : 0, counts.getAndSet(i, 0), "Index " + i + " of loop " + loop);
+		}
+	}
+
+	@Test
+	void parallelForRethrowsExceptionsOfTheBody()
+	{
+		final var failure = new IllegalStateException("Test failure.");
+		final var thrown  = assertThrows(IllegalStateException.class, ()->jobSystem.parallelFor(100, 1, index->
+		{
+			if(index == 42) throw failure;
+		}));
+		assertSame(failure, thrown);
+
+		//The loop state is usable again afterwards
+		final var counts = new AtomicIntegerArray(100);
+		jobSystem.parallelFor(counts.length(), 1, counts::incrementAndGet);
+		for(var i = 0; i < counts.length(); i++)
+			assertEquals(1, counts.get(i));
+	}
+
+	@Test
+	void parallelForRunsNestedLoops()
+	{
+		final var counts = new AtomicIntegerArray(64 * 64);
+		jobSystem.parallelFor(64, 1, outer->jobSystem.parallelFor(64, 4, inner->counts.incrementAndGet(outer * 64 + inner)));
+		for(var i = 0; i < counts.length(); i++)
+			assertEquals(1, counts.get(i));
+	}
+}
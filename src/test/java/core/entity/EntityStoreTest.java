@@ -0,0 +1,128 @@
+package core.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Changing components and removing entities moves rows between archetype ranges, so queries must keep yielding exactly the matching entities
+ * and handles must keep resolving to their own rows.
+ */
+class EntityStoreTest
+{
+	private static final long MOVING   = 1;
+	private static final long VISIBLE  = 2;
+	private static final long ANIMATED = 4;
+	private static final int  ENTITIES = 500;
+
+	private final Model  model  = new Model(1, 36);
+	private final Random random = new Random(42);
+
+	@Test
+	void queriesYieldTheMatchingEntities()
+	{
+		final var store    = new EntityStore();
+		final var handles  = new ArrayList<Long>();
+		final var entities = new ArrayList<Entity>();
+		final var expected = new ArrayList<Float>();
+		for(var i = 0; i < ENTITIES; i++)
+		{
+			final var entity = new Entity(model, new Vector3f(i, 0, 0), new Vector3f(), 1);
+			handles.add(store.add(entity, random.nextInt(8)));
+			entities.add(entity);
+			expected.add((float) i);
+		}
+
+		for(var i = 0; i < ENTITIES * 4; i++)
+		{
+			final var index = random.nextInt(handles.size());
+			if(random.nextInt(8) == 0)
+			{
+				assertTrue(store.remove(handles.remove(index)));
+				entities.remove(index);
+				expected.remove(index);
+			}
+			else store.setComponents(handles.get(index), random.nextInt(8));
+			if(i % 100 == 0) assertQueries(store, handles);
+		}
+		assertQueries(store, handles);
+
+		//Every handle still resolves to its entity and the entity to its own row
+		for(var i = 0; i < handles.size(); i++)
+		{
+			assertSame(entities.get(i), store.get(handles.get(i)));
+			assertEquals(expected.get(i), entities.get(i).getPos().x);
+		}
+	}
+
+	@Test
+	void hierarchiesSurviveMovesBetweenArchetypes()
+	{
+		final var store  = new EntityStore();
+		final var root   = store.add(new Entity(model, new Vector3f(10, 0, 0), new Vector3f(), 1), MOVING);
+		final var child  = store.add(new Entity(model, new Vector3f(0, 5, 0), new Vector3f(), 1), VISIBLE);
+		final var others = new long[20];
+		for(var i = 0; i < others.length; i++)
+			others[i] = store.add(new Entity(model, new Vector3f(), new Vector3f(), 1), i % 3);
+		store.setParent(child, root);
+
+		store.setComponents(root, VISIBLE | ANIMATED);
+		store.setComponents(child, MOVING);
+		store.remove(others[3]);
+		store.updateTransformations(0, store.size());
+		store.updateHierarchy();
+
+		assertEquals(root, store.getParent(child));
+		assertEquals(new Vector3f(10, 5, 0), store.get(child).getWorldPosition(new Vector3f()));
+	}
+
+	@Test
+	void copiesKeepTheArchetypes()
+	{
+		final var store = new EntityStore();
+		for(var i = 0; i < 100; i++)
+			store.add(new Entity(model, new Vector3f(i, 0, 0), new Vector3f(), 1), i % 2 == 0 ? MOVING : VISIBLE);
+		final var copy = new EntityStore();
+		copy.set(store);
+
+		final var query = copy.query(MOVING, 0);
+		var       count = 0;
+		while(query.next())
+			for(var i = query.start(); i < query.end(); i++)
+			{
+				assertEquals(MOVING, copy.getComponents(copy.getEntity(i).getHandle()));
+				count++;
+			}
+		assertEquals(50, count);
+		assertFalse(query.next());
+	}
+
+	private void assertQueries(final EntityStore store, final ArrayList<Long> handles)
+	{
+		for(final long[] filter: new long[][]{{0, 0}, {MOVING, 0}, {MOVING | VISIBLE, 0}, {VISIBLE, ANIMATED}, {0, MOVING | VISIBLE | ANIMATED}})
+		{
+			final var matched = new boolean[store.size()];
+			final var query   = store.query(filter[0], filter[1]);
+			while(query.next())
+				for(var i = query.start(); i < query.end(); i++)
+				{
+					assertFalse(matched[i], "Dense index " + i + " yielded twice");
+					matched[i] = true;
+				}
+
+			for(final long handle: handles)
+			{
+				final var components = store.getComponents(handle);
+				final var matches    = (components & filter[0]) == filter[0] && (components & filter[1]) == 0;
+				assertEquals(matches, matched[store.indexOf(handle)], "Components " + components);
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package core.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.joml.Vector4f;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The material table on the GPU has a fixed number of entries, so textures must not use up material ids and the ids of materials no model uses
+ * any more must be handed out again.
+ */
+class MaterialRegistryTest
+{
+	@Test
+	void modelsWithDifferentTexturesShareAMaterial()
+	{
+		final var first  = new Model(1, 36, new Texture(1));
+		final var second = new Model(2, 36, new Texture(2));
+		assertSame(first.getMaterial(), second.getMaterial());
+		assertTrue(first.getMaterial().hasTexture());
+
+		second.setTexture(new Texture(3));
+		assertSame(first.getMaterial(), second.getMaterial());
+		assertEquals(3, second.getTexture().getId());
+
+		second.setTexture(null);
+		assertNotEquals(first.getMaterial().getId(), second.getMaterial().getId());
+	}
+
+	@Test
+	void idsOfCollectedMaterialsAreReused()
+	{
+		final var kept = new Material(new Vector4f(0.5f), 0.5f).intern();
+		final var id   = kept.getId();
+
+		//Far more materials than the table holds, none of them referenced after registering it
+		for(var i = 0; i < MaterialRegistry.CAPACITY * 8; i++)
+		{
+			if(i % 64 == 0) System.gc();
+			final var material = new Material(new Vector4f(i / 4096f), 1).intern();
+			assertTrue(material.getId() < MaterialRegistry.CAPACITY, "Id " + material.getId());
+			assertSame(material, MaterialRegistry.get(material.getId()));
+		}
+
+		assertEquals(id, kept.getId());
+		assertSame(kept, MaterialRegistry.get(id));
+		assertSame(kept, new Material(new Vector4f(0.5f), 0.5f).intern());
+	}
+}
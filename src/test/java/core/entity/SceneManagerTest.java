@@ -0,0 +1,92 @@
+package core.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Removing entities moves others into their rows and recycled facades are handed out again, so handles of removed entities must stay stale
+ * while the remaining entities stay densely packed.
+ */
+class SceneManagerTest
+{
+	private final Model        model        = new Model(1, 36);
+	private final SceneManager sceneManager = SceneManager.getInstance();
+
+	@BeforeEach
+	void setUp()
+	{
+		sceneManager.setEntities(List.of());
+	}
+
+	@Test
+	void removingAStaleHandleDoesNothing()
+	{
+		final var removed = sceneManager.spawnEntity(model, 1, 0, 0, 0, 0, 0, 1);
+		final var kept    = sceneManager.spawnEntity(model, 2, 0, 0, 0, 0, 0, 1);
+		assertTrue(sceneManager.removeEntity(removed));
+
+		assertFalse(sceneManager.removeEntity(removed));
+		assertFalse(sceneManager.despawnEntity(removed));
+		assertEquals(1, sceneManager.getEntityStore().size());
+		assertEquals(2, sceneManager.getEntityStore().get(kept).getPos().x);
+	}
+
+	@Test
+	void recycledFacadesGetANewGeneration()
+	{
+		final var store  = sceneManager.getEntityStore();
+		final var first  = sceneManager.spawnEntity(model, 1, 0, 0, 0, 0, 0, 1);
+		final var entity = store.get(first);
+		assertTrue(sceneManager.despawnEntity(first));
+
+		final var second = sceneManager.spawnEntity(model, 2, 0, 0, 0, 0, 0, 1);
+		assertSame(entity, store.get(second));
+		assertEquals(second, entity.getHandle());
+		//Same slot, newer generation
+		assertEquals((int) first, (int) second);
+		assertNotEquals(first >>> 32, second >>> 32);
+		assertNull(store.get(first));
+		assertFalse(sceneManager.despawnEntity(first));
+		assertEquals(2, entity.getPos().x);
+	}
+
+	@Test
+	void entitiesStayPackedAfterRemovals()
+	{
+		final var        store    = sceneManager.getEntityStore();
+		final var        handles  = new long[10];
+		final Set<Float> expected = new HashSet<>();
+		for(var i = 0; i < handles.length; i++)
+		{
+			handles[i] = sceneManager.spawnEntity(model, i, 0, 0, 0, 0, 0, 1);
+			expected.add((float) i);
+		}
+
+		for(final int removed: new int[]{3, 0, 9})
+		{
+			assertTrue(sceneManager.despawnEntity(handles[removed]));
+			expected.remove((float) removed);
+		}
+
+		assertEquals(expected.size(), store.size());
+		final Set<Float> remaining = new HashSet<>();
+		for(var i = 0; i < store.size(); i++)
+		{
+			final var entity = store.getEntity(i);
+			assertEquals(i, store.indexOf(entity.getHandle()));
+			remaining.add(entity.getPos().x);
+		}
+		assertEquals(expected, remaining);
+	}
+}
@@ -0,0 +1,64 @@
+package core.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import core.HeadlessRendering;
+import core.RecordingDevice;
+import core.RecordingDevice.Command;
+import core.entity.EntityStore;
+import core.entity.Scene;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+
+/**
+ * Dynamic resolution changes the render scale in small steps, which must only move the viewport within the offscreen targets instead of
+ * recreating them.
+ */
+class RenderScaleTest
+{
+	private RecordingDevice device;
+	private RenderManager   renderManager;
+
+	@AfterEach
+	void tearDown()
+	{
+		renderManager.cleanup();
+		renderManager.setPipeline(RenderManager.Pipeline.FORWARD);
+	}
+
+	@ParameterizedTest
+	@EnumSource(RenderManager.Pipeline.class)
+	void changingTheRenderScaleKeepsTheTargets(final RenderManager.Pipeline pipeline) throws Exception
+	{
+		final var scene = setUp(pipeline);
+		renderManager.setRenderScale(0.5f);
+		renderManager.render(scene);
+
+		device.reset();
+		for(var scale = 1f; scale >= 0.5f; scale -= 0.05f)
+		{
+			renderManager.setRenderScale(scale);
+			renderManager.render(scene);
+		}
+		assertEquals(0, device.getCount(Command.CREATE_FRAMEBUFFER));
+		assertEquals(0, device.getCount(Command.CREATE_TEXTURE));
+		assertEquals(0, device.getCount(Command.DELETE_TEXTURE));
+
+		//Resizing the viewport does recreate them
+		renderManager.setViewportSize(1920, 1080);
+		renderManager.render(scene);
+		assertEquals(pipeline == RenderManager.Pipeline.DEFERRED ? 2 : 1, device.getCount(Command.CREATE_FRAMEBUFFER));
+	}
+
+	private Scene setUp(final RenderManager.Pipeline pipeline) throws Exception
+	{
+		renderManager = RenderManager.getInstance();
+		renderManager.setPipeline(pipeline);
+		device = HeadlessRendering.initialize(renderManager);
+		return HeadlessRendering.scene(new EntityStore(), new PointLight[0], new SpotLight[0]);
+	}
+}
@@ -0,0 +1,116 @@
+package core.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import core.HeadlessRendering;
+import core.JobSystem;
+import core.RecordingDevice;
+import core.RecordingDevice.Command;
+import core.entity.Entity;
+import core.entity.EntityStore;
+import core.entity.Model;
+import core.entity.Scene;
+import core.entity.Texture;
+import core.lighting.PointLight;
+import core.lighting.SpotLight;
+
+/**
+ * Counts what the render manager submits to a {@link RecordingDevice} per frame, so regressions in batching show up as changed call counts.
+ * Every model has its own texture, which leaves them all with the same material, entities are spread over the models round robin and are never
+ * culled.
+ */
+class RenderSubmissionTest
+{
+	private static final int ENTITIES = 1000;
+	private static final int MODELS   = 16;
+
+	private RecordingDevice device;
+	private JobSystem       jobSystem;
+	private RenderManager   renderManager;
+	private Scene           scene;
+
+	@BeforeEach
+	void setUp() throws Exception
+	{
+		renderManager = RenderManager.getInstance();
+		device        = HeadlessRendering.initialize(renderManager);
+
+		final var models = new Model[MODELS];
+		for(var i = 0; i < MODELS; i++)
+			models[i] = new Model(i + 1, 36, new Texture(i + 1));
+		final var entityStore = new EntityStore();
+		for(var i = 0; i < ENTITIES; i++)
+			entityStore.add(new Entity(models[i % MODELS], new Vector3f(i, 0, -i), new Vector3f(i % 360, 45, 0), 1));
+		scene = HeadlessRendering.scene(entityStore, new PointLight[]{new PointLight(new Vector3f(1), new Vector3f(0, 2, 0), 1)}, new SpotLight[0]);
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		renderManager.cleanup();
+		renderManager.setJobSystem(null);
+	}
+
+	@Test
+	void drawsEveryEntityOncePerFrame()
+	{
+		renderFrame();
+		assertEquals(ENTITIES, device.getDrawCalls());
+		assertEquals(ENTITIES * 12L, device.getTriangles());
+	}
+
+	@Test
+	void bindsEveryModelOncePerFrame()
+	{
+		renderFrame();
+		assertEquals(MODELS, device.getCount(Command.BIND_TEXTURE));
+		//Every model's vertex array is bound and unbound again
+		assertEquals(MODELS * 2, device.getCount(Command.BIND_VERTEX_ARRAY));
+		//One program bound and unbound, a vertex array bind, unbind and texture bind per model
+		assertEquals(2 + MODELS * 3, device.getStateChanges());
+	}
+
+	@Test
+	void uploadsOneTransformationPerDraw()
+	{
+		renderFrame();
+		//The sampler once per program bind, the index of the shared material once and a transformation per draw
+		assertEquals(1 + 1 + ENTITIES, device.getCount(Command.UNIFORM));
+		//The frame and light uniform blocks, nothing for materials that are already uploaded
+		assertEquals(2, device.getCount(Command.BUFFER_SUB_DATA));
+	}
+
+	@Test
+	void recordsTheSameFrameOnTheJobSystem() throws Exception
+	{
+		renderFrame();
+		final var draws        = device.getDrawCalls();
+		final var stateChanges = device.getStateChanges();
+		final var uniforms     = device.getCount(Command.UNIFORM);
+
+		final var constructor = JobSystem.class.getDeclaredConstructor(int.class);
+		constructor.setAccessible(true);
+		jobSystem = constructor.newInstance(4);
+		renderManager.setJobSystem(jobSystem);
+		renderFrame();
+		assertEquals(draws, device.getDrawCalls());
+		assertEquals(stateChanges, device.getStateChanges());
+		assertEquals(uniforms, device.getCount(Command.UNIFORM));
+	}
+
+	/**
+	 * Renders a frame after a first one has uploaded the materials and set up the state that persists between frames, and keeps the counts of
+	 * the second.
+	 */
+	private void renderFrame()
+	{
+		renderManager.render(scene);
+		device.reset();
+		renderManager.render(scene);
+	}
+}